@@ -0,0 +1,21 @@
+#!/bin/sh
+# Bristlecone-@VERSION@
+#
+# Compares archived benchmark results against a baseline. 
+#
+# (c) 2006-2007 Continuent, Inc.. All rights reserved. 
+
+BHOME=`dirname $0`/..
+
+# Load all jars from the lib and lib-ext directories. 
+for jar in $BHOME/lib/*.jar $BHOME/lib-ext/*.jar
+do
+  if [ -z $CP ]; then
+    CP=$jar
+  else
+    CP=$CP:$jar
+  fi
+done
+CP=$CP:$BHOME/config
+
+java -cp $CP ${JVM_OPTIONS} com.continuent.bristlecone.benchmark.BenchmarkCompare $*
@@ -0,0 +1,95 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.apache.log4j.Logger;
+
+import com.continuent.bristlecone.benchmark.impl.Config;
+import com.continuent.bristlecone.benchmark.impl.ConfigMetadata;
+import com.continuent.bristlecone.benchmark.impl.ResultArchive;
+
+/**
+ * Implements a logger that appends every result to a result archive under
+ * a label.  Unlike other loggers it never removes previous output, so the 
+ * archive accumulates results from successive benchmark sessions, which
+ * can then be compared using BenchmarkCompare. 
+ * 
+ * @author rhodges
+ */
+public class ArchiveLogger implements ResultLogger
+{
+  private static Logger logger = Logger.getLogger(ArchiveLogger.class);  
+
+  private final ResultArchive archive;
+  private final String        label;
+
+  /** 
+   * Creates a new archive logger. 
+   * 
+   * @param archiveFileName Name of the archive file, which is created if 
+   *        it does not exist
+   * @param label Label for results or null to use the current time
+   */
+  public ArchiveLogger(String archiveFileName, String label)
+  {
+    this.archive = new ResultArchive(new File(archiveFileName));
+    if (label == null)
+      this.label = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+    else
+      this.label = label;
+  }
+
+  /** Returns the label under which results are archived. */
+  public String getLabel()
+  {
+    return label;
+  }
+
+  /* (non-Javadoc)
+   * @see com.continuent.bristlecone.benchmark.ResultLogger#init(com.continuent.bristlecone.benchmark.impl.ConfigMetadata)
+   */
+  public void init(ConfigMetadata metadata)
+  {
+    logger.info("Appending results to archive: file=" 
+        + archive.getFile().getAbsolutePath() + " label=" + label);
+  }
+
+  /* (non-Javadoc)
+   * @see com.continuent.bristlecone.benchmark.ResultLogger#resultGenerated(com.continuent.bristlecone.benchmark.impl.Config)
+   */
+  public void resultGenerated(Config tuple)
+  {
+    archive.append(label, tuple);
+  }
+
+  /* (non-Javadoc)
+   * @see com.continuent.bristlecone.benchmark.ResultLogger#cleanup()
+   */
+  public void cleanup()
+  {
+  }
+}
@@ -23,22 +23,46 @@
 package com.continuent.bristlecone.benchmark;
 
 import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Method;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Vector;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.Logger;
 
+import com.continuent.bristlecone.benchmark.db.ConnectionPool;
+import com.continuent.bristlecone.benchmark.db.DataGenerationMeter;
+import com.continuent.bristlecone.benchmark.db.DataPoolManager;
+import com.continuent.bristlecone.benchmark.db.SqlErrorClass;
 import com.continuent.bristlecone.benchmark.impl.BenchmarkThread;
+import com.continuent.bristlecone.benchmark.impl.CampaignJournal;
 import com.continuent.bristlecone.benchmark.impl.Config;
 import com.continuent.bristlecone.benchmark.impl.ConfigMetadata;
 import com.continuent.bristlecone.benchmark.impl.ConfigPropertyMetadata;
 import com.continuent.bristlecone.benchmark.impl.ConfigWrapper;
+import com.continuent.bristlecone.benchmark.impl.FlightRecording;
+import com.continuent.bristlecone.benchmark.impl.IntervalSampler;
+import com.continuent.bristlecone.benchmark.impl.KneeSearch;
+import com.continuent.bristlecone.benchmark.impl.LatencyHistogram;
+import com.continuent.bristlecone.benchmark.impl.LatencyRecorder;
+import com.continuent.bristlecone.benchmark.impl.MetricsServer;
+import com.continuent.bristlecone.benchmark.impl.PinnedThreadRecorder;
 import com.continuent.bristlecone.benchmark.impl.PropertyManager;
 import com.continuent.bristlecone.benchmark.impl.Utilities;
+import com.continuent.bristlecone.benchmark.impl.VirtualThreads;
+import com.continuent.bristlecone.utils.JfrSupport;
 
 /**
  * This class defines a simple performance benchmark for SQL update and query
@@ -67,8 +91,38 @@ public class Benchmark
   /** Name of the HTML output file, if desired. */
   protected String htmlOutputFile = null;
   
+  /** Name of the CSV interval time series output file, if desired. */
+  protected String intervalCsvOutputFile = null;
+  
+  /** Name of the result archive file, if desired. */
+  protected String archiveFile = null;
+  
+  /** Label for archived results, or null to use the current time. */
+  protected String archiveLabel = null;
+  
+  /** Name of the campaign journal file, or null to use props + ".journal". */
+  protected String journalFile = null;
+  
+  /** If true, skip runs that the campaign journal records as finished. */
+  protected boolean resume = false;
+  
+  /** If true, start a new campaign even if the journal holds one that did not finish. */
+  protected boolean overwrite = false;
+  
+  /** Port for live metrics, 0 for any free port, or -1 for no metrics. */
+  protected int metricsPort = -1;
+  
+  /** Address on which to serve live metrics, or null for loopback. */
+  protected String metricsBind = null;
+  
+  /** Server for live metrics while go() runs, or null. */
+  protected volatile MetricsServer metricsServer = null;
+  
   /** List of loggers to be informed of test results. */
   List<ResultLogger> loggers = new ArrayList<ResultLogger>();
+  
+  /** Results held back from loggers while a knee search runs, or null. */
+  protected List<Config> deferredResults = null;
 
   /** Creates a new Benchmark instance. */
   public Benchmark()
@@ -95,6 +149,53 @@ public class Benchmark
     this.htmlOutputFile = html;
   }
 
+  public void setIntervalCsv(String intervalCsv)
+  {
+    this.intervalCsvOutputFile = intervalCsv;
+  }
+
+  public void setArchive(String archive)
+  {
+    this.archiveFile = archive;
+  }
+
+  public void setArchiveLabel(String archiveLabel)
+  {
+    this.archiveLabel = archiveLabel;
+  }
+
+  public void setJournal(String journal)
+  {
+    this.journalFile = journal;
+  }
+
+  public void setResume(boolean resume)
+  {
+    this.resume = resume;
+  }
+
+  public void setOverwrite(boolean overwrite)
+  {
+    this.overwrite = overwrite;
+  }
+
+  public void setMetricsPort(int metricsPort)
+  {
+    this.metricsPort = metricsPort;
+  }
+
+  public void setMetricsBind(String metricsBind)
+  {
+    this.metricsBind = metricsBind;
+  }
+
+  /** Returns the live metrics port, which is only valid while go() runs. */
+  public int getMetricsPort()
+  {
+    MetricsServer server = metricsServer;
+    return (server == null) ? metricsPort : server.getPort();
+  }
+
   /**
    * Runs a benchmark test. Control parameters must be set before this method is
    * called.
@@ -110,6 +211,10 @@ public class Benchmark
       addLogger(new CsvLogger(csvOutputFile));
     if (this.htmlOutputFile != null)
       addLogger(new HtmlLogger(htmlOutputFile));
+    if (this.intervalCsvOutputFile != null)
+      addLogger(new IntervalCsvLogger(intervalCsvOutputFile));
+    if (this.archiveFile != null)
+      addLogger(new ArchiveLogger(archiveFile, archiveLabel));
     
     // Load the properties file. 
     PropertyManager pm = new PropertyManager();
@@ -147,6 +252,85 @@ public class Benchmark
       metadata.getPropertyMetadataAsserted(splitName).setVariable(true);
     }
 
+    // The knee search varies the number of threads, so threads become a
+    // variable property if any run uses the search. 
+    for (Properties searchProperties : propertiesList)
+    {
+      Config searchConfig = new Config(searchProperties, metadata);
+      if (new ConfigWrapper(searchConfig).isThreadSearch())
+        metadata.getPropertyMetadataAsserted("threads").setVariable(true);
+    }
+
+    // Open the campaign journal.  On resume we read runs that finished 
+    // earlier; otherwise this is a new campaign.  A new campaign must not 
+    // discard a journal from which an unfinished campaign could still be
+    // resumed, so we check before loggers truncate their output files.  A 
+    // journal holding none of our runs belongs to another campaign, for 
+    // example one whose properties have since been edited, and cannot be 
+    // resumed with these properties, so it is replaced. 
+    if (journalFile == null)
+      journalFile = props + ".journal";
+    CampaignJournal journal = new CampaignJournal(new File(journalFile));
+    Map<String, List<Map<String, String>>> completed;
+    try
+    {
+      completed = journal.readCompleted();
+    }
+    catch (IOException e)
+    {
+      throw new BenchmarkException("Unable to read campaign journal: " 
+          + journal.getFile().getAbsolutePath(), e);
+    }
+    if (resume)
+    {
+      logger.info("Resuming campaign: journal=" 
+          + journal.getFile().getAbsolutePath() + " finished runs=" 
+          + completed.size() + " total runs=" + propertiesList.size());
+    }
+    else
+    {
+      if (!completed.isEmpty())
+      {
+        int finishedRuns = 0;
+        for (Properties runProperties : propertiesList)
+        {
+          if (completed.containsKey(CampaignJournal.keyFor(runProperties)))
+            finishedRuns++;
+        }
+        if (finishedRuns == 0)
+          logger.warn("Overwriting journal of another campaign: journal=" 
+              + journal.getFile().getAbsolutePath());
+        else if (finishedRuns == propertiesList.size())
+          logger.warn("Overwriting journal of finished campaign: journal=" 
+              + journal.getFile().getAbsolutePath());
+        else if (overwrite)
+          logger.warn("Overwriting journal of unfinished campaign: journal=" 
+              + journal.getFile().getAbsolutePath() + " finished runs=" 
+              + finishedRuns);
+        else
+          throw new BenchmarkException("Campaign journal holds an unfinished "
+              + "campaign; use -resume to continue it or -overwrite to "
+              + "discard it: journal=" + journal.getFile().getAbsolutePath() 
+              + " finished runs=" + finishedRuns 
+              + " total runs=" + propertiesList.size());
+      }
+      completed = new HashMap<String, List<Map<String, String>>>();
+
+      // A new campaign only needs the journal to resume later, so it runs 
+      // without one if the journal cannot be written. 
+      try
+      {
+        journal.clear();
+      }
+      catch (BenchmarkException e)
+      {
+        logger.warn("Unable to write campaign journal; campaign cannot be "
+            + "resumed: journal=" + journal.getFile().getAbsolutePath() 
+            + " error=" + e.getCause());
+        journal = null;
+      }
+    }
+
     // Initialize loggers. 
     Iterator<ResultLogger> loggerIter = loggers.iterator();
     while (loggerIter.hasNext())
@@ -156,13 +340,25 @@ public class Benchmark
       bLogger.init(metadata);
     }
     
+    // Start serving live metrics if requested. 
+    if (metricsPort >= 0)
+    {
+      metricsServer = new MetricsServer(metricsBind, metricsPort);
+      metricsServer.start();
+    }
+
     // Iterate through each of the property files.
-    Iterator<Properties> propertiesListIterator = propertiesList.iterator();
-    while (propertiesListIterator.hasNext())
+    try
     {
-      // Create the benchmark configuration with a wrapper. 
-      Properties bProperties = propertiesListIterator.next();
-      runBenchmark(metadata, bProperties);
+      runAll(metadata, propertiesList, journal, completed);
+    }
+    finally
+    {
+      if (metricsServer != null)
+      {
+        metricsServer.stop();
+        metricsServer = null;
+      }
     }
 
     // Call loggers to let them know the test is done. 
@@ -173,9 +369,139 @@ public class Benchmark
       bLogger.cleanup();
     }
   }
+
+  // Runs each property set of the cross product, skipping those that 
+  // finished before we resumed.  The journal is null if a new campaign 
+  // could not write it. 
+  private void runAll(ConfigMetadata metadata, 
+      Vector<Properties> propertiesList, CampaignJournal journal, 
+      Map<String, List<Map<String, String>>> completed)
+  {
+    int runIndex = 0;
+    Iterator<Properties> propertiesListIterator = propertiesList.iterator();
+    while (propertiesListIterator.hasNext())
+    {
+      // Create the benchmark configuration with a wrapper. 
+      Properties bProperties = propertiesListIterator.next();
+      String key = CampaignJournal.keyFor(bProperties);
+      runIndex++;
+      if (metricsServer != null)
+        metricsServer.setRunPosition(runIndex, propertiesList.size());
+
+      // Replay results of runs that finished before we resumed, so that 
+      // output files are complete. 
+      List<Map<String, String>> earlierResults = completed.get(key);
+      if (earlierResults != null)
+      {
+        logger.info("Skipping finished run: " 
+            + listVariableValues(metadata, bProperties));
+        for (Map<String, String> values : earlierResults)
+        {
+          Config config = new Config(values, metadata);
+          for (ResultLogger bLogger : loggers)
+            bLogger.resultGenerated(config);
+        }
+        continue;
+      }
+
+      List<Config> results;
+      if (new ConfigWrapper(new Config(bProperties, metadata)).isThreadSearch())
+        results = runThreadSearch(metadata, bProperties);
+      else
+      {
+        results = new ArrayList<Config>();
+        results.add(runBenchmark(metadata, bProperties));
+      }
+      if (journal != null)
+      {
+        try
+        {
+          journal.complete(key, results);
+        }
+        catch (BenchmarkException e)
+        {
+          if (resume)
+            throw e;
+          logger.warn("Unable to write campaign journal; campaign cannot be "
+              + "resumed: journal=" + journal.getFile().getAbsolutePath() 
+              + " error=" + e.getCause());
+          journal = null;
+        }
+      }
+    }
+  }
   
-  /** Runs a test. */
-  public void runBenchmark(ConfigMetadata metadata, Properties bProperties)
+  /** 
+   * Searches for the thread count at which throughput stops scaling.  Each
+   * step of the search is a full benchmark run.  Results are held back 
+   * until the search ends, then each step is given the knee and reported 
+   * to loggers in order of thread count, so that result files hold the 
+   * measured curve and its knee. 
+   * 
+   * @return Configurations with results of each step
+   */
+  public List<Config> runThreadSearch(final ConfigMetadata metadata, 
+      final Properties bProperties)
+  {
+    final List<Config> results = new ArrayList<Config>();
+    ConfigWrapper configWrapper = new ConfigWrapper(new Config(bProperties, metadata));
+    KneeSearch search = new KneeSearch((int) configWrapper.getThreads(), 
+        configWrapper.getThreadSearchMax(), 
+        configWrapper.getThreadSearchGain() / 100.0, 
+        configWrapper.getThreadSearchP99Millis());
+    logger.info("Searching for throughput knee: start=" 
+        + configWrapper.getThreads() + " max=" + configWrapper.getThreadSearchMax()
+        + " gain=" + configWrapper.getThreadSearchGain() + "% p99Millis=" 
+        + configWrapper.getThreadSearchP99Millis());
+
+    KneeSearch.Point knee;
+    deferredResults = new ArrayList<Config>();
+    try
+    {
+      knee = search.search(new KneeSearch.Runner()
+      {
+        public KneeSearch.Point run(int threads)
+        {
+          Properties stepProperties = new Properties();
+          stepProperties.putAll(bProperties);
+          stepProperties.setProperty("threads", Integer.toString(threads));
+          Config config = runBenchmark(metadata, stepProperties);
+          ConfigWrapper result = new ConfigWrapper(config);
+          return new KneeSearch.Point(threads, result.getActualAvgOpsSecond(), 
+              result.getActualP99Millis());
+        }
+      });
+    }
+    finally
+    {
+      results.addAll(deferredResults);
+      deferredResults = null;
+    }
+
+    logger.info("Throughput curve measured by knee search:");
+    for (KneeSearch.Point point : search.getCurve())
+      logger.info("  " + point);
+    logger.info("Throughput knee: " + knee);
+
+    // Report the curve with the knee marked on every step. 
+    Collections.sort(results, new Comparator<Config>()
+    {
+      public int compare(Config c1, Config c2)
+      {
+        return Long.compare(new ConfigWrapper(c1).getThreads(), 
+            new ConfigWrapper(c2).getThreads());
+      }
+    });
+    for (Config config : results)
+    {
+      new ConfigWrapper(config).setActualKneeThreads(knee.getThreads());
+      reportResult(config);
+    }
+    return results;
+  }
+
+  /** Runs a test and returns its configuration with results. */
+  public Config runBenchmark(ConfigMetadata metadata, Properties bProperties)
   {
     // Setup for running a benchmark
     logger.info("+++++ Starting benchmark run +++++");
@@ -183,6 +509,10 @@ public class Benchmark
     ConfigWrapper configWrapper = new ConfigWrapper(config);
     logger.info("Input variables: " + listVariableValues(metadata, bProperties));
 
+    // Fail before opening connections if the executor cannot run here. 
+    if (ConfigWrapper.EXECUTOR_VIRTUAL.equals(configWrapper.getExecutor()))
+      VirtualThreads.checkSupported();
+
     // Instantiate monitor class. 
     Monitor monitor = null;
     if (configWrapper.getMonitorClass() != null)
@@ -191,15 +521,43 @@ public class Benchmark
         monitor = (Monitor) Utilities.instantiateClass(monitorClass);
     }
     
+    // Seed random numbers before scenarios are created so that keys and 
+    // data are reproducible. 
+    long seed = getSeed(configWrapper);
+    ThreadRandom.setSeed(seed);
+    configWrapper.setActualSeed(seed);
+
+    // Create a connection pool shared by all threads if requested.  A 
+    // scenario that keeps its own connections would not use the pool, 
+    // which would only limit how many threads run at once. 
+    Class<?> scenarioClass = Utilities.loadClass(configWrapper.getScenarioClass());
+    ConnectionPool pool = null;
+    if (configWrapper.getPoolSize() > 0 && configWrapper.getUrl() != null
+        && ! supportsPooling(scenarioClass))
+    {
+      logger.warn("Scenario does not take connections from a pool; ignoring "
+          + "poolSize: scenario=" + scenarioClass.getName());
+    }
+    else if (configWrapper.getPoolSize() > 0 && configWrapper.getUrl() != null)
+    {
+      logger.info("Creating connection pool: size=" 
+          + configWrapper.getPoolSize());
+      pool = new ConnectionPool(configWrapper.getUrl(), 
+          configWrapper.getUser(), configWrapper.getPassword(), 
+          configWrapper.getPoolSize(), configWrapper.getPoolAcquireTimeout(), 
+          configWrapper.isPoolValidation());
+    }
+
     // Instantiate and set properties on all scenario instances. 
     logger.info("Instantiating and initializing " + configWrapper.getThreads()
         + " scenario instances");
-    Class<?> scenarioClass = Utilities.loadClass(configWrapper.getScenarioClass());
     Scenario[] scenarioArray = new Scenario[(int) configWrapper.getThreads()];
     for (int i = 0; i < scenarioArray.length; i++)
     {
       Scenario scenarioInst = (Scenario) Utilities.instantiateClass(scenarioClass);
       metadata.setProperties(bProperties, scenarioInst);
+      if (pool != null)
+        scenarioInst.setConnectionPool(pool);
       try
       {
         scenarioInst.initialize(bProperties);
@@ -227,23 +585,47 @@ public class Benchmark
     }
     
     // Call the global init method on a selected benchmark scenario. 
-    logger.debug("Invoking globalPrepare method");
-    try
-    {
-      scenarioArray[0].globalPrepare();
-    }
-    catch (Exception e)
+    boolean globalOwner = isGlobalScenarioOwner(config);
+    if (globalOwner)
     {
-      throw new BenchmarkException("Global initialization failed", e);
+      logger.debug("Invoking globalPrepare method");
+      long prepareStart = System.currentTimeMillis();
+      try
+      {
+        scenarioArray[0].globalPrepare();
+        configWrapper.setActualPrepareDuration(
+            (System.currentTimeMillis() - prepareStart) / 1000.0);
+        configWrapper.setActualDataSeed(scenarioArray[0].getDataSeed());
+      }
+      catch (Exception e)
+      {
+        throw new BenchmarkException("Global initialization failed", e);
+      }
     }
 
     // Prepare threads. 
     logger.info("Creating threads and invoking scenario prepare() methods");
     BenchmarkThread threadArray[] = new BenchmarkThread[(int) configWrapper.getThreads()];
+    CyclicBarrier warmupBarrier = null;
+    AtomicLong warmupRelease = new AtomicLong();
+    if (configWrapper.getWarmup() > 0)
+    {
+      warmupBarrier = new CyclicBarrier(threadArray.length, 
+          () -> warmupRelease.set(System.currentTimeMillis()));
+    }
+    String[] timedOperations = metadata.getTimedOperations();
     for (int i = 0; i < threadArray.length; i++)
     {
       String name = "PBenchmark-" + i;
-      BenchmarkThread bt = new BenchmarkThread(name, scenarioArray[i], configWrapper);
+      BenchmarkThread bt = new BenchmarkThread(name, scenarioArray[i], configWrapper, i);
+      bt.setWarmupBarrier(warmupBarrier);
+      bt.setConnectionPool(pool);
+      if (timedOperations.length > 0)
+        bt.setTimingContext(new TimingContext(timedOperations));
+      if (configWrapper.getSampleInterval() > 0)
+        bt.setIntervalRecorder(new LatencyRecorder());
+      if (metricsServer != null)
+        bt.setMetricsRecorder(new LatencyRecorder());
       bt.prepare();
       threadArray[i] = bt;
     }
@@ -256,17 +638,82 @@ public class Benchmark
         monitorThread.start();
     }
     
+    // Choose the threads that will run the benchmark threads.  By default
+    // these are the benchmark threads themselves.  In virtual mode each 
+    // benchmark thread runs as the task of a virtual thread instead, and we
+    // record carrier thread pinning while it runs. 
+    String executor = configWrapper.getExecutor();
+    Thread runnerArray[] = new Thread[threadArray.length];
+    PinnedThreadRecorder pinnedRecorder = null;
+    if (ConfigWrapper.EXECUTOR_PLATFORM.equals(executor))
+    {
+      for (int i = 0; i < threadArray.length; i++)
+        runnerArray[i] = threadArray[i];
+    }
+    else if (ConfigWrapper.EXECUTOR_VIRTUAL.equals(executor))
+    {
+      for (int i = 0; i < threadArray.length; i++)
+        runnerArray[i] = VirtualThreads.newThread(threadArray[i].getName(), threadArray[i]);
+      if (JfrSupport.isAvailable())
+      {
+        pinnedRecorder = new PinnedThreadRecorder();
+        pinnedRecorder.start();
+      }
+    }
+    else
+      throw new BenchmarkException("Unrecognized executor type: " + executor);
+
+    // Start a flight recording if requested.  This covers warmup so that 
+    // JIT compilation and connection setup are visible in the recording. 
+    FlightRecording recording = null;
+    if (configWrapper.isJfr())
+    {
+      recording = new FlightRecording(newJfrFile());
+      recording.start();
+    }
+
+    // Measure CPU spent on data generation from here on. 
+    DataGenerationMeter.reset();
+    long processCpuStart = DataGenerationMeter.processCpuTime();
+
     // Start all threads.
-    logger.debug("Starting threads");
-    for (int i = 0; i < threadArray.length; i++)
+    beforeStart(config);
+    logger.debug("Starting threads: executor=" + executor);
+    for (int i = 0; i < runnerArray.length; i++)
+    {
+      runnerArray[i].start();
+    }
+    if (metricsServer != null)
+      metricsServer.runStarted(config, threadArray, runnerArray);
+
+    // Start the interval sampler if time series output is requested. 
+    Thread samplerThread = null;
+    if (configWrapper.getSampleInterval() > 0)
     {
-      threadArray[i].start();
+      IntervalSampler sampler = new IntervalSampler(threadArray, config, 
+          loggers, configWrapper.getSampleInterval());
+      samplerThread = new Thread(sampler, "interval-sampler");
+      samplerThread.start();
     }
 
     // Start all threads and collect results when they are done.
     long actualIterations = 0;
     long actualSQLExceptions = 0;
     int actualOtherExceptions = 0;
+    long actualLateOps = 0;
+    long actualDroppedOps = 0;
+    long actualWarmupIterations = 0;
+    long actualWarmupMillis = 0;
+    long[] actualErrors = new long[SqlErrorClass.COUNT];
+    long actualRetries = 0;
+    long actualRetriedOps = 0;
+    LatencyHistogram actualLatency = new LatencyHistogram();
+    LatencyHistogram actualRetriedLatency = new LatencyHistogram();
+    LatencyHistogram actualPoolWait = new LatencyHistogram();
+    long actualPoolTimeouts = 0;
+    LatencyHistogram[] operationLatency = new LatencyHistogram[timedOperations.length];
+    for (int i = 0; i < operationLatency.length; i++)
+      operationLatency[i] = new LatencyHistogram();
 
     long start = System.currentTimeMillis();
     for (int i = 0; i < threadArray.length; i++)
@@ -274,7 +721,7 @@ public class Benchmark
       BenchmarkThread pbt = threadArray[i];
       try
       {
-        pbt.join();
+        runnerArray[i].join();
       }
       catch (InterruptedException e)
       {
@@ -290,12 +737,55 @@ public class Benchmark
       // Add the various counts to the total. 
       actualIterations += pbt.getIterationCount();
       actualSQLExceptions += pbt.getSqlExceptionCount();
+      actualLatency.add(pbt.getLatencyHistogram());
+      for (int j = 0; j < actualErrors.length; j++)
+        actualErrors[j] += pbt.getErrorCount(j);
+      actualRetries += pbt.getRetryCount();
+      actualRetriedOps += pbt.getRetriedOpsCount();
+      if (pbt.getRetriedLatencyHistogram() != null)
+        actualRetriedLatency.add(pbt.getRetriedLatencyHistogram());
+      if (pbt.getPoolWaitHistogram() != null)
+        actualPoolWait.add(pbt.getPoolWaitHistogram());
+      actualPoolTimeouts += pbt.getPoolTimeoutCount();
+      for (int j = 0; j < operationLatency.length; j++)
+      {
+        LatencyHistogram histogram = pbt.getTimingContext().getHistogram(j);
+        if (histogram != null)
+          operationLatency[j].add(histogram);
+      }
+      actualLateOps += pbt.getLateCount();
+      actualDroppedOps += pbt.getDroppedCount();
+      actualWarmupIterations += pbt.getWarmupIterationCount();
+      actualWarmupMillis = Math.max(actualWarmupMillis, pbt.getWarmupElapsed());
       if (exception != null)
       {
         actualOtherExceptions++;
       }
     }
     logger.info("Threads completed execution");
+    long processCpu = DataGenerationMeter.processCpuTime() - processCpuStart;
+    long generatorCpu = DataGenerationMeter.getCpuNanos();
+    if (metricsServer != null)
+      metricsServer.runFinished();
+    if (pinnedRecorder != null)
+      pinnedRecorder.stop();
+    if (recording != null && recording.stop())
+      configWrapper.setActualJfrFile(recording.getFile().getPath());
+
+    // Stop the sampler, which takes a final sample for the last partial
+    // interval. 
+    if (samplerThread != null)
+    {
+      try
+      {
+        samplerThread.interrupt();
+        samplerThread.join();
+      }
+      catch (InterruptedException e)
+      {
+        logger.warn("Interval sampler join operation was interrupted");
+      }
+    }
 
     // Terminate monitor using an interrupt.  This counts in the test 
     // duration, so if the monitor is doing something unrelated it needs
@@ -318,9 +808,14 @@ public class Benchmark
       }
     }
     
-    // Compute and add result values to the config instance.  Note extra 
-    // code to deal with durations that equate to 0 seconds. 
-    double actualDuration = (System.currentTimeMillis() - start) / 1000;
+    // Compute and add result values to the config instance.  If there was
+    // a warmup, measured time starts when the last thread reaches the 
+    // warmup barrier, including threads that failed during warmup and 
+    // never measured.  Note extra code to deal with durations that equate 
+    // to 0 seconds. 
+    if (warmupBarrier != null)
+      start = Math.max(start, warmupRelease.get());
+    double actualDuration = (System.currentTimeMillis() - start) / 1000.0;
     double actualAvgDuration = actualDuration / actualIterations;
     
     double actualAvgOpsSec; 
@@ -335,6 +830,44 @@ public class Benchmark
     configWrapper.setActualAvgOpsSecond(actualAvgOpsSec);
     configWrapper.setActualSQLExceptions(actualSQLExceptions);
     configWrapper.setActualOtherExceptions(actualOtherExceptions);
+    if (pinnedRecorder != null)
+      configWrapper.setActualPinnedEvents(pinnedRecorder.getPinnedCount());
+    configWrapper.setActualWarmupIterations(actualWarmupIterations);
+    configWrapper.setActualWarmupDuration(actualWarmupMillis / 1000.0);
+    configWrapper.setActualLateOps(actualLateOps);
+    configWrapper.setActualDroppedOps(actualDroppedOps);
+    configWrapper.setActualP50Millis(nanosToMillis(actualLatency.getValueAtPercentile(50.0)));
+    configWrapper.setActualP95Millis(nanosToMillis(actualLatency.getValueAtPercentile(95.0)));
+    configWrapper.setActualP99Millis(nanosToMillis(actualLatency.getValueAtPercentile(99.0)));
+    configWrapper.setActualP999Millis(nanosToMillis(actualLatency.getValueAtPercentile(99.9)));
+    configWrapper.setActualMaxMillis(nanosToMillis(actualLatency.getMaxValue()));
+    setActualErrors(configWrapper, actualErrors, actualDuration);
+    configWrapper.setActualRetries(actualRetries);
+    configWrapper.setActualRetriedOps(actualRetriedOps);
+    configWrapper.setActualRetriedP99Millis(
+        nanosToMillis(actualRetriedLatency.getValueAtPercentile(99.0)));
+    if (processCpu > 0)
+      configWrapper.setActualGeneratorCpuPercent(100.0 * generatorCpu / processCpu);
+    if (pool != null)
+    {
+      configWrapper.setActualPoolConnections(pool.getOpenedCount());
+      configWrapper.setActualPoolTimeouts(actualPoolTimeouts);
+      configWrapper.setActualPoolWait(
+          nanosToMillis(actualPoolWait.getValueAtPercentile(50.0)), 
+          nanosToMillis(actualPoolWait.getValueAtPercentile(99.0)), 
+          nanosToMillis(actualPoolWait.getMaxValue()));
+    }
+    for (int i = 0; i < timedOperations.length; i++)
+    {
+      String op = timedOperations[i];
+      LatencyHistogram latency = operationLatency[i];
+      configWrapper.setOperationCount(op, latency.getTotalCount());
+      configWrapper.setOperationP50Millis(op, nanosToMillis(latency.getValueAtPercentile(50.0)));
+      configWrapper.setOperationP99Millis(op, nanosToMillis(latency.getValueAtPercentile(99.0)));
+      configWrapper.setOperationMaxMillis(op, nanosToMillis(latency.getMaxValue()));
+      if (actualDuration > 0)
+        configWrapper.setOperationOpsSec(op, latency.getTotalCount() / actualDuration);
+    }
     logger.info("Output: " + listOutputValues(metadata, configWrapper.getProperties()));
           
     // Clean up the threads.
@@ -345,27 +878,93 @@ public class Benchmark
     }
 
     // Call the global cleanUp method on the scenario class.
-    logger.debug("Invoking globalCleanup() method");
+    if (globalOwner)
+    {
+      logger.debug("Invoking globalCleanup() method");
+      try
+      {
+        scenarioArray[0].globalCleanup();
+      }
+      catch (Exception e)
+      {
+        logger.warn("Global cleanup failed", e);
+      }
+    }
+    if (pool != null)
+      pool.close();
+    DataPoolManager.getInstance().release();
+
+    // Call all loggers to give them results. 
+    runCompleted(config, actualLatency, actualRetriedLatency, actualPoolWait, 
+        timedOperations, operationLatency);
+    reportResult(config);
+    
+    logger.info("----- Benchmark run complete -----");
+    return config;
+  }
+  
+  /** 
+   * Returns the random number seed for a run, choosing one at random if 
+   * the seed property is 0. 
+   */
+  protected static long getSeed(ConfigWrapper configWrapper)
+  {
+    long seed = configWrapper.getSeed();
+    while (seed == 0)
+      seed = ThreadLocalRandom.current().nextLong();
+    return seed;
+  }
+
+  /** 
+   * Returns true if the scenario class takes its connections from a pool
+   * supplied by setConnectionPool(). 
+   */
+  protected static boolean supportsPooling(Class<?> scenarioClass)
+  {
     try
     {
-      scenarioArray[0].globalCleanup();
+      Method setter = scenarioClass.getMethod("setConnectionPool", 
+          ConnectionPool.class);
+      return setter.getDeclaringClass() != Scenario.class;
     }
-    catch (Exception e)
+    catch (NoSuchMethodException e)
     {
-      logger.warn("Global cleanup failed", e);
+      return false;
     }
+  }
 
-    // Call all loggers to give them results. 
-    Iterator<ResultLogger> loggerIter = loggers.iterator();
-    while (loggerIter.hasNext())
+  /** 
+   * Returns a new flight recording file, which goes in the same directory 
+   * as the first result file or the current directory if there is none. 
+   */
+  protected File newJfrFile()
+  {
+    File dir = null;
+    String[] outputs = {csvOutputFile, htmlOutputFile, textOutputFile, archiveFile};
+    for (int i = 0; i < outputs.length && dir == null; i++)
     {
-      ResultLogger bLogger = loggerIter.next();
-      bLogger.resultGenerated(config);
+      if (outputs[i] != null)
+        dir = new File(outputs[i]).getAbsoluteFile().getParentFile();
     }
-    
-    logger.info("----- Benchmark run complete -----");
+    String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date());
+    return new File(dir, "bristlecone-" + stamp + ".jfr");
   }
-  
+
+  /** 
+   * Gives a result to all loggers, or holds it back if a knee search is
+   * running. 
+   */
+  protected void reportResult(Config config)
+  {
+    if (deferredResults != null)
+      deferredResults.add(config);
+    else
+    {
+      for (ResultLogger bLogger : loggers)
+        bLogger.resultGenerated(config);
+    }
+  }
+
   /** Adds a logger, which will be invoked in order. */
   public void addLogger(ResultLogger logger)
   {
@@ -378,6 +977,65 @@ public class Benchmark
     return loggers.remove(logger);
   }
 
+  /** 
+   * Returns true if this process calls the globalPrepare() and 
+   * globalCleanup() methods of the scenario.  Agents that share a run with
+   * other agents override this so that only one of them does so. 
+   */
+  protected boolean isGlobalScenarioOwner(Config config)
+  {
+    return true;
+  }
+
+  /** 
+   * Called after all scenario threads are prepared and immediately before
+   * they start.  Agents override this to wait for a common start time. 
+   */
+  protected void beforeStart(Config config)
+  {
+  }
+
+  /** 
+   * Called when a run is complete and its results are set, before loggers
+   * are called.  Agents override this to return results to the 
+   * coordinator. 
+   * 
+   * @param config Configuration with results
+   * @param latency Merged latency histogram of all threads
+   * @param retriedLatency Merged latency histogram of retried iterations
+   * @param poolWait Merged histogram of connection pool waits
+   * @param timedOperations Names of timed operations
+   * @param operationLatency Merged histogram of each timed operation
+   */
+  protected void runCompleted(Config config, LatencyHistogram latency, 
+      LatencyHistogram retriedLatency, LatencyHistogram poolWait, 
+      String[] timedOperations, LatencyHistogram[] operationLatency)
+  {
+  }
+
+  /** 
+   * Sets counts and per-second rates of each class of SQL error. 
+   * 
+   * @param errors Error counts indexed by SqlErrorClass value
+   * @param duration Run duration in seconds
+   */
+  protected static void setActualErrors(ConfigWrapper configWrapper, 
+      long[] errors, double duration)
+  {
+    for (int i = 0; i < errors.length; i++)
+    {
+      configWrapper.setActualErrors(i, errors[i]);
+      configWrapper.setActualErrorsSec(i, 
+          (duration == 0) ? 0.0 : errors[i] / duration);
+    }
+  }
+
+  /** Converts a latency in nanoseconds to fractional milliseconds. */
+  protected static double nanosToMillis(long nanos)
+  {
+    return nanos / 1000000.0;
+  }
+
   /** 
    * Logs output values for a benchmark run. 
    */
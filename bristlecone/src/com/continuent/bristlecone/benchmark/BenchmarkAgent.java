@@ -0,0 +1,314 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Properties;
+
+import org.apache.log4j.Logger;
+
+import com.continuent.bristlecone.benchmark.impl.AgentProtocol;
+import com.continuent.bristlecone.benchmark.impl.Config;
+import com.continuent.bristlecone.benchmark.impl.ConfigMetadata;
+import com.continuent.bristlecone.benchmark.impl.IntervalSample;
+import com.continuent.bristlecone.benchmark.impl.LatencyHistogram;
+import com.continuent.bristlecone.benchmark.impl.Utilities;
+
+/**
+ * Runs benchmark scenarios on behalf of a coordinator.  The agent listens 
+ * on a socket and serves one coordinator connection at a time.  Each run 
+ * is prepared locally, started after the delay chosen by the coordinator, 
+ * and its interval samples, results and latency histograms are returned 
+ * to the coordinator. 
+ * Only agent 0 of a run calls the scenario globalPrepare() and 
+ * globalCleanup() methods or runs the monitor. 
+ * 
+ * @author rhodges
+ */
+public class BenchmarkAgent implements Runnable
+{
+  private static Logger      logger = Logger.getLogger(BenchmarkAgent.class);
+
+  private final ServerSocket serverSocket;
+
+  /** 
+   * Creates a new agent listening on the given port. 
+   * 
+   * @param port Port number or 0 to pick a free port
+   */
+  public BenchmarkAgent(int port) throws IOException
+  {
+    this.serverSocket = new ServerSocket(port);
+  }
+
+  /** Returns the port on which the agent listens. */
+  public int getPort()
+  {
+    return serverSocket.getLocalPort();
+  }
+
+  /** Serves coordinator connections until the agent is closed. */
+  public void run()
+  {
+    logger.info("Benchmark agent listening on port: " + getPort());
+    while (!serverSocket.isClosed())
+    {
+      Socket socket;
+      try
+      {
+        socket = serverSocket.accept();
+      }
+      catch (IOException e)
+      {
+        if (!serverSocket.isClosed())
+          logger.warn("Unable to accept coordinator connection", e);
+        continue;
+      }
+
+      logger.info("Accepted coordinator connection: " 
+          + socket.getRemoteSocketAddress());
+      try
+      {
+        serve(socket);
+      }
+      catch (IOException e)
+      {
+        logger.warn("Coordinator connection failed", e);
+      }
+      finally
+      {
+        try
+        {
+          socket.close();
+        }
+        catch (IOException e)
+        {
+          logger.debug("Socket close failed", e);
+        }
+      }
+    }
+  }
+
+  /** Stops accepting connections. */
+  public void close() throws IOException
+  {
+    serverSocket.close();
+  }
+
+  // Serves runs on a single coordinator connection until it closes. 
+  private void serve(Socket socket) throws IOException
+  {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(
+        socket.getInputStream()));
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+        socket.getOutputStream()));
+    while (true)
+    {
+      String command;
+      try
+      {
+        command = in.readUTF();
+      }
+      catch (EOFException e)
+      {
+        logger.info("Coordinator closed connection");
+        return;
+      }
+      if (!AgentProtocol.RUN.equals(command))
+        throw new IOException("Unexpected command from coordinator: " + command);
+
+      int agentIndex = in.readInt();
+      Properties props = AgentProtocol.readProperties(in);
+      try
+      {
+        AgentRun agentRun = new AgentRun(agentIndex, in, out);
+        Class<?> scenarioClass = Utilities.loadClass(props.getProperty("scenario"));
+        ConfigMetadata metadata = new ConfigMetadata();
+        metadata.initialize(props, scenarioClass);
+        agentRun.runBenchmark(metadata, props);
+      }
+      catch (RuntimeException e)
+      {
+        logger.warn("Benchmark run failed", e);
+        out.writeUTF(AgentProtocol.ERROR);
+        out.writeUTF(String.valueOf(e.getMessage()));
+        out.flush();
+        return;
+      }
+    }
+  }
+
+  // Runs a benchmark as one of the agents of a coordinated run. 
+  private static class AgentRun extends Benchmark
+  {
+    private final int              agentIndex;
+    private final DataInputStream  in;
+    private final DataOutputStream out;
+
+    AgentRun(int agentIndex, DataInputStream in, DataOutputStream out)
+    {
+      this.agentIndex = agentIndex;
+      this.in = in;
+      this.out = out;
+      addLogger(new SampleForwarder(out));
+    }
+
+    protected boolean isGlobalScenarioOwner(Config config)
+    {
+      return agentIndex == 0;
+    }
+
+    // Report readiness, then sleep for the delay the coordinator sends.  
+    // The delay is relative so that agent clocks need not agree. 
+    protected void beforeStart(Config config)
+    {
+      try
+      {
+        out.writeUTF(AgentProtocol.READY);
+        out.flush();
+        String command = in.readUTF();
+        if (!AgentProtocol.START.equals(command))
+          throw new BenchmarkException("Expected start from coordinator: " + command);
+        long delay = in.readLong();
+        logger.info("Starting run in " + delay + "ms");
+        if (delay > 0)
+          Thread.sleep(delay);
+      }
+      catch (IOException e)
+      {
+        throw new BenchmarkException("Lost connection to coordinator", e);
+      }
+      catch (InterruptedException e)
+      {
+        throw new BenchmarkException("Interrupted while waiting to start", e);
+      }
+    }
+
+    // Return results to the coordinator. 
+    protected void runCompleted(Config config, LatencyHistogram latency, 
+        LatencyHistogram retriedLatency, LatencyHistogram poolWait, 
+        String[] timedOperations, LatencyHistogram[] operationLatency)
+    {
+      try
+      {
+        synchronized (out)
+        {
+          out.writeUTF(AgentProtocol.RESULT);
+          AgentProtocol.writeProperties(out, config.toProperties());
+          latency.writeTo(out);
+          retriedLatency.writeTo(out);
+          poolWait.writeTo(out);
+          out.writeInt(timedOperations.length);
+          for (int i = 0; i < timedOperations.length; i++)
+          {
+            out.writeUTF(timedOperations[i]);
+            operationLatency[i].writeTo(out);
+          }
+          out.flush();
+        }
+      }
+      catch (IOException e)
+      {
+        throw new BenchmarkException("Unable to send results to coordinator", e);
+      }
+    }
+  }
+
+  // Sends interval samples to the coordinator as they are taken. 
+  private static class SampleForwarder implements ResultLogger
+  {
+    private final DataOutputStream out;
+
+    SampleForwarder(DataOutputStream out)
+    {
+      this.out = out;
+    }
+
+    public void init(ConfigMetadata metadata)
+    {
+    }
+
+    public void resultGenerated(Config tuple)
+    {
+    }
+
+    public void intervalGenerated(Config tuple, IntervalSample sample)
+    {
+      try
+      {
+        synchronized (out)
+        {
+          out.writeUTF(AgentProtocol.SAMPLE);
+          sample.writeTo(out);
+          out.flush();
+        }
+      }
+      catch (IOException e)
+      {
+        logger.warn("Unable to send interval sample to coordinator", e);
+      }
+    }
+
+    public void cleanup()
+    {
+    }
+  }
+
+  /** Main method to permit external invocation. */
+  public static void main(String argv[]) throws Exception
+  {
+    int port = AgentProtocol.DEFAULT_PORT;
+
+    // Parse arguments.
+    int argc = 0;
+    while (argc < argv.length)
+    {
+      String nextArg = argv[argc];
+      argc++;
+      if ("-port".equals(nextArg))
+      {
+        port = Integer.parseInt(argv[argc++]);
+      }
+      else if ("-help".equals(nextArg))
+      {
+        System.out.println("Usage: java " + BenchmarkAgent.class.getName() 
+            + " [-port port]");
+        return;
+      }
+      else
+      {
+        System.out.println("Unrecognized flag (try -help for usage): " + nextArg);
+        System.exit(1);
+      }
+    }
+
+    new BenchmarkAgent(port).run();
+  }
+}
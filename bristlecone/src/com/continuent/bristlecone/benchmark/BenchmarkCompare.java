@@ -0,0 +1,216 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.continuent.bristlecone.benchmark.impl.ResultArchive;
+import com.continuent.bristlecone.benchmark.impl.ResultComparison;
+
+/**
+ * Compares archived benchmark results against a named baseline and reports
+ * significant changes in throughput and latency.  Results are matched on 
+ * the key formed from variable properties.  The command exits with status
+ * 1 if it finds a regression, so it can fail a nightly job. 
+ * 
+ * @author rhodges
+ */
+public class BenchmarkCompare
+{
+  /** Default metrics to compare. */
+  public static final String DEFAULT_METRICS = "actualAvgOpsSec,actualP99Millis";
+
+  /** Default minimum relative change to report. */
+  public static final double DEFAULT_THRESHOLD = 0.05;
+
+  /** Main method to permit external invocation. */
+  public static void main(String argv[]) throws Exception
+  {
+    String archive = null;
+    String baseline = null;
+    String current = null;
+    String metrics = DEFAULT_METRICS;
+    double threshold = DEFAULT_THRESHOLD;
+
+    // Parse arguments.
+    int argc = 0;
+    while (argc < argv.length)
+    {
+      String nextArg = argv[argc];
+      argc++;
+      if ("-archive".equals(nextArg))
+      {
+        archive = argv[argc++];
+      }
+      else if ("-baseline".equals(nextArg))
+      {
+        baseline = argv[argc++];
+      }
+      else if ("-current".equals(nextArg))
+      {
+        current = argv[argc++];
+      }
+      else if ("-metrics".equals(nextArg))
+      {
+        metrics = argv[argc++];
+      }
+      else if ("-threshold".equals(nextArg))
+      {
+        threshold = Double.parseDouble(argv[argc++]) / 100.0;
+      }
+      else if ("-help".equals(nextArg))
+      {
+        usage();
+        return;
+      }
+      else
+      {
+        println("Unrecognized flag (try -help for usage): " + nextArg);
+        System.exit(1);
+      }
+    }
+    if (archive == null || baseline == null)
+    {
+      println("The -archive and -baseline options are required");
+      usage();
+      System.exit(1);
+    }
+
+    // Read the archive and compare. 
+    List<ResultArchive.Entry> entries = new ResultArchive(new File(archive)).read();
+    if (current == null)
+      current = latestLabel(entries, baseline);
+    if (current == null)
+    {
+      println("No results found to compare with baseline: " + baseline);
+      System.exit(1);
+    }
+    println("Comparing label " + current + " against baseline " + baseline);
+    List<ResultComparison> comparisons = compare(entries, baseline, current, 
+        metrics.split(","), threshold);
+
+    int regressions = 0;
+    for (ResultComparison comparison : comparisons)
+    {
+      println(comparison.toString());
+      if (comparison.isRegression())
+        regressions++;
+    }
+    println("Comparisons: " + comparisons.size() + " regressions: " + regressions);
+    System.exit(regressions > 0 ? 1 : 0);
+  }
+
+  /**
+   * Compares results of the current label with the baseline label.  Only 
+   * keys that appear under both labels are compared. 
+   * 
+   * @param entries Archived results
+   * @param baseline Baseline label
+   * @param current Current label
+   * @param metrics Names of output properties to compare.  Names ending in 
+   *        OpsSec are throughput values where higher is better; for all 
+   *        other metrics lower is better.
+   * @param threshold Minimum relative change to report
+   * @return A comparison for each key and metric
+   */
+  public static List<ResultComparison> compare(List<ResultArchive.Entry> entries,
+      String baseline, String current, String[] metrics, double threshold)
+  {
+    List<ResultComparison> comparisons = new ArrayList<ResultComparison>();
+    for (String metric : metrics)
+    {
+      metric = metric.trim();
+      Map<String, List<Double>> baselineValues = collect(entries, baseline, metric);
+      Map<String, List<Double>> currentValues = collect(entries, current, metric);
+      for (String key : baselineValues.keySet())
+      {
+        List<Double> currentList = currentValues.get(key);
+        if (currentList == null)
+          continue;
+        comparisons.add(new ResultComparison(key, metric, 
+            metric.endsWith("OpsSec"), baselineValues.get(key), currentList, 
+            threshold));
+      }
+    }
+    return comparisons;
+  }
+
+  // Collects metric values for a label grouped by key. 
+  private static Map<String, List<Double>> collect(
+      List<ResultArchive.Entry> entries, String label, String metric)
+  {
+    Map<String, List<Double>> values = new LinkedHashMap<String, List<Double>>();
+    for (ResultArchive.Entry entry : entries)
+    {
+      if (!label.equals(entry.getLabel()))
+        continue;
+      String value = entry.getValue(metric);
+      if (value == null)
+        continue;
+      List<Double> list = values.get(entry.getKey());
+      if (list == null)
+      {
+        list = new ArrayList<Double>();
+        values.put(entry.getKey(), list);
+      }
+      list.add(Double.parseDouble(value));
+    }
+    return values;
+  }
+
+  // Returns the label of the most recent entry that is not the baseline. 
+  private static String latestLabel(List<ResultArchive.Entry> entries, 
+      String baseline)
+  {
+    for (int i = entries.size() - 1; i >= 0; i--)
+    {
+      if (!baseline.equals(entries.get(i).getLabel()))
+        return entries.get(i).getLabel();
+    }
+    return null;
+  }
+
+  /** Print to standard out. */
+  protected static void println(String message)
+  {
+    System.out.println(message);
+  }
+
+  /** Print usage. */
+  protected static void usage()
+  {
+    println("Usage: java " + BenchmarkCompare.class.getName() + " options ");
+    println("  -archive file     Result archive written by benchmark -archive");
+    println("  -baseline label   Label of baseline results");
+    println("  -current label    Label of results to compare (default=latest)");
+    println("  -metrics list     Comma-separated output values to compare");
+    println("                    (default=" + DEFAULT_METRICS + ")");
+    println("  -threshold pct    Smallest change in percent to report (default=5)");
+    println("  -help             Print usage");
+    println("Exits with status 1 if any metric shows a significant regression");
+  }
+}
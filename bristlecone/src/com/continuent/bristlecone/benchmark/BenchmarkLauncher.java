@@ -47,6 +47,15 @@ public class BenchmarkLauncher
     String csv = null;
     String text = null;
     String html = null;
+    String intervalCsv = null;
+    String archive = null;
+    String label = null;
+    String agents = null;
+    String journal = null;
+    boolean resume = false;
+    boolean overwrite = false;
+    int metricsPort = -1;
+    String metricsBind = null;
 
     // Parse arguments.
     int argc = 0;
@@ -70,6 +79,42 @@ public class BenchmarkLauncher
       {
         html = argv[argc++];
       }
+      else if ("-intervalcsv".equals(nextArg))
+      {
+        intervalCsv = argv[argc++];
+      }
+      else if ("-archive".equals(nextArg))
+      {
+        archive = argv[argc++];
+      }
+      else if ("-label".equals(nextArg))
+      {
+        label = argv[argc++];
+      }
+      else if ("-agents".equals(nextArg))
+      {
+        agents = argv[argc++];
+      }
+      else if ("-journal".equals(nextArg))
+      {
+        journal = argv[argc++];
+      }
+      else if ("-resume".equals(nextArg))
+      {
+        resume = true;
+      }
+      else if ("-overwrite".equals(nextArg))
+      {
+        overwrite = true;
+      }
+      else if ("-metricsport".equals(nextArg))
+      {
+        metricsPort = Integer.parseInt(argv[argc++]);
+      }
+      else if ("-metricsbind".equals(nextArg))
+      {
+        metricsBind = argv[argc++];
+      }
       else if ("-help".equals(nextArg))
       {
         usage();
@@ -87,7 +132,11 @@ public class BenchmarkLauncher
     try
     {
       logger.info("Setting benchmark control parameters");
-      Benchmark benchmark = new Benchmark();
+      Benchmark benchmark;
+      if (agents == null)
+        benchmark = new Benchmark();
+      else
+        benchmark = new DistributedBenchmark(agents.split(","));
       if (props != null)
         benchmark.setProps(props);
       if (text != null)
@@ -96,6 +145,19 @@ public class BenchmarkLauncher
         benchmark.setCsv(csv);
       if (html != null)
         benchmark.setHtml(html);
+      if (intervalCsv != null)
+        benchmark.setIntervalCsv(intervalCsv);
+      if (archive != null)
+        benchmark.setArchive(archive);
+      if (label != null)
+        benchmark.setArchiveLabel(label);
+      if (journal != null)
+        benchmark.setJournal(journal);
+      benchmark.setResume(resume);
+      benchmark.setOverwrite(overwrite);
+      benchmark.setMetricsPort(metricsPort);
+      if (metricsBind != null)
+        benchmark.setMetricsBind(metricsBind);
 
       logger.info("Starting benchmark");
       benchmark.go();
@@ -132,6 +194,15 @@ public class BenchmarkLauncher
 //    println("  -graph            Log results to dynamically generated graph");
     println("  -csv file         Log results as CSV in 'file'");
     println("  -html file        Log results as HTML report in 'file'");
+    println("  -intervalcsv file Log interval time series as CSV in 'file'");
+    println("  -archive file     Append results to result archive 'file'");
+    println("  -label name       Label for archived results (default=timestamp)");
+    println("  -journal file     Campaign journal file (default=props file + .journal)");
+    println("  -resume           Skip runs the journal records as finished");
+    println("  -overwrite        Discard a journal of an unfinished campaign");
+    println("  -metricsport port Serve live Prometheus metrics on 'port'");
+    println("  -metricsbind addr Address for live metrics (default=loopback)");
+    println("  -agents list      Run on agents given as host:port,host:port,...");
     println("  -help             Print usage");
     println("Properties file must have at least scenario, url, and user values to run");
     println("Multiple output formats may be selected.  The default is log messages only");
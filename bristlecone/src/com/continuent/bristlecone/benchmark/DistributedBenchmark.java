@@ -0,0 +1,422 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.log4j.Logger;
+
+import com.continuent.bristlecone.benchmark.db.SqlErrorClass;
+import com.continuent.bristlecone.benchmark.impl.AgentProtocol;
+import com.continuent.bristlecone.benchmark.impl.Config;
+import com.continuent.bristlecone.benchmark.impl.ConfigMetadata;
+import com.continuent.bristlecone.benchmark.impl.ConfigWrapper;
+import com.continuent.bristlecone.benchmark.impl.IntervalSample;
+import com.continuent.bristlecone.benchmark.impl.LatencyHistogram;
+
+/**
+ * Coordinates benchmark runs across several BenchmarkAgent processes.  The
+ * coordinator expands the property cross product as usual but sends each 
+ * run to all agents, starts the agents at the same moment, and merges 
+ * their results into a single result for loggers.  Interval samples of
+ * the agents are merged by interval and given to loggers when the run
+ * completes, before its result.  Each agent runs the 
+ * number of threads given in the threads property, and a fixed arrival 
+ * rate is divided evenly among agents.  
+ * 
+ * @author rhodges
+ */
+public class DistributedBenchmark extends Benchmark
+{
+  private static Logger logger = Logger.getLogger(DistributedBenchmark.class);
+
+  /** 
+   * Delay between sending the first start message and the common start 
+   * time.  Agents receive the remaining delay rather than a time, so 
+   * their clocks need not agree with the coordinator's. 
+   */
+  private static final long START_DELAY_MILLIS = 1000;
+
+  private final String[] agents;
+
+  /** 
+   * Creates a new coordinator. 
+   * 
+   * @param agents Agent addresses in host:port form
+   */
+  public DistributedBenchmark(String[] agents)
+  {
+    this.agents = agents;
+  }
+
+  /** Runs a test on all agents and returns merged results. */
+  public Config runBenchmark(ConfigMetadata metadata, Properties bProperties)
+  {
+    logger.info("+++++ Starting distributed benchmark run +++++");
+    Config config = new Config(bProperties, metadata);
+    ConfigWrapper configWrapper = new ConfigWrapper(config);
+    logger.info("Input variables: " + listVariableValues(metadata, bProperties));
+
+    // Agents derive their seeds from the run seed so that they draw 
+    // different keys and data. 
+    long seed = getSeed(configWrapper);
+    configWrapper.setActualSeed(seed);
+
+    // Connect to agents. 
+    AgentConnection[] connections = new AgentConnection[agents.length];
+    try
+    {
+      for (int i = 0; i < agents.length; i++)
+        connections[i] = new AgentConnection(agents[i]);
+
+      // Agent 0 prepares first, since it creates the tables that the other
+      // agents use. 
+      for (int i = 0; i < connections.length; i++)
+      {
+        Properties agentProperties = new Properties();
+        agentProperties.putAll(bProperties);
+        if (configWrapper.getRate() > 0)
+          agentProperties.setProperty("rate", 
+              Double.toString(configWrapper.getRate() / agents.length));
+        agentProperties.setProperty("seed", Long.toString(seed + i));
+        if (i > 0)
+          agentProperties.remove("monitor");
+        connections[i].run(i, agentProperties);
+        if (i == 0)
+          connections[i].awaitReady();
+      }
+      for (int i = 1; i < connections.length; i++)
+        connections[i].awaitReady();
+
+      // Start all agents at the same time and collect results. 
+      long startNanos = System.nanoTime() + START_DELAY_MILLIS * 1000000;
+      logger.info("Starting agents: count=" + agents.length);
+      for (int i = 0; i < connections.length; i++)
+        connections[i].start((startNanos - System.nanoTime()) / 1000000);
+      for (int i = 0; i < connections.length; i++)
+        connections[i].awaitResult();
+    }
+    catch (IOException e)
+    {
+      throw new BenchmarkException("Distributed run failed", e);
+    }
+    finally
+    {
+      for (int i = 0; i < connections.length; i++)
+      {
+        if (connections[i] != null)
+          connections[i].close();
+      }
+    }
+
+    mergeResults(configWrapper, metadata.getTimedOperations(), connections);
+    logger.info("Output: " + listOutputValues(metadata, configWrapper.getProperties()));
+    reportSamples(config, connections);
+
+    // Call all loggers to give them results. 
+    reportResult(config);
+    logger.info("----- Distributed benchmark run complete -----");
+    return config;
+  }
+
+  // Merge agent results.  Counts are added, durations are the longest 
+  // agent duration, and latencies come from the merged histograms. 
+  private void mergeResults(ConfigWrapper configWrapper, 
+      String[] timedOperations, AgentConnection[] connections)
+  {
+    long iterations = 0;
+    long sqlExceptions = 0;
+    long otherExceptions = 0;
+    long pinnedEvents = 0;
+    long warmupIterations = 0;
+    long lateOps = 0;
+    long droppedOps = 0;
+    long[] errors = new long[SqlErrorClass.COUNT];
+    long retries = 0;
+    long retriedOps = 0;
+    long poolConnections = 0;
+    long poolTimeouts = 0;
+    double generatorCpu = 0;
+    double duration = 0;
+    double warmupDuration = 0;
+    LatencyHistogram latency = new LatencyHistogram();
+    LatencyHistogram retriedLatency = new LatencyHistogram();
+    LatencyHistogram poolWait = new LatencyHistogram();
+    LatencyHistogram[] operationLatency = new LatencyHistogram[timedOperations.length];
+    for (int i = 0; i < operationLatency.length; i++)
+      operationLatency[i] = new LatencyHistogram();
+    for (int i = 0; i < connections.length; i++)
+    {
+      Properties result = connections[i].result;
+      iterations += getLong(result, "actualIterations");
+      sqlExceptions += getLong(result, "actualSQLExceptions");
+      otherExceptions += getLong(result, "actualOtherExceptions");
+      pinnedEvents += getLong(result, "actualPinnedEvents");
+      warmupIterations += getLong(result, "actualWarmupIterations");
+      lateOps += getLong(result, "actualLateOps");
+      droppedOps += getLong(result, "actualDroppedOps");
+      duration = Math.max(duration, getDouble(result, "actualDuration"));
+      warmupDuration = Math.max(warmupDuration, 
+          getDouble(result, "actualWarmupDuration"));
+      for (int j = 0; j < errors.length; j++)
+      {
+        errors[j] += getLong(result, 
+            "actual" + SqlErrorClass.getName(j) + "Errors");
+      }
+      retries += getLong(result, "actualRetries");
+      retriedOps += getLong(result, "actualRetriedOps");
+      poolConnections += getLong(result, "actualPoolConnections");
+      poolTimeouts += getLong(result, "actualPoolTimeouts");
+      generatorCpu = Math.max(generatorCpu, 
+          getDouble(result, "actualGeneratorCpuPercent"));
+      latency.add(connections[i].latency);
+      retriedLatency.add(connections[i].retriedLatency);
+      poolWait.add(connections[i].poolWait);
+      for (int j = 0; j < timedOperations.length; j++)
+      {
+        LatencyHistogram histogram = 
+            connections[i].operationLatency.get(timedOperations[j]);
+        if (histogram != null)
+          operationLatency[j].add(histogram);
+      }
+    }
+
+    double avgOpsSec;
+    if (duration == 0)
+      avgOpsSec = Double.MAX_VALUE;
+    else
+      avgOpsSec = iterations / duration;
+
+    configWrapper.setActualIterations(iterations);
+    configWrapper.setActualDuration(duration);
+    configWrapper.setActualAvgDuration(duration / iterations);
+    configWrapper.setActualAvgOpsSecond(avgOpsSec);
+    configWrapper.setActualSQLExceptions(sqlExceptions);
+    configWrapper.setActualOtherExceptions(otherExceptions);
+    configWrapper.setActualPinnedEvents(pinnedEvents);
+    configWrapper.setActualPrepareDuration(
+        getDouble(connections[0].result, "actualPrepareDuration"));
+    configWrapper.setActualDataSeed(Long.parseLong(
+        connections[0].result.getProperty("actualDataSeed", "0")));
+    configWrapper.setActualWarmupIterations(warmupIterations);
+    configWrapper.setActualWarmupDuration(warmupDuration);
+    configWrapper.setActualLateOps(lateOps);
+    configWrapper.setActualDroppedOps(droppedOps);
+    configWrapper.setActualP50Millis(nanosToMillis(latency.getValueAtPercentile(50.0)));
+    configWrapper.setActualP95Millis(nanosToMillis(latency.getValueAtPercentile(95.0)));
+    configWrapper.setActualP99Millis(nanosToMillis(latency.getValueAtPercentile(99.0)));
+    configWrapper.setActualP999Millis(nanosToMillis(latency.getValueAtPercentile(99.9)));
+    configWrapper.setActualMaxMillis(nanosToMillis(latency.getMaxValue()));
+    setActualErrors(configWrapper, errors, duration);
+    configWrapper.setActualRetries(retries);
+    configWrapper.setActualRetriedOps(retriedOps);
+    configWrapper.setActualRetriedP99Millis(
+        nanosToMillis(retriedLatency.getValueAtPercentile(99.0)));
+    configWrapper.setActualPoolConnections((int) poolConnections);
+    configWrapper.setActualPoolTimeouts(poolTimeouts);
+    configWrapper.setActualPoolWait(
+        nanosToMillis(poolWait.getValueAtPercentile(50.0)), 
+        nanosToMillis(poolWait.getValueAtPercentile(99.0)), 
+        nanosToMillis(poolWait.getMaxValue()));
+    configWrapper.setActualGeneratorCpuPercent(generatorCpu);
+
+    for (int i = 0; i < timedOperations.length; i++)
+    {
+      String op = timedOperations[i];
+      LatencyHistogram opLatency = operationLatency[i];
+      double opsSec = 0;
+      for (int j = 0; j < connections.length; j++)
+      {
+        opsSec += getDouble(connections[j].result, 
+            ConfigMetadata.operationProperty(op, "opsSec"));
+      }
+      configWrapper.setOperationCount(op, opLatency.getTotalCount());
+      configWrapper.setOperationP50Millis(op, 
+          nanosToMillis(opLatency.getValueAtPercentile(50.0)));
+      configWrapper.setOperationP99Millis(op, 
+          nanosToMillis(opLatency.getValueAtPercentile(99.0)));
+      configWrapper.setOperationMaxMillis(op, 
+          nanosToMillis(opLatency.getMaxValue()));
+      configWrapper.setOperationOpsSec(op, opsSec);
+    }
+  }
+
+  // Merge the nth sample of each agent and give the merged samples to 
+  // loggers.  Agents start together and sample at the same interval, so 
+  // their nth samples cover about the same time.  Iterations are added, 
+  // times are the longest agent time, and latencies come from the merged
+  // histograms. 
+  private void reportSamples(Config config, AgentConnection[] connections)
+  {
+    for (int n = 0; ; n++)
+    {
+      long elapsedMillis = 0;
+      long intervalMillis = 0;
+      long iterations = 0;
+      LatencyHistogram latency = new LatencyHistogram();
+      boolean found = false;
+      for (int i = 0; i < connections.length; i++)
+      {
+        List<IntervalSample> samples = connections[i].samples;
+        if (n >= samples.size())
+          continue;
+        IntervalSample sample = samples.get(n);
+        elapsedMillis = Math.max(elapsedMillis, sample.getElapsedMillis());
+        intervalMillis = Math.max(intervalMillis, sample.getIntervalMillis());
+        iterations += sample.getIterations();
+        latency.add(sample.getLatency());
+        found = true;
+      }
+      if (!found)
+        return;
+
+      IntervalSample merged = new IntervalSample(elapsedMillis, 
+          intervalMillis, iterations, latency);
+      for (ResultLogger resultLogger : loggers)
+        resultLogger.intervalGenerated(config, merged);
+    }
+  }
+
+  // Count values may be written in floating point form, e.g., 3.0. 
+  private static long getLong(Properties props, String name)
+  {
+    return (long) getDouble(props, name);
+  }
+
+  private static double getDouble(Properties props, String name)
+  {
+    String value = props.getProperty(name);
+    return (value == null) ? 0 : Double.parseDouble(value);
+  }
+
+  // Holds the connection to a single agent. 
+  private static class AgentConnection
+  {
+    private final String           address;
+    private final Socket           socket;
+    private final DataInputStream  in;
+    private final DataOutputStream out;
+    Properties                     result;
+    LatencyHistogram               latency;
+    LatencyHistogram               retriedLatency;
+    LatencyHistogram               poolWait;
+    Map<String, LatencyHistogram>  operationLatency;
+    List<IntervalSample>           samples = new ArrayList<IntervalSample>();
+
+    AgentConnection(String address) throws IOException
+    {
+      this.address = address;
+      int colon = address.lastIndexOf(':');
+      String host = (colon < 0) ? address : address.substring(0, colon);
+      int port = (colon < 0) ? AgentProtocol.DEFAULT_PORT 
+          : Integer.parseInt(address.substring(colon + 1));
+      logger.info("Connecting to agent: " + address);
+      socket = new Socket(host, port);
+      in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      out = new DataOutputStream(new BufferedOutputStream(
+          socket.getOutputStream()));
+    }
+
+    void run(int agentIndex, Properties props) throws IOException
+    {
+      out.writeUTF(AgentProtocol.RUN);
+      out.writeInt(agentIndex);
+      AgentProtocol.writeProperties(out, props);
+      out.flush();
+    }
+
+    void awaitReady() throws IOException
+    {
+      expect(AgentProtocol.READY);
+    }
+
+    void start(long delayMillis) throws IOException
+    {
+      out.writeUTF(AgentProtocol.START);
+      out.writeLong(delayMillis);
+      out.flush();
+    }
+
+    // Collect interval samples until the result arrives. 
+    void awaitResult() throws IOException
+    {
+      String reply;
+      while (AgentProtocol.SAMPLE.equals(reply = readReply()))
+        samples.add(IntervalSample.readFrom(in));
+      check(AgentProtocol.RESULT, reply);
+      result = AgentProtocol.readProperties(in);
+      latency = LatencyHistogram.readFrom(in);
+      retriedLatency = LatencyHistogram.readFrom(in);
+      poolWait = LatencyHistogram.readFrom(in);
+      int operations = in.readInt();
+      operationLatency = new HashMap<String, LatencyHistogram>();
+      for (int i = 0; i < operations; i++)
+        operationLatency.put(in.readUTF(), LatencyHistogram.readFrom(in));
+    }
+
+    // Read the next reply and fail if it is not the expected one. 
+    private void expect(String expected) throws IOException
+    {
+      check(expected, readReply());
+    }
+
+    // Read the next reply and fail if the agent reports an error. 
+    private String readReply() throws IOException
+    {
+      String reply = in.readUTF();
+      if (AgentProtocol.ERROR.equals(reply))
+        throw new BenchmarkException("Agent " + address + " failed: " 
+            + in.readUTF());
+      return reply;
+    }
+
+    private void check(String expected, String reply)
+    {
+      if (!expected.equals(reply))
+        throw new BenchmarkException("Unexpected reply from agent " + address 
+            + ": expected=" + expected + " actual=" + reply);
+    }
+
+    void close()
+    {
+      try
+      {
+        socket.close();
+      }
+      catch (IOException e)
+      {
+        logger.debug("Socket close failed", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,159 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.Iterator;
+
+import org.apache.log4j.Logger;
+
+import com.continuent.bristlecone.benchmark.impl.Config;
+import com.continuent.bristlecone.benchmark.impl.ConfigMetadata;
+import com.continuent.bristlecone.benchmark.impl.ConfigPropertyMetadata;
+import com.continuent.bristlecone.benchmark.impl.IntervalSample;
+
+/**
+ * Implements a logger that writes interval samples as a CSV time series.  
+ * Each row starts with the values of variable properties, which identify
+ * the run within the cross product, followed by interval throughput and 
+ * latency.  End of run results are not logged. 
+ * 
+ * @author rhodges
+ */
+public class IntervalCsvLogger implements ResultLogger
+{
+  private static Logger logger = Logger.getLogger(Benchmark.class);  
+
+  private PrintStream csvOut;
+  
+  /** Creates a new interval CSV logger. */
+  public IntervalCsvLogger(String outputFileName)
+  {
+    File csvFile = new File(outputFileName);
+    logger.info("Writing interval CSV output to file: " + csvFile.toString());
+
+    if (csvFile.exists())
+    {
+      logger.info("Deleting previous file");
+      csvFile.delete();
+    }
+
+    try
+    {
+      this.csvOut = new PrintStream(new FileOutputStream(csvFile, true));
+    }
+    catch (FileNotFoundException e)
+    {
+      String msg = "Unable to write to csv file: " + csvFile.getAbsolutePath();
+      throw new BenchmarkException(msg, e);
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see com.continuent.bristlecone.benchmark.ResultLogger#init(com.continuent.bristlecone.benchmark.impl.ConfigMetadata)
+   */
+  public void init(ConfigMetadata metadata)
+  {
+    int index = 0;
+
+    // Write headers for all dynamic fields. 
+    Iterator<String> iter = metadata.propertyNames();
+    while (iter.hasNext())
+    {
+      String name = iter.next();
+      ConfigPropertyMetadata cpm = metadata.getPropertyMetadataAsserted(name);
+      if (cpm.isVariable())
+        print(name, index++);
+    }
+
+    // Write headers for sample fields. 
+    print("elapsedMillis", index++);
+    print("intervalMillis", index++);
+    print("iterations", index++);
+    print("opsPerSecond", index++);
+    print("p50Millis", index++);
+    print("p99Millis", index++);
+    print("maxMillis", index++);
+    csvOut.println();
+  }
+
+  /* (non-Javadoc)
+   * @see com.continuent.bristlecone.benchmark.ResultLogger#intervalGenerated(com.continuent.bristlecone.benchmark.impl.Config, com.continuent.bristlecone.benchmark.impl.IntervalSample)
+   */
+  public void intervalGenerated(Config tuple, IntervalSample sample)
+  {
+    ConfigMetadata metadata = tuple.getMetadata();
+    int index = 0;
+
+    // Write data for all dynamic fields. 
+    Iterator<String> iter = metadata.propertyNames();
+    while (iter.hasNext())
+    {
+      String name = iter.next();
+      ConfigPropertyMetadata cpm = metadata.getPropertyMetadataAsserted(name);
+      if (cpm.isVariable())
+      {
+        // Null values are possible due to cross products. 
+        String value = tuple.getProperty(name);
+        print((value == null) ? "null" : value, index++);
+      }
+    }
+
+    // Write sample data. 
+    print(Long.toString(sample.getElapsedMillis()), index++);
+    print(Long.toString(sample.getIntervalMillis()), index++);
+    print(Long.toString(sample.getIterations()), index++);
+    print(Double.toString(sample.getOpsPerSecond()), index++);
+    print(Double.toString(sample.getP50Millis()), index++);
+    print(Double.toString(sample.getP99Millis()), index++);
+    print(Double.toString(sample.getMaxMillis()), index++);
+    csvOut.println();
+  }
+
+  /* (non-Javadoc)
+   * @see com.continuent.bristlecone.benchmark.ResultLogger#resultGenerated(com.continuent.bristlecone.benchmark.impl.Config)
+   */
+  public void resultGenerated(Config tuple)
+  {
+    csvOut.flush();
+  }
+  
+  /* (non-Javadoc)
+   * @see com.continuent.bristlecone.benchmark.ResultLogger#cleanup()
+   */
+  public void cleanup()
+  {
+    csvOut.close();
+  }
+
+  // Print a value with comma preceding after first value. 
+  private void print(String value, int index)
+  {
+    if (index > 0)
+      csvOut.print(", ");
+    csvOut.print(value);
+  }
+}
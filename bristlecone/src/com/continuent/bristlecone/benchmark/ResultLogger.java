@@ -24,6 +24,7 @@ package com.continuent.bristlecone.benchmark;
 
 import com.continuent.bristlecone.benchmark.impl.Config;
 import com.continuent.bristlecone.benchmark.impl.ConfigMetadata;
+import com.continuent.bristlecone.benchmark.impl.IntervalSample;
 
 /**
  * Defines a listener that accepts the result of a benchmark scenario and
@@ -47,6 +48,18 @@ public interface ResultLogger
    * @param tuple A Tuple instance containing config params and results
    */
   public void resultGenerated(Config tuple);
+
+  /**
+   * Called at the end of each sampling interval while a scenario runs if
+   * the sampleInterval property is greater than 0.  Loggers that do not
+   * report time series may ignore this call. 
+   * 
+   * @param tuple A Tuple instance containing config params for the run
+   * @param sample Throughput and latency during the interval
+   */
+  public default void intervalGenerated(Config tuple, IntervalSample sample)
+  {
+  }
   
   /** 
    * Called to tell listener all results have been generated and run 
@@ -24,6 +24,8 @@ package com.continuent.bristlecone.benchmark;
 
 import java.util.Properties;
 
+import com.continuent.bristlecone.benchmark.db.ConnectionPool;
+
 /**
  * Denotes a benchmark scenario.  One instance of the scenario implementation 
  * class is instantiated for each separate thread in the benchmark run. 
@@ -71,6 +73,19 @@ public interface Scenario
    */
   public void iterate(long iterationCount) throws Exception;
 
+  /**
+   * Rolls back work left by a failed iteration before it is retried.  This
+   * keeps statements of the failed attempt from being committed along with
+   * the retry, and lets databases that abort the whole transaction accept 
+   * the retry.  The default does nothing, which suits scenarios that run
+   * in autocommit mode or roll back themselves. 
+   * 
+   * @throws Exception Thrown if the rollback fails
+   */
+  public default void rollback() throws Exception
+  {
+  }
+
   /**
    * Release resources for an individual scenario.  This is call is made
    * after the last call to iterate().  Exceptions are logged but do not 
@@ -88,4 +103,47 @@ public interface Scenario
    * @throws Exception
    */
   public void globalCleanup() throws Exception; 
-}
\ No newline at end of file
+
+  /**
+   * Returns the seed with which the data used by this run were generated.  
+   * This differs from the run seed if tables populated by an earlier run 
+   * are reused.  It is called on the instance that ran globalPrepare().  
+   * The default of 0 means the scenario has no generated data or the seed
+   * is unknown. 
+   */
+  public default long getDataSeed()
+  {
+    return 0;
+  }
+
+  /**
+   * Returns the names of operations this scenario times using a 
+   * TimingContext.  Each name is reported as a separate set of output 
+   * columns.  This is called on a separate instance after its setters 
+   * have been called with the first run's property values.  The default 
+   * is no timed operations. 
+   */
+  public default String[] getTimedOperations()
+  {
+    return new String[0];
+  }
+
+  /**
+   * Supplies the timing context for this scenario instance.  This is called
+   * before prepare() if getTimedOperations() returns any names.  The context
+   * belongs to the thread that runs the scenario and must not be shared. 
+   */
+  public default void setTimingContext(TimingContext context)
+  {
+  }
+
+  /**
+   * Supplies a connection pool shared by all threads.  This is called 
+   * before initialize() when the benchmark runs in pool mode.  Scenarios 
+   * that support pooling take their connection from the pool; the default
+   * ignores the pool and keeps dedicated connections. 
+   */
+  public default void setConnectionPool(ConnectionPool pool)
+  {
+  }
+}
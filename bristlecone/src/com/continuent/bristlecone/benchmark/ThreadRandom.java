@@ -0,0 +1,143 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Supplies random numbers to scenarios and data generators.  Each thread 
+ * has its own SplittableRandom, so threads never contend on a shared seed
+ * as they do with Math.random().  Streams derive deterministically from a
+ * seed and a stream index, so a run with the same seed and threads draws 
+ * the same keys and payloads on each benchmark thread.<p>
+ * 
+ * The harness sets the seed at the start of each run, which gives the 
+ * calling thread stream -1 for scenario initialization and preparation.  
+ * Each benchmark thread then selects the stream for its thread index.  
+ * Other threads get streams on first use in the order they ask for them.
+ * Table data does not depend on streams at all: forRow() hashes a row 
+ * index and seed with SplitMix64, so a row can be generated on its own. 
+ * 
+ * @author rhodges
+ */
+public class ThreadRandom
+{
+  // Increment of the SplitMix64 generator, used to space out stream seeds. 
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+  // First stream index for threads that do not select a stream. 
+  private static final int UNASSIGNED_BASE = 1 << 20;
+
+  private static volatile long seed = mix64(System.nanoTime());
+  private static final AtomicInteger unassigned = new AtomicInteger(UNASSIGNED_BASE);
+  private static final ThreadLocal<SplittableRandom> random = 
+    new ThreadLocal<SplittableRandom>()
+    {
+      protected SplittableRandom initialValue()
+      {
+        return newStream(unassigned.getAndIncrement());
+      }
+    };
+
+  // Not instantiated. 
+  private ThreadRandom()
+  {
+  }
+
+  /** 
+   * Sets the seed from which all streams derive and gives the calling 
+   * thread stream -1. 
+   */
+  public static void setSeed(long newSeed)
+  {
+    seed = newSeed;
+    unassigned.set(UNASSIGNED_BASE);
+    random.set(newStream(-1));
+  }
+
+  /** Returns the current seed. */
+  public static long getSeed()
+  {
+    return seed;
+  }
+
+  /** Gives the calling thread the stream with the given index. */
+  public static void setStream(int index)
+  {
+    random.set(newStream(index));
+  }
+
+  /** Returns the calling thread's generator, which must not be shared. */
+  public static SplittableRandom current()
+  {
+    return random.get();
+  }
+
+  /** Returns a double between 0.0 inclusive and 1.0 exclusive. */
+  public static double nextDouble()
+  {
+    return random.get().nextDouble();
+  }
+
+  /** Returns an int between 0 inclusive and bound exclusive. */
+  public static int nextInt(int bound)
+  {
+    return random.get().nextInt(bound);
+  }
+
+  /** 
+   * Returns a new generator whose values depend only on the row index and 
+   * seed.  Its own seed is a SplitMix64 hash of the two, so generating a 
+   * row needs no state left over from other rows.  
+   */
+  public static SplittableRandom forRow(long rowIndex, long seed)
+  {
+    return new SplittableRandom(deriveSeed(seed, rowIndex));
+  }
+
+  /** 
+   * Derives an independent seed from a seed and an index, for instance a 
+   * seed for each table and column from the run seed. 
+   */
+  public static long deriveSeed(long seed, long index)
+  {
+    return mix64(seed + GOLDEN_GAMMA * (index + 1));
+  }
+
+  // Creates the generator for a stream.  Seeds of consecutive streams are 
+  // hashed as SplittableRandom(seed) would otherwise start stream k+1 one 
+  // step along stream k. 
+  private static SplittableRandom newStream(long index)
+  {
+    return new SplittableRandom(deriveSeed(seed, index));
+  }
+
+  // SplitMix64 finalizer. 
+  private static long mix64(long z)
+  {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+}
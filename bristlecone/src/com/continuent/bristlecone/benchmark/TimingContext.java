@@ -0,0 +1,172 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark;
+
+import com.continuent.bristlecone.benchmark.impl.LatencyHistogram;
+
+/**
+ * Times named operations within a scenario iteration.  Scenarios declare the
+ * operation names they time by overriding Scenario.getTimedOperations() and
+ * receive a context through Scenario.setTimingContext() before prepare() is
+ * called.  Each operation is then timed by bracketing it with start() and 
+ * stop(), for example:<p>
+ * 
+ * <pre>
+ *   ctx.start("commit");
+ *   conn.commit();
+ *   ctx.stop();
+ * </pre>
+ * 
+ * Each benchmark thread has its own context, so no locking is needed.  The
+ * histogram of an operation is allocated the first time the operation is
+ * timed, after which timing it does not allocate.  Timers may be nested up to 
+ * MAX_DEPTH levels, in which case stop() ends the most recently started 
+ * timer.  The harness merges per-thread histograms at the end of the run 
+ * and reports each operation as a separate set of output columns. 
+ * 
+ * @author rhodges
+ */
+public class TimingContext
+{
+  /** Maximum number of timers that may be open at once. */
+  public static final int MAX_DEPTH = 8;
+
+  /** 
+   * Context that ignores all timers.  Scenarios use this until the harness 
+   * supplies a real context so that call sites need no null checks. 
+   */
+  public static final TimingContext NONE = new TimingContext(new String[0])
+  {
+    public void start(String name)
+    {
+    }
+
+    public void stop()
+    {
+    }
+  };
+
+  private final String[] names;
+  private final LatencyHistogram[] histograms;
+
+  // Stack of open timers. 
+  private final int[] openIndexes = new int[MAX_DEPTH];
+  private final long[] openStarts = new long[MAX_DEPTH];
+  private int depth;
+
+  /** 
+   * Creates a context for the indicated operation names. 
+   */
+  public TimingContext(String[] names)
+  {
+    this.names = names.clone();
+    this.histograms = new LatencyHistogram[names.length];
+  }
+
+  /** 
+   * Starts timing an operation. 
+   * 
+   * @param name Operation name, which must be one of the names returned 
+   * by the scenario's getTimedOperations() method
+   */
+  public void start(String name)
+  {
+    if (depth == MAX_DEPTH)
+      throw new BenchmarkException("Too many nested operation timers: name=" 
+          + name);
+    openIndexes[depth] = indexOf(name);
+    openStarts[depth] = System.nanoTime();
+    depth++;
+  }
+
+  /** 
+   * Stops timing the most recently started operation and records its 
+   * latency. 
+   */
+  public void stop()
+  {
+    long end = System.nanoTime();
+    if (depth == 0)
+      throw new BenchmarkException("Operation timer stopped without start");
+    depth--;
+    int index = openIndexes[depth];
+    if (histograms[index] == null)
+      histograms[index] = new LatencyHistogram();
+    histograms[index].recordValue(end - openStarts[depth]);
+  }
+
+  /** 
+   * Discards timers that were started but not stopped, which happens when 
+   * an operation throws an exception.  The harness calls this after each 
+   * iteration. 
+   */
+  public void clear()
+  {
+    depth = 0;
+  }
+
+  /** Clears all recorded latencies, for example after warmup. */
+  public void reset()
+  {
+    depth = 0;
+    for (LatencyHistogram histogram : histograms)
+    {
+      if (histogram != null)
+        histogram.reset();
+    }
+  }
+
+  /** Returns the operation names in declaration order. */
+  public String[] getNames()
+  {
+    return names.clone();
+  }
+
+  /** 
+   * Returns the latency histogram of the indexed operation, where the index
+   * is the position of the name in getNames(), or null if the operation was
+   * never timed. 
+   */
+  public LatencyHistogram getHistogram(int index)
+  {
+    return histograms[index];
+  }
+
+  // Finds a name.  Names are normally string constants, so an identity 
+  // comparison almost always hits before equals() is needed. 
+  private int indexOf(String name)
+  {
+    for (int i = 0; i < names.length; i++)
+    {
+      if (names[i] == name)
+        return i;
+    }
+    for (int i = 0; i < names.length; i++)
+    {
+      if (names[i].equals(name))
+        return i;
+    }
+    throw new BenchmarkException("Operation timer not declared by scenario: "
+        + "name=" + name);
+  }
+}
@@ -22,6 +22,8 @@
 
 package com.continuent.bristlecone.benchmark.db;
 
+import java.sql.SQLException;
+
 import com.continuent.bristlecone.benchmark.db.AdditionalTypes;
 
 /**
@@ -625,4 +627,14 @@ public abstract class AbstractSqlDialect implements SqlDialect
         // zone to UTC.
         return null;
     }
-}
\ No newline at end of file
+
+    /**
+     * Classifies exceptions using standard SQLState values.
+     * 
+     * @see com.continuent.bristlecone.benchmark.db.SqlDialect#classifyException(java.sql.SQLException)
+     */
+    public int classifyException(SQLException e)
+    {
+        return SqlErrorClass.classify(e);
+    }
+}
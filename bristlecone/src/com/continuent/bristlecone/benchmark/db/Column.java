@@ -39,6 +39,12 @@ public class Column
     private boolean isAutoIncrement;
     private boolean indexed;
 
+    // Distribution of generated values.
+    private int     distinctValues;
+    private double  nullFraction;
+    private double  skew;
+    private double  compressibility;
+
     /** Instantiate empty column to be filled out by accessors. */
     public Column()
     {
@@ -155,6 +161,70 @@ public class Column
         this.indexed = indexed;
     }
 
+    /**
+     * Returns the number of distinct values generated for this column or 0
+     * if values are unrestricted.
+     */
+    public int getDistinctValues()
+    {
+        return distinctValues;
+    }
+
+    /**
+     * Limits generated values to a fixed set of distinct values, which sets
+     * index selectivity. 0, the default, generates values over the whole
+     * range of the type.
+     */
+    public void setDistinctValues(int distinctValues)
+    {
+        this.distinctValues = distinctValues;
+    }
+
+    /** Returns the fraction of generated values that are null. */
+    public double getNullFraction()
+    {
+        return nullFraction;
+    }
+
+    /** Sets the fraction of generated values that are null, from 0 to 1. */
+    public void setNullFraction(double nullFraction)
+    {
+        this.nullFraction = nullFraction;
+    }
+
+    /** Returns the Zipf exponent of distinct value popularity. */
+    public double getSkew()
+    {
+        return skew;
+    }
+
+    /**
+     * Sets the Zipf exponent of distinct value popularity, e.g., 0.99. 0,
+     * the default, makes distinct values equally likely. Skew applies only
+     * if the number of distinct values is set.
+     */
+    public void setSkew(double skew)
+    {
+        this.skew = skew;
+    }
+
+    /** Returns the target compressibility ratio of generated values. */
+    public double getCompressibility()
+    {
+        return compressibility;
+    }
+
+    /**
+     * Sets the ratio of value size to compressed size that generated
+     * strings and LOBs should roughly achieve, e.g., 2 to halve them. 1
+     * makes values random throughout. 0, the default, repeats a short
+     * random sequence, which compresses very well.
+     */
+    public void setCompressibility(double compressibility)
+    {
+        this.compressibility = compressibility;
+    }
+
     /**
      * {@inheritDoc}
      * 
@@ -181,6 +251,10 @@ public class Column
         newCol.setPrimaryKey(isPrimaryKey);
         newCol.setAutoIncrement(isAutoIncrement);
         newCol.setIndexed(indexed);
+        newCol.setDistinctValues(distinctValues);
+        newCol.setNullFraction(nullFraction);
+        newCol.setSkew(skew);
+        newCol.setCompressibility(compressibility);
         return newCol;
     }
 }
\ No newline at end of file
@@ -0,0 +1,480 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Implements a fixed-size pool of database connections shared by all 
+ * threads of a benchmark run, so that the number of threads and the number
+ * of database sessions can be varied separately.<p>
+ * 
+ * The harness leases a connection to a thread for each iteration with 
+ * acquire() and returns it with release().  Scenarios use a logical 
+ * connection from getConnection() for their whole life and never see 
+ * physical connections.  Calls on the logical connection go to the 
+ * connection leased by the calling thread.  Statements prepared on the 
+ * logical connection are prepared again on each physical connection the 
+ * first time they are used there and are then cached by SQL text and 
+ * prepare arguments, so scenarios can keep preparing statements once in 
+ * prepare() and statements with the same SQL share a physical statement.  
+ * Parameters must be set in the same iteration as the statement is 
+ * executed.  Settings such as auto-commit made on the logical connection 
+ * are applied to each physical connection before the logical connection 
+ * uses it, skipping settings the physical connection already has.  
+ * Settings that an earlier logical connection changed but this one did 
+ * not set go back to the values the physical connection started with. 
+ * 
+ * @author rhodges
+ */
+public class ConnectionPool
+{
+  private static Logger logger = Logger.getLogger(ConnectionPool.class);
+
+  // Seconds to wait when validating a connection. 
+  private static final int VALIDATION_TIMEOUT = 5;
+
+  // Connection settings that are replayed on each physical connection, 
+  // and the getters that read their initial values, which are looked up 
+  // once by setter name. 
+  private static final Map<String, Method> SETTINGS = 
+    new HashMap<String, Method>();
+  private static final Map<String, Method> GETTERS = 
+    new HashMap<String, Method>();
+  static
+  {
+    for (Method m : Connection.class.getMethods())
+    {
+      String name = m.getName();
+      if (("setAutoCommit".equals(name) || "setTransactionIsolation".equals(name)
+          || "setReadOnly".equals(name) || "setCatalog".equals(name) 
+          || "setSchema".equals(name) || "setHoldability".equals(name))
+          && m.getParameterTypes().length == 1)
+      {
+        String property = name.substring(3);
+        String getter = ("ReadOnly".equals(property) ? "is" : "get") + property;
+        try
+        {
+          GETTERS.put(name, Connection.class.getMethod(getter));
+          SETTINGS.put(name, m);
+        }
+        catch (NoSuchMethodException e)
+        {
+          logger.debug("Connection setting without getter is not replayed: " 
+              + name);
+        }
+      }
+    }
+  }
+
+  private final String url;
+  private final TableHelper helper;
+  private final int size;
+  private final long acquireTimeoutMillis;
+  private final boolean validate;
+
+  // Permits limit connections in use, and a fair semaphore serves waiting
+  // threads in order.  Idle connections wait in the queue. 
+  private final Semaphore permits;
+  private final ConcurrentLinkedQueue<PooledConnection> idle = 
+    new ConcurrentLinkedQueue<PooledConnection>();
+  private final ThreadLocal<PooledConnection> leased = 
+    new ThreadLocal<PooledConnection>();
+  private final AtomicInteger opened = new AtomicInteger();
+
+  // Physical connection with the statements prepared on it. 
+  private static class PooledConnection
+  {
+    final Connection connection;
+    final Map<StatementKey, PreparedStatement> statements = 
+      new HashMap<StatementKey, PreparedStatement>();
+    // Settings applied so far, the values they had before they were first
+    // applied, and the logical connection whose settings were last 
+    // applied. 
+    final Map<String, Object> applied = new HashMap<String, Object>();
+    final Map<String, Object> initial = new HashMap<String, Object>();
+    Object settingsOwner;
+    int settingsVersion;
+
+    PooledConnection(Connection connection)
+    {
+      this.connection = connection;
+    }
+  }
+
+  // Identifies a prepared statement by its prepare method and arguments, 
+  // which start with the SQL text. 
+  private static class StatementKey
+  {
+    private final String method;
+    private final Object[] args;
+    private final int hash;
+
+    StatementKey(Method method, Object[] args)
+    {
+      this.method = method.getName();
+      this.args = args;
+      this.hash = 31 * this.method.hashCode() + Arrays.deepHashCode(args);
+    }
+
+    public boolean equals(Object o)
+    {
+      if (! (o instanceof StatementKey))
+        return false;
+      StatementKey other = (StatementKey) o;
+      return method.equals(other.method) && Arrays.deepEquals(args, other.args);
+    }
+
+    public int hashCode()
+    {
+      return hash;
+    }
+  }
+
+  /**
+   * Creates a new pool.  Connections are opened when first needed. 
+   * 
+   * @param url Database URL
+   * @param user Database login
+   * @param password Database password
+   * @param size Maximum number of connections
+   * @param acquireTimeoutMillis Time to wait for a connection
+   * @param validate If true, check connections when they are leased
+   */
+  public ConnectionPool(String url, String user, String password, int size, 
+      long acquireTimeoutMillis, boolean validate)
+  {
+    this.url = url;
+    this.helper = new TableHelper(url, user, password);
+    this.size = size;
+    this.acquireTimeoutMillis = acquireTimeoutMillis;
+    this.validate = validate;
+    this.permits = new Semaphore(size, true);
+  }
+
+  /** Returns the maximum number of connections. */
+  public int getSize()
+  {
+    return size;
+  }
+
+  /** Returns the number of physical connections opened so far. */
+  public int getOpenedCount()
+  {
+    return opened.get();
+  }
+
+  /** Returns true if the calling thread holds a connection. */
+  public boolean isLeased()
+  {
+    return leased.get() != null;
+  }
+
+  /**
+   * Leases a connection to the calling thread, waiting up to the acquire 
+   * timeout for one to become free.  Does nothing if the thread already 
+   * holds a connection. 
+   * 
+   * @return False if the timeout expired
+   * @throws SQLException Thrown if a new connection cannot be opened
+   */
+  public boolean acquire() throws SQLException
+  {
+    if (leased.get() != null)
+      return true;
+    try
+    {
+      if (! permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS))
+        return false;
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+
+    try
+    {
+      PooledConnection pc = idle.poll();
+      if (pc != null && validate && ! pc.connection.isValid(VALIDATION_TIMEOUT))
+      {
+        logger.debug("Discarding invalid pooled connection");
+        close(pc);
+        pc = null;
+      }
+      if (pc == null)
+      {
+        pc = new PooledConnection(helper.getConnection());
+        opened.incrementAndGet();
+      }
+      leased.set(pc);
+      return true;
+    }
+    catch (SQLException e)
+    {
+      permits.release();
+      throw e;
+    }
+  }
+
+  /** 
+   * Returns the calling thread's connection to the pool.  An open 
+   * transaction is rolled back first.  Does nothing if the thread holds no
+   * connection. 
+   */
+  public void release()
+  {
+    PooledConnection pc = leased.get();
+    if (pc == null)
+      return;
+    leased.set(null);
+    try
+    {
+      if (! pc.connection.getAutoCommit())
+        pc.connection.rollback();
+      idle.offer(pc);
+    }
+    catch (SQLException e)
+    {
+      logger.debug("Discarding pooled connection after failed rollback", e);
+      close(pc);
+    }
+    permits.release();
+  }
+
+  /** 
+   * Returns a logical connection that uses the calling thread's leased 
+   * connection.  Calls made while no connection is leased lease one for 
+   * the duration of the call.  Closing the logical connection does nothing.  
+   */
+  public Connection getConnection()
+  {
+    return (Connection) Proxy.newProxyInstance(
+        ConnectionPool.class.getClassLoader(), new Class<?>[] {Connection.class},
+        new LogicalConnection());
+  }
+
+  /** Closes idle connections.  Call this after all threads release theirs. */
+  public void close()
+  {
+    PooledConnection pc;
+    while ((pc = idle.poll()) != null)
+      close(pc);
+  }
+
+  // Closes a physical connection, which also closes its statements. 
+  private void close(PooledConnection pc)
+  {
+    try
+    {
+      pc.connection.close();
+    }
+    catch (SQLException e)
+    {
+      logger.debug("Unable to close pooled connection", e);
+    }
+  }
+
+  // Invokes a method on a physical object, unwrapping exceptions. 
+  private static Object invoke(Object target, Method method, Object[] args)
+      throws Throwable
+  {
+    try
+    {
+      return method.invoke(target, args);
+    }
+    catch (InvocationTargetException e)
+    {
+      throw e.getCause();
+    }
+  }
+
+  // Returns true if two setting values are equal or both null. 
+  private static boolean equal(Object v1, Object v2)
+  {
+    return (v1 == null) ? v2 == null : v1.equals(v2);
+  }
+
+  // Handles calls on a logical connection. 
+  private class LogicalConnection implements InvocationHandler
+  {
+    private final Map<String, Object> settings = 
+      new LinkedHashMap<String, Object>();
+    private int settingsVersion;
+    private boolean closed;
+
+    public Object invoke(Object proxy, Method method, Object[] args)
+        throws Throwable
+    {
+      String name = method.getName();
+      if ("prepareStatement".equals(name) || "prepareCall".equals(name))
+      {
+        return Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), 
+            new Class<?>[] {method.getReturnType()}, 
+            new LogicalStatement(this, (Connection) proxy, method, args));
+      }
+      else if ("close".equals(name))
+      {
+        closed = true;
+        return null;
+      }
+      else if ("isClosed".equals(name))
+        return closed;
+      else if ("equals".equals(name))
+        return proxy == args[0];
+      else if ("hashCode".equals(name))
+        return System.identityHashCode(proxy);
+      else if ("toString".equals(name))
+        return "pooled connection: " + url;
+      else if (SETTINGS.containsKey(name) && args.length == 1)
+      {
+        // Settings apply to the leased connection at once and otherwise to
+        // the next connection this logical connection uses. 
+        settings.put(name, args[0]);
+        settingsVersion++;
+        PooledConnection pc = leased.get();
+        if (pc != null)
+          physical(pc);
+        return null;
+      }
+
+      PooledConnection pc = leased.get();
+      if (pc != null)
+        return ConnectionPool.invoke(physical(pc), method, args);
+
+      // Lease a connection for this call only. 
+      if (! acquire())
+        throw new SQLException("Timed out waiting for pooled connection", "08001");
+      try
+      {
+        return ConnectionPool.invoke(physical(leased.get()), method, args);
+      }
+      finally
+      {
+        release();
+      }
+    }
+
+    // Returns the physical connection after applying settings that differ
+    // from those it already has.  Settings this logical connection did not
+    // make are restored to the physical connection's initial values. 
+    Connection physical(PooledConnection pc) throws Throwable
+    {
+      if (pc.settingsOwner != this || pc.settingsVersion != settingsVersion)
+      {
+        Map<String, Object> wanted = new LinkedHashMap<String, Object>(settings);
+        for (Map.Entry<String, Object> setting : pc.initial.entrySet())
+        {
+          if (! wanted.containsKey(setting.getKey()))
+            wanted.put(setting.getKey(), setting.getValue());
+        }
+        for (Map.Entry<String, Object> setting : wanted.entrySet())
+        {
+          String name = setting.getKey();
+          Object value = setting.getValue();
+          if (! pc.applied.containsKey(name) 
+              || ! equal(pc.applied.get(name), value))
+          {
+            if (! pc.initial.containsKey(name))
+            {
+              pc.initial.put(name, ConnectionPool.invoke(pc.connection, 
+                  GETTERS.get(name), new Object[0]));
+            }
+            pc.applied.remove(name);
+            ConnectionPool.invoke(pc.connection, SETTINGS.get(name), 
+                new Object[] {value});
+            pc.applied.put(name, value);
+          }
+        }
+        pc.settingsOwner = this;
+        pc.settingsVersion = settingsVersion;
+      }
+      return pc.connection;
+    }
+  }
+
+  // Handles calls on a statement prepared on a logical connection. 
+  private class LogicalStatement implements InvocationHandler
+  {
+    private final LogicalConnection owner;
+    private final Connection connection;
+    private final Method prepareMethod;
+    private final Object[] prepareArgs;
+    private final StatementKey key;
+
+    LogicalStatement(LogicalConnection owner, Connection connection, 
+        Method prepareMethod, Object[] prepareArgs)
+    {
+      this.owner = owner;
+      this.connection = connection;
+      this.prepareMethod = prepareMethod;
+      this.prepareArgs = prepareArgs;
+      this.key = new StatementKey(prepareMethod, prepareArgs);
+    }
+
+    public Object invoke(Object proxy, Method method, Object[] args)
+        throws Throwable
+    {
+      String name = method.getName();
+      if ("close".equals(name))
+        return null;
+      else if ("getConnection".equals(name))
+        return connection;
+      else if ("equals".equals(name))
+        return proxy == args[0];
+      else if ("hashCode".equals(name))
+        return System.identityHashCode(proxy);
+      else if ("toString".equals(name))
+        return "pooled statement: " + prepareArgs[0];
+
+      PooledConnection pc = leased.get();
+      if (pc == null)
+        throw new SQLException("Pooled statement used without a leased connection");
+      Connection physical = owner.physical(pc);
+      PreparedStatement statement = pc.statements.get(key);
+      if (statement == null)
+      {
+        statement = (PreparedStatement) ConnectionPool.invoke(physical, 
+            prepareMethod, prepareArgs);
+        pc.statements.put(key, statement);
+      }
+      return ConnectionPool.invoke(statement, method, args);
+    }
+  }
+}
@@ -0,0 +1,94 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.db;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accumulates CPU time spent generating data during a run, so that the 
+ * harness can report the share of CPU that went to data generation 
+ * rather than to the database driver. 
+ * 
+ * @author rhodges
+ */
+public class DataGenerationMeter
+{
+  private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+  private static final boolean supported = 
+    threadBean.isCurrentThreadCpuTimeSupported();
+  private static final LongAdder cpuNanos = new LongAdder();
+
+  // Not instantiated. 
+  private DataGenerationMeter()
+  {
+  }
+
+  /** Returns true if thread CPU time can be measured on this JVM. */
+  public static boolean isSupported()
+  {
+    return supported;
+  }
+
+  /** 
+   * Returns CPU time in nanoseconds used by the calling thread, or 0 if 
+   * this cannot be measured. 
+   */
+  public static long threadCpuTime()
+  {
+    return supported ? threadBean.getCurrentThreadCpuTime() : 0;
+  }
+
+  /** 
+   * Returns CPU time in nanoseconds used by the whole process, or 0 if 
+   * this cannot be measured. 
+   */
+  public static long processCpuTime()
+  {
+    OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+    if (osBean instanceof com.sun.management.OperatingSystemMXBean)
+      return ((com.sun.management.OperatingSystemMXBean) osBean).getProcessCpuTime();
+    else
+      return 0;
+  }
+
+  /** Adds nanoseconds of CPU time spent generating data. */
+  public static void add(long nanos)
+  {
+    cpuNanos.add(nanos);
+  }
+
+  /** Returns nanoseconds of CPU time recorded since the last reset. */
+  public static long getCpuNanos()
+  {
+    return cpuNanos.sum();
+  }
+
+  /** Clears recorded CPU time at the start of a run. */
+  public static void reset()
+  {
+    cpuNanos.reset();
+  }
+}
@@ -22,9 +22,19 @@
 
 package com.continuent.bristlecone.benchmark.db;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.SplittableRandom;
+
+import com.continuent.bristlecone.benchmark.BenchmarkException;
+import com.continuent.bristlecone.benchmark.ThreadRandom;
+
 /**
  * Interface for random data generators.  Data generators produce data ranges
- * and class types appropriate for particular data types.  
+ * and class types appropriate for particular data types.  Besides objects, 
+ * generators offer primitive values and can bind values directly to a 
+ * prepared statement using the setter for their type.  Generators override
+ * these where that avoids boxing or lets the driver skip type inspection.
  * 
  * @author rhodges
  */
@@ -33,5 +43,88 @@ public interface DataGenerator
   /** 
    * Generates a random object.   
    */
-  public Object generate();
+  public default Object generate()
+  {
+    return generate(ThreadRandom.current());
+  }
+
+  /** 
+   * Generates the object for a row.  The result depends only on the row 
+   * index and seed, so any thread can generate any row in any order, and 
+   * the value can be computed again later to check what was stored. 
+   */
+  public default Object generate(long rowIndex, long seed)
+  {
+    return generate(ThreadRandom.forRow(rowIndex, seed));
+  }
+
+  /** 
+   * Generates an object using random numbers from the given generator.  
+   * Implementations must not use any other source of randomness. 
+   */
+  public Object generate(SplittableRandom random);
+
+  /** Generates a random number without boxing it if possible. */
+  public default long nextLong()
+  {
+    return nextLong(ThreadRandom.current());
+  }
+
+  /** Generates a random number without boxing it if possible. */
+  public default double nextDouble()
+  {
+    return nextDouble(ThreadRandom.current());
+  }
+
+  /** Generates a random value and binds it to a statement parameter. */
+  public default void bind(PreparedStatement ps, int index) throws SQLException
+  {
+    bind(ps, index, ThreadRandom.current());
+  }
+
+  /** 
+   * Generates the value for a row as generate(rowIndex, seed) does and 
+   * binds it to a statement parameter. 
+   */
+  public default void bind(PreparedStatement ps, int index, long rowIndex, 
+      long seed) throws SQLException
+  {
+    bind(ps, index, ThreadRandom.forRow(rowIndex, seed));
+  }
+
+  /** 
+   * Generates a number using the given generator.  The default unboxes
+   * the result of generate() and fails if it is not a number. 
+   */
+  public default long nextLong(SplittableRandom random)
+  {
+    Object value = generate(random);
+    if (value instanceof Number)
+      return ((Number) value).longValue();
+    throw new BenchmarkException("Data generator does not produce numbers: " 
+        + getClass().getName());
+  }
+
+  /** 
+   * Generates a number using the given generator.  The default unboxes
+   * the result of generate() and fails if it is not a number. 
+   */
+  public default double nextDouble(SplittableRandom random)
+  {
+    Object value = generate(random);
+    if (value instanceof Number)
+      return ((Number) value).doubleValue();
+    throw new BenchmarkException("Data generator does not produce numbers: " 
+        + getClass().getName());
+  }
+
+  /** 
+   * Generates a value using the given generator and binds it to a 
+   * statement parameter.  The default uses setObject(). 
+   */
+  public default void bind(PreparedStatement ps, int index, 
+      SplittableRandom random) throws SQLException
+  {
+    ps.setObject(index, generate(random));
+  }
 }
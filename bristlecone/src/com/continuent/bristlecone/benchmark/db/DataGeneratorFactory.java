@@ -22,6 +22,7 @@
 
 package com.continuent.bristlecone.benchmark.db;
 
+import com.continuent.bristlecone.benchmark.ThreadRandom;
 
 /**
  * Returns a data generator appropriate for a particular data type. 
@@ -47,20 +48,82 @@ public class DataGeneratorFactory
   }
   
   /**
-   * Return a data type generator for a particular column type.  
+   * Returns true if values of a column type can be generated as streams. 
+   */
+  public boolean isStreamable(Column c)
+  {
+    return c.getType() == java.sql.Types.BLOB 
+        || c.getType() == java.sql.Types.CLOB;
+  }
+
+  /**
+   * Return a data type generator that produces BLOB and CLOB values as 
+   * streams of the column length.  Other column types get the same 
+   * generator as getGenerator(). 
+   */
+  public DataGenerator getStreamingGenerator(Column c)
+  {
+    switch (c.getType())
+    {
+      case java.sql.Types.BLOB: 
+        return distribute(c, 
+            new DataGeneratorForBinaryStream(c.getLength(), getRepeat(c)));
+      case java.sql.Types.CLOB:
+        return distribute(c, 
+            new DataGeneratorForCharacterStream(c.getLength(), getRepeat(c)));
+      default:
+        return getGenerator(c);
+    }
+  }
+
+  /**
+   * Return a data type generator for a particular column type.  Values 
+   * follow the distinct value count, null fraction, skew, and 
+   * compressibility set on the column. 
    */
   public DataGenerator getGenerator(Column c)
+  {
+    return distribute(c, getTypeGenerator(c));
+  }
+
+  // Wraps a generator to follow column distribution metadata, if any. 
+  // Distinct values are derived from the run seed and column name so that
+  // all threads share them. 
+  private DataGenerator distribute(Column c, DataGenerator generator)
+  {
+    if (c.getDistinctValues() > 0 || c.getNullFraction() > 0)
+    {
+      long valueSeed = ThreadRandom.deriveSeed(ThreadRandom.getSeed(), 
+          c.getName().hashCode());
+      return new DataGeneratorForDistribution(generator, c, valueSeed);
+    }
+    else
+      return generator;
+  }
+
+  // Returns the length of the random sequence that string and LOB values 
+  // repeat, which sets how well they compress. 
+  private int getRepeat(Column c)
+  {
+    if (c.getCompressibility() > 0)
+      return Math.max(1, (int) Math.ceil(c.getLength() / c.getCompressibility()));
+    else
+      return 10;
+  }
+
+  // Returns a generator for the column type. 
+  private DataGenerator getTypeGenerator(Column c)
   {
     switch (c.getType())
     {
       case java.sql.Types.BIT: 
         return new DataGeneratorForBit(c.getLength());
       case java.sql.Types.BLOB: 
-        return new DataGeneratorForBlob(c.getLength(), 10);
+        return new DataGeneratorForBlob(c.getLength(), getRepeat(c));
       case java.sql.Types.CHAR:
-        return new DataGeneratorForString(c.getLength(), 10);
+        return new DataGeneratorForString(c.getLength(), getRepeat(c));
       case java.sql.Types.CLOB:
-          return new DataGeneratorForString(c.getLength(), 10);
+          return new DataGeneratorForString(c.getLength(), getRepeat(c));
       case AdditionalTypes.XML:
           return new DataGeneratorForXML(c.getLength(), 10);
       case java.sql.Types.DOUBLE:
@@ -100,7 +163,7 @@ public class DataGeneratorFactory
       case AdditionalTypes.UNBIGINT:
           return new DataGeneratorForUBigInt("18446744073709551615", false); 
       case java.sql.Types.VARCHAR:
-          return new DataGeneratorForString(c.getLength(), 10);
+          return new DataGeneratorForString(c.getLength(), getRepeat(c));
       case java.sql.Types.BOOLEAN:
           return new DataGeneratorForBoolean();
       case java.sql.Types.DATE:
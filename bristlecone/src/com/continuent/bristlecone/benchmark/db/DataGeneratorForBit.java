@@ -22,6 +22,10 @@
 
 package com.continuent.bristlecone.benchmark.db;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.SplittableRandom;
+
 /**
  * Generates integer values. 
  * 
@@ -41,10 +45,28 @@ public class DataGeneratorForBit implements DataGenerator
   /** Generate a random value between 0 and the maximum that can be held in the
    * given number of bits
    **/
-  public Object generate()
+  public Object generate(SplittableRandom random)
+  {
+    return Long.valueOf(nextLong(random));
+  }
+
+  /** Generate the value without boxing. */
+  public long nextLong(SplittableRandom random)
   {
     long max = 1L << (length - 1);
-    long retval = (long) (Math.random() * max);  
-    return new Long(retval);
+    return (long) (random.nextDouble() * max);  
+  }
+
+  /** Generate the value as a double. */
+  public double nextDouble(SplittableRandom random)
+  {
+    return nextLong(random);
+  }
+
+  /** Bind the value as a long. */
+  public void bind(PreparedStatement ps, int index, SplittableRandom random) 
+      throws SQLException
+  {
+    ps.setLong(index, nextLong(random));
   }
 }
@@ -22,6 +22,10 @@
 
 package com.continuent.bristlecone.benchmark.db;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.SplittableRandom;
+
 /**
  * Generates integer values. 
  * 
@@ -44,22 +48,28 @@ public class DataGeneratorForBlob implements DataGenerator
    * Generate a string based on a repeating sequence of characters 
    * 'repeat' places in length. 
    */
-  public Object generate()
+  public Object generate(SplittableRandom random)
   {
-    byte[] base = new byte[repeat];
+    // Generate the base sequence in place, then repeat it. 
+    byte[] generatedValues = new byte[length];
     for (int i = 0; i < repeat; i++)
     {
-      byte value = (byte) (Math.random() * 256.);
-      base[i] = value;
+      byte value = (byte) (random.nextDouble() * 256.);
+      if (i < length)
+        generatedValues[i] = value;
     }
-    
-    byte[] generatedValues = new byte[length];
-    for (int i = 0; i < length; i++)
+    for (int i = repeat; i < length; i++)
     {
-      int index = i % base.length;
-      generatedValues[i] = base[index];
+      generatedValues[i] = generatedValues[i - repeat];
     }
     
     return generatedValues;
   }
+
+  /** Bind the bytes directly. */
+  public void bind(PreparedStatement ps, int index, SplittableRandom random) 
+      throws SQLException
+  {
+    ps.setBytes(index, (byte[]) generate(random));
+  }
 }
@@ -22,6 +22,10 @@
 
 package com.continuent.bristlecone.benchmark.db;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.SplittableRandom;
+
 import com.continuent.bristlecone.benchmark.db.DataGenerator;
 
 /**
@@ -33,11 +37,24 @@ public class DataGeneratorForBoolean implements DataGenerator
 {
 
   /** Generate next boolean. */
-  public Object generate()
+  public Object generate(SplittableRandom random)
+  {
+    return Boolean.valueOf(nextBoolean(random));
+  }
+
+  /** Bind next boolean without boxing. */
+  public void bind(PreparedStatement ps, int index, SplittableRandom random) 
+      throws SQLException
+  {
+    ps.setBoolean(index, nextBoolean(random));
+  }
+
+  // Generate next boolean as a primitive. 
+  private boolean nextBoolean(SplittableRandom random)
   {
     boolean bool = true;
-    if (Math.random() < 0.5)
+    if (random.nextDouble() < 0.5)
       bool = false;
-    return new Boolean(bool);
+    return bool;
   }
 }
\ No newline at end of file
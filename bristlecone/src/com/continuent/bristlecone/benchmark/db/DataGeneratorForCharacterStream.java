@@ -0,0 +1,110 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.db;
+
+import java.io.Reader;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.SplittableRandom;
+
+/**
+ * Generates CLOB values as readers.  Only the repeating base sequence is 
+ * generated up front; the reader returns it over and over as it is read, 
+ * so values of any length take constant memory.  Readers hold the same 
+ * characters that DataGeneratorForString generates from the same random 
+ * numbers. 
+ * 
+ * @author rhodges
+ */
+public class DataGeneratorForCharacterStream implements DataGenerator
+{
+  private int length; 
+  private int repeat;
+ 
+  /** Create a new instance with a stream length. */
+  DataGeneratorForCharacterStream(int length, int repeat)
+  {
+    this.length = length; 
+    this.repeat = repeat;
+  }
+  
+  /** 
+   * Generate a reader based on a repeating sequence of characters 'repeat' 
+   * places in length.  Each reader can be read once. 
+   */
+  public Object generate(SplittableRandom random)
+  {
+    char[] sequence = new char[Math.max(1, Math.min(repeat, length))];
+    for (int i = 0; i < repeat; i++)
+    {
+      char c = DataGeneratorForString.generateChar(random, true);
+      if (i < sequence.length)
+        sequence[i] = c;
+    }
+    return new RepeatingReader(sequence, length);
+  }
+
+  /** Bind the reader with its length. */
+  public void bind(PreparedStatement ps, int index, SplittableRandom random) 
+      throws SQLException
+  {
+    ps.setCharacterStream(index, (Reader) generate(random), length);
+  }
+
+  // Returns a sequence repeatedly up to a fixed length. 
+  private static class RepeatingReader extends Reader
+  {
+    private final char[] sequence;
+    private final int    length;
+    private int          position;
+
+    RepeatingReader(char[] sequence, int length)
+    {
+      this.sequence = sequence;
+      this.length = length;
+    }
+
+    public int read(char[] cbuf, int off, int len)
+    {
+      if (len == 0)
+        return 0;
+      if (position >= length)
+        return -1;
+      int count = Math.min(len, length - position);
+      int copied = 0;
+      while (copied < count)
+      {
+        int start = (position + copied) % sequence.length;
+        int chunk = Math.min(count - copied, sequence.length - start);
+        System.arraycopy(sequence, start, cbuf, off + copied, chunk);
+        copied += chunk;
+      }
+      position += count;
+      return count;
+    }
+
+    public void close()
+    {
+    }
+  }
+}
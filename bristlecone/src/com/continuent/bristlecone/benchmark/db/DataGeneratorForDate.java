@@ -23,8 +23,11 @@
 package com.continuent.bristlecone.benchmark.db;
 
 import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.SplittableRandom;
 
 /**
  * Generates date values
@@ -59,10 +62,10 @@ public class DataGeneratorForDate implements DataGenerator
     }
 
     /** Generate next date. */
-    public Object generate()
+    public Object generate(SplittableRandom random)
     {
-        long sign = (Math.random() >= 0.5) ? -1 : 1;
-        long absvalue = (long) (Math.random() * max);
+        long sign = (random.nextDouble() >= 0.5) ? -1 : 1;
+        long absvalue = (long) (random.nextDouble() * max);
 
         long dateValue = sign * absvalue;
         
@@ -79,9 +82,16 @@ public class DataGeneratorForDate implements DataGenerator
         catch (ParseException e)
         {
             // Re-generate date until it's valid. 
-            date = (Date) generate(); 
+            date = (Date) generate(random); 
         }
         
         return date;
     }
-}
\ No newline at end of file
+
+    /** Bind next date directly. */
+    public void bind(PreparedStatement ps, int index, SplittableRandom random) 
+        throws SQLException
+    {
+        ps.setDate(index, (Date) generate(random));
+    }
+}
@@ -24,6 +24,9 @@ package com.continuent.bristlecone.benchmark.db;
 
 import java.math.BigDecimal;
 import java.lang.Long;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.SplittableRandom;
 
 //import org.apache.log4j.Logger;
 
@@ -52,10 +55,10 @@ public class DataGeneratorForDecimal implements DataGenerator
     }
 
     /** Generate a representative value */
-    public Object generate()
+    public Object generate(SplittableRandom random)
     {
-        boolean positive = (Math.random() >= 0.5) ? true : false;
-        BigDecimal rand = new BigDecimal(Math.random());
+        boolean positive = (random.nextDouble() >= 0.5) ? true : false;
+        BigDecimal rand = new BigDecimal(random.nextDouble());
         BigDecimal absvalue = max.multiply(rand);
         BigDecimal left = absvalue.divideToIntegralValue(one);
         int i = 1;
@@ -86,4 +89,11 @@ public class DataGeneratorForDecimal implements DataGenerator
             retval = absvalue.negate();
         return retval;
     }
-}
\ No newline at end of file
+
+    /** Bind a representative value directly. */
+    public void bind(PreparedStatement ps, int index, SplittableRandom random) 
+        throws SQLException
+    {
+        ps.setBigDecimal(index, (BigDecimal) generate(random));
+    }
+}
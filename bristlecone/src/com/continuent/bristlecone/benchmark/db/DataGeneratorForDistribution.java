@@ -0,0 +1,111 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.db;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.SplittableRandom;
+
+import com.continuent.bristlecone.benchmark.ThreadRandom;
+
+/**
+ * Shapes the values of another generator to a column's distribution 
+ * metadata.  A fraction of values are null.  If the number of distinct 
+ * values is set, each value is the one the underlying generator produces
+ * for a value index chosen uniformly or with Zipf skew, so that a column 
+ * holds at most that many distinct values whichever thread generates 
+ * them. 
+ * 
+ * @author rhodges
+ */
+public class DataGeneratorForDistribution implements DataGenerator
+{
+  private final DataGenerator        generator;
+  private final int                  type;
+  private final double               nullFraction;
+  private final int                  distinctValues;
+  private final KeyChooserForZipfian zipfian;
+  private final long                 valueSeed;
+
+  /** 
+   * Create a new instance. 
+   * 
+   * @param generator Generator for non-null values
+   * @param column Column with distribution metadata
+   * @param valueSeed Seed from which distinct values are generated
+   */
+  DataGeneratorForDistribution(DataGenerator generator, Column column, 
+      long valueSeed)
+  {
+    this.generator = generator;
+    this.type = column.getType();
+    this.nullFraction = column.getNullFraction();
+    this.distinctValues = column.getDistinctValues();
+    if (distinctValues > 0 && column.getSkew() > 0)
+      zipfian = new KeyChooserForZipfian(distinctValues, column.getSkew());
+    else
+      zipfian = null;
+    this.valueSeed = valueSeed;
+  }
+
+  /** Generate null or a value from the underlying generator. */
+  public Object generate(SplittableRandom random)
+  {
+    if (isNull(random))
+      return null;
+    else if (distinctValues > 0)
+      return generator.generate(nextValue(random));
+    else
+      return generator.generate(random);
+  }
+
+  /** Bind null or a value from the underlying generator. */
+  public void bind(PreparedStatement ps, int index, SplittableRandom random) 
+      throws SQLException
+  {
+    if (isNull(random))
+      ps.setNull(index, type);
+    else if (distinctValues > 0)
+      generator.bind(ps, index, nextValue(random));
+    else
+      generator.bind(ps, index, random);
+  }
+
+  // Returns true if the next value should be null. 
+  private boolean isNull(SplittableRandom random)
+  {
+    return nullFraction > 0 && random.nextDouble() < nullFraction;
+  }
+
+  // Chooses a distinct value and returns the random numbers that generate
+  // it. 
+  private SplittableRandom nextValue(SplittableRandom random)
+  {
+    int value;
+    if (zipfian == null)
+      value = random.nextInt(distinctValues);
+    else
+      value = zipfian.nextKey(random);
+    return ThreadRandom.forRow(value, valueSeed);
+  }
+}
@@ -22,6 +22,10 @@
 
 package com.continuent.bristlecone.benchmark.db;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.SplittableRandom;
+
 /**
  * Generates double values.
  * 
@@ -37,7 +41,20 @@ public class DataGeneratorForDouble implements DataGenerator
   }
 
   /** Generate next value up to the boundary value. */
-  public Object generate()
+  public Object generate(SplittableRandom random)
+  {
+    return Double.valueOf(nextDouble(random));
+  }
+
+  /** Bind next value as a double. */
+  public void bind(PreparedStatement ps, int index, SplittableRandom random) 
+      throws SQLException
+  {
+    ps.setDouble(index, nextDouble(random));
+  }
+
+  /** Generate next value without boxing. */
+  public double nextDouble(SplittableRandom random)
   {
     double max = 0;
     if (astronomicalNumbersOnly)
@@ -49,13 +66,13 @@ public class DataGeneratorForDouble implements DataGenerator
     {
       // REP-132 - must use different magnitude each time, otherwise we
       // generate only astronomical numbers.
-      double magnitude = (int) (38 * Math.random());
+      double magnitude = (int) (38 * random.nextDouble());
       // 3.4028235 is Float.MAX_VALUE without power.
       max = 3.4028235 * Math.pow(10, magnitude);
     }
 
-    double sign = (Math.random() >= 0.5) ? -1.0 : 1.0;
-    double absvalue = (Math.random() * max);
-    return new Double(sign * absvalue);
+    double sign = (random.nextDouble() >= 0.5) ? -1.0 : 1.0;
+    double absvalue = (random.nextDouble() * max);
+    return sign * absvalue;
   }
 }
\ No newline at end of file
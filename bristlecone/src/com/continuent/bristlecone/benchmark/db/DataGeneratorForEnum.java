@@ -22,6 +22,10 @@
 
 package com.continuent.bristlecone.benchmark.db;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.SplittableRandom;
+
 /**
  * Generates enum values. 
  * 
@@ -41,8 +45,27 @@ public class DataGeneratorForEnum implements DataGenerator
   /** 
    * Return a random enum based on the numberOfDistinctValues
    */
-  public Object generate()
+  public Object generate(SplittableRandom random)
+  {
+      return (int) nextLong(random);
+  }
+
+  /** Return the enum index without boxing. */
+  public long nextLong(SplittableRandom random)
+  {
+      return ((int)(random.nextDouble() * numberOfDistinctValues)) + 1;
+  }
+
+  /** Return the enum index as a double. */
+  public double nextDouble(SplittableRandom random)
+  {
+      return nextLong(random);
+  }
+
+  /** Bind the enum index as an int. */
+  public void bind(PreparedStatement ps, int index, SplittableRandom random) 
+      throws SQLException
   {
-      return ((int)(Math.random() * numberOfDistinctValues)) + 1;
+      ps.setInt(index, (int) nextLong(random));
   }
 }
@@ -22,6 +22,10 @@
 
 package com.continuent.bristlecone.benchmark.db;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.SplittableRandom;
+
 /**
  * Generates float values. 
  * 
@@ -38,7 +42,26 @@ public class DataGeneratorForFloat implements DataGenerator
   }
   
   /** Generate next value up to the boundary value. */
-  public Object generate()
+  public Object generate(SplittableRandom random)
+  {
+    return Float.valueOf(nextFloat(random));
+  }
+
+  /** Generate next value as a double. */
+  public double nextDouble(SplittableRandom random)
+  {
+    return nextFloat(random);
+  }
+
+  /** Bind next value as a float. */
+  public void bind(PreparedStatement ps, int index, SplittableRandom random) 
+      throws SQLException
+  {
+    ps.setFloat(index, nextFloat(random));
+  }
+
+  // Generate next value without boxing. 
+  private float nextFloat(SplittableRandom random)
   {
     float max = 0;
     if (astronomicalNumbersOnly)
@@ -50,13 +73,13 @@ public class DataGeneratorForFloat implements DataGenerator
       // REP-132 - must use different magnitude each time, otherwise we
       // generate only astronomical numbers.
       // 38 is the power of Float.MAX_VALUE.
-      float magnitude = (int) (38 * Math.random());
+      float magnitude = (int) (38 * random.nextDouble());
       // 3.4028235 is Float.MAX_VALUE without power.
       max = (float) (3.4028235 * Math.pow(10, magnitude));
     }
 
-    double sign = (Math.random() >= 0.5) ? -1.0 : 1.0;
-    float absvalue = ((float) Math.random() * max);  
-    return new Float(sign * absvalue);
+    double sign = (random.nextDouble() >= 0.5) ? -1.0 : 1.0;
+    float absvalue = ((float) random.nextDouble() * max);  
+    return (float) (sign * absvalue);
   }
 }
\ No newline at end of file
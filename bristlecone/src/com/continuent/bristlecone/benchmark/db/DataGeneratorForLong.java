@@ -22,6 +22,10 @@
 
 package com.continuent.bristlecone.benchmark.db;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.SplittableRandom;
+
 /**
  * Generates integer values. 
  * 
@@ -39,10 +43,29 @@ public class DataGeneratorForLong implements DataGenerator
   }
   
   /** Generate next value up to the boundary value. */
-  public Object generate()
+  public Object generate(SplittableRandom random)
+  {
+    return Long.valueOf(nextLong(random));
+  }
+
+  /** Generate next value without boxing. */
+  public long nextLong(SplittableRandom random)
+  {
+    long sign = (random.nextDouble() >= 0.5) ? -1 : 1;
+    long absvalue = (long) (random.nextDouble() * max);  
+    return sign * absvalue;
+  }
+
+  /** Generate next value as a double. */
+  public double nextDouble(SplittableRandom random)
+  {
+    return nextLong(random);
+  }
+
+  /** Bind next value as a long. */
+  public void bind(PreparedStatement ps, int index, SplittableRandom random) 
+      throws SQLException
   {
-    long sign = (Math.random() >= 0.5) ? -1 : 1;
-    long absvalue = (long) (Math.random() * max);  
-    return new Long(sign * absvalue);
+    ps.setLong(index, nextLong(random));
   }
 }
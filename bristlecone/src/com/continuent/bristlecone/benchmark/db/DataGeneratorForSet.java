@@ -22,6 +22,10 @@
 
 package com.continuent.bristlecone.benchmark.db;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.SplittableRandom;
+
 /**
  * Generates set values. 
  * 
@@ -46,16 +50,23 @@ public class DataGeneratorForSet implements DataGenerator
    * Sets look like 'setele1,setele2', 'setele10', or 'setele3, setele4, setele3'
    * 
    */
-  public Object generate()
+  public Object generate(SplittableRandom random)
   {
       String retval="";
-      int numberOfElements = (int)(Math.random() * numberOfDistinctValues) + 1;
+      int numberOfElements = (int)(random.nextDouble() * numberOfDistinctValues) + 1;
       for (int i = 0; i < numberOfElements; i++)
       {
-          int thisElement = (int)(Math.random() * numberOfDistinctValues);
+          int thisElement = (int)(random.nextDouble() * numberOfDistinctValues);
           if (i != 0) retval += ",";
           retval += "setele" + thisElement;
       }
       return retval;
   }
+
+  /** Bind a random set as a string. */
+  public void bind(PreparedStatement ps, int index, SplittableRandom random) 
+    throws SQLException
+  {
+    ps.setString(index, (String) generate(random));
+  }
 }
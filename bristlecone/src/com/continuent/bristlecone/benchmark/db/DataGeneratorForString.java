@@ -22,6 +22,10 @@
 
 package com.continuent.bristlecone.benchmark.db;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.SplittableRandom;
+
 /**
  * Generates integer values. 
  * 
@@ -48,29 +52,44 @@ public class DataGeneratorForString implements DataGenerator
    * Generate a string based on a repeating sequence of characters 
    * 'repeat' places in length. 
    */
-  public Object generate()
+  public Object generate(SplittableRandom random)
   {
-    char[] base = new char[repeat];
+    // Generate the base sequence in place, then repeat it. 
+    char[] generatedValues = new char[length];
     for (int i = 0; i < repeat; i++)
     {
-      /* 20% of the time, if useSpecial is enabled, insert special character */
-      if (useSpecial && Math.random() < 0.2)
-      {
-        int index = (int) (Math.random() * special.length());
-        base[i] = special.charAt(index);
-      } else {
-        int index = (int) (Math.random() * values.length());
-        base[i] = values.charAt(index);
-      }
+      char c = generateChar(random, useSpecial);
+      if (i < length)
+        generatedValues[i] = c;
     }
-    
-    char[] generatedValues = new char[length];
-    for (int i = 0; i < length; i++)
+    for (int i = repeat; i < length; i++)
     {
-      int index = i % base.length;
-      generatedValues[i] = base[index];
+      generatedValues[i] = generatedValues[i - repeat];
     }
     
     return new String(generatedValues);
   }
+
+  /** 
+   * Generate a single character of the kind used in generated strings.  
+   */
+  static char generateChar(SplittableRandom random, boolean useSpecial)
+  {
+    /* 20% of the time, if useSpecial is enabled, insert special character */
+    if (useSpecial && random.nextDouble() < 0.2)
+    {
+      int index = (int) (random.nextDouble() * special.length());
+      return special.charAt(index);
+    } else {
+      int index = (int) (random.nextDouble() * values.length());
+      return values.charAt(index);
+    }
+  }
+
+  /** Bind the string directly. */
+  public void bind(PreparedStatement ps, int index, SplittableRandom random) 
+      throws SQLException
+  {
+    ps.setString(index, (String) generate(random));
+  }
 }
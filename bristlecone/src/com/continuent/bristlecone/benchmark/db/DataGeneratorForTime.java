@@ -22,7 +22,11 @@
 
 package com.continuent.bristlecone.benchmark.db;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.sql.Time;
+import java.util.SplittableRandom;
+
 import com.continuent.bristlecone.benchmark.db.DataGenerator;
 
 /**
@@ -36,12 +40,19 @@ public class DataGeneratorForTime implements DataGenerator
     private static long maxTime = 24 * 60 * 60 * 1000;
 
     /** Generate next time. */
-    public Object generate()
+    public Object generate(SplittableRandom random)
     {
         long sign = 1;
-        if (Math.random() < 0.5)
+        if (random.nextDouble() < 0.5)
             sign = -1;
-        long timeValue = sign * (long) (Math.random() * maxTime);
+        long timeValue = sign * (long) (random.nextDouble() * maxTime);
         return new Time(timeValue);
     }
-}
\ No newline at end of file
+
+    /** Bind next time directly. */
+    public void bind(PreparedStatement ps, int index, SplittableRandom random) 
+        throws SQLException
+    {
+        ps.setTime(index, (Time) generate(random));
+    }
+}
@@ -22,7 +22,10 @@
 
 package com.continuent.bristlecone.benchmark.db;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.util.SplittableRandom;
 
 /**
  * Generates TimeStamp values
@@ -39,9 +42,16 @@ public class DataGeneratorForTimestamp implements DataGenerator
     }
 
     /** Generate next timestamp. */
-    public Object generate()
+    public Object generate(SplittableRandom random)
     {
-        long timeValue = (long) ((Math.random() * intervalMillis)) * 1000L;
+        long timeValue = (long) ((random.nextDouble() * intervalMillis)) * 1000L;
         return new Timestamp(timeValue);
     }
-}
\ No newline at end of file
+
+    /** Bind next timestamp directly. */
+    public void bind(PreparedStatement ps, int index, SplittableRandom random) 
+        throws SQLException
+    {
+        ps.setTimestamp(index, (Timestamp) generate(random));
+    }
+}
@@ -24,6 +24,7 @@ package com.continuent.bristlecone.benchmark.db;
 
 import java.math.BigInteger;
 import java.lang.Long;
+import java.util.SplittableRandom;
 
 /**
  * Generates unsigned big int values between values. 
@@ -79,12 +80,12 @@ public class DataGeneratorForUBigInt implements DataGenerator
      * generate every BigInteger between this.max and 0, only long.MAX_VALUE
      * distinct representatives equally spaced in the BigInteger address space.
      */
-    public Object generate()
+    public Object generate(SplittableRandom random)
     {
         BigInteger retval;
 
         Long totalRepresentativeValues = 9223372036854775807L;
-        Long currentRepresentativeValue = (long) (Math.random() * totalRepresentativeValues
+        Long currentRepresentativeValue = (long) (random.nextDouble() * totalRepresentativeValues
                 .longValue());
 
         BigInteger currentRepresentativeValueBig = new BigInteger(
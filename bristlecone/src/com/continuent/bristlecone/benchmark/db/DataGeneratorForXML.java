@@ -22,6 +22,10 @@
 
 package com.continuent.bristlecone.benchmark.db;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.SplittableRandom;
+
 /**
  * Generates integer values. 
  * 
@@ -60,7 +64,7 @@ public class DataGeneratorForXML implements DataGenerator
    * @param recursionLevel  - The current depth of recursion.
    * @return - Valid XML string for testing purposes.
    */
-  private String createClause(int recursionLevel)
+  private String createClause(SplittableRandom random, int recursionLevel)
   {
       int subClauses;
       String retVal = "";
@@ -72,7 +76,7 @@ public class DataGeneratorForXML implements DataGenerator
       char[] clauseNameCA = new char[repeat];
       for (int i = 0; i < repeat; i++)
       {
-          int index = (int) (Math.random() * values.length());
+          int index = (int) (random.nextDouble() * values.length());
           clauseNameCA[i] = values.charAt(index);
       }
       
@@ -81,7 +85,7 @@ public class DataGeneratorForXML implements DataGenerator
       clauseNameCA = new char[repeat];
       for (int i = 0; i < repeat; i++)
       {
-          int index = (int) (Math.random() * values.length());
+          int index = (int) (random.nextDouble() * values.length());
           clauseNameCA[i] = values.charAt(index);
       }
       
@@ -92,7 +96,7 @@ public class DataGeneratorForXML implements DataGenerator
   
       remainingLength -= clauseName.length() + clauseValue.length() + 2;
       
-      int pct = (int) (Math.random() * 100);
+      int pct = (int) (random.nextDouble() * 100);
   
       /* Pontentially generate sub clause */
       subClauses = 0;
@@ -104,7 +108,7 @@ public class DataGeneratorForXML implements DataGenerator
       
       for (int i = 0; i < subClauses; i++)
       {
-          retVal += createClause(recursionLevel + 1);
+          retVal += createClause(random, recursionLevel + 1);
           retVal += clauseValue;
           remainingLength -= clauseValue.length();
           if (remainingLength < 0) break;
@@ -120,8 +124,15 @@ public class DataGeneratorForXML implements DataGenerator
    * Generate a string based on a repeating sequence of characters 
    * 'repeat' places in length. 
    */
-  public Object generate()
+  public Object generate(SplittableRandom random)
+  {
+      return createClause(random, 0);
+  }
+
+  /** Bind the XML as a string. */
+  public void bind(PreparedStatement ps, int index, SplittableRandom random) 
+    throws SQLException
   {
-      return createClause(0);
+    ps.setString(index, (String) generate(random));
   }
 }
@@ -22,6 +22,10 @@
 
 package com.continuent.bristlecone.benchmark.db;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.SplittableRandom;
+
 /**
  * Generates year values. 
  * 
@@ -42,10 +46,27 @@ public class DataGeneratorForYear implements DataGenerator
    * Generate a string based on a repeating sequence of characters 
    * 'repeat' places in length. 
    */
-  public Object generate()
+  public Object generate(SplittableRandom random)
+  {
+      return (int) nextLong(random);
+  }
+
+  /** Generate a year without boxing. */
+  public long nextLong(SplittableRandom random)
+  {
+      return (int)(random.nextDouble() * (highestYear - lowestYear  + 1)) + lowestYear;
+  }
+
+  /** Generate a year as a double. */
+  public double nextDouble(SplittableRandom random)
+  {
+      return nextLong(random);
+  }
+
+  /** Bind a year as an int. */
+  public void bind(PreparedStatement ps, int index, SplittableRandom random) 
+      throws SQLException
   {
-      int retval = 0;
-      retval = (int)(Math.random() * (highestYear - lowestYear  + 1)) + lowestYear;
-      return retval;
+      ps.setInt(index, (int) nextLong(random));
   }
 }
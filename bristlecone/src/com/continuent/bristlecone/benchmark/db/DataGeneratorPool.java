@@ -0,0 +1,128 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.db;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Serves values for one column from a fixed set generated in advance, so 
+ * that drawing a value costs one random number and one array read instead
+ * of a call to the underlying generator.  A producer thread owned by 
+ * DataPoolManager replaces values one at a time while a run is in 
+ * progress so that the set changes over time.  Values must not be 
+ * modified by callers, as they are handed out many times. 
+ * 
+ * @author rhodges
+ */
+public class DataGeneratorPool implements DataGenerator
+{
+  private final DataGenerator generator;
+  private final int type;
+  private final AtomicReferenceArray<Object> values;
+
+  // Next value to replace.  Only the producer thread touches this. 
+  private int next;
+
+  /** 
+   * Creates a pool and fills it on the calling thread. 
+   * 
+   * @param generator Generator for the column
+   * @param type JDBC type of the column, from java.sql.Types or 
+   * AdditionalTypes
+   * @param size Number of values held
+   */
+  DataGeneratorPool(DataGenerator generator, int type, int size)
+  {
+    this.generator = generator;
+    this.type = type;
+    this.values = new AtomicReferenceArray<Object>(size);
+    for (int i = 0; i < size; i++)
+      values.set(i, generator.generate());
+  }
+
+  /** Returns the number of values held. */
+  public int getSize()
+  {
+    return values.length();
+  }
+
+  /** Returns one of the pooled values chosen at random. */
+  public Object generate(SplittableRandom random)
+  {
+    return values.get(random.nextInt(values.length()));
+  }
+
+  /** 
+   * Binds one of the pooled values chosen at random.  Nulls are bound 
+   * with setNull() and other values with the column type, as the 
+   * generators themselves do, so that drivers need not guess the type 
+   * from the value.  Vendor types outside java.sql.Types are left for 
+   * the driver to infer. 
+   */
+  public void bind(PreparedStatement ps, int index, SplittableRandom random) 
+      throws SQLException
+  {
+    Object value = generate(random);
+    if (value == null)
+      ps.setNull(index, type);
+    else if (isStandardType(type))
+      ps.setObject(index, value, type);
+    else
+      ps.setObject(index, value);
+  }
+
+  /** 
+   * Generates the value for a row using the underlying generator, as 
+   * pooled values do not depend on the row. 
+   */
+  public Object generate(long rowIndex, long seed)
+  {
+    return generator.generate(rowIndex, seed);
+  }
+
+  /** Binds the value for a row using the underlying generator. */
+  public void bind(PreparedStatement ps, int index, long rowIndex, long seed)
+      throws SQLException
+  {
+    generator.bind(ps, index, rowIndex, seed);
+  }
+
+  // Returns true if the type is one of java.sql.Types rather than one of 
+  // the vendor types in AdditionalTypes. 
+  private static boolean isStandardType(int type)
+  {
+    return type < AdditionalTypes.TIMESTAMPLOCAL || type >= Types.JAVA_OBJECT;
+  }
+
+  /** Replaces the next value in turn with a newly generated one. */
+  void refreshNext()
+  {
+    values.lazySet(next, generator.generate());
+    if (++next >= values.length())
+      next = 0;
+  }
+}
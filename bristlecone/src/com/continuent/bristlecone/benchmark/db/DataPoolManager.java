@@ -0,0 +1,155 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.db;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.log4j.Logger;
+
+import com.continuent.bristlecone.benchmark.ThreadRandom;
+
+/**
+ * Creates and refreshes data generator pools.  Scenario instances whose 
+ * columns have the same definition share one pool per column, so memory
+ * does not grow with the number of threads.  A single producer thread 
+ * replaces pooled values in the background, spreading the work so that 
+ * each pool is regenerated once per refresh interval. 
+ * 
+ * @author rhodges
+ */
+public class DataPoolManager
+{
+  private static Logger logger = Logger.getLogger(DataPoolManager.class);
+  private static DataPoolManager instance = new DataPoolManager();
+
+  private final Map<List<Object>, DataGeneratorPool> pools = 
+    new HashMap<List<Object>, DataGeneratorPool>();
+  private volatile DataGeneratorPool[] activePools = new DataGeneratorPool[0];
+  private volatile long refreshMillis;
+  private Thread producer;
+
+  // Not used outside this class. 
+  private DataPoolManager()
+  {
+  }
+
+  /** 
+   * Returns manager instance. 
+   */
+  public static DataPoolManager getInstance()
+  {
+    return instance;
+  }
+
+  /**
+   * Returns the pool for a column, creating and filling it if necessary, 
+   * and starts the producer thread if values are to be refreshed. 
+   * 
+   * @param column Column for which to generate values
+   * @param size Number of values in the pool
+   * @param refreshMillis Milliseconds in which to replace every value, or 
+   *        0 to keep the initial values
+   */
+  public synchronized DataGeneratorPool getPool(Column column, int size, 
+      long refreshMillis)
+  {
+    List<Object> key = poolKey(column, size);
+    DataGeneratorPool pool = pools.get(key);
+    if (pool == null)
+    {
+      if (logger.isDebugEnabled())
+        logger.debug("Filling data pool: column=" + key);
+      DataGenerator generator = DataGeneratorFactory.getInstance().getGenerator(column);
+      pool = new DataGeneratorPool(generator, column.getType(), size);
+      pools.put(key, pool);
+      activePools = pools.values().toArray(new DataGeneratorPool[pools.size()]);
+    }
+
+    this.refreshMillis = refreshMillis;
+    if (producer == null && refreshMillis > 0)
+    {
+      producer = new Thread(new Producer(), "DataPoolProducer");
+      producer.setDaemon(true);
+      producer.start();
+    }
+    return pool;
+  }
+
+  // Returns a key made of every input to DataGeneratorFactory.getGenerator()
+  // plus the pool size.  The seed is included because distinct values 
+  // derive from it.  Any column attribute the factory starts to read must 
+  // be added here, or columns that differ in it will share a pool. 
+  private static List<Object> poolKey(Column column, int size)
+  {
+    return Arrays.<Object>asList(column.getName(), column.getType(), 
+        column.getLength(), column.getPrecision(), column.getDistinctValues(), 
+        column.getNullFraction(), column.getSkew(), 
+        column.getCompressibility(), ThreadRandom.getSeed(), size);
+  }
+
+  /** Stops the producer thread and discards all pools. */
+  public synchronized void release()
+  {
+    if (producer != null)
+    {
+      producer.interrupt();
+      try
+      {
+        producer.join();
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+      }
+      producer = null;
+    }
+    pools.clear();
+    activePools = new DataGeneratorPool[0];
+  }
+
+  // Replaces one value in each pool per step, pacing steps so that the 
+  // largest pool is replaced once per refresh interval. 
+  private class Producer implements Runnable
+  {
+    public void run()
+    {
+      while (! Thread.currentThread().isInterrupted())
+      {
+        DataGeneratorPool[] pools = activePools;
+        int maxSize = 1;
+        long start = DataGenerationMeter.threadCpuTime();
+        for (DataGeneratorPool pool : pools)
+        {
+          pool.refreshNext();
+          maxSize = Math.max(maxSize, pool.getSize());
+        }
+        DataGenerationMeter.add(DataGenerationMeter.threadCpuTime() - start);
+        LockSupport.parkNanos(refreshMillis * 1000000 / maxSize);
+      }
+    }
+  }
+}
@@ -0,0 +1,95 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.db;
+
+/**
+ * Returns a key chooser for a named key distribution. 
+ * 
+ * @author rhodges
+ */
+public class KeyChooserFactory
+{
+  /** Every key is equally likely. */
+  public static final String UNIFORM    = "uniform";
+  /** Low keys are much more likely, following a Zipf distribution. */
+  public static final String ZIPFIAN    = "zipfian";
+  /** A fraction of keys receives a fraction of operations. */
+  public static final String HOTSPOT    = "hotspot";
+  /** High keys are much more likely, following a Zipf distribution. */
+  public static final String LATEST     = "latest";
+  /** Keys are chosen in ascending order. */
+  public static final String SEQUENTIAL = "sequential";
+
+  private static KeyChooserFactory instance = new KeyChooserFactory();
+
+  // Not used outside this class. 
+  private KeyChooserFactory()
+  {
+  }
+
+  /** 
+   * Returns factory instance. 
+   */
+  public static KeyChooserFactory getInstance()
+  {
+    return instance;
+  }
+
+  /** Returns true if the key distribution name is known. */
+  public boolean isSupported(String distribution)
+  {
+    return UNIFORM.equals(distribution) || ZIPFIAN.equals(distribution)
+        || HOTSPOT.equals(distribution) || LATEST.equals(distribution) 
+        || SEQUENTIAL.equals(distribution);
+  }
+
+  /**
+   * Returns a key chooser for a key distribution. 
+   * 
+   * @param distribution Name of the distribution, e.g., zipfian
+   * @param keys Number of keys, which must be at least 1
+   * @param skew Zipf exponent for zipfian and latest distributions
+   * @param hotKeys Fraction of keys that are hot for hotspot distribution
+   * @param hotOps Fraction of operations on hot keys for hotspot distribution
+   */
+  public KeyChooser getChooser(String distribution, int keys, double skew, 
+      double hotKeys, double hotOps)
+  {
+    if (keys < 1)
+      throw new IllegalArgumentException("Number of keys must be at least 1: " 
+          + keys);
+    if (UNIFORM.equals(distribution))
+      return new KeyChooserForUniform(keys);
+    else if (ZIPFIAN.equals(distribution))
+      return new KeyChooserForZipfian(keys, skew);
+    else if (HOTSPOT.equals(distribution))
+      return new KeyChooserForHotspot(keys, hotKeys, hotOps);
+    else if (LATEST.equals(distribution))
+      return new KeyChooserForLatest(keys, skew);
+    else if (SEQUENTIAL.equals(distribution))
+      return new KeyChooserForSequential(keys);
+    else
+      throw new IllegalArgumentException("Unsupported key distribution: " 
+          + distribution);
+  }
+}
@@ -0,0 +1,70 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.db;
+
+import java.util.SplittableRandom;
+
+import com.continuent.bristlecone.benchmark.ThreadRandom;
+
+/**
+ * Chooses keys from a hot set at the start of the key range for a given 
+ * fraction of operations and from the remaining cold keys otherwise.  Keys
+ * are uniform within each set.  For example, 20% of keys may receive 80% 
+ * of operations. 
+ * 
+ * @author rhodges
+ */
+public class KeyChooserForHotspot implements KeyChooser
+{
+  private final int keys;
+  private final int hotKeys;
+  private final double hotOps;
+
+  /** 
+   * Create a new instance. 
+   * 
+   * @param keys Number of keys
+   * @param hotFraction Fraction of keys that are hot, between 0 and 1
+   * @param hotOps Fraction of operations on hot keys, between 0 and 1
+   */
+  KeyChooserForHotspot(int keys, double hotFraction, double hotOps)
+  {
+    if (hotFraction < 0 || hotFraction > 1 || hotOps < 0 || hotOps > 1)
+      throw new IllegalArgumentException(
+          "Hot key and operation fractions must be between 0 and 1: hotkeys=" 
+          + hotFraction + " hotops=" + hotOps);
+    this.keys = keys;
+    this.hotKeys = Math.max(1, Math.min(keys, (int) (keys * hotFraction)));
+    this.hotOps = hotOps;
+  }
+
+  /** Returns a hot key or a cold key. */
+  public int nextKey()
+  {
+    SplittableRandom random = ThreadRandom.current();
+    if (hotKeys == keys || random.nextDouble() < hotOps)
+      return random.nextInt(hotKeys);
+    else
+      return hotKeys + random.nextInt(keys - hotKeys);
+  }
+}
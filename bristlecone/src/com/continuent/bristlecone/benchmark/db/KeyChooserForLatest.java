@@ -0,0 +1,54 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.db;
+
+/**
+ * Chooses keys following a Zipf distribution that favors the highest keys.
+ * Tables are loaded in key order, so this models workloads that mostly 
+ * touch recently added rows. 
+ * 
+ * @author rhodges
+ */
+public class KeyChooserForLatest implements KeyChooser
+{
+  private final int keys;
+  private final KeyChooserForZipfian zipfian;
+
+  /** 
+   * Create a new instance. 
+   * 
+   * @param keys Number of keys
+   * @param skew Zipf exponent, which must be greater than 0
+   */
+  KeyChooserForLatest(int keys, double skew)
+  {
+    this.keys = keys;
+    this.zipfian = new KeyChooserForZipfian(keys, skew);
+  }
+
+  /** Returns a key near the top of the key range. */
+  public int nextKey()
+  {
+    return keys - 1 - zipfian.nextKey();
+  }
+}
@@ -0,0 +1,56 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.db;
+
+import com.continuent.bristlecone.benchmark.ThreadRandom;
+
+/**
+ * Chooses keys in ascending order, starting again at 0 after the last key.
+ * This models scans and batch jobs that walk a table in key order.  Each
+ * chooser starts at a key drawn from the random stream of the thread that
+ * creates it, so that threads walk different parts of the table rather 
+ * than contending for the same rows, and their start keys are 
+ * reproducible from the seed. 
+ * 
+ * @author rhodges
+ */
+public class KeyChooserForSequential implements KeyChooser
+{
+  private final int keys;
+  private int next;
+
+  /** Create a new instance over the given number of keys. */
+  KeyChooserForSequential(int keys)
+  {
+    this.keys = keys;
+    this.next = ThreadRandom.nextInt(keys);
+  }
+
+  /** Returns the key after the previous one. */
+  public int nextKey()
+  {
+    int key = next;
+    next = (next + 1 == keys) ? 0 : next + 1;
+    return key;
+  }
+}
@@ -0,0 +1,137 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.db;
+
+import java.util.SplittableRandom;
+
+import com.continuent.bristlecone.benchmark.ThreadRandom;
+
+/**
+ * Chooses keys following a Zipf distribution, so that the probability of 
+ * key k is proportional to 1 / (k + 1)^skew.  Key 0 is the most popular. 
+ * With the common skew of 0.99 a few percent of keys receive most of the
+ * operations.<p>
+ * 
+ * Keys are drawn using rejection-inversion sampling after Hörmann and 
+ * Derflinger, "Rejection-inversion to generate variates from monotone 
+ * discrete distributions" (1996).  Setup and each draw take constant time
+ * whatever the number of keys, and draws are rejected rarely, so unlike 
+ * methods that sum the distribution over all keys the chooser neither 
+ * delays startup on large tables nor limits high-rate runs. 
+ * 
+ * @author rhodges
+ */
+public class KeyChooserForZipfian implements KeyChooser
+{
+  private final int keys;
+  private final double skew;
+  private final double hIntegralX1;
+  private final double hIntegralKeys;
+  private final double s;
+
+  /** 
+   * Create a new instance. 
+   * 
+   * @param keys Number of keys
+   * @param skew Zipf exponent, which must be greater than 0
+   */
+  KeyChooserForZipfian(int keys, double skew)
+  {
+    if (skew <= 0)
+      throw new IllegalArgumentException("Zipfian skew must be greater than 0: " 
+          + skew);
+    this.keys = keys;
+    this.skew = skew;
+    hIntegralX1 = hIntegral(1.5) - 1.0;
+    hIntegralKeys = hIntegral(keys + 0.5);
+    s = 2.0 - hIntegralInverse(hIntegral(2.5) - h(2.0));
+  }
+
+  /** Returns a key with Zipf distributed popularity. */
+  public int nextKey()
+  {
+    return nextKey(ThreadRandom.current());
+  }
+
+  /** 
+   * Returns a key with Zipf distributed popularity using random numbers 
+   * from the given generator. 
+   */
+  public int nextKey(SplittableRandom random)
+  {
+    while (true)
+    {
+      // Invert a uniform value on the integral of the hat function and 
+      // accept the nearest rank if it lies under the distribution. 
+      double u = hIntegralKeys + random.nextDouble() * (hIntegralX1 - hIntegralKeys);
+      double x = hIntegralInverse(u);
+      int rank = (int) (x + 0.5);
+      if (rank < 1)
+        rank = 1;
+      else if (rank > keys)
+        rank = keys;
+      if (rank - x <= s || u >= hIntegral(rank + 0.5) - h(rank))
+        return rank - 1;
+    }
+  }
+
+  // Hat function, which equals the unnormalized probability at ranks. 
+  private double h(double x)
+  {
+    return Math.exp(-skew * Math.log(x));
+  }
+
+  // Integral of the hat function. 
+  private double hIntegral(double x)
+  {
+    double logX = Math.log(x);
+    return helper2((1.0 - skew) * logX) * logX;
+  }
+
+  // Inverse of hIntegral(). 
+  private double hIntegralInverse(double x)
+  {
+    double t = x * (1.0 - skew);
+    if (t < -1.0)
+      t = -1.0;
+    return Math.exp(helper1(t) * x);
+  }
+
+  // Returns log(1 + x) / x, using a series near 0 for accuracy. 
+  private static double helper1(double x)
+  {
+    if (Math.abs(x) > 1e-8)
+      return Math.log1p(x) / x;
+    else
+      return 1.0 - x * (0.5 - x * (1.0 / 3.0 - 0.25 * x));
+  }
+
+  // Returns (exp(x) - 1) / x, using a series near 0 for accuracy. 
+  private static double helper2(double x)
+  {
+    if (Math.abs(x) > 1e-8)
+      return Math.expm1(x) / x;
+    else
+      return 1.0 + x * 0.5 * (1.0 + x * 1.0 / 3.0 * (1.0 + 0.25 * x));
+  }
+}
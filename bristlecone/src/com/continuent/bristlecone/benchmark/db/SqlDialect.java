@@ -22,6 +22,8 @@
 
 package com.continuent.bristlecone.benchmark.db;
 
+import java.sql.SQLException;
+
 /**
  * Interface to generate statements for specific DBMS implementations.
  * 
@@ -209,4 +211,11 @@ public interface SqlDialect
      * Return supplementary table creation command.
      */
     public String getSupplementaryTableDdl(Table table);
-}
\ No newline at end of file
+
+    /**
+     * Classifies an exception into one of the classes defined in 
+     * SqlErrorClass, using vendor error codes where the SQLState alone is
+     * ambiguous. 
+     */
+    public int classifyException(SQLException e);
+}
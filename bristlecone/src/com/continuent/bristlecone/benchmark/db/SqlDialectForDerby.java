@@ -22,6 +22,8 @@
 
 package com.continuent.bristlecone.benchmark.db;
 
+import java.sql.SQLException;
+
 /**
  * Derby embedded SQL dialect information.
  * 
@@ -52,11 +54,12 @@ public class SqlDialectForDerby extends AbstractSqlDialect
     }
 
     /**
-     * HSQLDB uses "identity" as keyword for auto_increment.
+     * Derby declares auto-increment columns as identity columns generated 
+     * by default, which still accept explicit values. 
      */
     public String implementationAutoIncrementKeyword()
     {
-        return "identity";
+        return "generated by default as identity";
     }
 
     /** Add support for specialized Derby type names. */
@@ -69,4 +72,19 @@ public class SqlDialectForDerby extends AbstractSqlDialect
     {
         return super.implementationSpecifcSuffix(c);
     }
-}
\ No newline at end of file
+
+    /**
+     * Derby reports deadlocks as 40001 and lock timeouts as 40XL1, or 40XL2
+     * when the lock table is dumped.
+     */
+    public int classifyException(SQLException e)
+    {
+        String state = e.getSQLState();
+        if ("40001".equals(state))
+            return SqlErrorClass.DEADLOCK;
+        else if ("40XL1".equals(state) || "40XL2".equals(state))
+            return SqlErrorClass.LOCK_TIMEOUT;
+        else
+            return super.classifyException(e);
+    }
+}
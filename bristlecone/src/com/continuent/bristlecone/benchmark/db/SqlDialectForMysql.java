@@ -22,6 +22,8 @@
 
 package com.continuent.bristlecone.benchmark.db;
 
+import java.sql.SQLException;
+
 /**
  * MySQL DBMS dialect information.
  * 
@@ -156,4 +158,25 @@ public class SqlDialectForMysql extends AbstractSqlDialect
         }
         return retval;
     }
+
+    /**
+     * MySQL reports deadlocks as 40001, so we use vendor codes to tell 
+     * deadlocks (1213) from lock wait timeouts (1205) and lost connections
+     * (2006, 2013). 
+     */
+    public int classifyException(SQLException e)
+    {
+        switch (e.getErrorCode())
+        {
+            case 1213 :
+                return SqlErrorClass.DEADLOCK;
+            case 1205 :
+                return SqlErrorClass.LOCK_TIMEOUT;
+            case 2006 :
+            case 2013 :
+                return SqlErrorClass.CONNECTION;
+            default :
+                return super.classifyException(e);
+        }
+    }
 }
@@ -22,6 +22,7 @@
 
 package com.continuent.bristlecone.benchmark.db;
 
+import java.sql.SQLException;
 import java.sql.Types;
 
 public class SqlDialectForOracle extends AbstractSqlDialect
@@ -327,4 +328,29 @@ public class SqlDialectForOracle extends AbstractSqlDialect
     {
         return super.implementationSpecifcSuffix(c);
     }
+
+    /**
+     * Oracle SQLStates are not specific enough, so we use ORA- codes for 
+     * deadlocks (60), serialization failures (8177), lock timeouts (30006 
+     * and 54 for NOWAIT), and lost connections (3113, 3114, 17002). 
+     */
+    public int classifyException(SQLException e)
+    {
+        switch (e.getErrorCode())
+        {
+            case 60 :
+                return SqlErrorClass.DEADLOCK;
+            case 8177 :
+                return SqlErrorClass.SERIALIZATION;
+            case 54 :
+            case 30006 :
+                return SqlErrorClass.LOCK_TIMEOUT;
+            case 3113 :
+            case 3114 :
+            case 17002 :
+                return SqlErrorClass.CONNECTION;
+            default :
+                return super.classifyException(e);
+        }
+    }
 }
@@ -0,0 +1,94 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.db;
+
+import java.sql.SQLException;
+
+/**
+ * Defines classes of SQL errors that benchmarks count separately, and a
+ * generic classification based on standard SQLState values.  Dialects 
+ * refine the classification using vendor error codes through 
+ * SqlDialect.classifyException(). 
+ * 
+ * @author rhodges
+ */
+public class SqlErrorClass
+{
+    /** Transaction aborted because it could not be serialized. */
+    public final static int SERIALIZATION = 0;
+    /** Transaction aborted to break a deadlock. */
+    public final static int DEADLOCK      = 1;
+    /** Lock could not be acquired in time. */
+    public final static int LOCK_TIMEOUT  = 2;
+    /** Connection failed or was lost. */
+    public final static int CONNECTION    = 3;
+    /** Integrity constraint such as a duplicate key was violated. */
+    public final static int CONSTRAINT    = 4;
+    /** Anything else. */
+    public final static int OTHER         = 5;
+
+    /** Number of error classes. */
+    public final static int COUNT         = 6;
+
+    // Names used to build output property names, indexed by class. 
+    private final static String[] NAMES = {"Serialization", "Deadlock",
+            "LockTimeout", "Connection", "Constraint", "Other"};
+
+    /** Returns the name of an error class, e.g., "Deadlock". */
+    public static String getName(int errorClass)
+    {
+        return NAMES[errorClass];
+    }
+
+    /**
+     * Returns true if an error of this class aborts only the current 
+     * transaction, so that the transaction can simply be run again.
+     */
+    public static boolean isRetryable(int errorClass)
+    {
+        return errorClass == SERIALIZATION || errorClass == DEADLOCK
+                || errorClass == LOCK_TIMEOUT;
+    }
+
+    /**
+     * Classifies an exception using its SQLState alone.  
+     */
+    public static int classify(SQLException e)
+    {
+        String state = e.getSQLState();
+        if (state == null || state.length() < 2)
+            return OTHER;
+        else if ("40001".equals(state))
+            return SERIALIZATION;
+        else if ("40P01".equals(state))
+            return DEADLOCK;
+        else if ("55P03".equals(state) || "HYT00".equals(state))
+            return LOCK_TIMEOUT;
+        else if (state.startsWith("08"))
+            return CONNECTION;
+        else if (state.startsWith("23"))
+            return CONSTRAINT;
+        else
+            return OTHER;
+    }
+}
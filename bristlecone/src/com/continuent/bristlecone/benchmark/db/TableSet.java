@@ -25,6 +25,7 @@ package com.continuent.bristlecone.benchmark.db;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.continuent.bristlecone.benchmark.ThreadRandom;
 import com.continuent.bristlecone.utils.ToStringHelper;
 
 
@@ -43,6 +44,7 @@ public class TableSet
   private final Column[] columns;
   private Table[] tables;
   private List<DataGenerator> dataGenerators;
+  private boolean lobStreaming;
   
   public TableSet(String namePrefix, int count, int rows, Column[] columns)
   {
@@ -104,34 +106,110 @@ public class TableSet
     // Generate index of the first table and start reading tables from 
     // that point.  
     Table[] randomTables = new Table[howMany];
-    int index = (int) Math.random() * tables.length;
+    int index = ThreadRandom.nextInt(tables.length);
     for (int i = 0; i < howMany; i++)
     {
       randomTables[i] = tables[index++];
-      if (index > tables.length)
+      if (index >= tables.length)
         index = 0;
     }
     return randomTables;
   }
 
   
+  /** 
+   * Returns data generators for non-autoincrement columns, which serve 
+   * pooled values if setDataPool() was called. 
+   */
   public synchronized List<DataGenerator> getDataGenerators()
   {
     if (dataGenerators == null)
     {
-      // Set up column generators for data. 
-      Column[] columns = getColumns();
+      dataGenerators = newDataGenerators();
+    }
+    return dataGenerators; 
+  }
+
+  /** 
+   * Generates BLOB and CLOB values as streams that are filled as they are
+   * read, so large values need not be held in memory.  Streamed columns 
+   * are not pooled.  Call this before setDataPool(). 
+   */
+  public synchronized void setLobStreaming(boolean lobStreaming)
+  {
+    this.lobStreaming = lobStreaming;
+    dataGenerators = null;
+  }
+
+  /** Returns true if BLOB and CLOB values are generated as streams. */
+  public synchronized boolean isLobStreaming()
+  {
+    return lobStreaming;
+  }
+
+  /** 
+   * Serves data from pools of pre-generated values instead of generating
+   * each value on demand.  Pools are shared with other table sets whose 
+   * columns are the same and are filled before this returns.  A size of 
+   * 0 turns pooling off again. 
+   * 
+   * @param size Number of values pooled per column
+   * @param refreshMillis Milliseconds in which the background producer 
+   *        replaces every pooled value, or 0 to keep the initial values
+   */
+  public synchronized void setDataPool(int size, long refreshMillis)
+  {
+    if (size > 0)
+    {
       dataGenerators = new ArrayList<DataGenerator>();
-      
       for (int i = 0; i < columns.length; i++)
       {
-        if (! columns[i].isAutoIncrement())
+        if (columns[i].isAutoIncrement())
+          continue;
+        if (lobStreaming 
+            && DataGeneratorFactory.getInstance().isStreamable(columns[i]))
+        {
+          dataGenerators.add(newDataGenerator(columns[i]));
+        }
+        else
         {
-          dataGenerators.add(DataGeneratorFactory.getInstance().getGenerator(columns[i]));
+          dataGenerators.add(DataPoolManager.getInstance().getPool(columns[i], 
+              size, refreshMillis));
         }
       }
     }
-    return dataGenerators; 
+    else
+      dataGenerators = null;
+  }
+
+  /** 
+   * Returns a new list of data generators for non-autoincrement columns.  
+   * Generators are not thread-safe, so threads that generate data 
+   * concurrently must each use their own list. 
+   */
+  public List<DataGenerator> newDataGenerators()
+  {
+    // Set up column generators for data. 
+    Column[] columns = getColumns();
+    List<DataGenerator> generators = new ArrayList<DataGenerator>();
+    
+    for (int i = 0; i < columns.length; i++)
+    {
+      if (! columns[i].isAutoIncrement())
+      {
+        generators.add(newDataGenerator(columns[i]));
+      }
+    }
+    return generators;
+  }
+
+  // Returns a generator for a column, which streams LOBs if requested. 
+  private DataGenerator newDataGenerator(Column column)
+  {
+    if (lobStreaming)
+      return DataGeneratorFactory.getInstance().getStreamingGenerator(column);
+    else
+      return DataGeneratorFactory.getInstance().getGenerator(column);
   }
   
   @Override public String toString()
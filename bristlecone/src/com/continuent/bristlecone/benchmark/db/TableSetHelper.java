@@ -24,12 +24,25 @@ package com.continuent.bristlecone.benchmark.db;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.Logger;
 
 import com.continuent.bristlecone.benchmark.BenchmarkException;
+import com.continuent.bristlecone.benchmark.ThreadRandom;
 
 /**
  * Implements methods to create, populate, and drop sets of tables containing
@@ -40,7 +53,25 @@ import com.continuent.bristlecone.benchmark.BenchmarkException;
 public class TableSetHelper extends TableHelper
 {
   private static Logger logger = Logger.getLogger(TableSetHelper.class);
+
+  /** Name of the table that records how table sets were populated. */
+  public static final String FINGERPRINT_TABLE = "bristlecone_fingerprint";
   
+  // Interval between progress messages during population. 
+  private static final long PROGRESS_MILLIS = 5000;
+
+  // Calls to generateParameters() per call whose CPU time is measured. 
+  // This must be a power of two. 
+  private static final int METER_SAMPLE = 64;
+
+  // Table population settings. 
+  private int loadBatchSize      = 100;
+  private int loadCommitInterval = 10000;
+  private int loadThreads        = 1;
+
+  // Count of generateParameters() calls, used to pick calls to measure. 
+  private int generateCount;
+
   /** 
    * Creates a new instance. 
    * 
@@ -54,13 +85,36 @@ public class TableSetHelper extends TableHelper
   {
     super(url, login, password);
   }
+
+  /** Sets the number of rows sent to the database in each JDBC batch. */
+  public void setLoadBatchSize(int loadBatchSize)
+  {
+    this.loadBatchSize = Math.max(1, loadBatchSize);
+  }
+
+  /** 
+   * Sets the number of rows between commits during population.  This is
+   * rounded up to a multiple of the batch size. 
+   */
+  public void setLoadCommitInterval(int loadCommitInterval)
+  {
+    this.loadCommitInterval = Math.max(1, loadCommitInterval);
+  }
+
+  /** Sets the number of parallel connections used to populate tables. */
+  public void setLoadThreads(int loadThreads)
+  {
+    this.loadThreads = Math.max(1, loadThreads);
+  }
   
   /** 
-   * Creates all tables in a table set.  Any existing tables are dropped. 
+   * Creates all tables in a table set.  Any existing tables are dropped
+   * along with their fingerprint. 
    */
   public void createAll(TableSet tableSet) throws SQLException
   {
     // Drop tables, ignoring errors. 
+    clearFingerprint(tableSet);
     dropAll(tableSet, true);
     
     int count = tableSet.getCount();
@@ -72,44 +126,223 @@ public class TableSetHelper extends TableHelper
     }
   }
 
-  /** Populates tables in the TableSet with random data. */
+  /** 
+   * Populates tables in the TableSet with random data.  Rows are inserted
+   * in JDBC batches with periodic commits.  If there are several load 
+   * threads, each table is split into key ranges and the ranges are 
+   * loaded in parallel, each thread using its own connection.  An integer
+   * primary key that is not autoincrement gets the row index as its value
+   * however many threads load the table, so keys run from 0 to rows - 1 
+   * and each range holds a contiguous set of keys.  Autoincrement keys 
+   * are assigned by the database in insert order.  
+   * Other values are generated from their row index and a seed derived 
+   * from the current ThreadRandom seed, table, and column, so they are the
+   * same however many threads load them.  A loader that fails rolls back 
+   * its uncommitted rows. 
+   */
   public void populateAll(TableSet tableSet) throws SQLException
   {
-    // Set up to write to tables. 
+    // Split each table into one key range per load thread. 
     int count = tableSet.getCount();
     int rows = tableSet.getRows();
     Table[] tables = tableSet.getTables();
-    Connection conn = getConnection();
-
-    // Populate each table in succession.  
+    long seed = ThreadRandom.getSeed();
+    ConcurrentLinkedQueue<LoadRange> ranges = new ConcurrentLinkedQueue<LoadRange>();
     for (int i = 0; i < count; i++)
     {
-      String insertSql = sqlDialect.getInsert(tables[i]);
-      PreparedStatement pstmt = conn.prepareStatement(insertSql);
-      
+      long tableSeed = ThreadRandom.deriveSeed(seed, i);
+      int start = 0;
+      for (int t = loadThreads; t > 0 && start < rows; t--)
+      {
+        int rangeRows = (rows - start + t - 1) / t;
+        ranges.add(new LoadRange(tables[i], tableSeed, start, rangeRows));
+        start += rangeRows;
+      }
+    }
+
+    // Start loaders. 
+    long totalRows = (long) count * rows;
+    int threads = Math.min(loadThreads, Math.max(1, ranges.size()));
+    logger.info("Populating tables: tables=" + count + " rows=" + totalRows 
+        + " threads=" + threads + " batch=" + loadBatchSize + " commit=" 
+        + loadCommitInterval);
+    int keyParameter = getKeyParameter(tableSet);
+    AtomicLong loaded = new AtomicLong();
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    List<Future<Long>> results = new ArrayList<Future<Long>>();
+    for (int i = 0; i < threads; i++)
+    {
+      results.add(pool.submit(new Loader(tableSet, keyParameter, ranges, 
+          loaded)));
+    }
+    pool.shutdown();
+
+    // Report progress until loaders are done, then collect the results so
+    // that the first failure is rethrown. 
+    long start = System.currentTimeMillis();
+    try
+    {
+      while (!pool.awaitTermination(PROGRESS_MILLIS, TimeUnit.MILLISECONDS))
+      {
+        logProgress(loaded.get(), totalRows, start);
+      }
+      for (Future<Long> result : results)
+        result.get();
+    }
+    catch (InterruptedException e)
+    {
+      pool.shutdownNow();
+      throw new BenchmarkException("Table population was interrupted", e);
+    }
+    catch (ExecutionException e)
+    {
+      pool.shutdownNow();
+      if (e.getCause() instanceof SQLException)
+        throw (SQLException) e.getCause();
+      throw new BenchmarkException("Table population failed", e);
+    }
+    logProgress(loaded.get(), totalRows, start);
+  }
+
+  // Logs rows loaded so far and the average load rate. 
+  private void logProgress(long loaded, long total, long start)
+  {
+    double seconds = (System.currentTimeMillis() - start) / 1000.0;
+    long rate = (seconds == 0) ? loaded : (long) (loaded / seconds);
+    logger.info("Populated " + loaded + " of " + total + " rows: seconds=" 
+        + seconds + " rows/sec=" + rate);
+  }
+
+  // Returns the index among insert parameters of an integer primary key 
+  // that is not autoincrement, or -1 if there is none.  Such keys are set 
+  // to the row index during population. 
+  private static int getKeyParameter(TableSet tableSet)
+  {
+    int parameter = 0;
+    for (Column column : tableSet.getColumns())
+    {
+      if (column.isAutoIncrement())
+        continue;
+      if (column.isPrimaryKey() && (column.getType() == Types.INTEGER 
+          || column.getType() == Types.BIGINT))
+        return parameter;
+      parameter++;
+    }
+    return -1;
+  }
+
+  // Inserts rows into a table on a connection in batches. 
+  private void load(Connection conn, List<DataGenerator> generators, 
+      int keyParameter, LoadRange range, AtomicLong loaded) 
+      throws SQLException
+  {
+    String insertSql = sqlDialect.getInsert(range.table);
+    PreparedStatement pstmt = conn.prepareStatement(insertSql);
+    long[] seeds = new long[generators.size()];
+    for (int i = 0; i < seeds.length; i++)
+      seeds[i] = ThreadRandom.deriveSeed(range.seed, i);
+    try
+    {
+      int batched = 0;
+      int uncommitted = 0;
+      for (int r = 0; r < range.rows; r++)
+      {
+        generateRow(generators, seeds, keyParameter, range.start + r, pstmt);
+        pstmt.addBatch();
+        if (++batched >= loadBatchSize || r == range.rows - 1)
+        {
+          pstmt.executeBatch();
+          loaded.addAndGet(batched);
+          uncommitted += batched;
+          batched = 0;
+          if (uncommitted >= loadCommitInterval)
+          {
+            conn.commit();
+            uncommitted = 0;
+          }
+        }
+      }
+      conn.commit();
+    }
+    catch (SQLException e)
+    {
+      logger.warn("Table propagation failed: " + insertSql, e);
+      throw e;
+    }
+    finally
+    {
+      releaseStatement(pstmt);
+    }
+  }
+
+  // Describes a range of rows, and hence of keys, to insert into one table. 
+  private static class LoadRange
+  {
+    final Table table;
+    final long  seed;
+    final int   start;
+    final int   rows;
+
+    LoadRange(Table table, long seed, int start, int rows)
+    {
+      this.table = table;
+      this.seed = seed;
+      this.start = start;
+      this.rows = rows;
+    }
+  }
+
+  // Loads row ranges from a shared queue on a single connection. 
+  private class Loader implements Callable<Long>
+  {
+    private final TableSet                         tableSet;
+    private final int                              keyParameter;
+    private final ConcurrentLinkedQueue<LoadRange> ranges;
+    private final AtomicLong                       loaded;
+
+    Loader(TableSet tableSet, int keyParameter, 
+        ConcurrentLinkedQueue<LoadRange> ranges, AtomicLong loaded)
+    {
+      this.tableSet = tableSet;
+      this.keyParameter = keyParameter;
+      this.ranges = ranges;
+      this.loaded = loaded;
+    }
+
+    public Long call() throws SQLException
+    {
+      List<DataGenerator> generators = tableSet.newDataGenerators();
+      Connection conn = getConnection();
+      long rows = 0;
       try
       {
-        for (int r = 0; r < rows; r++)
+        conn.setAutoCommit(false);
+        LoadRange range;
+        while ((range = ranges.poll()) != null)
         {
-          generateParameters(tableSet, pstmt);
-          pstmt.executeUpdate();
+          load(conn, generators, keyParameter, range, loaded);
+          rows += range.rows;
         }
       }
-      catch (SQLException e)
+      catch (SQLException | RuntimeException e)
       {
-        logger.warn("Table propagation failed: " + insertSql, e);
-        releaseStatement(pstmt);
-        releaseConnection(conn);
+        // Don't hand a connection with uncommitted rows back. 
+        try
+        {
+          conn.rollback();
+        }
+        catch (SQLException e2)
+        {
+          logger.debug("Unable to roll back failed load", e2);
+        }
         throw e;
       }
       finally
       {
-        releaseStatement(pstmt);
+        releaseConnection(conn);
       }
+      return rows;
     }
-    
-    // Clean up. 
-    releaseConnection(conn);
   }
   
   /**
@@ -119,11 +352,42 @@ public class TableSetHelper extends TableHelper
   public void generateParameters(TableSet tableSet, PreparedStatement ps) 
      throws SQLException
   {
-    List<DataGenerator> generators = tableSet.getDataGenerators();
-    int index = 1;
-    for (DataGenerator dg: generators)
+    generateParameters(tableSet.getDataGenerators(), ps);
+  }
+
+  // Generate parameters for a prepared statement from a list of generators. 
+  // One call in METER_SAMPLE is timed to estimate CPU used by generators, 
+  // which keeps thread CPU clock reads off most calls.  The estimate 
+  // includes binding, which for most drivers just stores the value. 
+  private void generateParameters(List<DataGenerator> generators, 
+      PreparedStatement ps) throws SQLException
+  {
+    boolean meter = (++generateCount & (METER_SAMPLE - 1)) == 0 
+        && DataGenerationMeter.isSupported();
+    long start = meter ? DataGenerationMeter.threadCpuTime() : 0;
+    for (int i = 0; i < generators.size(); i++)
+    {
+      generators.get(i).bind(ps, i + 1);
+    }
+    if (meter)
     {
-      ps.setObject(index++, dg.generate());
+      DataGenerationMeter.add(
+          (DataGenerationMeter.threadCpuTime() - start) * METER_SAMPLE);
+    }
+  }
+
+  // Generate parameters for a row from its index and per-column seeds. 
+  // The key parameter, if any, is set to the row index. 
+  private void generateRow(List<DataGenerator> generators, long[] seeds, 
+      int keyParameter, long rowIndex, PreparedStatement ps) 
+      throws SQLException
+  {
+    for (int i = 0; i < seeds.length; i++)
+    {
+      if (i == keyParameter)
+        ps.setLong(i + 1, rowIndex);
+      else
+        generators.get(i).bind(ps, i + 1, rowIndex, seeds[i]);
     }
   }
 
@@ -141,4 +405,194 @@ public class TableSetHelper extends TableHelper
       drop(tables[i], ignore);
     }
   }
+
+  /**
+   * Returns true if the tables in a table set hold data from an earlier 
+   * call to populateAll() with the same table count, rows, and column 
+   * layout, including how keys and LOBs are generated, so that they can be
+   * reused.  Tables must still exist. 
+   * 
+   * @param tableSet Table set to check
+   * @param seed Seed the data must have been generated with, or 0 to 
+   *        accept data generated with any seed
+   */
+  public boolean matchesFingerprint(TableSet tableSet, long seed)
+  {
+    Table fingerprintTable = getFingerprintTable();
+    String layout = getLayout(tableSet);
+    PreparedStatement ps = null;
+    Statement stmt = null;
+    Connection conn = null;
+    try
+    {
+      conn = getConnection();
+      ps = conn.prepareStatement(sqlDialect.getSelectByKey(fingerprintTable));
+      ps.setString(1, tableSet.getNamePrefix());
+      ResultSet rs = ps.executeQuery();
+      if (!rs.next())
+      {
+        logger.info("No fingerprint found for tables: prefix=" 
+            + tableSet.getNamePrefix());
+        return false;
+      }
+      int tableCount = rs.getInt("tablecount");
+      int dataRows = rs.getInt("datarows");
+      String dataSeed = rs.getString("dataseed");
+      String dataLayout = rs.getString("layout");
+      rs.close();
+      if (tableCount != tableSet.getCount() || dataRows != tableSet.getRows()
+          || (seed != 0 && !Long.toString(seed).equals(dataSeed)) || !layout.equals(dataLayout))
+      {
+        logger.info("Table fingerprint does not match: prefix=" 
+            + tableSet.getNamePrefix() + " tables=" + tableCount + " rows="
+            + dataRows + " seed=" + dataSeed + " layout=" + dataLayout);
+        return false;
+      }
+
+      // Tables may have been dropped since the fingerprint was written. 
+      stmt = conn.createStatement();
+      Table[] tables = tableSet.getTables();
+      for (int i = 0; i < tableSet.getCount(); i++)
+      {
+        stmt.executeQuery("select * from " + tables[i].getName() 
+            + " where 1 = 0").close();
+      }
+      return true;
+    }
+    catch (SQLException e)
+    {
+      logger.info("Unable to check table fingerprint: " + e.getMessage());
+      return false;
+    }
+    finally
+    {
+      releaseStatement(ps);
+      releaseStatement(stmt);
+      if (conn != null)
+        releaseConnection(conn);
+    }
+  }
+
+  /**
+   * Records a fingerprint of a newly populated table set, creating the 
+   * fingerprint table if necessary.  The fingerprint holds the table 
+   * count, rows, column layout, and current ThreadRandom seed. 
+   */
+  public void writeFingerprint(TableSet tableSet) throws SQLException
+  {
+    Table fingerprintTable = getFingerprintTable();
+    try
+    {
+      create(fingerprintTable, false);
+    }
+    catch (SQLException e)
+    {
+      logger.debug("Fingerprint table creation failure ignored: " 
+          + e.getMessage());
+    }
+    clearFingerprint(tableSet);
+    insert(fingerprintTable, new Object[] {tableSet.getNamePrefix(), 
+        Integer.valueOf(tableSet.getCount()), Integer.valueOf(tableSet.getRows()), 
+        Long.toString(ThreadRandom.getSeed()), getLayout(tableSet)});
+  }
+
+  /**
+   * Returns the seed recorded in the fingerprint of a table set, which is 
+   * the seed its data were populated with, or 0 if there is no fingerprint.
+   */
+  public long getFingerprintSeed(TableSet tableSet)
+  {
+    PreparedStatement ps = null;
+    Connection conn = null;
+    try
+    {
+      conn = getConnection();
+      ps = conn.prepareStatement(sqlDialect.getSelectByKey(
+          getFingerprintTable()));
+      ps.setString(1, tableSet.getNamePrefix());
+      ResultSet rs = ps.executeQuery();
+      long seed = rs.next() ? Long.parseLong(rs.getString("dataseed")) : 0;
+      rs.close();
+      return seed;
+    }
+    catch (SQLException e)
+    {
+      logger.debug("Unable to read table fingerprint: " + e.getMessage());
+      return 0;
+    }
+    finally
+    {
+      releaseStatement(ps);
+      if (conn != null)
+        releaseConnection(conn);
+    }
+  }
+
+  /**
+   * Removes the fingerprint of a table set so that its tables will not be
+   * reused.  Scenarios that change data must call this before they run. 
+   */
+  public void clearFingerprint(TableSet tableSet)
+  {
+    try
+    {
+      delete(getFingerprintTable(), new Object[] {tableSet.getNamePrefix()});
+    }
+    catch (SQLException e)
+    {
+      logger.debug("Fingerprint deletion failure ignored: " + e.getMessage());
+    }
+  }
+
+  // Returns the definition of the fingerprint table. 
+  private Table getFingerprintTable()
+  {
+    Column[] columns = new Column[] {
+        new Column("tableprefix", Types.VARCHAR, 100, -1, true, false),
+        new Column("tablecount", Types.INTEGER),
+        new Column("datarows", Types.INTEGER),
+        new Column("dataseed", Types.VARCHAR, 20),
+        new Column("layout", Types.VARCHAR, 4000)
+      };
+    return new Table(FINGERPRINT_TABLE, columns);
+  }
+
+  // Describes the columns of a table set and how their values are 
+  // generated, e.g., mykey:4:-1:-1:pk:rowkey.  Anything that changes the 
+  // data populateAll() loads must appear here. 
+  private String getLayout(TableSet tableSet)
+  {
+    StringBuffer sb = new StringBuffer();
+    Column[] columns = tableSet.getColumns();
+    int keyParameter = getKeyParameter(tableSet);
+    int parameter = 0;
+    for (int i = 0; i < columns.length; i++)
+    {
+      if (i > 0)
+        sb.append(",");
+      sb.append(columns[i].getName()).append(":").append(columns[i].getType());
+      sb.append(":").append(columns[i].getLength());
+      sb.append(":").append(columns[i].getPrecision());
+      if (columns[i].isPrimaryKey())
+        sb.append(":pk");
+      if (!columns[i].isAutoIncrement() && parameter++ == keyParameter)
+        sb.append(":rowkey");
+      if (columns[i].isAutoIncrement())
+        sb.append(":ai");
+      if (columns[i].isIndexed())
+        sb.append(":idx");
+      if (columns[i].getDistinctValues() > 0 
+          || columns[i].getNullFraction() > 0 
+          || columns[i].getCompressibility() > 0)
+      {
+        sb.append(":").append(columns[i].getDistinctValues());
+        sb.append(":").append(columns[i].getNullFraction());
+        sb.append(":").append(columns[i].getSkew());
+        sb.append(":").append(columns[i].getCompressibility());
+      }
+    }
+    if (tableSet.isLobStreaming())
+      sb.append(",lobstream");
+    return sb.toString();
+  }
 }
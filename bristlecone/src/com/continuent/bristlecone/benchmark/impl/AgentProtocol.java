@@ -0,0 +1,84 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * Defines messages exchanged between a benchmark coordinator and its 
+ * agents.  Each message starts with its name written as a UTF string.  A 
+ * run proceeds as follows: 
+ * <ol>
+ * <li>Coordinator sends RUN with the agent index and run properties.</li>
+ * <li>Agent prepares the scenario and replies READY.</li>
+ * <li>Coordinator sends START to all agents with the delay in 
+ * milliseconds after which they start, so that they start together 
+ * however their clocks are set.</li>
+ * <li>If the sampleInterval property is greater than 0, the agent sends 
+ * SAMPLE with each interval sample while it runs.</li>
+ * <li>Agent replies RESULT with its output properties followed by its 
+ * latency, retried latency and pool wait histograms, the number of timed
+ * operations, and the name and histogram of each timed operation.</li>
+ * </ol>
+ * An agent replies ERROR with a message instead of READY or RESULT if the
+ * run fails. 
+ * 
+ * @author rhodges
+ */
+public class AgentProtocol
+{
+  /** Default port on which agents listen. */
+  public static final int    DEFAULT_PORT = 9876;
+
+  public static final String RUN          = "RUN";
+  public static final String READY        = "READY";
+  public static final String START        = "START";
+  public static final String SAMPLE       = "SAMPLE";
+  public static final String RESULT       = "RESULT";
+  public static final String ERROR        = "ERROR";
+
+  /** Writes a properties instance. */
+  public static void writeProperties(DataOutputStream out, Properties props)
+      throws IOException
+  {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    props.store(bytes, null);
+    out.writeInt(bytes.size());
+    bytes.writeTo(out);
+  }
+
+  /** Reads a properties instance written by writeProperties(). */
+  public static Properties readProperties(DataInputStream in) throws IOException
+  {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    Properties props = new Properties();
+    props.load(new ByteArrayInputStream(bytes));
+    return props;
+  }
+}
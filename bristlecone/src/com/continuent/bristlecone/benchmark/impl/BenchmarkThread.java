@@ -23,11 +23,21 @@
 package com.continuent.bristlecone.benchmark.impl;
 
 import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 import org.apache.log4j.Logger;
 
 import com.continuent.bristlecone.benchmark.BenchmarkException;
 import com.continuent.bristlecone.benchmark.Scenario;
+import com.continuent.bristlecone.benchmark.ThreadRandom;
+import com.continuent.bristlecone.benchmark.TimingContext;
+import com.continuent.bristlecone.benchmark.db.ConnectionPool;
+import com.continuent.bristlecone.benchmark.db.SqlDialect;
+import com.continuent.bristlecone.benchmark.db.SqlDialectFactory;
+import com.continuent.bristlecone.benchmark.db.SqlErrorClass;
 
 /**
  * @author rhodges
@@ -45,17 +55,170 @@ public class BenchmarkThread extends Thread
   protected long elapsed = 0;
   protected long iterationCount = 0;
   protected long sqlExceptionCount = 0;
+  protected long totalSqlExceptionCount = 0;
   protected Exception exception; 
+  protected volatile LatencyHistogram latencyHistogram = new LatencyHistogram();
+  protected long lateCount = 0;
+  protected long droppedCount = 0;
+  protected long warmupIterationCount = 0;
+  protected long warmupElapsed = 0;
+  protected long measureStart = 0;
+  protected volatile boolean measuring;
+  protected TimingContext timingContext;
+  protected long[] errorCounts = new long[SqlErrorClass.COUNT];
+  protected long retryCount = 0;
+  protected long retriedOpsCount = 0;
+  // Histograms other than the latency histogram are allocated only when 
+  // first needed, which keeps threads small when there are many of them. 
+  protected LatencyHistogram retriedLatencyHistogram;
+  protected LatencyHistogram poolWaitHistogram;
+  protected long poolTimeoutCount = 0;
+
+  // Dialect used to classify SQL errors, or null to use SQLState alone. 
+  private SqlDialect dialect;
+
+  // Retry settings for iterations that fail with retryable SQL errors. 
+  private int retries;
+  private long retryBackoffNanos;
+  private long retryBackoffMaxNanos;
+
+  // Pool from which each iteration leases a connection, or null if the 
+  // scenario has dedicated connections. 
+  private ConnectionPool pool;
+
+  // If true, emit a flight recorder event for each iteration.  Events are
+  // only allocated when requested so the default loop stays garbage-free. 
+  private boolean recordEvents;
+  private String scenarioName;
+  private String eventTable;
+  private int eventRows;
+  
+  // Recorder from which the interval sampler takes latencies, or null if 
+  // the run is not sampled. 
+  private LatencyRecorder intervalRecorder;
+
+  // Recorder from which the metrics server takes latencies, or null if 
+  // metrics are not served. 
+  private LatencyRecorder metricsRecorder;
+  
+  // Iterations completed including warmup.  This is published with a 
+  // release store after each iteration so that samplers can read this
+  // thread's counters and histogram without locks.  
+  private final AtomicLong completedIterations = new AtomicLong();
+  
+  // Barrier at which all threads meet after warmup, or null if no warmup. 
+  protected CyclicBarrier warmupBarrier;
+  private boolean warmupComplete;
+  
+  // Position of this thread among all threads, used to stagger paced starts. 
+  protected int threadIndex;
+  
+  // Pacing interval in nanoseconds and next intended start time when a 
+  // fixed arrival rate is in effect.  An interval of 0 means closed loop. 
+  private long intervalNanos;
+  private long nextIntendedStart;
   
   /**
    * Creates a new thread using the indicated config. 
    */
   public BenchmarkThread(String name, Scenario scenario, 
       ConfigWrapper wrapper)
+  {
+    this(name, scenario, wrapper, 0);
+  }
+
+  /**
+   * Creates a new thread using the indicated config and thread index.  The 
+   * index staggers intended start times when running at a fixed rate. 
+   */
+  public BenchmarkThread(String name, Scenario scenario, 
+      ConfigWrapper wrapper, int threadIndex)
   {
     super(name);
     this.scenario = scenario;
     this.wrapper = wrapper;
+    this.threadIndex = threadIndex;
+    this.retries = wrapper.getRetries();
+    this.retryBackoffNanos = wrapper.getRetryBackoffMillis() * 1000000;
+    this.retryBackoffMaxNanos = wrapper.getRetryBackoffMaxMillis() * 1000000;
+    this.recordEvents = wrapper.isJfr();
+    this.scenarioName = scenario.getClass().getName();
+    this.eventTable = wrapper.getConfigurationData().getProperty("tableprefix");
+    String datarows = wrapper.getConfigurationData().getProperty("datarows");
+    if (datarows != null)
+      this.eventRows = Integer.parseInt(datarows);
+    String url = wrapper.getUrl();
+    if (url != null)
+      this.dialect = SqlDialectFactory.getInstance().getDialect(url);
+  }
+
+  /** 
+   * Sets the barrier at which threads meet after warmup.  All threads in a 
+   * run must share the same barrier, which must be sized to the number of 
+   * threads. 
+   */
+  public void setWarmupBarrier(CyclicBarrier warmupBarrier)
+  {
+    this.warmupBarrier = warmupBarrier;
+  }
+
+  /** 
+   * Sets the context in which the scenario times named operations, or null 
+   * if the scenario does not time any operations. 
+   */
+  public void setTimingContext(TimingContext timingContext)
+  {
+    this.timingContext = timingContext;
+  }
+
+  /** 
+   * Sets the pool from which each iteration leases a connection, or null 
+   * if the scenario has dedicated connections.  Time spent waiting for the
+   * pool counts toward iteration latency and is also recorded separately. 
+   */
+  public void setConnectionPool(ConnectionPool pool)
+  {
+    this.pool = pool;
+    if (pool != null && poolWaitHistogram == null)
+      poolWaitHistogram = new LatencyHistogram();
+  }
+
+  /** 
+   * Sets a recorder that receives each iteration latency, including warmup
+   * iterations, so that a sampler can take interval histograms while the
+   * thread runs.  This must be called before the thread starts. 
+   */
+  public void setIntervalRecorder(LatencyRecorder intervalRecorder)
+  {
+    this.intervalRecorder = intervalRecorder;
+  }
+
+  /** Returns the interval latency recorder, which may be null. */
+  public LatencyRecorder getIntervalRecorder()
+  {
+    return intervalRecorder;
+  }
+
+  /** 
+   * Sets a recorder that receives each iteration latency once warmup is 
+   * over, so that a metrics server can read latencies while the thread 
+   * runs.  This must be called before the thread starts. 
+   */
+  public void setMetricsRecorder(LatencyRecorder metricsRecorder)
+  {
+    this.metricsRecorder = metricsRecorder;
+  }
+
+  /** Returns the metrics latency recorder, which may be null. */
+  public LatencyRecorder getMetricsRecorder()
+  {
+    return metricsRecorder;
+  }
+
+  /** Returns the operation timing context, which may be null. */
+  public TimingContext getTimingContext()
+  {
+    return timingContext;
   }
 
   public long getElapsed()
@@ -63,6 +226,41 @@ public class BenchmarkThread extends Thread
     return elapsed;
   }
 
+  /** 
+   * Returns the number of iterations completed so far including warmup.  
+   * Other threads may call this while the thread runs.  Counters and the
+   * latency histogram are up to date at least as of the returned value 
+   * once this call returns. 
+   */
+  public long getCompletedIterations()
+  {
+    return completedIterations.get();
+  }
+
+  /** Returns the number of iterations run during warmup. */
+  public long getWarmupIterationCount()
+  {
+    return warmupIterationCount;
+  }
+
+  /** 
+   * Returns milliseconds from thread start until all threads finished 
+   * warmup, or 0 if there was no warmup. 
+   */
+  public long getWarmupElapsed()
+  {
+    return warmupElapsed;
+  }
+
+  /** 
+   * Returns the time in milliseconds at which measurement started, which 
+   * follows warmup if there is one. 
+   */
+  public long getMeasureStart()
+  {
+    return measureStart;
+  }
+
   public Exception getException()
   {
     return exception;
@@ -78,10 +276,106 @@ public class BenchmarkThread extends Thread
     return sqlExceptionCount;
   }
 
+  /** 
+   * Returns the number of SQL exceptions including warmup.  Unlike the 
+   * other counters this is never reset, so it only grows during a run. 
+   */
+  public long getTotalSqlExceptionCount()
+  {
+    return totalSqlExceptionCount;
+  }
+
+  /** 
+   * Returns true once warmup is over and iterations count toward results.
+   * Other threads may call this while the thread runs. 
+   */
+  public boolean isMeasuring()
+  {
+    return measuring;
+  }
+
+  /** 
+   * Returns the number of SQL errors of a class defined in SqlErrorClass.
+   * Errors on iterations that were later retried are included. 
+   */
+  public long getErrorCount(int errorClass)
+  {
+    return errorCounts[errorClass];
+  }
+
+  /** Returns the number of times iterations were retried. */
+  public long getRetryCount()
+  {
+    return retryCount;
+  }
+
+  /** Returns the number of iterations that succeeded after a retry. */
+  public long getRetriedOpsCount()
+  {
+    return retriedOpsCount;
+  }
+
+  /** 
+   * Returns the histogram of latencies of iterations that succeeded after 
+   * a retry, measured from the start of the first attempt, or null if no 
+   * iteration was retried. 
+   */
+  public LatencyHistogram getRetriedLatencyHistogram()
+  {
+    return retriedLatencyHistogram;
+  }
+
+  /** 
+   * Returns the histogram of time in nanoseconds iterations waited to 
+   * lease a pooled connection, or null if there is no pool. 
+   */
+  public LatencyHistogram getPoolWaitHistogram()
+  {
+    return poolWaitHistogram;
+  }
+
+  /** Returns the number of times the thread timed out waiting for the pool. */
+  public long getPoolTimeoutCount()
+  {
+    return poolTimeoutCount;
+  }
+
+  /** 
+   * Returns the number of paced iterations that started more than one 
+   * pacing interval after their intended start time. 
+   */
+  public long getLateCount()
+  {
+    return lateCount;
+  }
+
+  /** 
+   * Returns the number of paced iterations that were scheduled within the 
+   * run duration but never started because the run ended first. 
+   */
+  public long getDroppedCount()
+  {
+    return droppedCount;
+  }
+
+  /** 
+   * Returns the histogram of iteration latencies in nanoseconds.  When a 
+   * fixed arrival rate is in effect latency is measured from the intended
+   * start time rather than the actual start time.  The histogram is 
+   * replaced rather than cleared when warmup ends, so other threads never
+   * see one that is partly reset. 
+   */
+  public LatencyHistogram getLatencyHistogram()
+  {
+    return latencyHistogram;
+  }
+
   /** Initialize the thread.  */
   public void prepare() throws BenchmarkException
   {
     try {
+      if (timingContext != null)
+        scenario.setTimingContext(timingContext);
       scenario.prepare();
     }
     catch (Exception e)
@@ -98,38 +392,74 @@ public class BenchmarkThread extends Thread
     if (logger.isDebugEnabled())
       logger.debug("Starting thread: " + Thread.currentThread().getName());
     
+    ThreadRandom.setStream(threadIndex);
     long start = System.currentTimeMillis();
-    long end; 
+    long startNanos = System.nanoTime();
+    measureStart = start;
     iterationCount = 0;
     try
     {
       String boundType = wrapper.getBound();
+      boolean useIterations;
       if (ConfigWrapper.METHOD_ITERATIONS.equals(boundType))
+        useIterations = true;
+      else if (ConfigWrapper.METHOD_DURATION.equals(boundType))
+        useIterations = false;
+      else
+        throw new BenchmarkException("Unrecognized bound type: " + boundType);
+
+      startPacing(startNanos);
+
+      // Run warmup iterations if requested.  Warmup is bounded the same way
+      // as the test itself, so it is either iterations or seconds.  Results 
+      // are discarded once all threads have reached the barrier. 
+      if (warmupBarrier != null)
+      {
+        long warmup = wrapper.getWarmup();
+        if (logger.isDebugEnabled())
+          logger.debug("Running warmup: warmup=" + warmup + " bound=" + boundType);
+        if (useIterations)
+          runIterations(warmup);
+        else
+          runForDuration(warmup * 1000, startNanos);
+        warmupIterationCount = iterationCount;
+        awaitWarmupBarrier();
+
+        iterationCount = 0;
+        sqlExceptionCount = 0;
+        lateCount = 0;
+        droppedCount = 0;
+        for (int i = 0; i < errorCounts.length; i++)
+          errorCounts[i] = 0;
+        retryCount = 0;
+        retriedOpsCount = 0;
+        if (retriedLatencyHistogram != null)
+          retriedLatencyHistogram.reset();
+        if (poolWaitHistogram != null)
+          poolWaitHistogram.reset();
+        poolTimeoutCount = 0;
+        latencyHistogram = new LatencyHistogram();
+        if (timingContext != null)
+          timingContext.reset();
+        measureStart = System.currentTimeMillis();
+        startNanos = System.nanoTime();
+        warmupElapsed = measureStart - start;
+        startPacing(startNanos);
+      }
+      measuring = true;
+
+      // Run measured iterations. 
+      if (useIterations)
       {
         long testIterations = wrapper.getIterations();
         if (logger.isDebugEnabled())
         {
           logger.debug("Running scenario using iterations:  iterations=" + testIterations);
         }
-        while (iterationCount < testIterations)
-        {
-          iterationCount++;
-          logger.debug("Invoking next iteration, count=" + iterationCount);
-          
-          try
-          {
-            scenario.iterate(iterationCount);
-          }
-          catch (SQLException e)
-          {
-            this.sqlExceptionCount++;
-            if (logger.isDebugEnabled())
-              logger.debug("Caught SQLException in scenario", e); 
-          }
-        }
+        runIterations(testIterations);
         logger.debug("Iteration count exceeded; terminating iterations");
       }
-      else if (ConfigWrapper.METHOD_DURATION.equals(boundType))
+      else
       {
         long testDurationMillis   = wrapper.getDuration() * 1000;
         if (logger.isDebugEnabled())
@@ -137,41 +467,273 @@ public class BenchmarkThread extends Thread
           logger.debug("Running scenario using duration in seconds:  duration=" 
               + testDurationMillis / 1000);
         }
-        end = System.currentTimeMillis();
-        while ((end - start) < testDurationMillis)
-        {
-          iterationCount++;
-          logger.debug("Invoking next iteration, count=" + iterationCount);
-          try
-          {
-            scenario.iterate(iterationCount);
-          }
-          catch (SQLException e)
-          {
-            this.sqlExceptionCount++;
-            if (logger.isDebugEnabled())
-              logger.debug("Caught SQLException in scenario", e); 
-          }
-          end = System.currentTimeMillis();
-        }
+        runForDuration(testDurationMillis, startNanos);
         logger.debug("Time limit exceeded; terminating iterations");
       }
-      else
-        throw new BenchmarkException("Unrecognized bound type: " + boundType);
     }
     catch (Exception e)
     {
       logger.error("Scenario thread " + Thread.currentThread().getName() 
           + " failed with exception", e);
       exception = e;
+
+      // Don't leave other threads waiting for us at the warmup barrier. 
+      if (warmupBarrier != null && ! warmupComplete)
+      {
+        try
+        {
+          awaitWarmupBarrier();
+        }
+        catch (Exception e2)
+        {
+          logger.debug("Unable to release warmup barrier", e2);
+        }
+      }
     }
-    end = System.currentTimeMillis();
-    this.elapsed = end - start;
+    this.elapsed = System.currentTimeMillis() - measureStart;
     
     if (logger.isDebugEnabled())
       logger.debug("Ending thread: " + Thread.currentThread().getName());
   }
 
+  /**
+   * Sets up pacing if we are running at a fixed arrival rate.  The rate is 
+   * shared across all threads, so each thread runs at rate / threads with 
+   * start times staggered by thread index. 
+   */
+  private void startPacing(long startNanos)
+  {
+    double rate = wrapper.getRate();
+    if (rate > 0)
+    {
+      long threads = wrapper.getThreads();
+      intervalNanos = (long) (threads * 1000000000.0 / rate);
+      if (intervalNanos < 1)
+        intervalNanos = 1;
+      nextIntendedStart = startNanos + (intervalNanos * threadIndex) / threads;
+      if (logger.isDebugEnabled())
+      {
+        logger.debug("Pacing iterations at fixed rate: rate=" + rate 
+            + " intervalNanos=" + intervalNanos);
+      }
+    }
+    else
+      intervalNanos = 0;
+  }
+
+  /** 
+   * Runs the indicated number of iterations.  This and runForDuration() 
+   * are the hot loop of the benchmark, so they must not allocate or log 
+   * per iteration. 
+   */
+  private void runIterations(long iterations) throws Exception
+  {
+    long now = System.nanoTime();
+    while (iterationCount < iterations)
+    {
+      iterationCount++;
+      now = runIteration(now);
+    }
+  }
+
+  /** Runs iterations until the indicated number of milliseconds elapses. */
+  private void runForDuration(long durationMillis, long startNanos) 
+    throws Exception
+  {
+    long deadlineNanos = startNanos + durationMillis * 1000000;
+    long now = System.nanoTime();
+    while (now < deadlineNanos)
+    {
+      // When paced, do not start iterations intended for after the end. 
+      if (intervalNanos > 0 && nextIntendedStart >= deadlineNanos)
+        break;
+      iterationCount++;
+      now = runIteration(now);
+    }
+    
+    // Anything scheduled before the deadline that did not start was 
+    // dropped.  This is how a stalled database shows up in paced runs. 
+    if (intervalNanos > 0 && nextIntendedStart < deadlineNanos)
+    {
+      droppedCount = (deadlineNanos - nextIntendedStart - 1) 
+          / intervalNanos + 1;
+    }
+  }
+
+  /** Waits until all threads have finished warmup. */
+  private void awaitWarmupBarrier() throws Exception
+  {
+    warmupComplete = true;
+    warmupBarrier.await();
+  }
+
+  /**
+   * Runs and times a single iteration.  If a fixed arrival rate is in effect
+   * we first wait for the intended start time and measure latency from 
+   * there, so that time spent waiting behind a slow iteration is counted. 
+   * 
+   * @param now Current time in nanoseconds, which is normally the end time
+   *        of the previous iteration.  Reusing it saves a clock read. 
+   * @return End time of this iteration in nanoseconds
+   */
+  private long runIteration(long now) throws Exception
+  {
+    long iterationStart;
+    if (intervalNanos > 0)
+    {
+      iterationStart = nextIntendedStart;
+      while (now < iterationStart)
+      {
+        LockSupport.parkNanos(iterationStart - now);
+        now = System.nanoTime();
+      }
+      if (now - iterationStart > intervalNanos)
+        lateCount++;
+      nextIntendedStart += intervalNanos;
+    }
+    else
+      iterationStart = now;
+
+    IterationEvent event = null;
+    if (recordEvents && IterationEvent.isTypeEnabled())
+    {
+      event = new IterationEvent();
+      event.begin();
+    }
+
+    long end;
+    boolean failed = false;
+    try
+    {
+      acquireConnection();
+      scenario.iterate(warmupIterationCount + iterationCount);
+      end = System.nanoTime();
+    }
+    catch (SQLException e)
+    {
+      failed = true;
+      end = retryIteration(e, iterationStart);
+    }
+    finally
+    {
+      if (pool != null)
+        pool.release();
+    }
+    if (event != null)
+    {
+      event.scenario = scenarioName;
+      event.iteration = warmupIterationCount + iterationCount;
+      event.table = eventTable;
+      event.rows = eventRows;
+      event.sqlException = failed;
+      event.commit();
+    }
+    latencyHistogram.recordValue(end - iterationStart);
+    if (intervalRecorder != null)
+      intervalRecorder.recordValue(end - iterationStart);
+    if (metricsRecorder != null && measuring)
+      metricsRecorder.recordValue(end - iterationStart);
+    completedIterations.lazySet(warmupIterationCount + iterationCount);
+    return end;
+  }
+
+  /**
+   * Counts a failed iteration and runs it again while the error is 
+   * retryable and retries remain.  Retries back off exponentially up to 
+   * a limit with full jitter, so threads that collided are unlikely to 
+   * collide again.  Jitter comes from the thread's seeded random stream, 
+   * so delays are reproducible from the seed. 
+   * 
+   * @param e Exception from the first attempt
+   * @param iterationStart Start time of the first attempt in nanoseconds
+   * @return End time of the last attempt in nanoseconds
+   */
+  private long retryIteration(SQLException e, long iterationStart) 
+    throws Exception
+  {
+    int attempt = 0;
+    while (true)
+    {
+      int errorClass = (dialect == null) ? SqlErrorClass.classify(e) 
+          : dialect.classifyException(e);
+      sqlExceptionCount++;
+      totalSqlExceptionCount++;
+      errorCounts[errorClass]++;
+      if (timingContext != null)
+        timingContext.clear();
+      if (logger.isDebugEnabled())
+      {
+        logger.debug("Caught SQLException in scenario: class=" 
+            + SqlErrorClass.getName(errorClass) + " attempt=" + attempt, e); 
+      }
+      if (attempt >= retries || ! SqlErrorClass.isRetryable(errorClass))
+        return System.nanoTime();
+
+      // Roll back the failed attempt and give the connection back while we
+      // back off. 
+      rollback();
+      if (pool != null)
+        pool.release();
+      long backoff = Math.min(retryBackoffNanos << Math.min(attempt, 20), 
+          retryBackoffMaxNanos);
+      if (backoff > 0)
+        LockSupport.parkNanos(ThreadRandom.current().nextLong(backoff + 1));
+      attempt++;
+      retryCount++;
+      try
+      {
+        acquireConnection();
+        scenario.iterate(warmupIterationCount + iterationCount);
+        long end = System.nanoTime();
+        retriedOpsCount++;
+        if (retriedLatencyHistogram == null)
+          retriedLatencyHistogram = new LatencyHistogram();
+        retriedLatencyHistogram.recordValue(end - iterationStart);
+        return end;
+      }
+      catch (SQLException e2)
+      {
+        e = e2;
+      }
+    }
+  }
+
+  /** 
+   * Rolls back work of a failed attempt.  A failed rollback is logged and 
+   * the retry goes ahead, since it will fail in turn if the connection is
+   * unusable. 
+   */
+  private void rollback()
+  {
+    try
+    {
+      scenario.rollback();
+    }
+    catch (Exception e)
+    {
+      logger.debug("Rollback before retry failed", e);
+    }
+  }
+
+  /** 
+   * Leases a connection from the pool if there is one and records how long
+   * we waited.  Timeouts fail the attempt like any other connection error. 
+   */
+  private void acquireConnection() throws SQLException
+  {
+    if (pool == null)
+      return;
+    long start = System.nanoTime();
+    boolean acquired = pool.acquire();
+    poolWaitHistogram.recordValue(System.nanoTime() - start);
+    if (! acquired)
+    {
+      poolTimeoutCount++;
+      throw new SQLTransientConnectionException(
+          "Timed out waiting for pooled connection", "08001");
+    }
+  }
+
   /** Clean up. */
   public void cleanup() throws BenchmarkException
   {
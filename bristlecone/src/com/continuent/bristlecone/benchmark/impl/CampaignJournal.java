@@ -0,0 +1,233 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.impl;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.continuent.bristlecone.benchmark.BenchmarkException;
+
+/**
+ * Records which runs of a benchmark campaign have finished, together with
+ * their results, so that an interrupted campaign can resume where it 
+ * stopped.  Each run is identified by a digest of its input properties.  
+ * When a run finishes, its results are written as RESULT lines followed by
+ * a DONE line and the file is synced to disk.  Results without a DONE line
+ * belong to a run that was interrupted and are ignored when reading. <p>
+ * 
+ * Values use the same escaping as ResultArchive. 
+ * 
+ * @author rhodges
+ */
+public class CampaignJournal
+{
+  private static final String RESULT = "RESULT";
+  private static final String DONE   = "DONE";
+
+  private final File journalFile;
+
+  /** Creates a new journal backed by the given file. */
+  public CampaignJournal(File journalFile)
+  {
+    this.journalFile = journalFile;
+  }
+
+  /** Returns the journal file. */
+  public File getFile()
+  {
+    return journalFile;
+  }
+
+  /** Starts a new campaign by discarding any earlier journal contents. */
+  public void clear()
+  {
+    write("", false);
+  }
+
+  /**
+   * Records that a run finished. 
+   * 
+   * @param key Key of the run from keyFor()
+   * @param results Configurations with results generated by the run, of 
+   *        which there is more than one for thread searches
+   */
+  public void complete(String key, List<Config> results)
+  {
+    StringBuffer sb = new StringBuffer();
+    for (Config result : results)
+    {
+      sb.append(RESULT).append('\t').append(key);
+      Iterator<String> names = result.propertyNames();
+      while (names.hasNext())
+      {
+        String name = names.next();
+        String value = result.getProperty(name);
+        if (value != null)
+        {
+          sb.append('\t').append(ResultArchive.escape(name)).append('=')
+              .append(ResultArchive.escape(value));
+        }
+      }
+      sb.append('\n');
+    }
+    sb.append(DONE).append('\t').append(key).append('\n');
+    write(sb.toString(), true);
+  }
+
+  /**
+   * Reads the journal and returns property values of results for each 
+   * finished run, indexed by run key.  Returns an empty map if the journal 
+   * does not exist. 
+   */
+  public Map<String, List<Map<String, String>>> readCompleted() 
+    throws IOException
+  {
+    Map<String, List<Map<String, String>>> completed = 
+        new HashMap<String, List<Map<String, String>>>();
+    if (! journalFile.exists())
+      return completed;
+
+    Map<String, List<Map<String, String>>> pending = 
+        new HashMap<String, List<Map<String, String>>>();
+    BufferedReader in = new BufferedReader(new InputStreamReader(
+        new FileInputStream(journalFile), "UTF-8"));
+    try
+    {
+      String line;
+      while ((line = in.readLine()) != null)
+      {
+        String[] fields = line.split("\t");
+        if (fields.length < 2)
+          continue;
+        String key = fields[1];
+        if (RESULT.equals(fields[0]))
+        {
+          Map<String, String> values = new TreeMap<String, String>();
+          for (int i = 2; i < fields.length; i++)
+          {
+            int eq = fields[i].indexOf('=');
+            if (eq > 0)
+              values.put(ResultArchive.unescape(fields[i].substring(0, eq)), 
+                  ResultArchive.unescape(fields[i].substring(eq + 1)));
+          }
+          List<Map<String, String>> results = pending.get(key);
+          if (results == null)
+          {
+            results = new ArrayList<Map<String, String>>();
+            pending.put(key, results);
+          }
+          results.add(values);
+        }
+        else if (DONE.equals(fields[0]))
+        {
+          List<Map<String, String>> results = pending.remove(key);
+          if (results == null)
+            results = new ArrayList<Map<String, String>>();
+          completed.put(key, results);
+        }
+      }
+    }
+    finally
+    {
+      in.close();
+    }
+    return completed;
+  }
+
+  /**
+   * Returns a key that identifies a run from its input properties.  The 
+   * key is a SHA-1 digest of all property names and values, so changing 
+   * any property in the campaign makes earlier results inapplicable. 
+   */
+  public static String keyFor(Properties properties)
+  {
+    StringBuffer sb = new StringBuffer();
+    for (String name : new TreeSet<String>(properties.stringPropertyNames()))
+      sb.append(name).append('=').append(properties.getProperty(name)).append('\n');
+    try
+    {
+      MessageDigest md = MessageDigest.getInstance("SHA-1");
+      byte[] digest = md.digest(sb.toString().getBytes("UTF-8"));
+      StringBuffer hex = new StringBuffer();
+      for (byte b : digest)
+        hex.append(String.format("%02x", b & 0xff));
+      return hex.toString();
+    }
+    catch (NoSuchAlgorithmException e)
+    {
+      throw new BenchmarkException("Unable to compute run key", e);
+    }
+    catch (IOException e)
+    {
+      throw new BenchmarkException("Unable to compute run key", e);
+    }
+  }
+
+  // Writes text to the journal and syncs it to disk. 
+  private synchronized void write(String text, boolean append)
+  {
+    FileOutputStream fos = null;
+    try
+    {
+      fos = new FileOutputStream(journalFile, append);
+      Writer out = new OutputStreamWriter(fos, "UTF-8");
+      out.write(text);
+      out.flush();
+      fos.getFD().sync();
+    }
+    catch (IOException e)
+    {
+      throw new BenchmarkException("Unable to write campaign journal: " 
+          + journalFile.getAbsolutePath(), e);
+    }
+    finally
+    {
+      if (fos != null)
+      {
+        try
+        {
+          fos.close();
+        }
+        catch (IOException e)
+        {
+        }
+      }
+    }
+  }
+}
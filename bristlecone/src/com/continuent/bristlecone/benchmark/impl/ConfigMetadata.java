@@ -33,6 +33,7 @@ import org.apache.log4j.Logger;
 
 import com.continuent.bristlecone.benchmark.BenchmarkException;
 import com.continuent.bristlecone.benchmark.Scenario;
+import com.continuent.bristlecone.benchmark.db.SqlErrorClass;
 
 /**
  * Metadata for entire tuple.  Includes metadata for each individual property. 
@@ -44,6 +45,7 @@ public class ConfigMetadata
   private static Logger logger = Logger.getLogger(ConfigMetadata.class);
 
   Map<String, ConfigPropertyMetadata> metadata;
+  String[] timedOperations = new String[0];
   
   /** Creates a new instance. */
   public ConfigMetadata()
@@ -74,6 +76,22 @@ public class ConfigMetadata
     addMetadataIfAbsent("iterations", "1", false, false, null);
     addMetadataIfAbsent("duration", "1", false, false, null);
     addMetadataIfAbsent("threads", "1", false, false, null);
+    addMetadataIfAbsent("rate", "0", false, false, null);
+    addMetadataIfAbsent("warmup", "0", false, false, null);
+    addMetadataIfAbsent("executor", "platform", false, false, null);
+    addMetadataIfAbsent("sampleInterval", "0", false, false, null);
+    addMetadataIfAbsent("threadSearch", "false", false, false, null);
+    addMetadataIfAbsent("threadSearchMax", "1024", false, false, null);
+    addMetadataIfAbsent("threadSearchGain", "5", false, false, null);
+    addMetadataIfAbsent("threadSearchP99Millis", "0", false, false, null);
+    addMetadataIfAbsent("retries", "0", false, false, null);
+    addMetadataIfAbsent("retryBackoffMillis", "10", false, false, null);
+    addMetadataIfAbsent("retryBackoffMaxMillis", "1000", false, false, null);
+    addMetadataIfAbsent("jfr", "false", false, false, null);
+    addMetadataIfAbsent("seed", "0", false, false, null);
+    addMetadataIfAbsent("poolSize", "0", false, false, null);
+    addMetadataIfAbsent("poolAcquireTimeout", "30000", false, false, null);
+    addMetadataIfAbsent("poolValidation", "false", false, false, null);
 
     addMetadataOrFail("actualDuration", "-1", true);
     addMetadataOrFail("actualIterations", "-1", true);
@@ -81,7 +99,37 @@ public class ConfigMetadata
     addMetadataOrFail("actualAvgOpsSec", "0.0", true);
     addMetadataOrFail("actualSQLExceptions", "0", true);
     addMetadataOrFail("actualOtherExceptions", "0", true);
-    
+    addMetadataOrFail("actualPinnedEvents", "0", true);
+    addMetadataOrFail("actualWarmupIterations", "0", true);
+    addMetadataOrFail("actualWarmupDuration", "0.0", true);
+    addMetadataOrFail("actualLateOps", "0", true);
+    addMetadataOrFail("actualDroppedOps", "0", true);
+    addMetadataOrFail("actualP50Millis", "0.0", true);
+    addMetadataOrFail("actualP95Millis", "0.0", true);
+    addMetadataOrFail("actualP99Millis", "0.0", true);
+    addMetadataOrFail("actualP999Millis", "0.0", true);
+    addMetadataOrFail("actualMaxMillis", "0.0", true);
+    addMetadataOrFail("actualPrepareDuration", "0.0", true);
+    for (int i = 0; i < SqlErrorClass.COUNT; i++)
+    {
+      String name = SqlErrorClass.getName(i);
+      addMetadataOrFail("actual" + name + "Errors", "0", true);
+      addMetadataOrFail("actual" + name + "ErrorsSec", "0.0", true);
+    }
+    addMetadataOrFail("actualRetries", "0", true);
+    addMetadataOrFail("actualRetriedOps", "0", true);
+    addMetadataOrFail("actualRetriedP99Millis", "0.0", true);
+    addMetadataOrFail("actualJfrFile", "", true);
+    addMetadataOrFail("actualSeed", "0", true);
+    addMetadataOrFail("actualDataSeed", "0", true);
+    addMetadataOrFail("actualKneeThreads", "0", true);
+    addMetadataOrFail("actualPoolConnections", "0", true);
+    addMetadataOrFail("actualPoolTimeouts", "0", true);
+    addMetadataOrFail("actualPoolWaitP50Millis", "0.0", true);
+    addMetadataOrFail("actualPoolWaitP99Millis", "0.0", true);
+    addMetadataOrFail("actualPoolWaitMaxMillis", "0.0", true);
+    addMetadataOrFail("actualGeneratorCpuPercent", "0.0", true);
+
     // Find setters for properties on Scenario class. 
     Iterator<String> metadataNames = propertyNames();
     while (metadataNames.hasNext())
@@ -106,6 +154,39 @@ public class ConfigMetadata
         cpm.setSetter(setter);
       }
     }
+
+    // Add outputs for operations timed by the scenario.  Names must be 
+    // known now so that loggers can write column headers.  Properties are
+    // set first as a scenario may derive names from them. 
+    if (scenarioClass != null && Scenario.class.isAssignableFrom(scenarioClass))
+    {
+      Scenario prototype = (Scenario) Utilities.instantiateClass(scenarioClass);
+      setProperties(properties, prototype);
+      timedOperations = prototype.getTimedOperations();
+      for (String op : timedOperations)
+      {
+        addMetadataOrFail(operationProperty(op, "count"), "0", true);
+        addMetadataOrFail(operationProperty(op, "p50Millis"), "0.0", true);
+        addMetadataOrFail(operationProperty(op, "p99Millis"), "0.0", true);
+        addMetadataOrFail(operationProperty(op, "maxMillis"), "0.0", true);
+        addMetadataOrFail(operationProperty(op, "opsSec"), "0.0", true);
+      }
+    }
+  }
+
+  /** Returns the names of operations timed by the scenario. */
+  public String[] getTimedOperations()
+  {
+    return timedOperations.clone();
+  }
+
+  /** 
+   * Returns the output property name for a statistic of a timed operation, 
+   * for example op.commit.p99Millis. 
+   */
+  public static String operationProperty(String operation, String statistic)
+  {
+    return "op." + operation + "." + statistic;
   }
 
   protected void addMetadataOrFail(String name, String defaultValue, boolean output)
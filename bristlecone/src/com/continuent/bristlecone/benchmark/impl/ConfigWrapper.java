@@ -24,6 +24,7 @@ package com.continuent.bristlecone.benchmark.impl;
 
 import java.util.Properties;
 
+import com.continuent.bristlecone.benchmark.db.SqlErrorClass;
 
 /**
  * Wrapper class to provide typesafe access to benchmark configuration 
@@ -35,6 +36,8 @@ public class ConfigWrapper
 {
   public static final String METHOD_ITERATIONS = "iterations";
   public static final String METHOD_DURATION   = "duration";
+  public static final String EXECUTOR_PLATFORM = "platform";
+  public static final String EXECUTOR_VIRTUAL  = "virtual";
 
   protected Config configData; 
 
@@ -92,6 +95,144 @@ public class ConfigWrapper
     return configData.getPropertyAsLong("duration");
   }
 
+  /** 
+   * Return the fixed arrival rate in operations per second across all 
+   * threads or 0 if iterations run in a closed loop. 
+   */
+  public double getRate()
+  {
+    return configData.getPropertyAsDouble("rate");
+  }
+
+  /** 
+   * Return the warmup length, which is in iterations or seconds depending 
+   * on the bound, or 0 if there is no warmup. 
+   */
+  public long getWarmup()
+  {
+    return configData.getPropertyAsLong("warmup");
+  }
+
+  /** 
+   * Returns the kind of threads that run scenarios, which is either 
+   * "platform" or "virtual". 
+   */
+  public String getExecutor()
+  {
+    return configData.getProperty("executor");
+  }
+
+  /** Returns true if the run should search for the throughput knee. */
+  public boolean isThreadSearch()
+  {
+    return "true".equals(configData.getProperty("threadSearch"));
+  }
+
+  /** Returns the largest thread count tried by the knee search. */
+  public int getThreadSearchMax()
+  {
+    return configData.getPropertyAsInt("threadSearchMax");
+  }
+
+  /** 
+   * Returns the minimum throughput gain in percent per doubling of threads
+   * that the knee search accepts. 
+   */
+  public double getThreadSearchGain()
+  {
+    return configData.getPropertyAsDouble("threadSearchGain");
+  }
+
+  /** 
+   * Returns the p99 latency target in milliseconds for the knee search or 
+   * 0 if there is no target. 
+   */
+  public double getThreadSearchP99Millis()
+  {
+    return configData.getPropertyAsDouble("threadSearchP99Millis");
+  }
+
+  /** 
+   * Returns the interval in milliseconds between time series samples or 0 
+   * if sampling is disabled. 
+   */
+  public long getSampleInterval()
+  {
+    return configData.getPropertyAsLong("sampleInterval");
+  }
+
+  /** 
+   * Returns the number of times an iteration that fails with a retryable 
+   * SQL error is run again, or 0 if there are no retries. 
+   */
+  public int getRetries()
+  {
+    return configData.getPropertyAsInt("retries");
+  }
+
+  /** Returns the initial retry backoff in milliseconds. */
+  public long getRetryBackoffMillis()
+  {
+    return configData.getPropertyAsLong("retryBackoffMillis");
+  }
+
+  /** Returns the longest retry backoff in milliseconds. */
+  public long getRetryBackoffMaxMillis()
+  {
+    return configData.getPropertyAsLong("retryBackoffMaxMillis");
+  }
+
+  /** Returns true if each run should write a flight recording. */
+  public boolean isJfr()
+  {
+    return "true".equals(configData.getProperty("jfr"));
+  }
+
+  /** Returns the random number seed, where 0 means choose one at random. */
+  public long getSeed()
+  {
+    return configData.getPropertyAsLong("seed");
+  }
+
+  /** 
+   * Returns the maximum number of pooled connections, where 0 means each 
+   * thread has dedicated connections. 
+   */
+  public int getPoolSize()
+  {
+    return configData.getPropertyAsInt("poolSize");
+  }
+
+  /** Returns the time in milliseconds to wait for a pooled connection. */
+  public long getPoolAcquireTimeout()
+  {
+    return configData.getPropertyAsLong("poolAcquireTimeout");
+  }
+
+  /** Returns true if pooled connections are checked when leased. */
+  public boolean isPoolValidation()
+  {
+    return "true".equals(configData.getProperty("poolValidation"));
+  }
+
+  /** Returns the database URL or null if the scenario does not use one. */
+  public String getUrl()
+  {
+    return configData.getProperty("url");
+  }
+
+  /** Returns the database login. */
+  public String getUser()
+  {
+    return configData.getProperty("user");
+  }
+
+  /** Returns the database password. */
+  public String getPassword()
+  {
+    return configData.getProperty("password");
+  }
+
   /** Return the number of threads. */
   public long getThreads()
   {
@@ -121,6 +262,12 @@ public class ConfigWrapper
   {
     configData.setProperty("actualAvgOpsSec", avgOpsSec);
   }
+
+  /** Return the average number of operations per second. */
+  public double getActualAvgOpsSecond()
+  {
+    return configData.getPropertyAsDouble("actualAvgOpsSec");
+  }
   
   /** Set the actual number of SQL exceptions during the run. */
   public void setActualSQLExceptions(long sqlExceptions)
@@ -134,6 +281,217 @@ public class ConfigWrapper
     configData.setProperty("actualOtherExceptions", otherExceptions);
   }
   
+  /** Set the number of times virtual threads pinned their carrier threads. */
+  public void setActualPinnedEvents(long pinnedEvents)
+  {
+    configData.setProperty("actualPinnedEvents", pinnedEvents);
+  }
+
+  /** 
+   * Set the time in seconds taken by global scenario preparation, which
+   * includes creating and populating tables. 
+   */
+  public void setActualPrepareDuration(double prepareDuration)
+  {
+    configData.setProperty("actualPrepareDuration", prepareDuration);
+  }
+
+  /** Set the number of iterations run during warmup across all threads. */
+  public void setActualWarmupIterations(long warmupIterations)
+  {
+    configData.setProperty("actualWarmupIterations", warmupIterations);
+  }
+
+  /** Set the time in seconds until all threads finished warmup. */
+  public void setActualWarmupDuration(double warmupDuration)
+  {
+    configData.setProperty("actualWarmupDuration", warmupDuration);
+  }
+
+  /** Set the number of paced operations that started late. */
+  public void setActualLateOps(long lateOps)
+  {
+    configData.setProperty("actualLateOps", lateOps);
+  }
+
+  /** Set the number of paced operations dropped at the end of the run. */
+  public void setActualDroppedOps(long droppedOps)
+  {
+    configData.setProperty("actualDroppedOps", droppedOps);
+  }
+
+  /** Set the 50th percentile iteration latency in milliseconds. */
+  public void setActualP50Millis(double millis)
+  {
+    configData.setProperty("actualP50Millis", millis);
+  }
+
+  /** Set the 95th percentile iteration latency in milliseconds. */
+  public void setActualP95Millis(double millis)
+  {
+    configData.setProperty("actualP95Millis", millis);
+  }
+
+  /** Set the 99th percentile iteration latency in milliseconds. */
+  public void setActualP99Millis(double millis)
+  {
+    configData.setProperty("actualP99Millis", millis);
+  }
+
+  /** Return the 99th percentile iteration latency in milliseconds. */
+  public double getActualP99Millis()
+  {
+    return configData.getPropertyAsDouble("actualP99Millis");
+  }
+
+  /** Set the 99.9th percentile iteration latency in milliseconds. */
+  public void setActualP999Millis(double millis)
+  {
+    configData.setProperty("actualP999Millis", millis);
+  }
+
+  /** Set the maximum iteration latency in milliseconds. */
+  public void setActualMaxMillis(double millis)
+  {
+    configData.setProperty("actualMaxMillis", millis);
+  }
+
+  /** Set the number of SQL errors of a class defined in SqlErrorClass. */
+  public void setActualErrors(int errorClass, long errors)
+  {
+    configData.setProperty("actual" + SqlErrorClass.getName(errorClass) 
+        + "Errors", errors);
+  }
+
+  /** Set the number of SQL errors of a class per second. */
+  public void setActualErrorsSec(int errorClass, double errorsSec)
+  {
+    configData.setProperty("actual" + SqlErrorClass.getName(errorClass) 
+        + "ErrorsSec", errorsSec);
+  }
+
+  /** Set the number of times iterations were retried. */
+  public void setActualRetries(long retries)
+  {
+    configData.setProperty("actualRetries", retries);
+  }
+
+  /** Set the number of iterations that succeeded after a retry. */
+  public void setActualRetriedOps(long retriedOps)
+  {
+    configData.setProperty("actualRetriedOps", retriedOps);
+  }
+
+  /** 
+   * Set the 99th percentile latency in milliseconds of iterations that 
+   * succeeded after a retry. 
+   */
+  public void setActualRetriedP99Millis(double millis)
+  {
+    configData.setProperty("actualRetriedP99Millis", millis);
+  }
+
+  /** Set the name of the flight recording file for the run. */
+  public void setActualJfrFile(String jfrFile)
+  {
+    configData.setProperty("actualJfrFile", jfrFile);
+  }
+
+  /** Set the random number seed used for the run. */
+  public void setActualSeed(long seed)
+  {
+    configData.setProperty("actualSeed", Long.toString(seed));
+  }
+
+  /** 
+   * Set the seed with which the data used by the run were generated, 
+   * which is older than the run seed if tables were reused. 
+   */
+  public void setActualDataSeed(long seed)
+  {
+    configData.setProperty("actualDataSeed", Long.toString(seed));
+  }
+
+  /** Set the thread count of the knee found by a thread search. */
+  public void setActualKneeThreads(int threads)
+  {
+    configData.setProperty("actualKneeThreads", Integer.toString(threads));
+  }
+
+  /** Returns the thread count of the knee or 0 if there was no search. */
+  public int getActualKneeThreads()
+  {
+    return configData.getPropertyAsInt("actualKneeThreads");
+  }
+
+  /** Set the number of physical connections the pool opened. */
+  public void setActualPoolConnections(int connections)
+  {
+    configData.setProperty("actualPoolConnections", connections);
+  }
+
+  /** Set the number of times a thread timed out waiting for a connection. */
+  public void setActualPoolTimeouts(long timeouts)
+  {
+    configData.setProperty("actualPoolTimeouts", Long.toString(timeouts));
+  }
+
+  /** 
+   * Set median, 99th percentile, and maximum time in milliseconds that 
+   * iterations waited for a pooled connection. 
+   */
+  public void setActualPoolWait(double p50Millis, double p99Millis, 
+      double maxMillis)
+  {
+    configData.setProperty("actualPoolWaitP50Millis", p50Millis);
+    configData.setProperty("actualPoolWaitP99Millis", p99Millis);
+    configData.setProperty("actualPoolWaitMaxMillis", maxMillis);
+  }
+
+  /** 
+   * Set the percentage of process CPU time during the run that was spent
+   * generating data. 
+   */
+  public void setActualGeneratorCpuPercent(double percent)
+  {
+    configData.setProperty("actualGeneratorCpuPercent", percent);
+  }
+
+  /** Set the number of times a timed operation ran. */
+  public void setOperationCount(String operation, long count)
+  {
+    configData.setProperty(ConfigMetadata.operationProperty(operation, 
+        "count"), count);
+  }
+
+  /** Set the median latency of a timed operation in milliseconds. */
+  public void setOperationP50Millis(String operation, double millis)
+  {
+    configData.setProperty(ConfigMetadata.operationProperty(operation, 
+        "p50Millis"), millis);
+  }
+
+  /** Set the 99th percentile latency of a timed operation in milliseconds. */
+  public void setOperationP99Millis(String operation, double millis)
+  {
+    configData.setProperty(ConfigMetadata.operationProperty(operation, 
+        "p99Millis"), millis);
+  }
+
+  /** Set the maximum latency of a timed operation in milliseconds. */
+  public void setOperationMaxMillis(String operation, double millis)
+  {
+    configData.setProperty(ConfigMetadata.operationProperty(operation, 
+        "maxMillis"), millis);
+  }
+
+  /** Set the number of times per second a timed operation ran. */
+  public void setOperationOpsSec(String operation, double opsSec)
+  {
+    configData.setProperty(ConfigMetadata.operationProperty(operation, 
+        "opsSec"), opsSec);
+  }
+  
   /** Returns a Properties instance containing current underlying values. */
   public Properties getProperties()
   {
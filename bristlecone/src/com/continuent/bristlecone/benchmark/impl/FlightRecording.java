@@ -0,0 +1,104 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.impl;
+
+import java.io.File;
+import java.time.Duration;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Writes a flight recording of a single benchmark run.  The recording uses
+ * the JDK "default" settings, which are cheap enough to leave on during a 
+ * measured run, and adds scenario iteration events so that GC pauses and 
+ * lock waits can be lined up against individual iterations. 
+ * 
+ * @author rhodges
+ */
+public class FlightRecording
+{
+  private static Logger logger = Logger.getLogger(FlightRecording.class);
+
+  private final File file;
+  private Recording recording;
+
+  /** Creates a recording that will be written to the given file. */
+  public FlightRecording(File file)
+  {
+    this.file = file;
+  }
+
+  /** Returns the recording file. */
+  public File getFile()
+  {
+    return file;
+  }
+
+  /** Starts recording.  Failures are logged and the run proceeds. */
+  public void start()
+  {
+    try
+    {
+      recording = new Recording(Configuration.getConfiguration("default"));
+      recording.setName("bristlecone-" + file.getName());
+      recording.enable(IterationEvent.class).withThreshold(Duration.ZERO);
+      recording.start();
+    }
+    catch (Exception e)
+    {
+      logger.warn("Unable to start flight recording: " + file, e);
+      recording = null;
+    }
+  }
+
+  /** 
+   * Stops recording and writes the file.  Returns true if the file was 
+   * written. 
+   */
+  public boolean stop()
+  {
+    if (recording == null)
+      return false;
+
+    try
+    {
+      recording.stop();
+      recording.dump(file.toPath());
+      logger.info("Wrote flight recording: " + file);
+      return true;
+    }
+    catch (Exception e)
+    {
+      logger.warn("Unable to write flight recording: " + file, e);
+      return false;
+    }
+    finally
+    {
+      recording.close();
+      recording = null;
+    }
+  }
+}
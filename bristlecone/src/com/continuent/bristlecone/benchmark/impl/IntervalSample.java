@@ -0,0 +1,130 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.impl;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Holds throughput and latency for one sampling interval of a benchmark 
+ * run.  Latencies are in milliseconds.  The sample keeps the latency 
+ * histogram of the interval so that samples of several agents can be 
+ * merged. 
+ * 
+ * @author rhodges
+ */
+public class IntervalSample
+{
+  private final long             elapsedMillis;
+  private final long             intervalMillis;
+  private final long             iterations;
+  private final LatencyHistogram latency;
+
+  /** 
+   * Creates a new sample. 
+   * 
+   * @param latency Latencies in nanoseconds of the interval, which the
+   *        sample keeps
+   */
+  public IntervalSample(long elapsedMillis, long intervalMillis,
+      long iterations, LatencyHistogram latency)
+  {
+    this.elapsedMillis = elapsedMillis;
+    this.intervalMillis = intervalMillis;
+    this.iterations = iterations;
+    this.latency = latency;
+  }
+
+  /** Returns milliseconds from the start of the run to the end of the interval. */
+  public long getElapsedMillis()
+  {
+    return elapsedMillis;
+  }
+
+  /** Returns the length of the interval in milliseconds. */
+  public long getIntervalMillis()
+  {
+    return intervalMillis;
+  }
+
+  /** Returns the number of iterations completed during the interval. */
+  public long getIterations()
+  {
+    return iterations;
+  }
+
+  /** Returns iterations per second during the interval. */
+  public double getOpsPerSecond()
+  {
+    if (intervalMillis == 0)
+      return 0.0;
+    return iterations * 1000.0 / intervalMillis;
+  }
+
+  /** Returns the latency histogram of the interval. */
+  public LatencyHistogram getLatency()
+  {
+    return latency;
+  }
+
+  public double getP50Millis()
+  {
+    return nanosToMillis(latency.getValueAtPercentile(50.0));
+  }
+
+  public double getP99Millis()
+  {
+    return nanosToMillis(latency.getValueAtPercentile(99.0));
+  }
+
+  public double getMaxMillis()
+  {
+    return nanosToMillis(latency.getMaxValue());
+  }
+
+  /** Writes the sample in a form that readFrom() can read. */
+  public void writeTo(DataOutput out) throws IOException
+  {
+    out.writeLong(elapsedMillis);
+    out.writeLong(intervalMillis);
+    out.writeLong(iterations);
+    latency.writeTo(out);
+  }
+
+  /** Reads a sample written by writeTo(). */
+  public static IntervalSample readFrom(DataInput in) throws IOException
+  {
+    long elapsedMillis = in.readLong();
+    long intervalMillis = in.readLong();
+    long iterations = in.readLong();
+    return new IntervalSample(elapsedMillis, intervalMillis, iterations, 
+        LatencyHistogram.readFrom(in));
+  }
+
+  // Converts a latency in nanoseconds to fractional milliseconds. 
+  private static double nanosToMillis(long nanos)
+  {
+    return nanos / 1000000.0;
+  }
+}
@@ -0,0 +1,118 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.impl;
+
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import com.continuent.bristlecone.benchmark.ResultLogger;
+
+/**
+ * Samples benchmark threads at a fixed interval and delivers throughput and
+ * latency for each interval to result loggers.  Each thread records 
+ * latencies into a LatencyRecorder, from which the sampler takes the 
+ * histogram of the interval without reading counts the thread is still 
+ * changing.  Threads never wait for the sampler.  Samples include warmup
+ * iterations. 
+ * 
+ * @author rhodges
+ */
+public class IntervalSampler implements Runnable
+{
+  private static Logger logger = Logger.getLogger(IntervalSampler.class);
+
+  private final BenchmarkThread[]  threads;
+  private final Config             config;
+  private final List<ResultLogger> loggers;
+  private final long               sampleMillis;
+
+  private long             previousIterations;
+  private long             previousTime;
+  private long             startTime;
+
+  /**
+   * Creates a new sampler. 
+   * 
+   * @param threads Threads to sample, which must have interval recorders
+   * @param config Configuration of the current run
+   * @param loggers Loggers that receive samples
+   * @param sampleMillis Sample interval in milliseconds
+   */
+  public IntervalSampler(BenchmarkThread[] threads, Config config,
+      List<ResultLogger> loggers, long sampleMillis)
+  {
+    this.threads = threads;
+    this.config = config;
+    this.loggers = loggers;
+    this.sampleMillis = sampleMillis;
+  }
+
+  /** 
+   * Takes samples until interrupted, then takes a final sample covering 
+   * the last partial interval. 
+   */
+  public void run()
+  {
+    startTime = System.currentTimeMillis();
+    previousTime = startTime;
+    try
+    {
+      while (!Thread.interrupted())
+      {
+        Thread.sleep(sampleMillis);
+        sample();
+      }
+    }
+    catch (InterruptedException e)
+    {
+      logger.debug("Interval sampler was interrupted");
+    }
+    sample();
+  }
+
+  // Take a sample and deliver it to loggers. 
+  private void sample()
+  {
+    // Iteration counts and latencies are read separately, so a sample may
+    // count an iteration whose latency falls into the next sample. 
+    long iterations = 0;
+    LatencyHistogram interval = new LatencyHistogram();
+    for (int i = 0; i < threads.length; i++)
+    {
+      iterations += threads[i].getCompletedIterations();
+      interval.add(threads[i].getIntervalRecorder().getIntervalHistogram());
+    }
+    long now = System.currentTimeMillis();
+
+    IntervalSample sample = new IntervalSample(now - startTime, 
+        now - previousTime, iterations - previousIterations, interval);
+    previousIterations = iterations;
+    previousTime = now;
+
+    for (ResultLogger resultLogger : loggers)
+    {
+      resultLogger.intervalGenerated(config, sample);
+    }
+  }
+}
@@ -0,0 +1,73 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.impl;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for a single call to Scenario.iterate().  The event thread
+ * identifies the benchmark thread.  Table and rows come from the 
+ * tableprefix and datarows properties since iterate() does not report
+ * which rows it touched. 
+ * 
+ * @author rhodges
+ */
+@Name("bristlecone.ScenarioIteration")
+@Label("Scenario Iteration")
+@Category("Bristlecone")
+@Description("Single call to Scenario.iterate()")
+public class IterationEvent extends jdk.jfr.Event
+{
+  // Type handle used to check whether any recording wants this event
+  // before one is allocated.
+  private static final EventType TYPE = 
+      EventType.getEventType(IterationEvent.class);
+
+  @Label("Scenario")
+  String  scenario;
+
+  @Label("Iteration")
+  long    iteration;
+
+  @Label("Table")
+  @Description("Table prefix of the scenario's table set, if any")
+  String  table;
+
+  @Label("Rows")
+  @Description("Rows in each table of the scenario's table set")
+  int     rows;
+
+  @Label("SQL Exception")
+  @Description("True if the iteration or any retry threw a SQLException")
+  boolean sqlException;
+
+  /** Returns true if a running recording has this event enabled. */
+  static boolean isTypeEnabled()
+  {
+    return TYPE.isEnabled();
+  }
+}
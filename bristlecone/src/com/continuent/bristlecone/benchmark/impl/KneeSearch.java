@@ -0,0 +1,209 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Searches for the knee of the throughput curve, which is the smallest 
+ * thread count beyond which adding threads no longer pays off.  The search
+ * doubles the thread count until throughput stops growing by at least the
+ * minimum gain per doubling or p99 latency exceeds its target.  A doubling
+ * that gains less than that shows only that the knee lies somewhere after
+ * the last doubling that did gain, so the search bisects from the start of
+ * that doubling to the first rejected point.  Averages over wide intervals 
+ * hide where growth stops, so each bisection point is instead compared 
+ * against a close neighbour, with the required gain scaled to the ratio 
+ * of thread counts as (1 + gain)^log2(ratio). 
+ * 
+ * @author rhodges
+ */
+public class KneeSearch
+{
+  /** Measures throughput and latency at a given thread count. */
+  public interface Runner
+  {
+    /** Runs a benchmark with the given number of threads. */
+    public Point run(int threads);
+  }
+
+  /** Holds a single measured point on the curve. */
+  public static class Point
+  {
+    private final int    threads;
+    private final double opsPerSecond;
+    private final double p99Millis;
+
+    public Point(int threads, double opsPerSecond, double p99Millis)
+    {
+      this.threads = threads;
+      this.opsPerSecond = opsPerSecond;
+      this.p99Millis = p99Millis;
+    }
+
+    public int getThreads()
+    {
+      return threads;
+    }
+
+    public double getOpsPerSecond()
+    {
+      return opsPerSecond;
+    }
+
+    public double getP99Millis()
+    {
+      return p99Millis;
+    }
+
+    public String toString()
+    {
+      return "threads=" + threads + " opsSec=" + String.format("%.2f", opsPerSecond)
+          + " p99Millis=" + String.format("%.3f", p99Millis);
+    }
+  }
+
+  private final int    startThreads;
+  private final int    maxThreads;
+  private final double minGain;
+  private final double maxP99Millis;
+
+  // Points measured so far ordered by thread count. 
+  private final Map<Integer, Point> curve = new TreeMap<Integer, Point>();
+
+  /**
+   * Creates a new search. 
+   * 
+   * @param startThreads Thread count at which to start
+   * @param maxThreads Largest thread count to try
+   * @param minGain Minimum throughput gain per doubling, e.g., 0.05 for 5%
+   * @param maxP99Millis Largest acceptable p99 latency or 0 for no limit
+   */
+  public KneeSearch(int startThreads, int maxThreads, double minGain, 
+      double maxP99Millis)
+  {
+    this.startThreads = Math.max(1, startThreads);
+    this.maxThreads = Math.max(this.startThreads, maxThreads);
+    this.minGain = minGain;
+    this.maxP99Millis = maxP99Millis;
+  }
+
+  /**
+   * Runs the search and returns the knee.  If the starting thread count 
+   * already misses the latency target, the starting point is returned. 
+   */
+  public Point search(Runner runner)
+  {
+    // Grow geometrically until growth stops or we hit the maximum. 
+    Point previous = null;
+    Point low = measure(runner, startThreads);
+    if (!meetsLatency(low))
+      return low;
+    Point high = null;
+    while (low.getThreads() < maxThreads)
+    {
+      Point next = measure(runner, (int) Math.min((long) low.getThreads() * 2, 
+          maxThreads));
+      if (!meetsLatency(next) || !gains(low, next))
+      {
+        high = next;
+        break;
+      }
+      previous = low;
+      low = next;
+    }
+    if (high == null)
+      return low;
+
+    // Bisect from the start of the last doubling that gained to the first
+    // point that did not.  Points that still scale move the lower bound up;
+    // points that miss the latency target or no longer gain against their
+    // neighbour move the upper bound down. 
+    if (previous != null)
+      low = previous;
+    while (high.getThreads() - low.getThreads() > 1)
+    {
+      Point mid = measure(runner, (low.getThreads() + high.getThreads()) / 2);
+      if (isScaling(runner, mid))
+        low = mid;
+      else
+        high = mid;
+    }
+
+    // The upper bound is the first point where throughput stopped growing, 
+    // unless it misses the latency target or the lower bound never scaled. 
+    if (meetsLatency(high) && isScaling(runner, low))
+      return high;
+    else
+      return low;
+  }
+
+  /** Returns all measured points ordered by thread count. */
+  public List<Point> getCurve()
+  {
+    return new ArrayList<Point>(curve.values());
+  }
+
+  // Measures a point unless we already have it. 
+  private Point measure(Runner runner, int threads)
+  {
+    Point point = curve.get(threads);
+    if (point == null)
+    {
+      point = runner.run(threads);
+      curve.put(threads, point);
+    }
+    return point;
+  }
+
+  // Returns true if the point meets the latency target and throughput 
+  // still grows when adding threads beyond it. 
+  private boolean isScaling(Runner runner, Point point)
+  {
+    if (!meetsLatency(point))
+      return false;
+    int neighbour = point.getThreads() + Math.max(1, point.getThreads() / 8);
+    if (neighbour > maxThreads)
+      return false;
+    return gains(point, measure(runner, neighbour));
+  }
+
+  // Returns true if the point meets the latency target. 
+  private boolean meetsLatency(Point point)
+  {
+    return maxP99Millis <= 0 || point.getP99Millis() <= maxP99Millis;
+  }
+
+  // Returns true if moving from the base point to the next point gains 
+  // enough throughput for the added threads. 
+  private boolean gains(Point base, Point next)
+  {
+    double doublings = Math.log((double) next.getThreads() / base.getThreads()) 
+        / Math.log(2);
+    double required = base.getOpsPerSecond() * Math.pow(1 + minGain, doublings);
+    return next.getOpsPerSecond() >= required;
+  }
+}
@@ -0,0 +1,247 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.impl;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Implements a log-bucketed latency histogram in the style of HdrHistogram.
+ * Values are recorded in nanoseconds.  Values below 128 are counted exactly;
+ * larger values fall into buckets that each cover a power-of-two range split
+ * into 64 linear sub-buckets, which bounds the relative error of any
+ * reported value to about 1.6%.<p>
+ *
+ * The counts array is allocated once when the histogram is created, so
+ * recording a value never allocates.  Instances are not thread-safe.  Each
+ * benchmark thread records into its own histogram and the histograms are
+ * merged using add() after the threads finish.  Interval samplers take
+ * histograms from a LatencyRecorder so that they never read counts that
+ * are being updated.
+ *
+ * @author rhodges
+ */
+public class LatencyHistogram
+{
+  // Number of sub-buckets in each power-of-two range above the linear range.
+  private static final int SUB_BUCKET_BITS = 6;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+  // Values below this limit are counted exactly.
+  private static final int LINEAR_LIMIT = SUB_BUCKET_COUNT * 2;
+
+  // Enough buckets to cover every non-negative long value.
+  private static final int BUCKET_COUNT = LINEAR_LIMIT
+      + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKET_COUNT;
+
+  private final long[] counts = new long[BUCKET_COUNT];
+  private long totalCount;
+  private long minValue = Long.MAX_VALUE;
+  private long maxValue;
+
+  /** Creates a new, empty histogram. */
+  public LatencyHistogram()
+  {
+  }
+
+  /**
+   * Records a single value.  Negative values, which can only arise from
+   * clock anomalies, are recorded as 0.
+   *
+   * @param value Value in nanoseconds
+   */
+  public void recordValue(long value)
+  {
+    if (value < 0)
+      value = 0;
+    counts[indexFor(value)]++;
+    totalCount++;
+    if (value < minValue)
+      minValue = value;
+    if (value > maxValue)
+      maxValue = value;
+  }
+
+  /** Adds all counts from another histogram to this one. */
+  public void add(LatencyHistogram other)
+  {
+    if (other.totalCount == 0)
+      return;
+    for (int i = 0; i < BUCKET_COUNT; i++)
+      counts[i] += other.counts[i];
+    totalCount += other.totalCount;
+    if (other.minValue < minValue)
+      minValue = other.minValue;
+    if (other.maxValue > maxValue)
+      maxValue = other.maxValue;
+  }
+
+  /**
+   * Writes the histogram in a compact form that lists only non-empty 
+   * buckets, for transfer to another process. 
+   */
+  public void writeTo(DataOutput out) throws IOException
+  {
+    int buckets = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++)
+    {
+      if (counts[i] > 0)
+        buckets++;
+    }
+    out.writeLong(minValue);
+    out.writeLong(maxValue);
+    out.writeInt(buckets);
+    for (int i = 0; i < BUCKET_COUNT; i++)
+    {
+      if (counts[i] > 0)
+      {
+        out.writeShort(i);
+        out.writeLong(counts[i]);
+      }
+    }
+  }
+
+  /** Reads a histogram written by writeTo(). */
+  public static LatencyHistogram readFrom(DataInput in) throws IOException
+  {
+    LatencyHistogram h = new LatencyHistogram();
+    h.minValue = in.readLong();
+    h.maxValue = in.readLong();
+    int buckets = in.readInt();
+    for (int i = 0; i < buckets; i++)
+    {
+      int index = in.readShort();
+      long count = in.readLong();
+      h.counts[index] = count;
+      h.totalCount += count;
+    }
+    return h;
+  }
+
+  /** Clears all recorded values. */
+  public void reset()
+  {
+    for (int i = 0; i < BUCKET_COUNT; i++)
+      counts[i] = 0;
+    totalCount = 0;
+    minValue = Long.MAX_VALUE;
+    maxValue = 0;
+  }
+
+  /** Returns the number of recorded values. */
+  public long getTotalCount()
+  {
+    return totalCount;
+  }
+
+  /** Returns the smallest recorded value or 0 if the histogram is empty. */
+  public long getMinValue()
+  {
+    return (totalCount == 0) ? 0 : minValue;
+  }
+
+  /** Returns the largest recorded value or 0 if the histogram is empty. */
+  public long getMaxValue()
+  {
+    return maxValue;
+  }
+
+  /**
+   * Returns the value at or below which the given percentage of recorded
+   * values fall.  The result is the highest value equivalent to the bucket
+   * that contains the percentile, capped at the largest recorded value.
+   *
+   * @param percentile Percentile from 0.0 to 100.0
+   * @return Value in nanoseconds or 0 if the histogram is empty
+   */
+  public long getValueAtPercentile(double percentile)
+  {
+    if (totalCount == 0)
+      return 0;
+    double fraction = Math.min(Math.max(percentile, 0.0), 100.0) / 100.0;
+    long countAtPercentile = (long) Math.ceil(fraction * totalCount);
+    if (countAtPercentile < 1)
+      countAtPercentile = 1;
+
+    long runningCount = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++)
+    {
+      runningCount += counts[i];
+      if (runningCount >= countAtPercentile)
+        return Math.min(highestEquivalentValue(i), maxValue);
+    }
+    return maxValue;
+  }
+
+  /**
+   * Returns the mean of recorded values computed from bucket midpoints.
+   */
+  public double getMean()
+  {
+    if (totalCount == 0)
+      return 0.0;
+    double total = 0.0;
+    for (int i = 0; i < BUCKET_COUNT; i++)
+    {
+      if (counts[i] > 0)
+      {
+        long low = lowestEquivalentValue(i);
+        long high = highestEquivalentValue(i);
+        total += counts[i] * (low + (high - low) / 2.0);
+      }
+    }
+    return total / totalCount;
+  }
+
+  // Maps a non-negative value to its bucket index.
+  static int indexFor(long value)
+  {
+    if (value < LINEAR_LIMIT)
+      return (int) value;
+    int magnitude = 63 - Long.numberOfLeadingZeros(value);
+    int shift = magnitude - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+    return LINEAR_LIMIT + (shift - 1) * SUB_BUCKET_COUNT + subBucket;
+  }
+
+  // Returns the smallest value that maps to a bucket index.
+  static long lowestEquivalentValue(int index)
+  {
+    if (index < LINEAR_LIMIT)
+      return index;
+    int offset = index - LINEAR_LIMIT;
+    int shift = offset / SUB_BUCKET_COUNT + 1;
+    long top = (offset % SUB_BUCKET_COUNT) + SUB_BUCKET_COUNT;
+    return top << shift;
+  }
+
+  // Returns the largest value that maps to a bucket index.
+  static long highestEquivalentValue(int index)
+  {
+    if (index < LINEAR_LIMIT)
+      return index;
+    int shift = (index - LINEAR_LIMIT) / SUB_BUCKET_COUNT + 1;
+    return lowestEquivalentValue(index) + (1L << shift) - 1;
+  }
+}
@@ -0,0 +1,106 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records latencies on one thread while another thread takes interval 
+ * histograms, in the manner of the HdrHistogram Recorder.  The recording 
+ * thread writes into an active histogram.  To take an interval the reader 
+ * swaps in an empty histogram and waits until any value being recorded 
+ * into the old one is complete, so it never reads counts that are being 
+ * changed.  Recording takes two uncontended atomic increments and never 
+ * blocks or allocates.<p>
+ * 
+ * The wait uses start and end epoch counters.  Writers increment the start
+ * epoch on entry and the end epoch of their phase, even or odd, on exit.  
+ * The reader flips the phase by resetting the start epoch and then waits 
+ * until the end epoch of the old phase reaches the start epoch it 
+ * replaced. 
+ * 
+ * @author rhodges
+ */
+public class LatencyRecorder
+{
+  // Writers in the odd phase see a negative start epoch. 
+  private final AtomicLong startEpoch   = new AtomicLong(0);
+  private final AtomicLong evenEndEpoch = new AtomicLong(0);
+  private final AtomicLong oddEndEpoch  = new AtomicLong(Long.MIN_VALUE);
+
+  private volatile LatencyHistogram active = new LatencyHistogram();
+  private LatencyHistogram inactive = new LatencyHistogram();
+
+  /** 
+   * Records a value.  This may only be called by one thread at a time. 
+   * 
+   * @param value Value in nanoseconds
+   */
+  public void recordValue(long value)
+  {
+    long epoch = startEpoch.getAndIncrement();
+    try
+    {
+      active.recordValue(value);
+    }
+    finally
+    {
+      if (epoch < 0)
+        oddEndEpoch.getAndIncrement();
+      else
+        evenEndEpoch.getAndIncrement();
+    }
+  }
+
+  /**
+   * Returns a histogram of the values recorded since the previous call and
+   * starts a new interval.  The returned histogram is reused by the next 
+   * call, so callers must finish with it before calling again. 
+   */
+  public synchronized LatencyHistogram getIntervalHistogram()
+  {
+    inactive.reset();
+    LatencyHistogram interval = active;
+    active = inactive;
+    inactive = interval;
+    flipPhase();
+    return interval;
+  }
+
+  // Starts a new phase and waits for writers in the old phase to finish.  
+  // Writers only stay in a phase while recording one value, so the wait 
+  // is short. 
+  private void flipPhase()
+  {
+    boolean nextPhaseIsEven = (startEpoch.get() < 0);
+    long initialStartValue = nextPhaseIsEven ? 0 : Long.MIN_VALUE;
+    if (nextPhaseIsEven)
+      evenEndEpoch.lazySet(initialStartValue);
+    else
+      oddEndEpoch.lazySet(initialStartValue);
+    long startValueAtFlip = startEpoch.getAndSet(initialStartValue);
+    AtomicLong previousEndEpoch = nextPhaseIsEven ? oddEndEpoch : evenEndEpoch;
+    while (previousEndEpoch.get() != startValueAtFlip)
+      Thread.yield();
+  }
+}
@@ -0,0 +1,351 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Iterator;
+
+import org.apache.log4j.Logger;
+
+import com.continuent.bristlecone.benchmark.BenchmarkException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves live metrics of the current benchmark run in Prometheus text
+ * format at /metrics, using the HTTP server built into the JDK.  Each 
+ * scrape reads thread counters without locking, so scrapes never delay 
+ * benchmark threads.  Latencies come from a LatencyRecorder on each 
+ * thread, as for IntervalSampler; each scrape takes the values recorded 
+ * since the previous one and adds them to a histogram kept for the run, 
+ * so quantiles never reflect a histogram that is being written.  The 
+ * current run and its position in the cross product are published as one
+ * snapshot through a volatile reference, so a scrape never mixes two 
+ * runs.  
+ * Counters include warmup so that they only grow during a run; they 
+ * restart at 0 with each run of the cross product, which Prometheus 
+ * treats as a counter reset.  The server listens on the loopback address
+ * unless another bind address is given. 
+ * 
+ * @author rhodges
+ */
+public class MetricsServer
+{
+  private static Logger logger = Logger.getLogger(MetricsServer.class);
+
+  private static final double[] QUANTILES = {0.5, 0.95, 0.99, 0.999};
+
+  private final HttpServer server;
+
+  // Position of the next run within the cross product. 
+  private volatile int runIndex;
+  private volatile int runCount;
+
+  // Current run or null between runs.  Replaced as a whole so that 
+  // scrapes see a consistent set of threads and run position. 
+  private volatile Run run;
+
+  // Holds the threads, configuration, and position of a run, together 
+  // with latencies taken from thread recorders by earlier scrapes. 
+  private static class Run
+  {
+    final Config            config;
+    final BenchmarkThread[] threads;
+    final Thread[]          runners;
+    final int               index;
+    final int               count;
+    final LatencyHistogram  latency = new LatencyHistogram();
+
+    Run(Config config, BenchmarkThread[] threads, Thread[] runners, 
+        int index, int count)
+    {
+      this.config = config;
+      this.threads = threads;
+      this.runners = runners;
+      this.index = index;
+      this.count = count;
+    }
+  }
+
+  /**
+   * Creates a server listening on the loopback address and given port. 
+   * 
+   * @param port Port number or 0 to use any free port
+   */
+  public MetricsServer(int port)
+  {
+    this(null, port);
+  }
+
+  /**
+   * Creates a server listening on the given address and port. 
+   * 
+   * @param bindAddress Host name or address to listen on, or null for the
+   *        loopback address
+   * @param port Port number or 0 to use any free port
+   */
+  public MetricsServer(String bindAddress, int port)
+  {
+    try
+    {
+      InetAddress address = (bindAddress == null) 
+          ? InetAddress.getLoopbackAddress() 
+          : InetAddress.getByName(bindAddress);
+      server = HttpServer.create(new InetSocketAddress(address, port), 0);
+    }
+    catch (IOException e)
+    {
+      throw new BenchmarkException("Unable to open metrics port: address=" 
+          + bindAddress + " port=" + port, e);
+    }
+    server.createContext("/metrics", new HttpHandler()
+    {
+      public void handle(HttpExchange exchange) throws IOException
+      {
+        byte[] body = format().getBytes("UTF-8");
+        exchange.getResponseHeaders().set("Content-Type", 
+            "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        out.close();
+      }
+    });
+  }
+
+  /** Starts serving requests. */
+  public void start()
+  {
+    server.start();
+    logger.info("Serving live metrics: url=http://" 
+        + getBindAddress().getHostAddress() + ":" + getPort() + "/metrics");
+  }
+
+  /** Stops serving requests. */
+  public void stop()
+  {
+    server.stop(0);
+  }
+
+  /** Returns the address on which the server listens. */
+  public InetAddress getBindAddress()
+  {
+    return server.getAddress().getAddress();
+  }
+
+  /** Returns the port on which the server listens. */
+  public int getPort()
+  {
+    return server.getAddress().getPort();
+  }
+
+  /** 
+   * Sets the position of the next run within the cross product.
+   * 
+   * @param index Run number starting with 1
+   * @param count Total number of runs
+   */
+  public void setRunPosition(int index, int count)
+  {
+    this.runIndex = index;
+    this.runCount = count;
+  }
+
+  /** 
+   * Publishes the threads of a run once they have started.  Threads must 
+   * have a metrics recorder for latencies to be reported. 
+   */
+  public void runStarted(Config config, BenchmarkThread[] threads, 
+      Thread[] runners)
+  {
+    run = new Run(config, threads, runners, runIndex, runCount);
+  }
+
+  /** Withdraws the threads of a run once they have finished. */
+  public void runFinished()
+  {
+    run = null;
+  }
+
+  /** Formats the current metrics in Prometheus text format. */
+  String format()
+  {
+    StringBuffer sb = new StringBuffer();
+    Run current = run;
+    gauge(sb, "bristlecone_run_index", 
+        "Number of the current run in the cross product", 
+        (current == null) ? runIndex : current.index);
+    gauge(sb, "bristlecone_runs", 
+        "Total number of runs in the cross product", 
+        (current == null) ? runCount : current.count);
+
+    gauge(sb, "bristlecone_run_active", 
+        "1 while scenario threads are running, otherwise 0", 
+        (current == null) ? 0 : 1);
+    if (current == null)
+      return sb.toString();
+
+    // Identify the run by its variable properties. 
+    sb.append("# HELP bristlecone_run_info Variable properties of the current run\n");
+    sb.append("# TYPE bristlecone_run_info gauge\n");
+    sb.append("bristlecone_run_info{");
+    ConfigMetadata metadata = current.config.getMetadata();
+    Iterator<String> names = metadata.propertyNames();
+    boolean first = true;
+    while (names.hasNext())
+    {
+      String name = names.next();
+      if (! metadata.getPropertyMetadataAsserted(name).isVariable())
+        continue;
+      if (! first)
+        sb.append(',');
+      first = false;
+      sb.append(labelName(name)).append("=\"")
+          .append(labelValue(current.config.getProperty(name))).append('"');
+    }
+    sb.append("} 1\n");
+
+    // Read completed iterations before other counters; each read makes 
+    // values recorded before that iteration visible.  The throughput of 
+    // each thread counts once its warmup is over and ends with the thread,
+    // whose final values are visible once it has died.  Concurrent scrapes
+    // take latencies from the recorders one at a time. 
+    long iterations = 0;
+    long sqlExceptions = 0;
+    double opsPerSecond = 0;
+    int active = 0;
+    long now = System.currentTimeMillis();
+    LatencyHistogram latency = current.latency;
+    synchronized (latency)
+    {
+      for (int i = 0; i < current.threads.length; i++)
+      {
+        BenchmarkThread thread = current.threads[i];
+        boolean alive = current.runners[i].isAlive();
+        iterations += thread.getCompletedIterations();
+        sqlExceptions += thread.getTotalSqlExceptionCount();
+        if (thread.getMetricsRecorder() != null)
+          latency.add(thread.getMetricsRecorder().getIntervalHistogram());
+        if (thread.isMeasuring())
+        {
+          long millis = alive ? now - thread.getMeasureStart() 
+              : thread.getElapsed();
+          if (millis > 0)
+            opsPerSecond += thread.getIterationCount() * 1000.0 / millis;
+        }
+        if (alive)
+          active++;
+      }
+      formatRun(sb, iterations, sqlExceptions, opsPerSecond, active, latency);
+    }
+    return sb.toString();
+  }
+
+  // Formats counters and latency quantiles of the current run. 
+  private static void formatRun(StringBuffer sb, long iterations, 
+      long sqlExceptions, double opsPerSecond, int active, 
+      LatencyHistogram latency)
+  {
+    counter(sb, "bristlecone_iterations_total", 
+        "Iterations completed in the current run including warmup", 
+        iterations);
+    counter(sb, "bristlecone_sql_exceptions_total", 
+        "SQL exceptions in the current run including warmup", sqlExceptions);
+    gauge(sb, "bristlecone_ops_per_second", 
+        "Average iterations per second since warmup ended", opsPerSecond);
+    gauge(sb, "bristlecone_active_threads", 
+        "Scenario threads that are still running", active);
+
+    sb.append("# HELP bristlecone_latency_seconds Iteration latency since warmup\n");
+    sb.append("# TYPE bristlecone_latency_seconds summary\n");
+    for (double q : QUANTILES)
+    {
+      sb.append("bristlecone_latency_seconds{quantile=\"").append(q)
+          .append("\"} ")
+          .append(latency.getValueAtPercentile(q * 100) / 1000000000.0)
+          .append('\n');
+    }
+    sb.append("bristlecone_latency_seconds_sum ")
+        .append(latency.getMean() * latency.getTotalCount() / 1000000000.0)
+        .append('\n');
+    sb.append("bristlecone_latency_seconds_count ")
+        .append(latency.getTotalCount()).append('\n');
+  }
+
+  private static void gauge(StringBuffer sb, String name, String help, 
+      double value)
+  {
+    sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    sb.append("# TYPE ").append(name).append(" gauge\n");
+    sb.append(name).append(' ').append(value).append('\n');
+  }
+
+  private static void counter(StringBuffer sb, String name, String help, 
+      long value)
+  {
+    sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    sb.append("# TYPE ").append(name).append(" counter\n");
+    sb.append(name).append(' ').append(value).append('\n');
+  }
+
+  // Replaces characters that are not allowed in label names. 
+  private static String labelName(String name)
+  {
+    StringBuffer sb = new StringBuffer();
+    for (int i = 0; i < name.length(); i++)
+    {
+      char c = name.charAt(i);
+      if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' 
+          || (i > 0 && c >= '0' && c <= '9'))
+        sb.append(c);
+      else
+        sb.append('_');
+    }
+    return sb.toString();
+  }
+
+  // Escapes backslash, double quote, and newline in label values. 
+  private static String labelValue(String value)
+  {
+    if (value == null)
+      return "";
+    StringBuffer sb = new StringBuffer();
+    for (int i = 0; i < value.length(); i++)
+    {
+      char c = value.charAt(i);
+      if (c == '\\')
+        sb.append("\\\\");
+      else if (c == '"')
+        sb.append("\\\"");
+      else if (c == '\n')
+        sb.append("\\n");
+      else
+        sb.append(c);
+    }
+    return sb.toString();
+  }
+}
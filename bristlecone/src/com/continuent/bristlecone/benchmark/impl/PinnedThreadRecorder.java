@@ -0,0 +1,175 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.impl;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Records virtual thread pinning during a benchmark run using the
+ * jdk.VirtualThreadPinned flight recorder event.  A virtual thread pins its
+ * carrier thread when it blocks inside a synchronized block or a native 
+ * frame, which is common in older JDBC drivers and limits how many 
+ * sessions can be simulated.  After the run we count pinning events and
+ * log the code locations responsible for them. 
+ * 
+ * @author rhodges
+ */
+public class PinnedThreadRecorder
+{
+  private static Logger logger = Logger.getLogger(PinnedThreadRecorder.class);
+
+  private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+  
+  // Number of code locations to log. 
+  private static final int TOP_LOCATIONS = 5;
+
+  private Recording recording;
+  private long pinnedCount;
+  private long pinnedNanos;
+
+  /** Creates a new recorder. */
+  public PinnedThreadRecorder()
+  {
+  }
+
+  /** Starts recording pinning events. */
+  public void start()
+  {
+    try
+    {
+      recording = new Recording();
+      recording.setName("bristlecone-pinning");
+      recording.enable(PINNED_EVENT).withThreshold(Duration.ZERO).withStackTrace();
+      recording.start();
+    }
+    catch (Exception e)
+    {
+      logger.warn("Unable to start recording of virtual thread pinning", e);
+      recording = null;
+    }
+  }
+
+  /** 
+   * Stops recording and tallies events.  Locations that caused pinning are
+   * logged at warning level. 
+   */
+  public void stop()
+  {
+    if (recording == null)
+      return;
+
+    File dumpFile = null;
+    try
+    {
+      recording.stop();
+      dumpFile = File.createTempFile("bristlecone-pinning", ".jfr");
+      recording.dump(dumpFile.toPath());
+
+      Map<String, Long> locations = new HashMap<String, Long>();
+      List<RecordedEvent> events = RecordingFile.readAllEvents(dumpFile.toPath());
+      for (RecordedEvent event : events)
+      {
+        if (! PINNED_EVENT.equals(event.getEventType().getName()))
+          continue;
+        pinnedCount++;
+        pinnedNanos += event.getDuration().toNanos();
+        String location = getLocation(event.getStackTrace());
+        Long count = locations.get(location);
+        locations.put(location, (count == null) ? 1L : count + 1);
+      }
+
+      if (pinnedCount > 0)
+      {
+        logger.warn("Virtual threads pinned their carrier threads: events=" 
+            + pinnedCount + " totalMillis=" + (pinnedNanos / 1000000));
+        for (int i = 0; i < TOP_LOCATIONS && ! locations.isEmpty(); i++)
+        {
+          String top = null;
+          for (String location : locations.keySet())
+          {
+            if (top == null || locations.get(location) > locations.get(top))
+              top = location;
+          }
+          logger.warn("  pinned at " + top + ": events=" + locations.remove(top));
+        }
+      }
+    }
+    catch (Exception e)
+    {
+      logger.warn("Unable to read recording of virtual thread pinning", e);
+    }
+    finally
+    {
+      recording.close();
+      recording = null;
+      if (dumpFile != null)
+        dumpFile.delete();
+    }
+  }
+
+  /** Returns the number of pinning events recorded. */
+  public long getPinnedCount()
+  {
+    return pinnedCount;
+  }
+
+  /** Returns the total time in nanoseconds that carrier threads were pinned. */
+  public long getPinnedNanos()
+  {
+    return pinnedNanos;
+  }
+
+  // Returns the first frame outside the JDK, which is usually the driver
+  // or scenario code holding the monitor. 
+  private String getLocation(RecordedStackTrace stackTrace)
+  {
+    if (stackTrace == null)
+      return "unknown";
+    String first = null;
+    for (RecordedFrame frame : stackTrace.getFrames())
+    {
+      if (! frame.isJavaFrame())
+        continue;
+      String location = frame.getMethod().getType().getName() + "." 
+          + frame.getMethod().getName();
+      if (first == null)
+        first = location;
+      if (! location.startsWith("java.") && ! location.startsWith("jdk.")
+          && ! location.startsWith("sun."))
+        return location;
+    }
+    return (first == null) ? "unknown" : first;
+  }
+}
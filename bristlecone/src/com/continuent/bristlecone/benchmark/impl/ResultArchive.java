@@ -0,0 +1,278 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.impl;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.continuent.bristlecone.benchmark.BenchmarkException;
+
+/**
+ * Implements an append-only archive of benchmark results.  Each result is
+ * stored on a single line holding the archive label, a timestamp, a key 
+ * formed from the variable properties of the run, and all property values
+ * of the run separated by tabs.  Labels group results so that a later set
+ * of runs can be compared against a named baseline. 
+ * 
+ * @author rhodges
+ */
+public class ResultArchive
+{
+  private final File archiveFile;
+
+  /** Holds a single archived result. */
+  public static class Entry
+  {
+    private final String              label;
+    private final long                timestamp;
+    private final String              key;
+    private final Map<String, String> values;
+
+    Entry(String label, long timestamp, String key, Map<String, String> values)
+    {
+      this.label = label;
+      this.timestamp = timestamp;
+      this.key = key;
+      this.values = values;
+    }
+
+    /** Returns the label under which the result was archived. */
+    public String getLabel()
+    {
+      return label;
+    }
+
+    /** Returns the time in milliseconds at which the result was archived. */
+    public long getTimestamp()
+    {
+      return timestamp;
+    }
+
+    /** Returns the key formed from the variable properties of the run. */
+    public String getKey()
+    {
+      return key;
+    }
+
+    /** Returns a property value or null if the property was not stored. */
+    public String getValue(String name)
+    {
+      return values.get(name);
+    }
+  }
+
+  /** Creates a new archive backed by the given file. */
+  public ResultArchive(File archiveFile)
+  {
+    this.archiveFile = archiveFile;
+  }
+
+  /** Returns the archive file. */
+  public File getFile()
+  {
+    return archiveFile;
+  }
+
+  /**
+   * Appends a result to the archive.  The file is opened in append mode 
+   * for each result so that earlier results are never rewritten. 
+   * 
+   * @param label Label that groups results of the same benchmark session
+   * @param tuple Config instance containing properties and results
+   */
+  public synchronized void append(String label, Config tuple)
+  {
+    StringBuffer sb = new StringBuffer();
+    sb.append(escape(label));
+    sb.append('\t').append(System.currentTimeMillis());
+    sb.append('\t').append(escape(keyFor(tuple)));
+    Iterator<String> names = tuple.propertyNames();
+    while (names.hasNext())
+    {
+      String name = names.next();
+      String value = tuple.getProperty(name);
+      if (value != null)
+        sb.append('\t').append(escape(name)).append('=').append(escape(value));
+    }
+
+    PrintWriter out = null;
+    try
+    {
+      out = new PrintWriter(new FileWriter(archiveFile, true));
+      out.println(sb.toString());
+    }
+    catch (IOException e)
+    {
+      throw new BenchmarkException("Unable to append to result archive: " 
+          + archiveFile.getAbsolutePath(), e);
+    }
+    finally
+    {
+      if (out != null)
+        out.close();
+    }
+  }
+
+  /**
+   * Reads all results from the archive in the order they were appended. 
+   * Malformed lines are skipped. 
+   */
+  public List<Entry> read() throws IOException
+  {
+    List<Entry> entries = new ArrayList<Entry>();
+    BufferedReader in = new BufferedReader(new FileReader(archiveFile));
+    try
+    {
+      String line;
+      while ((line = in.readLine()) != null)
+      {
+        String[] fields = line.split("\t");
+        if (fields.length < 3)
+          continue;
+        long timestamp;
+        try
+        {
+          timestamp = Long.parseLong(fields[1]);
+        }
+        catch (NumberFormatException e)
+        {
+          continue;
+        }
+        Map<String, String> values = new TreeMap<String, String>();
+        for (int i = 3; i < fields.length; i++)
+        {
+          int eq = fields[i].indexOf('=');
+          if (eq > 0)
+            values.put(unescape(fields[i].substring(0, eq)), 
+                unescape(fields[i].substring(eq + 1)));
+        }
+        entries.add(new Entry(unescape(fields[0]), timestamp, 
+            unescape(fields[2]), values));
+      }
+    }
+    finally
+    {
+      in.close();
+    }
+    return entries;
+  }
+
+  /** 
+   * Returns a key that identifies a run within a cross product, which 
+   * consists of the variable property names and values.  Pairs are 
+   * separated by spaces, and spaces, equals signs, and backslashes within
+   * names and values are escaped with a backslash, so that different runs
+   * never share a key.  A property without a value appears as its name 
+   * alone. 
+   */
+  public static String keyFor(Config tuple)
+  {
+    ConfigMetadata metadata = tuple.getMetadata();
+    StringBuffer sb = new StringBuffer();
+    Iterator<String> names = metadata.propertyNames();
+    while (names.hasNext())
+    {
+      String name = names.next();
+      if (metadata.getPropertyMetadataAsserted(name).isVariable())
+      {
+        if (sb.length() > 0)
+          sb.append(' ');
+        appendKeyPart(sb, name);
+        String value = tuple.getProperty(name);
+        if (value != null)
+        {
+          sb.append('=');
+          appendKeyPart(sb, value);
+        }
+      }
+    }
+    return sb.toString();
+  }
+
+  // Appends a property name or value to a key, escaping key separators. 
+  private static void appendKeyPart(StringBuffer sb, String s)
+  {
+    for (int i = 0; i < s.length(); i++)
+    {
+      char c = s.charAt(i);
+      if (c == '\\' || c == ' ' || c == '=')
+        sb.append('\\');
+      sb.append(c);
+    }
+  }
+
+  // Escapes characters that would break the line format. 
+  static String escape(String s)
+  {
+    StringBuffer sb = new StringBuffer();
+    for (int i = 0; i < s.length(); i++)
+    {
+      char c = s.charAt(i);
+      if (c == '\\')
+        sb.append("\\\\");
+      else if (c == '\t')
+        sb.append("\\t");
+      else if (c == '\n')
+        sb.append("\\n");
+      else if (c == '\r')
+        sb.append("\\r");
+      else
+        sb.append(c);
+    }
+    return sb.toString();
+  }
+
+  // Reverses escape(). 
+  static String unescape(String s)
+  {
+    StringBuffer sb = new StringBuffer();
+    for (int i = 0; i < s.length(); i++)
+    {
+      char c = s.charAt(i);
+      if (c == '\\' && i + 1 < s.length())
+      {
+        char next = s.charAt(++i);
+        if (next == 't')
+          sb.append('\t');
+        else if (next == 'n')
+          sb.append('\n');
+        else if (next == 'r')
+          sb.append('\r');
+        else
+          sb.append(next);
+      }
+      else
+        sb.append(c);
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,222 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.impl;
+
+import java.util.List;
+
+/**
+ * Compares samples of one output metric between a baseline and a current 
+ * set of runs.  When both sides have at least two samples, the difference
+ * in means is tested with Welch's t-test at the 5% level.  With fewer 
+ * samples there is no estimate of run-to-run noise, so any change that
+ * exceeds the threshold is reported.  In both cases a change is only
+ * reported if it is at least as large as the relative threshold. 
+ * 
+ * @author rhodges
+ */
+public class ResultComparison
+{
+  // Two-sided 5% critical values of Student's t for 1 to 30 degrees of 
+  // freedom. 
+  private static final double[] T_CRITICAL = {12.706, 4.303, 3.182, 2.776,
+      2.571, 2.447, 2.365, 2.306, 2.262, 2.228, 2.201, 2.179, 2.160, 2.145,
+      2.131, 2.120, 2.110, 2.101, 2.093, 2.086, 2.080, 2.074, 2.069, 2.064,
+      2.060, 2.056, 2.052, 2.048, 2.045, 2.042};
+
+  private final String  key;
+  private final String  metric;
+  private final boolean higherIsBetter;
+  private final int     baselineCount;
+  private final double  baselineMean;
+  private final int     currentCount;
+  private final double  currentMean;
+  private final double  change;
+  private final double  tValue;
+  private final boolean tested;
+  private final boolean significant;
+
+  /**
+   * Compares baseline and current samples. 
+   * 
+   * @param key Key of the runs within the cross product
+   * @param metric Name of the output property being compared
+   * @param higherIsBetter True if larger values are an improvement
+   * @param baseline Baseline samples
+   * @param current Current samples
+   * @param threshold Minimum relative change to report, e.g., 0.05 for 5%
+   */
+  public ResultComparison(String key, String metric, boolean higherIsBetter,
+      List<Double> baseline, List<Double> current, double threshold)
+  {
+    this.key = key;
+    this.metric = metric;
+    this.higherIsBetter = higherIsBetter;
+    this.baselineCount = baseline.size();
+    this.baselineMean = mean(baseline);
+    this.currentCount = current.size();
+    this.currentMean = mean(current);
+
+    if (baselineMean == 0)
+      change = (currentMean == 0) ? 0.0 : Double.POSITIVE_INFINITY;
+    else
+      change = (currentMean - baselineMean) / Math.abs(baselineMean);
+    boolean large = Math.abs(change) >= threshold;
+
+    tested = baselineCount >= 2 && currentCount >= 2;
+    if (tested)
+    {
+      double v1 = variance(baseline, baselineMean) / baselineCount;
+      double v2 = variance(current, currentMean) / currentCount;
+      double stdErr = Math.sqrt(v1 + v2);
+      if (stdErr == 0)
+        tValue = (currentMean == baselineMean) ? 0.0 : Double.POSITIVE_INFINITY;
+      else
+        tValue = (currentMean - baselineMean) / stdErr;
+
+      // Welch-Satterthwaite degrees of freedom, rounded down. 
+      double df;
+      if (v1 + v2 == 0)
+        df = baselineCount + currentCount - 2;
+      else
+        df = (v1 + v2) * (v1 + v2) / (v1 * v1 / (baselineCount - 1) 
+            + v2 * v2 / (currentCount - 1));
+      significant = large && Math.abs(tValue) > criticalValue(df);
+    }
+    else
+    {
+      tValue = 0.0;
+      significant = large;
+    }
+  }
+
+  public String getKey()
+  {
+    return key;
+  }
+
+  public String getMetric()
+  {
+    return metric;
+  }
+
+  public double getBaselineMean()
+  {
+    return baselineMean;
+  }
+
+  public double getCurrentMean()
+  {
+    return currentMean;
+  }
+
+  /** Returns the relative change of the current mean from the baseline. */
+  public double getChange()
+  {
+    return change;
+  }
+
+  /** 
+   * Returns true if the change exceeds the threshold and, when a t-test
+   * is possible, is statistically significant. 
+   */
+  public boolean isSignificant()
+  {
+    return significant;
+  }
+
+  /** Returns true if the change is significant and for the worse. */
+  public boolean isRegression()
+  {
+    return significant && (change > 0) != higherIsBetter;
+  }
+
+  /** Returns true if the change is significant and for the better. */
+  public boolean isImprovement()
+  {
+    return significant && !isRegression();
+  }
+
+  /** Returns a one-line description of the comparison. */
+  public String toString()
+  {
+    String status;
+    if (isRegression())
+      status = "REGRESSION";
+    else if (isImprovement())
+      status = "IMPROVEMENT";
+    else
+      status = "unchanged";
+    StringBuffer sb = new StringBuffer();
+    sb.append(status).append(' ').append(metric);
+    sb.append(" [").append(key).append("]");
+    sb.append(" baseline=").append(format(baselineMean));
+    sb.append(" (n=").append(baselineCount).append(")");
+    sb.append(" current=").append(format(currentMean));
+    sb.append(" (n=").append(currentCount).append(")");
+    sb.append(" change=").append(format(change * 100)).append("%");
+    if (tested)
+      sb.append(" t=").append(format(tValue));
+    else
+      sb.append(" (too few samples for t-test)");
+    return sb.toString();
+  }
+
+  // Returns the two-sided 5% critical value of Student's t.  Beyond the
+  // table a Cornish-Fisher expansion of the normal quantile is accurate to
+  // three decimal places. 
+  static double criticalValue(double df)
+  {
+    int n = (int) Math.floor(df);
+    if (n < 1)
+      n = 1;
+    if (n <= T_CRITICAL.length)
+      return T_CRITICAL[n - 1];
+    double z = 1.959964;
+    double z3 = z * z * z;
+    double z5 = z3 * z * z;
+    return z + (z3 + z) / (4 * n) + (5 * z5 + 16 * z3 + 3 * z) / (96.0 * n * n);
+  }
+
+  private static double mean(List<Double> values)
+  {
+    if (values.isEmpty())
+      return 0.0;
+    double sum = 0.0;
+    for (double v : values)
+      sum += v;
+    return sum / values.size();
+  }
+
+  private static double variance(List<Double> values, double mean)
+  {
+    double sum = 0.0;
+    for (double v : values)
+      sum += (v - mean) * (v - mean);
+    return sum / (values.size() - 1);
+  }
+
+  private static String format(double value)
+  {
+    return String.format("%.3f", value);
+  }
+}
@@ -0,0 +1,105 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.impl;
+
+import java.lang.reflect.Method;
+
+import com.continuent.bristlecone.benchmark.BenchmarkException;
+
+/**
+ * Creates virtual threads on JVMs that support them.  Virtual threads are
+ * looked up by reflection so that Benchmark continues to build and run on 
+ * older JVMs, which simply cannot use the virtual executor mode. 
+ * 
+ * @author rhodges
+ */
+public class VirtualThreads
+{
+  private static Method ofVirtual;
+  private static Method builderName;
+  private static Method builderUnstarted;
+
+  static
+  {
+    try
+    {
+      ofVirtual = Thread.class.getMethod("ofVirtual");
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      builderName = builderClass.getMethod("name", String.class);
+      builderUnstarted = builderClass.getMethod("unstarted", Runnable.class);
+    }
+    catch (Exception e)
+    {
+      ofVirtual = null;
+    }
+  }
+
+  // Not instantiated. 
+  private VirtualThreads()
+  {
+  }
+
+  /** Returns true if the current JVM supports virtual threads. */
+  public static boolean isSupported()
+  {
+    return ofVirtual != null;
+  }
+
+  /**
+   * Ensures the current JVM supports virtual threads. 
+   * 
+   * @throws BenchmarkException If virtual threads are not supported
+   */
+  public static void checkSupported()
+  {
+    if (ofVirtual == null)
+    {
+      throw new BenchmarkException("Virtual threads are not supported by this JVM; " 
+          + "executor=virtual requires Java 21 or later: java.version=" 
+          + System.getProperty("java.version"));
+    }
+  }
+
+  /**
+   * Creates an unstarted virtual thread that runs the indicated task. 
+   * 
+   * @param name Name of the thread
+   * @param task Task to run on the thread
+   * @throws BenchmarkException If virtual threads are not supported or the
+   *         thread cannot be created
+   */
+  public static Thread newThread(String name, Runnable task)
+  {
+    checkSupported();
+    try
+    {
+      Object builder = ofVirtual.invoke(null);
+      builder = builderName.invoke(builder, name);
+      return (Thread) builderUnstarted.invoke(builder, task);
+    }
+    catch (Exception e)
+    {
+      throw new BenchmarkException("Unable to create virtual thread: name=" + name, e);
+    }
+  }
+}
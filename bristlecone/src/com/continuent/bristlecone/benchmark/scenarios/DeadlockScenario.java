@@ -27,6 +27,7 @@ import java.sql.SQLException;
 
 import org.apache.log4j.Logger;
 
+import com.continuent.bristlecone.benchmark.ThreadRandom;
 import com.continuent.bristlecone.benchmark.db.SqlDialect;
 import com.continuent.bristlecone.benchmark.db.Table;
 
@@ -40,6 +41,8 @@ public class DeadlockScenario extends ScenarioBase
 {
   private static Logger logger = Logger.getLogger(DeadlockScenario.class);
   
+  private static final String[] TIMED_OPERATIONS = {"update", "commit"};
+
   private int operations = 1;
   private long delaymillis = 0; 
   private boolean autocommit = false;
@@ -96,6 +99,12 @@ public class DeadlockScenario extends ScenarioBase
     }
   }
 
+  /** Time updates and commits separately. */
+  public String[] getTimedOperations()
+  {
+    return TIMED_OPERATIONS;
+  }
+
   /** Execute an interation. */
   public void iterate(long iterationCount) throws Exception
   {
@@ -110,8 +119,8 @@ public class DeadlockScenario extends ScenarioBase
       for (int i = 0; i < operations; i++)
       {
         // Pick a table and key at random.
-        int index = (int) (Math.random() * pstmtArray.length);
-        int key = (int) (Math.random() * this.datarows);
+        int index = ThreadRandom.nextInt(pstmtArray.length);
+        int key = nextKey();
         PreparedStatement pstmt = pstmtArray[index];
 
         // If we have a delay and this is the second or greater 
@@ -127,7 +136,9 @@ public class DeadlockScenario extends ScenarioBase
         pstmt.setInt(1, execCount++);
         pstmt.setString(2, tag);
         pstmt.setInt(3, key);
+        startTimer("update");
         pstmt.execute();
+        stopTimer();
 
         if (logger.isDebugEnabled())
         {
@@ -139,7 +150,9 @@ public class DeadlockScenario extends ScenarioBase
       // Commit if we are using transactions. 
       if (! autocommit)
       {
+        startTimer("commit");
         conn.commit();
+        stopTimer();
         if (logger.isDebugEnabled())
         {
           logger.debug("Committing transaction");
@@ -158,13 +171,18 @@ public class DeadlockScenario extends ScenarioBase
     }
   }
 
+  /** Updates change data in test tables. */
+  protected boolean changesData()
+  {
+    return true;
+  }
+
   /** Clean up resources used by scenario. */
   public void cleanup() throws Exception
   {
     // Clean up connections. 
     for (int i = 0; i < pstmtArray.length; i++)
       pstmtArray[i].close();
-    if (conn != null)
-      conn.close();
+    closeConnection();
   }
 }
\ No newline at end of file
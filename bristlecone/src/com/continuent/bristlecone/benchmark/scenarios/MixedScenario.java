@@ -0,0 +1,317 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.scenarios;
+
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+import com.continuent.bristlecone.benchmark.BenchmarkException;
+import com.continuent.bristlecone.benchmark.Scenario;
+import com.continuent.bristlecone.benchmark.ThreadRandom;
+import com.continuent.bristlecone.benchmark.impl.ConfigMetadata;
+import com.continuent.bristlecone.benchmark.impl.Utilities;
+
+/**
+ * Runs a weighted mix of other scenarios.  Each iteration picks one 
+ * component scenario at random in proportion to its weight and runs a 
+ * single iteration of it.  This makes it possible to benchmark a mix such
+ * as 80% point reads, 15% inserts, and 5% aggregates without writing a new 
+ * scenario class for each ratio.<p>
+ * 
+ * Components are listed by class name in the components property, with 
+ * their relative weights in the weights property.  Classes in this package
+ * may be given without the package name.  Weights may be varied across
+ * runs but the list of components may not.<p>
+ * 
+ * Components are configured from the same properties as this scenario.  
+ * Those that extend ScenarioBase share this scenario's connection, so 
+ * their prepared statements are all prepared on one connection, and use 
+ * a separate table prefix each so that differing table layouts do not 
+ * collide.  Components may change auto-commit or isolation on the shared
+ * connection, so after each component iteration any open transaction is
+ * rolled back and both settings are restored.  Each component is timed 
+ * as an operation named after its class, for example ReadSimple for 
+ * ReadSimpleScenario. 
+ * 
+ * @author rhodges
+ */
+public class MixedScenario extends ScenarioBase
+{
+  private static final Logger logger = Logger.getLogger(MixedScenario.class);
+
+  private static final String SCENARIO_PACKAGE = 
+    "com.continuent.bristlecone.benchmark.scenarios.";
+
+  // Scenario properties. 
+  /** Comma-separated list of component scenario class names. */
+  protected String components;
+
+  /** Comma-separated list of component weights; default is equal weights. */
+  protected String weights;
+
+  // Component scenarios, their operation names, and cumulative weights. 
+  protected Scenario[] scenarios;
+  protected String[] names;
+  protected int[] cumulativeWeights;
+
+  // Settings of the shared connection that components must leave as they
+  // found them, and the component that ran last. 
+  protected boolean autoCommit;
+  protected int isolation;
+  protected int lastIndex = -1;
+
+  public void setComponents(String components)
+  {
+    this.components = components;
+  }
+
+  public void setWeights(String weights)
+  {
+    this.weights = weights;
+  }
+
+  /** Returns an operation name for each component. */
+  public String[] getTimedOperations()
+  {
+    String[] classNames = getComponentClassNames();
+    String[] operations = new String[classNames.length];
+    Set<String> unique = new HashSet<String>();
+    for (int i = 0; i < classNames.length; i++)
+    {
+      String name = classNames[i].substring(classNames[i].lastIndexOf('.') + 1);
+      if (name.endsWith("Scenario") && name.length() > "Scenario".length())
+        name = name.substring(0, name.length() - "Scenario".length());
+      if (! unique.add(name))
+        throw new BenchmarkException("Component scenario listed twice: " + name);
+      operations[i] = name;
+    }
+    return operations;
+  }
+
+  /** Instantiates, configures, and initializes component scenarios. */
+  public void initialize(Properties properties) throws Exception
+  {
+    // Open a connection for components to share if there is a database. 
+    if (url != null)
+    {
+      helper = createTableSetHelper();
+      conn = openConnection();
+    }
+
+    String[] classNames = getComponentClassNames();
+    names = getTimedOperations();
+    cumulativeWeights = getCumulativeWeights(classNames.length);
+    scenarios = new Scenario[classNames.length];
+    for (int i = 0; i < classNames.length; i++)
+    {
+      Class<?> scenarioClass = Utilities.loadClass(classNames[i]);
+      if (MixedScenario.class.isAssignableFrom(scenarioClass))
+        throw new BenchmarkException("Mixed scenarios cannot be nested: " 
+            + classNames[i]);
+      Scenario scenario = (Scenario) Utilities.instantiateClass(scenarioClass);
+
+      ConfigMetadata metadata = new ConfigMetadata();
+      metadata.initialize(properties, scenarioClass);
+      metadata.setProperties(properties, scenario);
+      if (pool != null)
+        scenario.setConnectionPool(pool);
+      if (scenario instanceof ScenarioBase)
+      {
+        ScenarioBase base = (ScenarioBase) scenario;
+        base.setTableprefix(tableprefix + i + "_");
+        base.setSharedConnection(conn);
+      }
+      scenario.initialize(properties);
+      scenarios[i] = scenario;
+    }
+  }
+
+  /** Runs global preparation for each component. */
+  public void globalPrepare() throws Exception
+  {
+    for (int i = 0; i < scenarios.length; i++)
+    {
+      logger.info("Preparing component scenario: " + names[i]);
+      scenarios[i].globalPrepare();
+    }
+  }
+
+  /** Returns the data seed of the first component that reports one. */
+  public long getDataSeed()
+  {
+    for (int i = 0; i < scenarios.length; i++)
+    {
+      long dataSeed = scenarios[i].getDataSeed();
+      if (dataSeed != 0)
+        return dataSeed;
+    }
+    return 0;
+  }
+
+  /** Prepares each component. */
+  public void prepare() throws Exception
+  {
+    if (conn != null)
+    {
+      autoCommit = conn.getAutoCommit();
+      isolation = conn.getTransactionIsolation();
+    }
+    for (int i = 0; i < scenarios.length; i++)
+      scenarios[i].prepare();
+  }
+
+  /** Runs an iteration of a component chosen by weight. */
+  public void iterate(long iterationCount) throws Exception
+  {
+    int pick = ThreadRandom.nextInt(
+        cumulativeWeights[cumulativeWeights.length - 1]);
+    int index = 0;
+    while (pick >= cumulativeWeights[index])
+      index++;
+
+    lastIndex = index;
+    startTimer(names[index]);
+    try
+    {
+      scenarios[index].iterate(iterationCount);
+    }
+    catch (Throwable t)
+    {
+      // The component's failure is what the harness must see to count or
+      // retry the iteration, so a failure to restore the connection after
+      // it is only logged. 
+      try
+      {
+        restoreConnection();
+      }
+      catch (Exception e)
+      {
+        logger.warn("Unable to restore shared connection after component "
+            + "failure: " + names[index], e);
+      }
+      throw t;
+    }
+    restoreConnection();
+    stopTimer();
+  }
+
+  /** Rolls back the component that ran last. */
+  public void rollback() throws Exception
+  {
+    if (lastIndex >= 0)
+      scenarios[lastIndex].rollback();
+  }
+
+  /** Cleans up each component and then closes the shared connection. */
+  public void cleanup() throws Exception
+  {
+    for (int i = 0; i < scenarios.length; i++)
+    {
+      try
+      {
+        scenarios[i].cleanup();
+      }
+      catch (Exception e)
+      {
+        logger.warn("Component scenario cleanup failed: " + names[i], e);
+      }
+    }
+    closeConnection();
+  }
+
+  /** Runs global cleanup for each component. */
+  public void globalCleanup()
+  {
+    for (int i = 0; i < scenarios.length; i++)
+    {
+      try
+      {
+        scenarios[i].globalCleanup();
+      }
+      catch (Exception e)
+      {
+        logger.warn("Component scenario global cleanup failed: " + names[i], e);
+      }
+    }
+  }
+
+  // Rolls back work a component left open on the shared connection and 
+  // restores the settings it had before the component ran.  Most drivers 
+  // answer the getters without a round trip. 
+  private void restoreConnection() throws Exception
+  {
+    if (conn == null)
+      return;
+    if (conn.getAutoCommit() != autoCommit)
+    {
+      if (! conn.getAutoCommit())
+        conn.rollback();
+      conn.setAutoCommit(autoCommit);
+    }
+    if (conn.getTransactionIsolation() != isolation)
+      conn.setTransactionIsolation(isolation);
+  }
+
+  // Returns fully qualified component class names. 
+  private String[] getComponentClassNames()
+  {
+    if (components == null || components.trim().length() == 0)
+      throw new BenchmarkException("Mixed scenario requires components property");
+    String[] classNames = components.split(",");
+    for (int i = 0; i < classNames.length; i++)
+    {
+      classNames[i] = classNames[i].trim();
+      if (classNames[i].indexOf('.') < 0)
+        classNames[i] = SCENARIO_PACKAGE + classNames[i];
+    }
+    return classNames;
+  }
+
+  // Returns running totals of component weights for weighted selection. 
+  private int[] getCumulativeWeights(int count)
+  {
+    String[] values = (weights == null) ? null : weights.split(",");
+    if (values != null && values.length != count)
+      throw new BenchmarkException("Number of weights does not match number " 
+          + "of components: weights=" + weights + " components=" + components);
+
+    int[] cumulative = new int[count];
+    int total = 0;
+    for (int i = 0; i < count; i++)
+    {
+      int weight = (values == null) ? 1 : Integer.parseInt(values[i].trim());
+      if (weight < 0)
+        throw new BenchmarkException("Component weights must not be negative: " 
+            + weights);
+      total += weight;
+      cumulative[i] = total;
+    }
+    if (total == 0)
+      throw new BenchmarkException("Component weights must not all be zero: " 
+          + weights);
+    return cumulative;
+  }
+}
@@ -0,0 +1,68 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.scenarios;
+
+import java.util.Properties;
+
+import com.continuent.bristlecone.benchmark.Scenario;
+
+/**
+ * Implements a scenario that does nothing and needs no database.  Running
+ * it measures the overhead of the benchmark harness itself:  the reported
+ * average duration is the harness cost per iteration, which should be well
+ * under a microsecond. 
+ * 
+ * @author rhodges
+ */
+public class NoopScenario implements Scenario
+{
+  /** Does nothing. */
+  public void initialize(Properties properties) throws Exception
+  {
+  }
+
+  /** Does nothing. */
+  public void globalPrepare() throws Exception
+  {
+  }
+
+  /** Does nothing. */
+  public void prepare() throws Exception
+  {
+  }
+
+  /** Does nothing. */
+  public void iterate(long iterationCount) throws Exception
+  {
+  }
+
+  /** Does nothing. */
+  public void cleanup() throws Exception
+  {
+  }
+
+  /** Does nothing. */
+  public void globalCleanup() throws Exception
+  {
+  }
+}
@@ -89,6 +89,18 @@ public class PreparedStatementWriteScenario implements Scenario
         NONE, JDBC, STATEMENT
     }    
 
+    /** Number of rows with which to populate the table before the run. */
+    protected int               datarows      = 0;
+
+    /** Number of rows in each JDBC batch when populating the table. */
+    protected int               loadbatch     = 100;
+
+    /** Number of rows between commits when populating the table. */
+    protected int               loadcommit    = 10000;
+
+    /** Number of parallel connections used to populate the table. */
+    protected int               loadthreads   = 1;
+
     // Implementation data for scenario
     protected TableSet          tableSet;
     protected TableSetHelper    helper;
@@ -109,6 +121,26 @@ public class PreparedStatementWriteScenario implements Scenario
         this.user = user;
     }
 
+    public void setDatarows(int datarows)
+    {
+        this.datarows = datarows;
+    }
+
+    public void setLoadbatch(int loadbatch)
+    {
+        this.loadbatch = loadbatch;
+    }
+
+    public void setLoadcommit(int loadcommit)
+    {
+        this.loadcommit = loadcommit;
+    }
+
+    public void setLoadthreads(int loadthreads)
+    {
+        this.loadthreads = loadthreads;
+    }
+
     public void setDataWidth(int datawidth)
     {
         this.datawidth = datawidth;
@@ -147,8 +179,11 @@ public class PreparedStatementWriteScenario implements Scenario
         columns[2] = new Column("mypayload", Types.VARCHAR, (int) datawidth);
 
         // Set up helper classes.
-        tableSet = new TableSet("benchmark_scenario_", 1, 0, columns);
+        tableSet = new TableSet("benchmark_scenario_", 1, datarows, columns);
         helper = new TableSetHelper(url, user, password);
+        helper.setLoadBatchSize(loadbatch);
+        helper.setLoadCommitInterval(loadcommit);
+        helper.setLoadThreads(loadthreads);
         conn = helper.getConnection();
     }
 
@@ -157,6 +192,11 @@ public class PreparedStatementWriteScenario implements Scenario
     {
         logger.info("Creating test table...");
         helper.createAll(tableSet);
+        if (datarows > 0)
+        {
+            logger.info("Populating test tables...");
+            helper.populateAll(tableSet);
+        }
     }
 
     /**
@@ -194,7 +234,7 @@ public class PreparedStatementWriteScenario implements Scenario
         {
             // Add generate data.
             List<DataGenerator> generators = tableSet.getDataGenerators();
-            Long myKey = (Long) generators.get(0).generate();
+            long myKey = generators.get(0).nextLong();
             String myThread = "pstmt_" + Thread.currentThread().getName() + "_"
             + iterationCount;
             //String myPayload = (String) generators.get(2).generate();
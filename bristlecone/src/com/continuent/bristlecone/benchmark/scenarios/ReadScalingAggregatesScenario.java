@@ -68,7 +68,7 @@ public class ReadScalingAggregatesScenario extends ScenarioBase
     String select = dialect.getSelectCrossProductCount(tables);
 
     // Generate indexes for searching.  
-    int i1 = (int) (Math.random() * this.datarows);
+    int i1 = nextKey();
     int i2 = i1 + this.selectrows;
 
     // Pick a table at random on which to operate.
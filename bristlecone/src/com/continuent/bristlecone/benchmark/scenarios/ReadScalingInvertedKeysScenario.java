@@ -29,13 +29,13 @@ import java.util.Properties;
 
 import org.apache.log4j.Logger;
 
+import com.continuent.bristlecone.benchmark.ThreadRandom;
 import com.continuent.bristlecone.benchmark.db.Column;
 import com.continuent.bristlecone.benchmark.db.DataGenerator;
 import com.continuent.bristlecone.benchmark.db.DataGeneratorFactory;
 import com.continuent.bristlecone.benchmark.db.SqlDialect;
 import com.continuent.bristlecone.benchmark.db.Table;
 import com.continuent.bristlecone.benchmark.db.TableSet;
-import com.continuent.bristlecone.benchmark.db.TableSetHelper;
 
 /**
  * Generates reads from table(s) that invert the key values through a 
@@ -114,10 +114,10 @@ public class ReadScalingInvertedKeysScenario extends ScenarioBase
         new Column("mykey2", Types.INTEGER),
         new Column("mypayload", Types.VARCHAR, (int) datawidth)
       };
-    tableSet = new TableSet("benchmark_scenario_", tables, 
+    tableSet = new TableSet(tableprefix, tables, 
         datarows, columns);
-    helper = new TableSetHelper(url, user, password); 
-    conn = helper.getConnection();
+    helper = createTableSetHelper();
+    conn = openConnection();
   }
 
   /** Configure test tables. */
@@ -193,8 +193,8 @@ public class ReadScalingInvertedKeysScenario extends ScenarioBase
   public void iterate(long iterationCount) throws Exception
   {
     // Pick a table and key at random.
-    int index = (int) (Math.random() * pstmtArray.length);
-    int key1 = (int) (Math.random() * this.datarows);
+    int index = ThreadRandom.nextInt(pstmtArray.length);
+    int key1 = nextKey();
     int key2 = key1 + selectrows;
     PreparedStatement pstmt = pstmtArray[index];
     
@@ -210,7 +210,6 @@ public class ReadScalingInvertedKeysScenario extends ScenarioBase
     // Clean up connections. 
     for (int i = 0; i < pstmtArray.length; i++)
       pstmtArray[i].close();
-    if (conn != null)
-      conn.close();
+    closeConnection();
   }
 }
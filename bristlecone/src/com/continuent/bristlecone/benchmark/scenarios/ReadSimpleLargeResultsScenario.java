@@ -27,6 +27,7 @@ import java.sql.Statement;
 
 import org.apache.log4j.Logger;
 
+import com.continuent.bristlecone.benchmark.ThreadRandom;
 import com.continuent.bristlecone.benchmark.db.SqlDialect;
 import com.continuent.bristlecone.benchmark.db.Table;
 
@@ -77,7 +78,7 @@ public class ReadSimpleLargeResultsScenario extends ScenarioBase
   public void iterate(long iterationCount) throws Exception
   {
     // Pick a table at random on which to operate.
-    int index = (int) (Math.random() * tables);
+    int index = ThreadRandom.nextInt(tables);
     Table table = tableSet.getTables()[index];
 
     // Generate a statement using a cross product select. 
@@ -108,6 +109,8 @@ public class ReadSimpleLargeResultsScenario extends ScenarioBase
       int count = 0;
       while (rs.next())
       {
+        if (lobstream)
+          readLobs(rs);
         count++;
       }
       if (logger.isDebugEnabled())
@@ -23,7 +23,9 @@
 package com.continuent.bristlecone.benchmark.scenarios;
 
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 
+import com.continuent.bristlecone.benchmark.ThreadRandom;
 import com.continuent.bristlecone.benchmark.db.SqlDialect;
 import com.continuent.bristlecone.benchmark.db.Table;
 
@@ -63,11 +65,19 @@ public class ReadSimpleScenario extends ScenarioBase
   public void iterate(long iterationCount) throws Exception
   {
     // Pick a table at random on which to operate.
-    int index = (int) (Math.random() * pstmtArray.length);
+    int index = ThreadRandom.nextInt(pstmtArray.length);
     PreparedStatement pstmt = pstmtArray[index];
     
-    // Do the query.
-    pstmt.executeQuery();
+    // Do the query.  If LOBs are streamed, read them back as streams too. 
+    if (lobstream)
+    {
+      ResultSet rs = pstmt.executeQuery();
+      while (rs.next())
+        readLobs(rs);
+      rs.close();
+    }
+    else
+      pstmt.executeQuery();
   }
 
   /** Clean up resources used by scenario. */
@@ -76,7 +86,6 @@ public class ReadSimpleScenario extends ScenarioBase
     // Clean up connections. 
     for (int i = 0; i < pstmtArray.length; i++)
       pstmtArray[i].close();
-    if (conn != null)
-      conn.close();
+    closeConnection();
   }
 }
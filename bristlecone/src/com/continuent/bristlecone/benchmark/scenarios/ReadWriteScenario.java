@@ -29,13 +29,13 @@ import java.util.Properties;
 
 import org.apache.log4j.Logger;
 
+import com.continuent.bristlecone.benchmark.ThreadRandom;
 import com.continuent.bristlecone.benchmark.db.Column;
 import com.continuent.bristlecone.benchmark.db.DataGenerator;
 import com.continuent.bristlecone.benchmark.db.DataGeneratorFactory;
 import com.continuent.bristlecone.benchmark.db.SqlDialect;
 import com.continuent.bristlecone.benchmark.db.Table;
 import com.continuent.bristlecone.benchmark.db.TableSet;
-import com.continuent.bristlecone.benchmark.db.TableSetHelper;
 
 /**
  * This scenario models a complex transaction in which reads are used to 
@@ -57,6 +57,8 @@ public class ReadWriteScenario extends ScenarioBase
   PreparedStatement writeArray[];
   DataGenerator stringDataGenerator; 
   
+  private static final String[] TIMED_OPERATIONS = {"read", "write", "commit"};
+
   private int operations = 1;
   private int selectrows = 1;
   private boolean autocommit = false;
@@ -105,7 +107,7 @@ public class ReadWriteScenario extends ScenarioBase
     readCols[2].setType(Types.VARCHAR);
     readCols[2].setLength(datawidth);
 
-    readTableSet = new TableSet("benchmark_scenario_read", tables, 
+    readTableSet = new TableSet(tableprefix + "read", tables, 
         datarows, readCols);
 
     Column[] writeCols = new Column[3]; 
@@ -117,35 +119,31 @@ public class ReadWriteScenario extends ScenarioBase
 
     writeCols[1] = new Column();
     writeCols[1].setName("mysum");
-    writeCols[1].setType(Types.SMALLINT);
+    writeCols[1].setType(Types.DECIMAL);
+    writeCols[1].setLength(19);
+    writeCols[1].setPrecision(0);
 
     writeCols[2] = new Column();
     writeCols[2].setName("mypayload");
     writeCols[2].setType(Types.VARCHAR);
     writeCols[2].setLength(datawidth);
 
-    writeTableSet = new TableSet("benchmark_scenario_write", tables, 
+    writeTableSet = new TableSet(tableprefix + "write", tables, 
         datarows, writeCols);
 
-    helper = new TableSetHelper(url, user, password); 
-    conn = helper.getConnection();
+    helper = createTableSetHelper();
+    conn = openConnection();
     stringDataGenerator = DataGeneratorFactory.getInstance().getGenerator(writeCols[2]);
   }
 
   /** Configure test tables. */
   public void globalPrepare() throws Exception
   {
-    if (reusedata)
-    {
-      logger.info("Reusing read tables");
-    }
-    else
+    // Create and populate read tables, which may be reused.  Write tables 
+    // are always created empty. 
+    createAndPopulate(readTableSet);
+    if (!reusedata)
     {
-      // Create and populate tables. 
-      logger.info("Creating and populating read tables...");
-      helper.createAll(readTableSet);
-      helper.populateAll(readTableSet);
-
       logger.info("Creating write tables...");
       helper.createAll(writeTableSet);
     }
@@ -167,7 +165,10 @@ public class ReadWriteScenario extends ScenarioBase
     readArray = new PreparedStatement[tables.length];
     for (int i = 0; i < tables.length; i++)
     {
-      String sql = "SELECT sum(myint) FROM " + tables[i].getName() 
+      // Sum as a decimal, since the sum of a range of integers can 
+      // overflow an integer and some DBMS do not widen it. 
+      String sql = "SELECT sum(CAST(myint AS DECIMAL(19))) FROM " 
+                 + tables[i].getName() 
                  + " WHERE mykey >= ? AND mykey <= ?"; 
       readArray[i] = conn.prepareStatement(sql);
     }
@@ -181,6 +182,12 @@ public class ReadWriteScenario extends ScenarioBase
     }
   }
 
+  /** Time reads, writes, and commits separately. */
+  public String[] getTimedOperations()
+  {
+    return TIMED_OPERATIONS;
+  }
+
   /** Execute an interation. */
   public void iterate(long iterationCount) throws Exception
   {
@@ -188,10 +195,10 @@ public class ReadWriteScenario extends ScenarioBase
     conn.setAutoCommit(autocommit);
 
     // Pick a table and key at random.
-    int index = (int) (Math.random() * tables);
-    int key = (int) (Math.random() * this.datarows);
+    int index = ThreadRandom.nextInt(tables);
+    int key = nextKey();
     
-    int sum[] = new int[operations];
+    long sum[] = new long[operations];
 
       // Loop through and perform the indicated number of reads. 
       for (int i = 0; i < operations; i++)
@@ -199,28 +206,36 @@ public class ReadWriteScenario extends ScenarioBase
         PreparedStatement pstmt = readArray[index];
         pstmt.setInt(1, key);
         pstmt.setInt(2, key + selectrows);
+        startTimer("read");
         ResultSet rs = pstmt.executeQuery();
         
         while (rs.next())
         {
-          sum[i] = rs.getInt(1);
+          sum[i] = rs.getLong(1);
         }
         
         rs.close();
+        stopTimer();
       }
         
       // Now generate an equivalent number of writes. 
       for (int i = 0; i < operations; i++)
       {
         PreparedStatement pstmt = writeArray[index];
-        pstmt.setInt(1, sum[i]);
+        pstmt.setLong(1, sum[i]);
         pstmt.setObject(2, stringDataGenerator.generate());
+        startTimer("write");
         pstmt.execute();
+        stopTimer();
       }
       
       // Commit if we are using transactions. 
       if (! autocommit)
+      {
+        startTimer("commit");
         conn.commit();
+        stopTimer();
+      }
   }
 
   /** Clean up resources used by scenario. */
@@ -231,7 +246,6 @@ public class ReadWriteScenario extends ScenarioBase
       this.readArray[i].close();
       this.writeArray[i].close();
     }
-    if (conn != null)
-      conn.close();
+    closeConnection();
   }
 }
\ No newline at end of file
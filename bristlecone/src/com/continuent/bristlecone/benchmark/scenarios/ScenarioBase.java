@@ -22,14 +22,26 @@
 
 package com.continuent.bristlecone.benchmark.scenarios;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
 import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
 import java.sql.Types;
 import java.util.Properties;
 
 import org.apache.log4j.Logger;
 
+import com.continuent.bristlecone.benchmark.BenchmarkException;
 import com.continuent.bristlecone.benchmark.Scenario;
+import com.continuent.bristlecone.benchmark.ThreadRandom;
+import com.continuent.bristlecone.benchmark.TimingContext;
 import com.continuent.bristlecone.benchmark.db.Column;
+import com.continuent.bristlecone.benchmark.db.ConnectionPool;
+import com.continuent.bristlecone.benchmark.db.KeyChooser;
+import com.continuent.bristlecone.benchmark.db.KeyChooserFactory;
 import com.continuent.bristlecone.benchmark.db.TableSet;
 import com.continuent.bristlecone.benchmark.db.TableSetHelper;
 
@@ -64,16 +76,84 @@ public abstract class ScenarioBase implements Scenario
   /** Column width of the payload column, e.g., 10 for varchar equates to varchar(10). */
   protected int   datawidth = 10;
   
+  /** Number of distinct payload values, or 0 for no limit. */
+  protected int datadistinct = 0;
+  
+  /** Fraction of payload values that are null. */
+  protected double datanulls = 0.0;
+  
+  /** Zipf exponent of distinct payload value popularity, or 0 for uniform. */
+  protected double dataskew = 0.0;
+  
+  /** Target compression ratio of payload values, or 0 for the default. */
+  protected double datacompress = 0.0;
+  
   /** Analyze command that should be run after initializing data and before starting test. */
   protected String analyzeCmd = null;
   
   /** If true reuse existing data tables. */
   protected boolean reusedata = false;
   
+  /** If true reuse existing data tables whose fingerprint matches. */
+  protected boolean autoreuse = true;
+  
+  /** Random number seed, or 0 if a seed is chosen for each run. */
+  protected long seed = 0;
+
+  /** Seed with which table data were populated, or 0 if unknown. */
+  protected long dataSeed = 0;
+  
+  /** Number of rows in each JDBC batch when populating tables. */
+  protected int loadbatch = 100;
+  
+  /** Number of rows between commits when populating tables. */
+  protected int loadcommit = 10000;
+  
+  /** Number of parallel connections used to populate tables. */
+  protected int loadthreads = 1;
+  
+  /** Values pre-generated per column, or 0 to generate data on demand. */
+  protected int datapool = 0;
+  
+  /** Seconds in which pooled values are all replaced, or 0 for never. */
+  protected int datapoolrefresh = 10;
+  
+  /** If true write and read BLOB and CLOB payloads as streams. */
+  protected boolean lobstream = false;
+  
+  /** Prefix of test table names. */
+  protected String tableprefix = "benchmark_scenario_";
+  
+  /** Distribution of keys chosen by scenarios, e.g., zipfian. */
+  protected String keydist = KeyChooserFactory.UNIFORM;
+  
+  /** Zipf exponent for zipfian and latest key distributions. */
+  protected double keyskew = 0.99;
+  
+  /** Fraction of keys that are hot for the hotspot key distribution. */
+  protected double hotkeys = 0.2;
+  
+  /** Fraction of operations on hot keys for the hotspot key distribution. */
+  protected double hotops = 0.8;
+  
   // Implementation data for scenario
   protected TableSet tableSet;
   protected TableSetHelper helper;
   protected Connection conn = null;
+  protected TimingContext timingContext = TimingContext.NONE;
+  
+  // Connection supplied by a composite scenario, or null if we open our own. 
+  protected Connection sharedConnection;
+  
+  // Pool shared by all threads, or null for dedicated connections. 
+  protected ConnectionPool pool;
+  
+  // Chooser for keys, which is created on first use. 
+  private KeyChooser keyChooser;
+  
+  // Buffers for reading LOB streams, which are created on first use. 
+  private byte[] byteBuffer;
+  private char[] charBuffer;
 
   // Setters for properties. 
   public void setDatarows(int datarows)
@@ -91,6 +171,26 @@ public abstract class ScenarioBase implements Scenario
     this.datawidth = datawidth;
   }
 
+  public void setDatadistinct(int datadistinct)
+  {
+    this.datadistinct = datadistinct;
+  }
+
+  public void setDatanulls(double datanulls)
+  {
+    this.datanulls = datanulls;
+  }
+
+  public void setDataskew(double dataskew)
+  {
+    this.dataskew = dataskew;
+  }
+
+  public void setDatacompress(double datacompress)
+  {
+    this.datacompress = datacompress;
+  }
+
   public void setPassword(String password)
   {
     this.password = password;
@@ -121,7 +221,163 @@ public abstract class ScenarioBase implements Scenario
     this.reusedata = reusedata;
   }
 
-  /**
+  public void setAutoreuse(boolean autoreuse)
+  {
+    this.autoreuse = autoreuse;
+  }
+
+  public void setSeed(long seed)
+  {
+    this.seed = seed;
+  }
+
+  public void setLobstream(boolean lobstream)
+  {
+    this.lobstream = lobstream;
+  }
+
+  public void setLoadbatch(int loadbatch)
+  {
+    this.loadbatch = loadbatch;
+  }
+
+  public void setLoadcommit(int loadcommit)
+  {
+    this.loadcommit = loadcommit;
+  }
+
+  public void setLoadthreads(int loadthreads)
+  {
+    this.loadthreads = loadthreads;
+  }
+
+  public void setDatapool(int datapool)
+  {
+    this.datapool = datapool;
+  }
+
+  public void setDatapoolrefresh(int datapoolrefresh)
+  {
+    this.datapoolrefresh = datapoolrefresh;
+  }
+
+  public void setTableprefix(String tableprefix)
+  {
+    this.tableprefix = tableprefix;
+  }
+
+  public void setKeydist(String keydist)
+  {
+    if (! KeyChooserFactory.getInstance().isSupported(keydist))
+      throw new BenchmarkException("Unsupported key distribution: " + keydist);
+    this.keydist = keydist;
+  }
+
+  public void setKeyskew(double keyskew)
+  {
+    this.keyskew = keyskew;
+  }
+
+  public void setHotkeys(double hotkeys)
+  {
+    this.hotkeys = hotkeys;
+  }
+
+  public void setHotops(double hotops)
+  {
+    this.hotops = hotops;
+  }
+
+  /** 
+   * Supplies a connection owned by a composite scenario.  The scenario 
+   * uses it instead of opening its own and does not close it. 
+   */
+  public void setSharedConnection(Connection sharedConnection)
+  {
+    this.sharedConnection = sharedConnection;
+  }
+
+  /** Takes connections from a shared pool instead of opening them. */
+  public void setConnectionPool(ConnectionPool pool)
+  {
+    this.pool = pool;
+  }
+
+  /** Stores the timing context for subclasses that time operations. */
+  public void setTimingContext(TimingContext timingContext)
+  {
+    this.timingContext = timingContext;
+  }
+
+  /** 
+   * Starts timing a named operation.  This does nothing unless the harness
+   * supplied a timing context. 
+   */
+  protected void startTimer(String operation)
+  {
+    timingContext.start(operation);
+  }
+
+  /** Stops timing the most recently started operation. */
+  protected void stopTimer()
+  {
+    timingContext.stop();
+  }
+
+  /** 
+   * Returns the key of the next row to operate on, which is between 0 
+   * inclusive and datarows exclusive and follows the key distribution. 
+   */
+  protected int nextKey()
+  {
+    if (keyChooser == null)
+    {
+      keyChooser = KeyChooserFactory.getInstance().getChooser(keydist, 
+          Math.max(datarows, 1), keyskew, hotkeys, hotops);
+    }
+    return keyChooser.nextKey();
+  }
+
+  /** 
+   * Returns the shared connection if there is one, a logical connection 
+   * from the pool in pool mode, or else a new connection. 
+   */
+  protected Connection openConnection() throws SQLException
+  {
+    if (sharedConnection != null)
+      return sharedConnection;
+    else if (pool != null)
+      return pool.getConnection();
+    else
+      return helper.getConnection();
+  }
+
+  /** Closes the scenario connection unless it is shared. */
+  protected void closeConnection() throws SQLException
+  {
+    if (conn != null && conn != sharedConnection)
+      conn.close();
+  }
+
+  /** 
+   * Creates a table set helper with table population settings applied.  
+   * Scenarios create their table set first, so this is also where the 
+   * table set is switched to pooled data if requested. 
+   */
+  protected TableSetHelper createTableSetHelper()
+  {
+    TableSetHelper tableSetHelper = new TableSetHelper(url, user, password);
+    tableSetHelper.setLoadBatchSize(loadbatch);
+    tableSetHelper.setLoadCommitInterval(loadcommit);
+    tableSetHelper.setLoadThreads(loadthreads);
+    if (tableSet != null)
+      tableSet.setLobStreaming(lobstream);
+    if (tableSet != null && datapool > 0)
+      tableSet.setDataPool(datapool, datapoolrefresh * 1000L);
+    return tableSetHelper;
+  }
+
+  /** 
    * Perform basic initialization. 
    */
   public void initialize(Properties properties) throws Exception
@@ -129,35 +385,166 @@ public abstract class ScenarioBase implements Scenario
     Column[] columns = new Column[] {
         new Column("mykey", Types.INTEGER, -1, -1, true, true),
         new Column("mydata", Types.INTEGER),
-        new Column("mypayload", Types.VARCHAR, (int) datawidth)
+        createPayloadColumn()
       };
-    tableSet = new TableSet("benchmark_scenario_", tables, 
+    tableSet = new TableSet(tableprefix, tables, 
         datarows, columns);
-    helper = new TableSetHelper(url, user, password); 
-    conn = helper.getConnection();
+    helper = createTableSetHelper();
+    conn = openConnection();
   }
   
+  /** 
+   * Returns a definition of the mypayload column with its type, width, and
+   * value distribution set from scenario properties. 
+   */
+  protected Column createPayloadColumn()
+  {
+    Column column = new Column("mypayload", getPayloadType(), datawidth);
+    column.setDistinctValues(datadistinct);
+    column.setNullFraction(datanulls);
+    column.setSkew(dataskew);
+    column.setCompressibility(datacompress);
+    return column;
+  }
+
+  /** 
+   * Returns the JDBC type of payload columns for the datatype property, 
+   * which may be varchar, blob, or text (or clob). 
+   */
+  protected int getPayloadType()
+  {
+    if ("varchar".equalsIgnoreCase(datatype))
+      return Types.VARCHAR;
+    else if ("blob".equalsIgnoreCase(datatype))
+      return Types.BLOB;
+    else if ("text".equalsIgnoreCase(datatype) 
+        || "clob".equalsIgnoreCase(datatype))
+      return Types.CLOB;
+    else
+      throw new BenchmarkException("Unsupported payload datatype: " 
+          + datatype);
+  }
+
+  /**
+   * Reads LOB columns in the current row of a result set through streams,
+   * so that large values are not held in memory, and returns the number 
+   * of bytes and characters read. 
+   */
+  protected long readLobs(ResultSet rs) throws SQLException, IOException
+  {
+    ResultSetMetaData metadata = rs.getMetaData();
+    long count = 0;
+    for (int i = 1; i <= metadata.getColumnCount(); i++)
+    {
+      switch (metadata.getColumnType(i))
+      {
+        case Types.BLOB:
+        case Types.LONGVARBINARY:
+          count += drain(rs.getBinaryStream(i));
+          break;
+        case Types.CLOB:
+        case Types.LONGVARCHAR:
+          count += drain(rs.getCharacterStream(i));
+          break;
+      }
+    }
+    return count;
+  }
+
+  // Reads a LOB stream to the end and closes it. 
+  private long drain(InputStream in) throws IOException
+  {
+    if (in == null)
+      return 0;
+    if (byteBuffer == null)
+      byteBuffer = new byte[8192];
+    long count = 0;
+    int n;
+    while ((n = in.read(byteBuffer)) > 0)
+      count += n;
+    in.close();
+    return count;
+  }
+
+  // Reads a LOB reader to the end and closes it. 
+  private long drain(Reader reader) throws IOException
+  {
+    if (reader == null)
+      return 0;
+    if (charBuffer == null)
+      charBuffer = new char[8192];
+    long count = 0;
+    int n;
+    while ((n = reader.read(charBuffer)) > 0)
+      count += n;
+    reader.close();
+    return count;
+  }
+
   /** Configure test tables. */
   public void globalPrepare() throws Exception
   {
     // Create and populate tables. 
+    createAndPopulate(tableSet);
+    
+    // Run analyze command if supplied. 
+    if (analyzeCmd != null)
+    {
+      logger.info("Running analyze command: " + analyzeCmd);
+      helper.execute(analyzeCmd);
+    }
+  }
+
+  /**
+   * Creates and populates tables in a table set unless they can be reused.
+   * Tables are reused if reusedata is true or, if autoreuse is true, when 
+   * they hold data populated by an earlier run with the same tables, rows,
+   * column layout, and seed.  Data are only fingerprinted for reuse if the
+   * scenario does not change them. 
+   */
+  protected void createAndPopulate(TableSet tableSet) throws Exception
+  {
     if (reusedata)
     {
       logger.info("Reusing existing test tables...");
+      dataSeed = helper.getFingerprintSeed(tableSet);
+      if (changesData())
+        helper.clearFingerprint(tableSet);
+    }
+    else if (autoreuse && !changesData() 
+        && helper.matchesFingerprint(tableSet, seed))
+    {
+      dataSeed = helper.getFingerprintSeed(tableSet);
+      logger.info("Reusing test tables with matching fingerprint: prefix=" 
+          + tableSet.getNamePrefix() + " seed=" + dataSeed);
     }
     else
     {
       logger.info("Creating and populating test tables...");
+      dataSeed = ThreadRandom.getSeed();
       helper.createAll(tableSet);
       helper.populateAll(tableSet);
+      if (autoreuse && !changesData())
+        helper.writeFingerprint(tableSet);
     }
-    
-    // Run analyze command if supplied. 
-    if (analyzeCmd != null)
-    {
-      logger.info("Running analyze command: " + analyzeCmd);
-      helper.execute(analyzeCmd);
-    }
+  }
+
+  /** 
+   * Returns the seed with which table data were populated, which is the 
+   * fingerprint seed if tables were reused. 
+   */
+  public long getDataSeed()
+  {
+    return dataSeed;
+  }
+
+  /** 
+   * Returns true if the scenario changes data in the tables it populates, 
+   * which must then be populated again for each run. 
+   */
+  protected boolean changesData()
+  {
+    return false;
   }
 
   /** Create a prepared statement array. */
@@ -166,6 +553,13 @@ public abstract class ScenarioBase implements Scenario
   /** Execute an interation. */
   public abstract void iterate(long iterationCount) throws Exception;
 
+  /** Roll back the scenario connection unless it is in autocommit mode. */
+  public void rollback() throws Exception
+  {
+    if (conn != null && ! conn.getAutoCommit())
+      conn.rollback();
+  }
+
   /** Clean up resources used by scenario. */
   public abstract void cleanup() throws Exception;
 
@@ -31,6 +31,7 @@ import java.util.Properties;
 import org.apache.log4j.Logger;
 
 import com.continuent.bristlecone.benchmark.Scenario;
+import com.continuent.bristlecone.benchmark.ThreadRandom;
 import com.continuent.bristlecone.benchmark.db.Column;
 import com.continuent.bristlecone.benchmark.db.DataGenerator;
 import com.continuent.bristlecone.benchmark.db.Table;
@@ -79,6 +80,18 @@ public class StatementBatchingScenario implements Scenario
      */
     private int                 insertsPerXact = 1;
 
+    /** Number of rows with which to populate the table before the run. */
+    protected int               datarows       = 0;
+
+    /** Number of rows in each JDBC batch when populating the table. */
+    protected int               loadbatch      = 100;
+
+    /** Number of rows between commits when populating the table. */
+    protected int               loadcommit     = 10000;
+
+    /** Number of parallel connections used to populate the table. */
+    protected int               loadthreads    = 1;
+
     // Implementation data for scenario
     protected TableSet          tableSet;
     protected TableSetHelper    helper;
@@ -99,6 +112,26 @@ public class StatementBatchingScenario implements Scenario
         this.user = user;
     }
 
+    public void setDatarows(int datarows)
+    {
+        this.datarows = datarows;
+    }
+
+    public void setLoadbatch(int loadbatch)
+    {
+        this.loadbatch = loadbatch;
+    }
+
+    public void setLoadcommit(int loadcommit)
+    {
+        this.loadcommit = loadcommit;
+    }
+
+    public void setLoadthreads(int loadthreads)
+    {
+        this.loadthreads = loadthreads;
+    }
+
     public void setDataWidth(int datawidth)
     {
         this.datawidth = datawidth;
@@ -129,8 +162,11 @@ public class StatementBatchingScenario implements Scenario
         columns[2] = new Column("mypayload", Types.VARCHAR, (int) datawidth);
 
         // Set up helper classes.
-        tableSet = new TableSet("benchmark_scenario_", 1, 0, columns);
+        tableSet = new TableSet("benchmark_scenario_", 1, datarows, columns);
         helper = new TableSetHelper(url, user, password);
+        helper.setLoadBatchSize(loadbatch);
+        helper.setLoadCommitInterval(loadcommit);
+        helper.setLoadThreads(loadthreads);
         conn = helper.getConnection();
     }
 
@@ -139,6 +175,11 @@ public class StatementBatchingScenario implements Scenario
     {
         logger.info("Creating test tables...");
         helper.createAll(tableSet);
+        if (datarows > 0)
+        {
+            logger.info("Populating test tables...");
+            helper.populateAll(tableSet);
+        }
     }
 
     /**
@@ -157,7 +198,7 @@ public class StatementBatchingScenario implements Scenario
         StringBuffer stmtBuffer = new StringBuffer();
 
         // Select a table to update.
-        int index = (int) (tables.length * Math.random());
+        int index = ThreadRandom.nextInt(tables.length);
 
         // Begin transaction.
         conn.setAutoCommit(false);
@@ -169,7 +210,7 @@ public class StatementBatchingScenario implements Scenario
         {
             // Add generate data.
             List<DataGenerator> generators = tableSet.getDataGenerators();
-            Long myKey = (Long) generators.get(0).generate();
+            long myKey = generators.get(0).nextLong();
             String myThread = "bstmt_" + Thread.currentThread().getName() + "_"
                     + iterationCount;
             // String myPayload = (String) generators.get(2).generate();
@@ -24,6 +24,7 @@ package com.continuent.bristlecone.benchmark.scenarios;
 
 import java.sql.PreparedStatement;
 
+import com.continuent.bristlecone.benchmark.ThreadRandom;
 import com.continuent.bristlecone.benchmark.db.Table;
 
 /**
@@ -74,8 +75,8 @@ public class WriteComplexScenario extends ScenarioBase
   public void iterate(long iterationCount) throws Exception
   {
     // Pick a table at random on which to operate.
-    int index = (int) (Math.random() * pstmtArray.length);
-    int key = (int) (Math.random() * this.datarows);
+    int index = ThreadRandom.nextInt(pstmtArray.length);
+    int key = nextKey();
 
     // Run the update. 
     PreparedStatement pstmt = pstmtArray[index];
@@ -85,13 +86,18 @@ public class WriteComplexScenario extends ScenarioBase
     pstmt.execute();
   }
 
+  /** Updates change data in test tables. */
+  protected boolean changesData()
+  {
+    return true;
+  }
+
   /** Clean up resources used by scenario. */
   public void cleanup() throws Exception
   {
     // Clean up connections. 
     for (int i = 0; i < pstmtArray.length; i++)
       pstmtArray[i].close();
-    if (conn != null)
-      conn.close();
+    closeConnection();
   }
 }
\ No newline at end of file
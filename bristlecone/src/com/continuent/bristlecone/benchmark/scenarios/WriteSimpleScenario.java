@@ -28,11 +28,11 @@ import java.util.Properties;
 
 import org.apache.log4j.Logger;
 
+import com.continuent.bristlecone.benchmark.ThreadRandom;
 import com.continuent.bristlecone.benchmark.db.Column;
 import com.continuent.bristlecone.benchmark.db.SqlDialect;
 import com.continuent.bristlecone.benchmark.db.Table;
 import com.continuent.bristlecone.benchmark.db.TableSet;
-import com.continuent.bristlecone.benchmark.db.TableSetHelper;
 
 /**
  * Implements a scenario that repeatedly inserts into one or more tables.  
@@ -69,7 +69,7 @@ public class WriteSimpleScenario extends ScenarioBase
     columns[0] = new Column("mykey", Types.INTEGER, -1, -1, false, false); 
     columns[1] = new Column("mythread", Types.VARCHAR, 50); 
     columns[1].setIndexed(true);
-    columns[2] = new Column("mypayload", Types.VARCHAR, (int) datawidth); 
+    columns[2] = createPayloadColumn(); 
     
     // Compute the local key value for use in this test case. 
     synchronized (WriteSimpleScenario.class)
@@ -78,33 +78,16 @@ public class WriteSimpleScenario extends ScenarioBase
     }
     
     // Set up helper classes. 
-    tableSet = new TableSet("benchmark_scenario_", tables, 
+    tableSet = new TableSet(tableprefix, tables, 
         datarows, columns);
-    helper = new TableSetHelper(url, user, password); 
-    conn = helper.getConnection();
+    helper = createTableSetHelper();
+    conn = openConnection();
   }
 
-  /** Create test tables. */
-  public void globalPrepare() throws Exception
+  /** Inserts, updates, and deletes change data in test tables. */
+  protected boolean changesData()
   {
-    // Create and populate tables. 
-    if (reusedata)
-    {
-      logger.info("Reusing existing test tables...");
-    }
-    else
-    {
-      logger.info("Creating and populating test tables...");
-      helper.createAll(tableSet);
-      helper.populateAll(tableSet);
-    }
-    
-    // Run analyze command if supplied. 
-    if (analyzeCmd != null)
-    {
-      logger.info("Running analyze command: " + analyzeCmd);
-      helper.execute(analyzeCmd);
-    }
+    return true;
   }
 
   /** Create a prepared statement array. */
@@ -125,7 +108,7 @@ public class WriteSimpleScenario extends ScenarioBase
   public void iterate(long iterationCount) throws Exception
   {
     // Pick a table at random on which to operate.
-    int index = (int) (Math.random() * pstmtArray.length);
+    int index = ThreadRandom.nextInt(pstmtArray.length);
     PreparedStatement pstmt = pstmtArray[index];
     
     // Do the insert.  
@@ -142,7 +125,6 @@ public class WriteSimpleScenario extends ScenarioBase
     // Clean up connections. 
     for (int i = 0; i < pstmtArray.length; i++)
       pstmtArray[i].close();
-    if (conn != null)
-      conn.close();
+    closeConnection();
   }
 }
\ No newline at end of file
@@ -30,6 +30,10 @@ import java.util.Properties;
 import org.apache.log4j.Logger;
 
 import com.continuent.bristlecone.benchmark.Scenario;
+import com.continuent.bristlecone.benchmark.ThreadRandom;
+import com.continuent.bristlecone.benchmark.TimingContext;
+import com.continuent.bristlecone.benchmark.db.KeyChooser;
+import com.continuent.bristlecone.benchmark.db.KeyChooserFactory;
 import com.continuent.bristlecone.benchmark.db.SqlDialect;
 import com.continuent.bristlecone.benchmark.db.Table;
 
@@ -60,6 +64,10 @@ public class TPCBScenario implements Scenario
     private int                 thinkMillis           = 0;
     private float               randomizationPct      = 0;
     private int                 connectionRefreshRate = 0;
+    private String              keydist               = KeyChooserFactory.UNIFORM;
+    private double              keyskew               = 0.99;
+    private double              hotkeys               = 0.2;
+    private double              hotops                = 0.8;
 
     // Statistics.
     private TPCBStatistics      statistics;
@@ -72,7 +80,13 @@ public class TPCBScenario implements Scenario
     private PreparedStatement   accountUpdate;
     private PreparedStatement   accountQuery;
     private PreparedStatement   historyInsert;
+    private KeyChooser          accountChooser;
     private long                xactCount;
+    private TimingContext       timingContext = TimingContext.NONE;
+
+    // Operations timed separately within each transaction.
+    private static final String[] TIMED_OPERATIONS = {"query", "update",
+            "commit"                                };
 
     // Setters for TPC-B parameters.
     public void setUrl(String url)
@@ -150,6 +164,26 @@ public class TPCBScenario implements Scenario
         this.connectionRefreshRate = connectionRefreshRate;
     }
 
+    public void setKeydist(String keydist)
+    {
+        this.keydist = keydist;
+    }
+
+    public void setKeyskew(double keyskew)
+    {
+        this.keyskew = keyskew;
+    }
+
+    public void setHotkeys(double hotkeys)
+    {
+        this.hotkeys = hotkeys;
+    }
+
+    public void setHotops(double hotops)
+    {
+        this.hotops = hotops;
+    }
+
     // BENCHMARK API -- LISTED IN CALL ORDER.
 
     /**
@@ -165,6 +199,8 @@ public class TPCBScenario implements Scenario
         // Login to the database.
         configuration = new Configuration(numberOfBranches, tellersPerBranch,
                 accountsPerBranch);
+        accountChooser = KeyChooserFactory.getInstance().getChooser(keydist,
+                numberOfBranches * accountsPerBranch, keyskew, hotkeys, hotops);
         connection = new DatabaseConnection(url, user, password);
         connection.connect();
     }
@@ -220,6 +256,36 @@ public class TPCBScenario implements Scenario
         executeOneTransaction();
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * @see com.continuent.bristlecone.benchmark.Scenario#getTimedOperations()
+     */
+    public String[] getTimedOperations()
+    {
+        return TIMED_OPERATIONS;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see com.continuent.bristlecone.benchmark.Scenario#setTimingContext(com.continuent.bristlecone.benchmark.TimingContext)
+     */
+    public void setTimingContext(TimingContext timingContext)
+    {
+        this.timingContext = timingContext;
+    }
+
+    /**
+     * Roll back a failed transaction so that it can be retried.
+     * 
+     * @see com.continuent.bristlecone.benchmark.Scenario#rollback()
+     */
+    public void rollback() throws Exception
+    {
+        connection.getConnection().rollback();
+    }
+
     public void cleanup() throws Exception
     {
         connection.close();
@@ -273,14 +339,13 @@ public class TPCBScenario implements Scenario
         String filler = "0123456789";
         boolean performQuery = false;
 
-        // select random account, then compute teller and branch associated with
-        // the account.
-        accountID = (int) (Math.random() * (double) (configuration
-                .getNumberOfBranches() * configuration.getAccountsPerBranch()));
+        // select an account using the key distribution, then compute teller
+        // and branch associated with the account.
+        accountID = accountChooser.nextKey();
         tellerID = accountID * configuration.getTellersPerBranch()
                 / configuration.getAccountsPerBranch();
         branchID = accountID / configuration.getAccountsPerBranch();
-        amount = (int) (Math.random() * (double) (debitRange * 2)) - debitRange;
+        amount = ThreadRandom.nextInt(debitRange * 2) - debitRange;
 
         try
         {
@@ -294,7 +359,7 @@ public class TPCBScenario implements Scenario
             }
 
             // Decide whether to read or write.
-            if (Math.random() * 100 <= queryPCT)
+            if (ThreadRandom.nextDouble() * 100 <= queryPCT)
                 performQuery = true;
             else
                 performQuery = false;
@@ -304,7 +369,9 @@ public class TPCBScenario implements Scenario
                 // logger.info("QUERY: ano = " + accountID);
                 statistics.incrementQueryCount();
                 accountQuery.setInt(1, accountID);
+                timingContext.start("query");
                 accountQuery.execute();
+                timingContext.stop();
             }
             else
             {
@@ -324,6 +391,7 @@ public class TPCBScenario implements Scenario
                 historyInsert.setInt(4, amount);
                 historyInsert.setString(5, filler);
 
+                timingContext.start("update");
                 if (updateBranch)
                     branchUpdate.execute();
                 if (updateTeller)
@@ -332,7 +400,10 @@ public class TPCBScenario implements Scenario
                     accountUpdate.execute();
                 if (insertHistory)
                     historyInsert.execute();
+                timingContext.stop();
+                timingContext.start("commit");
                 connection.commit();
+                timingContext.stop();
             }
 
         }
@@ -34,6 +34,7 @@ import org.apache.log4j.Logger;
 import com.continuent.bristlecone.benchmark.db.Column;
 import com.continuent.bristlecone.benchmark.db.Table;
 import com.continuent.bristlecone.benchmark.db.TableHelper;
+import com.continuent.bristlecone.utils.JfrSupport;
 
 /**
  * Implements a generic flush capability between master and slave servers using
@@ -147,14 +148,21 @@ public class LivenessChecker
         boolean isFlushed = false;
         long now = System.currentTimeMillis();
         long timeoutMillis = now + (timeout * 1000);
+        LivenessFlushEvent event = null;
+        if (JfrSupport.isAvailable() && LivenessFlushEvent.isTypeEnabled())
+        {
+            event = new LivenessFlushEvent();
+            event.begin();
+        }
 
         // Update on the master.
         currentSeqno++;
+        int rows;
         try
         {
             updateStmt.setLong(1, currentSeqno);
             updateStmt.setLong(2, now);
-            int rows = updateStmt.executeUpdate();
+            rows = updateStmt.executeUpdate();
             if (logger.isDebugEnabled())
             {
                 logger.debug("Updated master heartbeat table: id=" + key
@@ -195,7 +203,15 @@ public class LivenessChecker
             }
         }
 
-        // Return flush status.
+        // Record the flush and return its status.
+        if (event != null)
+        {
+            event.table = heartbeatTab.getName();
+            event.seqno = currentSeqno;
+            event.rows = rows;
+            event.flushed = isFlushed;
+            event.commit();
+        }
         return isFlushed;
     }
 
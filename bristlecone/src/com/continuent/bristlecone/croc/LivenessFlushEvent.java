@@ -0,0 +1,67 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.croc;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for a single call to LivenessChecker.flush(), which lasts 
+ * until the slave catches up or the flush times out. 
+ * 
+ * @author rhodges
+ */
+@Name("bristlecone.LivenessFlush")
+@Label("Liveness Flush")
+@Category("Bristlecone")
+@Description("Wait for a slave to apply a master heartbeat")
+public class LivenessFlushEvent extends jdk.jfr.Event
+{
+    // Type handle used to check whether any recording wants this event
+    // before one is allocated.
+    private static final EventType TYPE = 
+            EventType.getEventType(LivenessFlushEvent.class);
+
+    @Label("Table")
+    String  table;
+
+    @Label("Sequence Number")
+    long    seqno;
+
+    @Label("Rows")
+    @Description("Master heartbeat rows updated")
+    int     rows;
+
+    @Label("Flushed")
+    @Description("False if the flush timed out")
+    boolean flushed;
+
+    /** Returns true if a running recording has this event enabled. */
+    static boolean isTypeEnabled()
+    {
+        return TYPE.isEnabled();
+    }
+}
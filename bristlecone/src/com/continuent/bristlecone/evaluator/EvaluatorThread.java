@@ -32,6 +32,8 @@ import java.util.Random;
 
 import org.apache.log4j.Logger;
 
+import com.continuent.bristlecone.utils.JfrSupport;
+
 public class EvaluatorThread extends Thread
 {
     private static Logger    logger          = Logger
@@ -43,6 +45,7 @@ public class EvaluatorThread extends Thread
     private int              updates;
     private int              inserts;
     private int              deletes;
+    private int              rowsAffected;
 
     private String           id;
     Connection               conn;
@@ -459,7 +462,7 @@ public class EvaluatorThread extends Thread
                 insert.setTimestamp(3, now);
                 insert.setTimestamp(4, now);
                 insert.setInt(5, rand.nextInt(1000));
-                processResults(insert);
+                processResults(insert, "insert");
 
                 inserts++;
                 // logger.debug("Row inserted " + k1 + "." + k2);
@@ -477,7 +480,7 @@ public class EvaluatorThread extends Thread
                 int k2 = rand.nextInt(conf.getTableGroup().getTableSize()) * 1000;
                 update.setInt(3, k1);
                 update.setInt(4, k2);
-                processResults(update);
+                processResults(update, "update");
                 updates++;
             }
             if (conf.isDeleteRequired(rand))
@@ -489,7 +492,7 @@ public class EvaluatorThread extends Thread
                 int k2 = rand.nextInt(conf.getTableGroup().getTableSize()) * 1000;
                 delete.setInt(1, k1);
                 delete.setInt(2, k2);
-                processResults(delete);
+                processResults(delete, "delete");
                 deletes++;
             }
 
@@ -526,15 +529,37 @@ public class EvaluatorThread extends Thread
 
         current = select;
         long queryStart = System.currentTimeMillis();
-        int i = processResults(select);
+        int i = processResults(select, "select");
         rowsRead += i;
         conf.addRowsRead(i, System.currentTimeMillis() - queryStart);
 
     }
 
+    /**
+     * Executes a statement and reads its results, emitting a JFR event for
+     * the operation if JFR is supported.
+     */
+    private int processResults(PreparedStatement s, String operation)
+            throws SQLException
+    {
+        if (!JfrSupport.isAvailable()
+                || !EvaluatorOperationEvent.isTypeEnabled())
+            return processResults(s);
+
+        EvaluatorOperationEvent event = new EvaluatorOperationEvent();
+        event.begin();
+        int result = processResults(s);
+        event.operation = operation;
+        event.table = conf.getJoinedTableName();
+        event.rows = (result > 0) ? result : rowsAffected;
+        event.commit();
+        return result;
+    }
+
     private int processResults(PreparedStatement s) throws SQLException
     {
         int result = 0;
+        rowsAffected = 0;
         boolean hasResultSet = s.execute();
         boolean done = false;
         while (!done)
@@ -556,6 +581,8 @@ public class EvaluatorThread extends Thread
             {
                 int updateCount = s.getUpdateCount();
                 done = updateCount == -1;
+                if (updateCount > 0)
+                    rowsAffected += updateCount;
             }
             hasResultSet = s.getMoreResults();
         }
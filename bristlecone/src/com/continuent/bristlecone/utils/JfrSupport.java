@@ -0,0 +1,62 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.utils;
+
+/**
+ * Reports whether Java Flight Recorder events can be used on this JVM.  
+ * The jdk.jfr API is present from JDK 8u262 and JDK 11.  Code that emits 
+ * events checks isAvailable() first so that event classes are never 
+ * loaded on older JVMs. 
+ * 
+ * @author rhodges
+ */
+public class JfrSupport
+{
+    private static final boolean available;
+
+    static
+    {
+        boolean found;
+        try
+        {
+            Class.forName("jdk.jfr.Event");
+            found = true;
+        }
+        catch (Throwable t)
+        {
+            found = false;
+        }
+        available = found;
+    }
+
+    // Not instantiated.
+    private JfrSupport()
+    {
+    }
+
+    /** Returns true if JFR events are supported by this JVM. */
+    public static boolean isAvailable()
+    {
+        return available;
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+
+package com.continuent.bristlecone.benchmark.test;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the time and memory that a piece of work takes on the current
+ * thread.  The work runs once to warm up the JIT compiler and is then 
+ * measured on a second run.  Allocated bytes come from per-thread 
+ * allocation counters, which are a HotSpot extension; if the JVM lacks 
+ * them only time is measured and isAvailable() returns false. 
+ *
+ * @author rhodges
+ */
+public class AllocationMeter
+{
+  /** Work to measure.  It must be safe to run more than once. */
+  public interface Task
+  {
+    public void run() throws Exception;
+  }
+
+  private com.sun.management.ThreadMXBean threadBean;
+  private double nanosPerOperation;
+  private long allocatedBytes;
+
+  /** Looks up the allocation counters and enables them if necessary. */
+  public AllocationMeter()
+  {
+    java.lang.management.ThreadMXBean mxBean = 
+        ManagementFactory.getThreadMXBean();
+    if (mxBean instanceof com.sun.management.ThreadMXBean)
+    {
+      threadBean = (com.sun.management.ThreadMXBean) mxBean;
+      if (!threadBean.isThreadAllocatedMemorySupported())
+        threadBean = null;
+      else if (!threadBean.isThreadAllocatedMemoryEnabled())
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+    }
+  }
+
+  /** Returns true if allocated bytes can be measured. */
+  public boolean isAvailable()
+  {
+    return threadBean != null;
+  }
+
+  /** 
+   * Runs a task to warm up, then runs it again and measures it. 
+   * 
+   * @param operations Number of operations the task performs, by which 
+   *        elapsed time is divided
+   * @param task Work to measure
+   */
+  public void measure(long operations, Task task) throws Exception
+  {
+    task.run();
+    long allocatedBefore = currentAllocatedBytes();
+    long start = System.nanoTime();
+    task.run();
+    nanosPerOperation = (System.nanoTime() - start) / (double) operations;
+    allocatedBytes = isAvailable() 
+        ? currentAllocatedBytes() - allocatedBefore : -1;
+  }
+
+  /** Returns nanoseconds per operation of the last measured run. */
+  public double getNanosPerOperation()
+  {
+    return nanosPerOperation;
+  }
+
+  /** 
+   * Returns bytes allocated by the last measured run, or -1 if they cannot
+   * be measured. 
+   */
+  public long getAllocatedBytes()
+  {
+    return allocatedBytes;
+  }
+
+  // Returns bytes allocated so far by the current thread. 
+  private long currentAllocatedBytes()
+  {
+    if (threadBean == null)
+      return 0;
+    return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+}
@@ -27,14 +27,44 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
+import java.io.InputStreamReader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Properties;
 import java.util.Vector;
 
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import junit.framework.TestCase;
 
 import com.continuent.bristlecone.benchmark.Benchmark;
+import com.continuent.bristlecone.benchmark.BenchmarkAgent;
+import com.continuent.bristlecone.benchmark.BenchmarkException;
+import com.continuent.bristlecone.benchmark.DistributedBenchmark;
+import com.continuent.bristlecone.benchmark.ResultLogger;
+import com.continuent.bristlecone.benchmark.Scenario;
+import com.continuent.bristlecone.benchmark.ThreadRandom;
+import com.continuent.bristlecone.benchmark.db.Column;
+import com.continuent.bristlecone.benchmark.db.ConnectionPool;
+import com.continuent.bristlecone.benchmark.db.Table;
+import com.continuent.bristlecone.benchmark.db.TableHelper;
+import com.continuent.bristlecone.benchmark.db.TableSet;
+import com.continuent.bristlecone.benchmark.db.TableSetHelper;
+import com.continuent.bristlecone.benchmark.impl.Config;
 import com.continuent.bristlecone.benchmark.impl.ConfigMetadata;
+import com.continuent.bristlecone.benchmark.impl.IntervalSample;
+import com.continuent.bristlecone.benchmark.impl.MetricsServer;
 import com.continuent.bristlecone.benchmark.impl.PropertyManager;
+import com.continuent.bristlecone.benchmark.impl.VirtualThreads;
+import com.continuent.bristlecone.benchmark.scenarios.MixedScenario;
 import com.continuent.bristlecone.benchmark.scenarios.ReadScalingAggregatesScenario;
 import com.continuent.bristlecone.benchmark.scenarios.ReadScalingInvertedKeysScenario;
 import com.continuent.bristlecone.benchmark.scenarios.ReadSimpleLargeResultsScenario;
@@ -326,19 +356,19 @@ public class BenchmarkTest extends TestCase
    */
   public void testBenchmarkExecution3() throws Exception
   {
-    ComplexScenario.clearCounters();
+    CountingScenario.clearCounters();
 
     // Set properties and run. 
     Properties props = new Properties(); 
     props.setProperty("threads", "3");
     props.setProperty("iterations", "2");
-    this.runScenario("Default", ComplexScenario.class, props, true, 2);
+    this.runScenario("Default", CountingScenario.class, props, true, 2);
     
     // Check that all methods were called once. 
     assertEquals("Global init called once", 1, ComplexScenario.calledGlobalPrepare);
     assertEquals("Global cleanup called once", 1, ComplexScenario.calledGlobalCleanup);
     assertEquals("Init called once", 3, ComplexScenario.calledInitialize);
-    assertEquals("Iterate called once", 6, ComplexScenario.calledIterate);
+    assertEquals("Iterate called once", 6, CountingScenario.iterations.get());
     assertEquals("Cleaned called once", 3, ComplexScenario.calledCleanup);
   }
   
@@ -379,7 +409,7 @@ public class BenchmarkTest extends TestCase
    */
   public void testBenchmarkExecution5() throws Exception
   {
-    ComplexScenario.clearCounters();
+    CountingScenario.clearCounters();
     SimpleMonitor.clearCounters();
 
     // Set properties and run. 
@@ -388,14 +418,14 @@ public class BenchmarkTest extends TestCase
     props.setProperty("bound", "iterations");
     props.setProperty("iterations", "10");
     props.setProperty("threads", "1|2");
-    this.runScenario("Default", ComplexScenario.class, props, true, 3);
+    this.runScenario("Default", CountingScenario.class, props, true, 3);
     
     // Check that global methods and start/stop are called once.  
     assertEquals("Global init called twice", 2, ComplexScenario.calledGlobalPrepare);
     assertEquals("Global cleanup called twice", 2, ComplexScenario.calledGlobalCleanup);
     assertEquals("Init called three times", 3, ComplexScenario.calledInitialize);
     assertEquals("Cleanup called three times", 3, ComplexScenario.calledCleanup);
-    assertEquals("Iterate called 30 times", 30, ComplexScenario.calledIterate);
+    assertEquals("Iterate called 30 times", 30, CountingScenario.iterations.get());
     
     // Check that the monitor methods were called once per run. 
     assertEquals("Prepare called twice", 2, SimpleMonitor.calledPrepare);
@@ -413,14 +443,14 @@ public class BenchmarkTest extends TestCase
    */
   public void testBenchmarkExecution6() throws Exception
   {
-    ComplexScenario.clearCounters();
+    CountingScenario.clearCounters();
 
     // Set properties and run. 
     Properties props = new Properties(); 
     props.setProperty("bound", "duration");
     props.setProperty("duration", "2");
     props.setProperty("threads", "1|2");
-    this.runScenario("Default", ComplexScenario.class, props, true, 3);
+    this.runScenario("Default", CountingScenario.class, props, true, 3);
     
     // Check that global methods and start/stop are called once.  
     assertEquals("Global init called twice", 2, ComplexScenario.calledGlobalPrepare);
@@ -430,9 +460,1254 @@ public class BenchmarkTest extends TestCase
     
     // Ensure that we iterated at least 1000 times.  This is a fair smaller number
     // than should actually have occurred. 
-    assertTrue("Iterations > 1000", ComplexScenario.calledIterate > 1000);
+    assertTrue("Iterations > 1000", CountingScenario.iterations.get() > 1000);
    }
 
+  /** 
+   * Show that a run with a fixed arrival rate paces iterations rather than 
+   * running them as fast as possible.  At 200 ops/sec for 2 seconds we 
+   * should see about 400 iterations. 
+   */
+  public void testBenchmarkExecution7() throws Exception
+  {
+    ComplexScenario.clearCounters();
+
+    // Set properties and run. 
+    Properties props = new Properties(); 
+    props.setProperty("bound", "duration");
+    props.setProperty("duration", "2");
+    props.setProperty("rate", "200");
+    this.runScenario("Default", ComplexScenario.class, props, true, 2);
+    
+    assertTrue("Iterations > 300", ComplexScenario.calledIterate > 300);
+    assertTrue("Iterations <= 400", ComplexScenario.calledIterate <= 400);
+  }
+
+  /** 
+   * Show that warmup iterations are run in addition to measured iterations 
+   * and that the scenario is set up only once per thread. 
+   */
+  public void testBenchmarkExecution8() throws Exception
+  {
+    CountingScenario.clearCounters();
+
+    // Set properties and run. 
+    Properties props = new Properties(); 
+    props.setProperty("bound", "iterations");
+    props.setProperty("iterations", "10");
+    props.setProperty("warmup", "5");
+    props.setProperty("threads", "1|2");
+    this.runScenario("Default", CountingScenario.class, props, true, 3);
+    
+    assertEquals("Init called three times", 3, ComplexScenario.calledInitialize);
+    assertEquals("Iterate called 45 times", 45, CountingScenario.iterations.get());
+  }
+
+  /** 
+   * Show that a thread that fails during warmup does not pull the start 
+   * of measurement back to the start of the run.  A 1 second warmup 
+   * followed by a 1 second run must report about 1 second, not 2. 
+   */
+  public void testWarmupFailure() throws Exception
+  {
+    Benchmark benchmark = new Benchmark();
+    Vector<Config> results = captureResults(benchmark);
+
+    // Set properties and run. 
+    Properties props = new Properties(); 
+    props.setProperty("bound", "duration");
+    props.setProperty("duration", "1");
+    props.setProperty("warmup", "1");
+    props.setProperty("threads", "2");
+    this.runScenario("WarmupFailure", WarmupFailureScenario.class, props, 
+        true, 2, benchmark);
+
+    Config result = results.get(0);
+    assertEquals("One thread failed", 1.0, 
+        result.getPropertyAsDouble("actualOtherExceptions"));
+    double duration = result.getPropertyAsDouble("actualDuration");
+    assertTrue("Duration excludes warmup: " + duration, duration < 1.5);
+  }
+
+  /** 
+   * Tests interval sampling.  A 2 second run sampled every 500ms should 
+   * write a header plus at least 4 interval rows whose iterations add up
+   * to the total. 
+   */
+  public void testBenchmarkExecution9() throws Exception
+  {
+    ComplexScenario.clearCounters();
+
+    // Write properties definition to a file. 
+    Properties props = new Properties(); 
+    props.setProperty("bound", "duration");
+    props.setProperty("duration", "2");
+    props.setProperty("rate", "100");
+    props.setProperty("sampleInterval", "500");
+    props.setProperty("threads", "1");
+    props.setProperty("scenario", ComplexScenario.class.getName());
+    File benchprops = File.createTempFile("Interval", ".properties");
+    FileOutputStream os = new FileOutputStream(benchprops);
+    props.store(os, "# Test properties file for BenchMark unit test");
+    os.close();
+    File intervalCsv = File.createTempFile("Interval", ".csv");
+
+    // Run the benchmark. 
+    Benchmark benchmark = new Benchmark(); 
+    benchmark.setProps(benchprops.getAbsolutePath());
+    benchmark.setIntervalCsv(intervalCsv.getAbsolutePath());
+    benchmark.go();
+
+    // Check the time series. 
+    BufferedReader br = new BufferedReader(new FileReader(intervalCsv));
+    String header = br.readLine();
+    assertTrue("Header has ops/sec", header.indexOf("opsPerSecond") >= 0);
+    List<String> columns = Arrays.asList(header.split(", "));
+    int iterationsColumn = columns.indexOf("iterations");
+    int p50Column = columns.indexOf("p50Millis");
+    int maxColumn = columns.indexOf("maxMillis");
+    assertTrue("Header has iterations", iterationsColumn >= 0);
+    int rows = 0;
+    long iterations = 0;
+    String line;
+    while ((line = br.readLine()) != null)
+    {
+      String[] fields = line.split(", ");
+      iterations += Long.parseLong(fields[iterationsColumn]);
+      assertTrue("p50 <= max: " + line, Double.parseDouble(fields[p50Column]) 
+          <= Double.parseDouble(fields[maxColumn]));
+      rows++;
+    }
+    br.close();
+
+    assertTrue("Expected at least 4 samples: " + rows, rows >= 4);
+    assertEquals("Samples cover all iterations", 
+        ComplexScenario.calledIterate, iterations);
+
+    benchprops.delete();
+    intervalCsv.delete();
+  }
+
+  /** 
+   * Tests the thread knee search.  With a maximum of 2 threads the search 
+   * always measures 1 and 2 threads, which generates 3 lines of csv output.
+   * Both results carry the knee and are reported in order of threads. 
+   */
+  public void testBenchmarkExecution10() throws Exception
+  {
+    CountingScenario.clearCounters();
+    Benchmark benchmark = new Benchmark();
+    Vector<Config> results = captureResults(benchmark);
+
+    // Set properties and run. 
+    Properties props = new Properties(); 
+    props.setProperty("bound", "iterations");
+    props.setProperty("iterations", "10");
+    props.setProperty("threads", "1");
+    props.setProperty("threadSearch", "true");
+    props.setProperty("threadSearchMax", "2");
+    this.runScenario("Default", CountingScenario.class, props, true, 3, 
+        benchmark);
+    
+    assertEquals("Iterate called 30 times", 30, CountingScenario.iterations.get());
+    assertEquals("Results", 2, results.size());
+    int knee = results.get(0).getPropertyAsInt("actualKneeThreads");
+    assertTrue("Knee is a measured point: " + knee, knee == 1 || knee == 2);
+    for (int i = 0; i < results.size(); i++)
+    {
+      assertEquals("Threads", i + 1, 
+          results.get(i).getPropertyAsInt("threads"));
+      assertEquals("Knee", knee, 
+          results.get(i).getPropertyAsInt("actualKneeThreads"));
+    }
+  }
+
+  /** 
+   * Tests a distributed run on two agents listening on local sockets.  Each
+   * agent runs all threads, only one agent calls globalPrepare(), and the 
+   * results merge into a single line of csv output. 
+   */
+  public void testBenchmarkExecution11() throws Exception
+  {
+    CountingScenario.clearCounters();
+    BenchmarkAgent agent1 = new BenchmarkAgent(0);
+    BenchmarkAgent agent2 = new BenchmarkAgent(0);
+    new Thread(agent1, "agent1").start();
+    new Thread(agent2, "agent2").start();
+
+    // Set properties and run. 
+    Properties props = new Properties(); 
+    props.setProperty("bound", "iterations");
+    props.setProperty("iterations", "10");
+    props.setProperty("threads", "2");
+    DistributedBenchmark benchmark = new DistributedBenchmark(new String[] {
+        "localhost:" + agent1.getPort(), "localhost:" + agent2.getPort()});
+    try
+    {
+      this.runScenario("Default", CountingScenario.class, props, true, 2, 
+          benchmark);
+    }
+    finally
+    {
+      agent1.close();
+      agent2.close();
+    }
+    
+    assertEquals("Iterate called 40 times", 40, CountingScenario.iterations.get());
+    assertEquals("Global prepare called once", 1, 
+        ComplexScenario.calledGlobalPrepare);
+  }
+
+  /** 
+   * Tests that timed operations of a distributed run are merged from the 
+   * agent histograms, so counts cover all agents and percentiles are 
+   * ordered. 
+   */
+  public void testDistributedTimedOperations() throws Exception
+  {
+    TimedScenario.clearCounters();
+    BenchmarkAgent agent1 = new BenchmarkAgent(0);
+    BenchmarkAgent agent2 = new BenchmarkAgent(0);
+    new Thread(agent1, "agent1").start();
+    new Thread(agent2, "agent2").start();
+
+    // Set properties and run. 
+    Properties props = new Properties(); 
+    props.setProperty("bound", "iterations");
+    props.setProperty("iterations", "10");
+    props.setProperty("threads", "2");
+    DistributedBenchmark benchmark = new DistributedBenchmark(new String[] {
+        "localhost:" + agent1.getPort(), "localhost:" + agent2.getPort()});
+    Vector<Config> results = captureResults(benchmark);
+    try
+    {
+      this.runScenario("Default", TimedScenario.class, props, true, 2, 
+          benchmark);
+    }
+    finally
+    {
+      agent1.close();
+      agent2.close();
+    }
+
+    Config result = results.get(0);
+    assertEquals("Inner count", 40.0, 
+        result.getPropertyAsDouble("op.inner.count"), 0.0);
+    double p50 = result.getPropertyAsDouble("op.inner.p50Millis");
+    double p99 = result.getPropertyAsDouble("op.inner.p99Millis");
+    double max = result.getPropertyAsDouble("op.inner.maxMillis");
+    assertTrue("Inner timer includes sleep: " + p50, p50 >= 1.0);
+    assertTrue("p50 <= p99 <= max", p50 <= p99 && p99 <= max);
+  }
+
+  /** 
+   * Tests that agents forward interval samples and that the coordinator
+   * merges them, so that the merged samples cover the iterations of all 
+   * agents. 
+   */
+  public void testDistributedSamples() throws Exception
+  {
+    CountingScenario.clearCounters();
+    BenchmarkAgent agent1 = new BenchmarkAgent(0);
+    BenchmarkAgent agent2 = new BenchmarkAgent(0);
+    new Thread(agent1, "agent1").start();
+    new Thread(agent2, "agent2").start();
+
+    // Set properties and run. 
+    Properties props = new Properties(); 
+    props.setProperty("bound", "duration");
+    props.setProperty("duration", "1");
+    props.setProperty("rate", "200");
+    props.setProperty("sampleInterval", "250");
+    props.setProperty("threads", "1");
+    DistributedBenchmark benchmark = new DistributedBenchmark(new String[] {
+        "localhost:" + agent1.getPort(), "localhost:" + agent2.getPort()});
+    Vector<Config> results = captureResults(benchmark);
+    Vector<IntervalSample> samples = captureSamples(benchmark);
+    try
+    {
+      this.runScenario("Default", CountingScenario.class, props, true, 2, 
+          benchmark);
+    }
+    finally
+    {
+      agent1.close();
+      agent2.close();
+    }
+
+    assertTrue("Expected at least 3 samples: " + samples.size(), 
+        samples.size() >= 3);
+    long iterations = 0;
+    for (IntervalSample sample : samples)
+    {
+      iterations += sample.getIterations();
+      assertTrue("p50 <= max", sample.getP50Millis() <= sample.getMaxMillis());
+    }
+    assertEquals("Samples cover all agents", 
+        CountingScenario.iterations.get(), iterations);
+    assertEquals("Result covers all agents", (double) iterations, 
+        results.get(0).getPropertyAsDouble("actualIterations"), 0.0);
+  }
+
+  /** 
+   * Tests named operation timers.  Each operation gets its own output 
+   * columns, and a nested timer is never longer than the timer around it. 
+   */
+  public void testBenchmarkExecution12() throws Exception
+  {
+    TimedScenario.clearCounters();
+    Benchmark benchmark = new Benchmark();
+    Vector<Config> results = captureResults(benchmark);
+
+    // Set properties and run. 
+    Properties props = new Properties(); 
+    props.setProperty("bound", "iterations");
+    props.setProperty("iterations", "10");
+    props.setProperty("threads", "2");
+    this.runScenario("Default", TimedScenario.class, props, true, 2, 
+        benchmark);
+
+    assertEquals("Outer count", 20.0, 
+        results.get(0).getPropertyAsDouble("op.outer.count"), 0.0);
+    assertEquals("Inner count", 20.0, 
+        results.get(0).getPropertyAsDouble("op.inner.count"), 0.0);
+    double inner = results.get(0).getPropertyAsDouble("op.inner.maxMillis");
+    double outer = results.get(0).getPropertyAsDouble("op.outer.maxMillis");
+    assertTrue("Inner timer includes sleep: " + inner, inner >= 1.0);
+    assertTrue("Outer timer includes inner: " + outer, outer >= inner);
+  }
+
+  /** 
+   * Tests SQL error classification and retries.  Serialization failures are
+   * retried and succeed on the second attempt, whereas connection errors 
+   * are counted but never retried. 
+   */
+  public void testBenchmarkExecution13() throws Exception
+  {
+    Benchmark benchmark = new Benchmark();
+    Vector<Config> results = captureResults(benchmark);
+
+    // Set properties and run. 
+    FlakyScenario.clearCounters();
+    Properties props = new Properties(); 
+    props.setProperty("bound", "iterations");
+    props.setProperty("iterations", "10");
+    props.setProperty("threads", "2");
+    props.setProperty("retries", "3");
+    props.setProperty("retryBackoffMillis", "1");
+    props.setProperty("failState", "40001|08006");
+    this.runScenario("Default", FlakyScenario.class, props, true, 3, 
+        benchmark);
+
+    Config retried = results.get(0);
+    assertEquals("Serialization errors", 20.0, 
+        retried.getPropertyAsDouble("actualSerializationErrors"), 0.0);
+    assertEquals("Retries", 20.0, 
+        retried.getPropertyAsDouble("actualRetries"), 0.0);
+    assertEquals("Retried ops", 20.0, 
+        retried.getPropertyAsDouble("actualRetriedOps"), 0.0);
+
+    Config failed = results.get(1);
+    assertEquals("Connection errors", 20.0, 
+        failed.getPropertyAsDouble("actualConnectionErrors"), 0.0);
+    assertEquals("No retries", 0.0, 
+        failed.getPropertyAsDouble("actualRetries"), 0.0);
+    assertEquals("SQL exceptions", 20.0, 
+        failed.getPropertyAsDouble("actualSQLExceptions"), 0.0);
+  }
+
+  /** 
+   * Tests that retry backoff is capped.  Uncapped, the initial backoff 
+   * alone would delay each retry by several seconds on average. 
+   */
+  public void testRetryBackoffCap() throws Exception
+  {
+    FlakyScenario.clearCounters();
+    Properties props = new Properties(); 
+    props.setProperty("bound", "iterations");
+    props.setProperty("iterations", "10");
+    props.setProperty("threads", "1");
+    props.setProperty("retries", "1");
+    props.setProperty("retryBackoffMillis", "10000");
+    props.setProperty("retryBackoffMaxMillis", "1");
+    Benchmark benchmark = new Benchmark();
+    Vector<Config> results = captureResults(benchmark);
+    long start = System.currentTimeMillis();
+    this.runScenario("Default", FlakyScenario.class, props, true, 2, 
+        benchmark);
+    long elapsed = System.currentTimeMillis() - start;
+    assertEquals("Retried ops", 10.0, 
+        results.get(0).getPropertyAsDouble("actualRetriedOps"), 0.0);
+    assertTrue("Backoff capped: millis=" + elapsed, elapsed < 5000);
+  }
+
+  /** 
+   * Tests that a failed attempt is rolled back before it is retried.  Each
+   * first attempt inserts a row and then fails, so without the rollback the
+   * retry would commit the row a second time. 
+   */
+  public void testRetryRollback() throws Exception
+  {
+    Properties props = new Properties(); 
+    props.setProperty("bound", "iterations");
+    props.setProperty("iterations", "10");
+    props.setProperty("threads", "1");
+    props.setProperty("retries", "1");
+    props.setProperty("retryBackoffMillis", "0");
+    props.setProperty("url", url);
+    props.setProperty("user", user);
+    props.setProperty("password", password);
+    Benchmark benchmark = new Benchmark();
+    Vector<Config> results = captureResults(benchmark);
+    this.runScenario("Default", RetryWriteScenario.class, props, true, 2, 
+        benchmark);
+    assertEquals("Retried ops", 10.0, 
+        results.get(0).getPropertyAsDouble("actualRetriedOps"), 0.0);
+
+    Connection conn = new TableHelper(url, user, password).getConnection();
+    try
+    {
+      ResultSet rs = conn.createStatement().executeQuery(
+          "select mykey, count(*) from " + RetryWriteScenario.TABLE 
+          + " group by mykey");
+      int keys = 0;
+      while (rs.next())
+      {
+        keys++;
+        assertEquals("Rows for key " + rs.getLong(1), 1, rs.getInt(2));
+      }
+      assertEquals("Keys inserted", 10, keys);
+    }
+    finally
+    {
+      conn.close();
+    }
+  }
+
+  /** 
+   * Tests resuming a campaign.  We cut the journal back to the first 
+   * finished run plus a partial result of the second, then resume.  Only
+   * the second and third runs execute again, and the csv output still has 
+   * all three runs. 
+   */
+  public void testBenchmarkExecution14() throws Exception
+  {
+    // Write properties definition to a file. 
+    Properties props = new Properties(); 
+    props.setProperty("bound", "iterations");
+    props.setProperty("iterations", "5");
+    props.setProperty("threads", "1|2|3");
+    props.setProperty("scenario", CountingScenario.class.getName());
+    File benchprops = File.createTempFile("Resume", ".properties");
+    FileOutputStream os = new FileOutputStream(benchprops);
+    props.store(os, "# Test properties file for BenchMark unit test");
+    os.close();
+    File journal = new File(benchprops.getAbsolutePath() + ".journal");
+
+    // Run the full campaign. 
+    CountingScenario.clearCounters();
+    Benchmark benchmark = new Benchmark(); 
+    benchmark.setProps(benchprops.getAbsolutePath());
+    benchmark.go();
+    assertEquals("Full campaign iterations", 30, CountingScenario.iterations.get());
+
+    // Keep the first finished run and part of the second. 
+    BufferedReader br = new BufferedReader(new FileReader(journal));
+    String first = br.readLine();
+    String done = br.readLine();
+    String partial = br.readLine();
+    br.close();
+    assertTrue("First run is done: " + done, done.startsWith("DONE"));
+    FileWriter fw = new FileWriter(journal);
+    fw.write(first + "\n" + done + "\n" + partial + "\n");
+    fw.close();
+
+    // Resume and confirm the first run is skipped but still reported. 
+    CountingScenario.clearCounters();
+    File csv = File.createTempFile("Resume", ".csv");
+    benchmark = new Benchmark(); 
+    benchmark.setProps(benchprops.getAbsolutePath());
+    benchmark.setCsv(csv.getAbsolutePath());
+    benchmark.setResume(true);
+    benchmark.go();
+    assertEquals("Resumed campaign iterations", 25, 
+        CountingScenario.iterations.get());
+
+    int lines = 0;
+    br = new BufferedReader(new FileReader(csv));
+    while (br.readLine() != null)
+      lines++;
+    br.close();
+    assertEquals("All runs in csv output", 4, lines);
+
+    benchprops.delete();
+    journal.delete();
+    csv.delete();
+  }
+
+  /** 
+   * Tests that a new campaign does not silently discard the journal of an
+   * unfinished campaign.  Rerunning a finished campaign is allowed, but a 
+   * journal with only some runs finished requires overwrite.  A journal 
+   * holding none of the runs, such as one written before properties were 
+   * edited, is replaced, and a journal that cannot be written does not 
+   * stop a new campaign. 
+   */
+  public void testJournalOverwrite() throws Exception
+  {
+    // Write properties definition to a file. 
+    Properties props = new Properties(); 
+    props.setProperty("bound", "iterations");
+    props.setProperty("iterations", "5");
+    props.setProperty("threads", "1|2|3");
+    props.setProperty("scenario", CountingScenario.class.getName());
+    File benchprops = File.createTempFile("Overwrite", ".properties");
+    FileOutputStream os = new FileOutputStream(benchprops);
+    props.store(os, "# Test properties file for BenchMark unit test");
+    os.close();
+    File journal = new File(benchprops.getAbsolutePath() + ".journal");
+
+    // Run the full campaign twice. 
+    for (int i = 0; i < 2; i++)
+    {
+      CountingScenario.clearCounters();
+      Benchmark benchmark = new Benchmark(); 
+      benchmark.setProps(benchprops.getAbsolutePath());
+      benchmark.go();
+      assertEquals("Full campaign iterations", 30, 
+          CountingScenario.iterations.get());
+    }
+
+    // Keep only the first finished run. 
+    BufferedReader br = new BufferedReader(new FileReader(journal));
+    String first = br.readLine();
+    String done = br.readLine();
+    br.close();
+    FileWriter fw = new FileWriter(journal);
+    fw.write(first + "\n" + done + "\n");
+    fw.close();
+
+    // A new campaign is refused without overwrite. 
+    CountingScenario.clearCounters();
+    Benchmark benchmark = new Benchmark(); 
+    benchmark.setProps(benchprops.getAbsolutePath());
+    try
+    {
+      benchmark.go();
+      fail("Started new campaign over unfinished journal");
+    }
+    catch (BenchmarkException e)
+    {
+      assertEquals("No runs", 0, CountingScenario.iterations.get());
+    }
+    assertEquals("Journal kept", first.length() + done.length() + 2, 
+        journal.length());
+
+    // With overwrite the campaign runs again. 
+    benchmark = new Benchmark(); 
+    benchmark.setProps(benchprops.getAbsolutePath());
+    benchmark.setOverwrite(true);
+    benchmark.go();
+    assertEquals("Overwritten campaign iterations", 30, 
+        CountingScenario.iterations.get());
+
+    // Keep only the first finished run again, then edit a property.  The 
+    // journal belongs to another campaign and is replaced. 
+    fw = new FileWriter(journal);
+    fw.write(first + "\n" + done + "\n");
+    fw.close();
+    props.setProperty("iterations", "6");
+    os = new FileOutputStream(benchprops);
+    props.store(os, "# Test properties file for BenchMark unit test");
+    os.close();
+    CountingScenario.clearCounters();
+    benchmark = new Benchmark(); 
+    benchmark.setProps(benchprops.getAbsolutePath());
+    benchmark.go();
+    assertEquals("Edited campaign iterations", 36, 
+        CountingScenario.iterations.get());
+
+    // A journal that cannot be written does not stop a new campaign. 
+    File unwritable = new File(benchprops.getAbsolutePath() + ".missing", 
+        "journal");
+    CountingScenario.clearCounters();
+    benchmark = new Benchmark(); 
+    benchmark.setProps(benchprops.getAbsolutePath());
+    benchmark.setJournal(unwritable.getAbsolutePath());
+    benchmark.go();
+    assertEquals("Unjournaled campaign iterations", 36, 
+        CountingScenario.iterations.get());
+    assertFalse("No journal", unwritable.exists());
+
+    benchprops.delete();
+    journal.delete();
+  }
+
+  /** 
+   * Tests live metrics.  We scrape the metrics endpoint while a run is in 
+   * progress and confirm that it reports the run and its iterations. 
+   */
+  public void testBenchmarkExecution15() throws Exception
+  {
+    // Write properties definition to a file. 
+    Properties props = new Properties(); 
+    props.setProperty("bound", "duration");
+    props.setProperty("duration", "3");
+    props.setProperty("threads", "2");
+    props.setProperty("scenario", SimpleScenario.class.getName());
+    File benchprops = File.createTempFile("Metrics", ".properties");
+    FileOutputStream os = new FileOutputStream(benchprops);
+    props.store(os, "# Test properties file for BenchMark unit test");
+    os.close();
+
+    // Start the benchmark in the background. 
+    final Benchmark benchmark = new Benchmark(); 
+    benchmark.setProps(benchprops.getAbsolutePath());
+    benchmark.setMetricsPort(0);
+    Thread runner = new Thread("metrics-benchmark")
+    {
+      public void run()
+      {
+        benchmark.go();
+      }
+    };
+    runner.start();
+
+    // Scrape until the run is active and has iterations. 
+    String metrics = null;
+    for (int i = 0; i < 50; i++)
+    {
+      Thread.sleep(100);
+      int port = benchmark.getMetricsPort();
+      if (port <= 0)
+        continue;
+      metrics = readUrl("http://localhost:" + port + "/metrics");
+      if (metrics.indexOf("bristlecone_run_active 1") >= 0 
+          && metrics.indexOf("bristlecone_iterations_total 0\n") < 0)
+        break;
+    }
+    runner.join();
+
+    assertNotNull("Scraped metrics", metrics);
+    assertTrue("Run is active: " + metrics, 
+        metrics.indexOf("bristlecone_run_active 1") >= 0);
+    assertTrue("Two active threads: " + metrics, 
+        metrics.indexOf("bristlecone_active_threads 2.0") >= 0);
+    assertTrue("Latency quantiles: " + metrics, 
+        metrics.indexOf("bristlecone_latency_seconds{quantile=\"0.99\"}") >= 0);
+    assertTrue("Latencies recorded: " + metrics, 
+        metrics.indexOf("bristlecone_latency_seconds_count 0\n") < 0);
+    assertTrue("Run position: " + metrics, 
+        metrics.indexOf("bristlecone_run_index 1.0") >= 0);
+    assertTrue("Throughput: " + metrics, 
+        metrics.indexOf("bristlecone_ops_per_second 0.0\n") < 0);
+    benchprops.delete();
+    new File(benchprops.getAbsolutePath() + ".journal").delete();
+  }
+
+  /** 
+   * Tests that live metrics are served on the loopback address unless 
+   * another address is given. 
+   */
+  public void testMetricsBind() throws Exception
+  {
+    MetricsServer server = new MetricsServer(0);
+    assertTrue("Loopback: " + server.getBindAddress(), 
+        server.getBindAddress().isLoopbackAddress());
+    server.stop();
+
+    server = new MetricsServer("0.0.0.0", 0);
+    assertTrue("All interfaces: " + server.getBindAddress(), 
+        server.getBindAddress().isAnyLocalAddress());
+    server.stop();
+  }
+
+  /** 
+   * Tests flight recording of a run.  The recording file is written next to
+   * the csv output and contains one iteration event per iteration. 
+   */
+  public void testBenchmarkExecution16() throws Exception
+  {
+    Benchmark benchmark = new Benchmark();
+    Vector<Config> results = captureResults(benchmark);
+
+    // Set properties and run. 
+    Properties props = new Properties(); 
+    props.setProperty("bound", "iterations");
+    props.setProperty("iterations", "20");
+    props.setProperty("threads", "2");
+    props.setProperty("jfr", "true");
+    props.setProperty("tableprefix", "jfr_table_");
+    props.setProperty("datarows", "7");
+    this.runScenario("Jfr", SimpleScenario.class, props, true, 2, benchmark);
+
+    // Count iteration events in the recording. 
+    File jfrFile = new File(results.get(0).getProperty("actualJfrFile"));
+    assertTrue("Recording exists: " + jfrFile, jfrFile.exists());
+    assertEquals("Recording is next to results", 
+        new File(System.getProperty("java.io.tmpdir")).getCanonicalFile(), 
+        jfrFile.getParentFile().getCanonicalFile());
+    int iterationEvents = 0;
+    for (RecordedEvent event : RecordingFile.readAllEvents(jfrFile.toPath()))
+    {
+      if ("bristlecone.ScenarioIteration".equals(event.getEventType().getName()))
+      {
+        assertEquals("Table", "jfr_table_", event.getString("table"));
+        assertEquals("Rows", 7, event.getInt("rows"));
+        iterationEvents++;
+      }
+    }
+    assertEquals("Iteration events", 40, iterationEvents);
+    jfrFile.delete();
+  }
+
+  /** 
+   * Tests a weighted mix of scenarios.  Each component is reported as a 
+   * timed operation and its share of iterations follows the weights. 
+   */
+  public void testBenchmarkExecution17() throws Exception
+  {
+    Benchmark benchmark = new Benchmark();
+    Vector<Config> results = captureResults(benchmark);
+
+    // Set properties and run. 
+    SimpleScenario.clearCounters();
+    Properties props = new Properties(); 
+    props.setProperty("bound", "iterations");
+    props.setProperty("iterations", "200");
+    props.setProperty("threads", "1");
+    props.setProperty("url", url);
+    props.setProperty("user", user);
+    props.setProperty("password", password);
+    props.setProperty("tables", "1");
+    props.setProperty("datarows", "10");
+    props.setProperty("components", 
+        "WriteSimpleScenario," + SimpleScenario.class.getName());
+    props.setProperty("weights", "3,1");
+    this.runScenario("Mixed", MixedScenario.class, props, true, 2, benchmark);
+
+    Config result = results.get(0);
+    double writes = result.getPropertyAsDouble("op.WriteSimple.count");
+    double simple = result.getPropertyAsDouble("op.Simple.count");
+    assertEquals("All iterations counted", 200.0, writes + simple, 0.0);
+    assertEquals("Component iterations", (double) SimpleScenario.calledIterate, 
+        simple, 0.0);
+    assertTrue("Weights followed: writes=" + writes + " simple=" + simple, 
+        simple > 0 && writes > simple);
+    assertTrue("Component throughput", 
+        result.getPropertyAsDouble("op.WriteSimple.opsSec") > 0);
+  }
+
+  /** 
+   * Tests the virtual thread executor.  On JVMs with virtual threads every 
+   * iteration runs and a pinning count is reported; on older JVMs the run
+   * fails before any scenario is prepared. 
+   */
+  public void testVirtualExecutor() throws Exception
+  {
+    CountingScenario.clearCounters();
+    Benchmark benchmark = new Benchmark();
+    Vector<Config> results = captureResults(benchmark);
+
+    // Set properties and run. 
+    Properties props = new Properties(); 
+    props.setProperty("bound", "iterations");
+    props.setProperty("iterations", "10");
+    props.setProperty("threads", "4");
+    props.setProperty("executor", "virtual");
+    if (VirtualThreads.isSupported())
+    {
+      this.runScenario("Virtual", CountingScenario.class, props, true, 2, 
+          benchmark);
+      assertEquals("Iterate called 40 times", 40, 
+          CountingScenario.iterations.get());
+      assertEquals("Iterations", 40.0, 
+          results.get(0).getPropertyAsDouble("actualIterations"), 0.0);
+      assertTrue("Pinned events reported", 
+          results.get(0).getPropertyAsDouble("actualPinnedEvents") >= 0);
+    }
+    else
+    {
+      try
+      {
+        this.runScenario("Virtual", CountingScenario.class, props, true, 2, 
+            benchmark);
+        fail("Virtual executor ran on a JVM without virtual threads");
+      }
+      catch (BenchmarkException e)
+      {
+        assertTrue("Message names requirement: " + e.getMessage(), 
+            e.getMessage().indexOf("Java 21") >= 0);
+      }
+      assertEquals("No scenario prepared", 0, ComplexScenario.calledPrepare);
+    }
+  }
+
+  /** 
+   * Tests a mix of a component that leaves auto-commit off with one that 
+   * writes in auto-commit mode.  Every write must be committed. 
+   */
+  public void testMixedWritesCommitted() throws Exception
+  {
+    Benchmark benchmark = new Benchmark();
+    Vector<Config> results = captureResults(benchmark);
+
+    // Set properties and run. 
+    Properties props = new Properties(); 
+    props.setProperty("bound", "iterations");
+    props.setProperty("iterations", "50");
+    props.setProperty("threads", "1");
+    props.setProperty("url", url);
+    props.setProperty("user", user);
+    props.setProperty("password", password);
+    props.setProperty("tables", "1");
+    props.setProperty("datarows", "10");
+    props.setProperty("components", 
+        "ReadSimpleLargeResultsScenario,WriteSimpleScenario");
+    this.runScenario("MixedCommit", MixedScenario.class, props, true, 2, 
+        benchmark);
+
+    Config result = results.get(0);
+    assertEquals("SQL exceptions", 0.0, 
+        result.getPropertyAsDouble("actualSQLExceptions"), 0.0);
+    double writes = result.getPropertyAsDouble("op.WriteSimple.count");
+    assertTrue("Both components ran: writes=" + writes, 
+        writes > 0 && writes < 50);
+
+    // The write component uses the second table prefix. 
+    Connection conn = new TableHelper(url, user, password).getConnection();
+    try
+    {
+      ResultSet rs = conn.createStatement().executeQuery(
+          "select count(*) from benchmark_scenario_1_0");
+      rs.next();
+      assertEquals("Committed rows", 10 + (int) writes, rs.getInt(1));
+    }
+    finally
+    {
+      conn.close();
+    }
+  }
+  /** 
+   * Tests that if a component fails and the shared connection then cannot
+   * be restored, the component's exception is what the mix throws. 
+   */
+  public void testMixedRestoreFailure() throws Exception
+  {
+    final Connection broken = (Connection) Proxy.newProxyInstance(
+        Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+        new InvocationHandler()
+        {
+          public Object invoke(Object proxy, Method method, Object[] args) 
+              throws Throwable
+          {
+            throw new SQLException("Connection lost");
+          }
+        });
+    MixedScenario mix = new MixedScenario()
+    {
+      {
+        scenarios = new Scenario[] {new FlakyScenario()};
+        names = new String[] {"Flaky"};
+        cumulativeWeights = new int[] {1};
+        conn = broken;
+        autoCommit = true;
+      }
+
+      protected void startTimer(String operation)
+      {
+      }
+
+      protected void stopTimer()
+      {
+      }
+    };
+
+    try
+    {
+      mix.iterate(1);
+      fail("Component failure not thrown");
+    }
+    catch (SQLException e)
+    {
+      assertEquals("Component exception", "Simulated failure", e.getMessage());
+    }
+  }
+
+
+  /** 
+   * Tests pool mode.  More threads than connections run against the pool
+   * without errors, and pool waits are reported. 
+   */
+  public void testBenchmarkExecution18() throws Exception
+  {
+    Benchmark benchmark = new Benchmark();
+    Vector<Config> results = captureResults(benchmark);
+
+    // Set properties and run. 
+    Properties props = new Properties(); 
+    props.setProperty("bound", "iterations");
+    props.setProperty("iterations", "50");
+    props.setProperty("threads", "4");
+    props.setProperty("url", url);
+    props.setProperty("user", user);
+    props.setProperty("password", password);
+    props.setProperty("tables", "1");
+    props.setProperty("datarows", "10");
+    props.setProperty("poolSize", "2");
+    props.setProperty("poolValidation", "true");
+    this.runScenario("Pool", WriteSimpleScenario.class, props, true, 2, benchmark);
+
+    Config result = results.get(0);
+    assertEquals("Iterations", 200.0, 
+        result.getPropertyAsDouble("actualIterations"), 0.0);
+    assertEquals("SQL exceptions", 0.0, 
+        result.getPropertyAsDouble("actualSQLExceptions"), 0.0);
+    double connections = result.getPropertyAsDouble("actualPoolConnections");
+    assertTrue("Pool connections: " + connections, 
+        connections > 0 && connections <= 2);
+    assertEquals("Pool timeouts", 0.0, 
+        result.getPropertyAsDouble("actualPoolTimeouts"), 0.0);
+    double p50 = result.getPropertyAsDouble("actualPoolWaitP50Millis");
+    double max = result.getPropertyAsDouble("actualPoolWaitMaxMillis");
+    assertTrue("Pool wait reported: p50=" + p50 + " max=" + max, 
+        p50 <= max);
+  }
+
+  /** 
+   * Tests pool waits.  Two threads share one connection that each holds 
+   * for 20 milliseconds per iteration, so threads must wait about that long
+   * for the connection. 
+   */
+  public void testPoolWait() throws Exception
+  {
+    Benchmark benchmark = new Benchmark();
+    Vector<Config> results = captureResults(benchmark);
+
+    // Set properties and run. 
+    Properties props = new Properties(); 
+    props.setProperty("bound", "iterations");
+    props.setProperty("iterations", "10");
+    props.setProperty("threads", "2");
+    props.setProperty("url", url);
+    props.setProperty("user", user);
+    props.setProperty("password", password);
+    props.setProperty("poolSize", "1");
+    props.setProperty("sleepMillis", "20");
+    this.runScenario("PoolWait", PooledSleepScenario.class, props, true, 2, 
+        benchmark);
+
+    Config result = results.get(0);
+    assertEquals("Pool connections", 1.0, 
+        result.getPropertyAsDouble("actualPoolConnections"), 0.0);
+    double max = result.getPropertyAsDouble("actualPoolWaitMaxMillis");
+    assertTrue("Threads waited for the connection: " + max, max >= 10.0);
+  }
+
+  /** 
+   * Tests that a pooled connection does not carry settings of one logical
+   * connection over to another that never made them.  Both share a single
+   * physical connection; the second must see its initial auto-commit and
+   * read-only settings, while the first gets its own settings back. 
+   */
+  public void testPoolSettingsRestored() throws Exception
+  {
+    ConnectionPool pool = new ConnectionPool(url, user, password, 1, 1000, 
+        false);
+    Connection first = pool.getConnection();
+    Connection second = pool.getConnection();
+    assertTrue("Leased", pool.acquire());
+    boolean initialReadOnly = second.isReadOnly();
+    first.setAutoCommit(false);
+    first.setReadOnly(!initialReadOnly);
+    assertFalse("First setting applied", first.getAutoCommit());
+    pool.release();
+
+    assertTrue("Leased", pool.acquire());
+    assertTrue("Initial auto-commit restored", second.getAutoCommit());
+    assertEquals("Initial read-only restored", initialReadOnly, 
+        second.isReadOnly());
+    assertFalse("First setting replayed", first.getAutoCommit());
+    assertEquals("First read-only replayed", !initialReadOnly, 
+        first.isReadOnly());
+    pool.release();
+    assertEquals("One physical connection", 1, pool.getOpenedCount());
+    pool.close();
+  }
+
+  /** 
+   * Tests that poolSize is ignored for scenarios that keep their own 
+   * connections. 
+   */
+  public void testPoolUnsupported() throws Exception
+  {
+    Benchmark benchmark = new Benchmark();
+    Vector<Config> results = captureResults(benchmark);
+
+    // Set properties and run. 
+    Properties props = new Properties(); 
+    props.setProperty("bound", "iterations");
+    props.setProperty("iterations", "10");
+    props.setProperty("threads", "2");
+    props.setProperty("url", url);
+    props.setProperty("poolSize", "1");
+    this.runScenario("PoolUnsupported", SimpleScenario.class, props, true, 2, 
+        benchmark);
+
+    assertEquals("Pool connections", 0.0, 
+        results.get(0).getPropertyAsDouble("actualPoolConnections"), 0.0);
+  }
+
+  /** 
+   * Tests inserts with pooled data, which reports the CPU share used by 
+   * data generation. 
+   */
+  public void testBenchmarkExecution19() throws Exception
+  {
+    Benchmark benchmark = new Benchmark();
+    Vector<Config> results = captureResults(benchmark);
+
+    // Set properties and run. 
+    Properties props = new Properties(); 
+    props.setProperty("bound", "iterations");
+    props.setProperty("iterations", "100");
+    props.setProperty("threads", "2");
+    props.setProperty("url", url);
+    props.setProperty("user", user);
+    props.setProperty("password", password);
+    props.setProperty("tables", "1");
+    props.setProperty("datarows", "10");
+    props.setProperty("datapool", "50");
+    props.setProperty("datapoolrefresh", "1");
+    this.runScenario("DataPool", WriteSimpleScenario.class, props, true, 2, benchmark);
+
+    Config result = results.get(0);
+    assertEquals("SQL exceptions", 0.0, 
+        result.getPropertyAsDouble("actualSQLExceptions"), 0.0);
+    double cpu = result.getPropertyAsDouble("actualGeneratorCpuPercent");
+    assertTrue("Generator CPU share: " + cpu, cpu >= 0.0 && cpu <= 100.0);
+  }
+
+  /** 
+   * Tests inserts of large BLOB payloads that are generated and bound as 
+   * streams. 
+   */
+  public void testBenchmarkExecution20() throws Exception
+  {
+    Benchmark benchmark = new Benchmark();
+    Vector<Config> results = captureResults(benchmark);
+
+    // Set properties and run. 
+    Properties props = new Properties(); 
+    props.setProperty("bound", "iterations");
+    props.setProperty("iterations", "20");
+    props.setProperty("threads", "2");
+    props.setProperty("url", url);
+    props.setProperty("user", user);
+    props.setProperty("password", password);
+    props.setProperty("tables", "1");
+    props.setProperty("datarows", "10");
+    props.setProperty("datatype", "blob");
+    props.setProperty("datawidth", "1000000");
+    props.setProperty("lobstream", "true");
+    props.setProperty("datapool", "10");
+    this.runScenario("LobStream", WriteSimpleScenario.class, props, true, 2, benchmark);
+
+    Config result = results.get(0);
+    assertEquals("SQL exceptions", 0.0, 
+        result.getPropertyAsDouble("actualSQLExceptions"), 0.0);
+  }
+
+  /**
+   * Verify that a populated table set is fingerprinted and matches only a 
+   * table set with the same tables, rows, layout, and seed, and that 
+   * recreating the tables clears the fingerprint. 
+   */
+  public void testTableFingerprint() throws Exception
+  {
+    Column[] columns = new Column[] {
+        new Column("mykey", Types.INTEGER, -1, -1, true, false),
+        new Column("mypayload", Types.VARCHAR, 10)
+      };
+    TableSet tableSet = new TableSet("fingerprint_", 2, 10, columns);
+    TableSetHelper helper = new TableSetHelper(url, user, password);
+    ThreadRandom.setSeed(42);
+    helper.createAll(tableSet);
+    assertFalse("No fingerprint before population", 
+        helper.matchesFingerprint(tableSet, 0));
+    helper.populateAll(tableSet);
+    helper.writeFingerprint(tableSet);
+
+    assertTrue("Any seed", helper.matchesFingerprint(tableSet, 0));
+    assertTrue("Same seed", helper.matchesFingerprint(tableSet, 42));
+    assertFalse("Other seed", helper.matchesFingerprint(tableSet, 43));
+    assertFalse("Other rows", helper.matchesFingerprint(
+        new TableSet("fingerprint_", 2, 20, columns), 0));
+    Column[] wider = new Column[] {columns[0], 
+        new Column("mypayload", Types.VARCHAR, 20)};
+    assertFalse("Other layout", helper.matchesFingerprint(
+        new TableSet("fingerprint_", 2, 10, wider), 0));
+    Column[] randomKeys = new Column[] {
+        new Column("mykey", Types.INTEGER, -1, -1, false, false), columns[1]};
+    assertFalse("Other key generation", helper.matchesFingerprint(
+        new TableSet("fingerprint_", 2, 10, randomKeys), 0));
+    TableSet streamed = new TableSet("fingerprint_", 2, 10, columns);
+    streamed.setLobStreaming(true);
+    assertFalse("Streamed LOBs", helper.matchesFingerprint(streamed, 0));
+
+    // Dropped tables and recreated tables do not match. 
+    helper.drop(tableSet.getTables()[1], false);
+    assertFalse("Dropped table", helper.matchesFingerprint(tableSet, 0));
+    helper.createAll(tableSet);
+    assertFalse("Recreated tables", helper.matchesFingerprint(tableSet, 0));
+    helper.dropAll(tableSet, true);
+  }
+
+  /**
+   * Verify that loading with several threads inserts every row once, 
+   * that primary keys cover the key range without gaps, and that the data
+   * are the same as those loaded by a single thread. 
+   */
+  public void testParallelLoad() throws Exception
+  {
+    Column[] columns = new Column[] {
+        new Column("mykey", Types.INTEGER, -1, -1, true, false),
+        new Column("mypayload", Types.VARCHAR, 10)
+      };
+    TableSet tableSet = new TableSet("parallel_", 2, 1000, columns);
+    String[] data = new String[2];
+    int[] loadThreads = {1, 3};
+    for (int t = 0; t < loadThreads.length; t++)
+    {
+      TableSetHelper helper = new TableSetHelper(url, user, password);
+      helper.setLoadThreads(loadThreads[t]);
+      helper.setLoadBatchSize(7);
+      helper.setLoadCommitInterval(50);
+      ThreadRandom.setSeed(42);
+      helper.createAll(tableSet);
+      helper.populateAll(tableSet);
+
+      Connection conn = helper.getConnection();
+      StringBuffer sb = new StringBuffer();
+      for (Table table : tableSet.getTables())
+      {
+        ResultSet rs = conn.createStatement().executeQuery(
+            "select count(*), count(distinct mykey), min(mykey), max(mykey) from "
+            + table.getName());
+        assertTrue("Got counts", rs.next());
+        assertEquals("Rows", 1000, rs.getInt(1));
+        assertEquals("Distinct keys", 1000, rs.getInt(2));
+        assertEquals("Min key", 0, rs.getInt(3));
+        assertEquals("Max key", 999, rs.getInt(4));
+        rs.close();
+
+        rs = conn.createStatement().executeQuery("select mykey, mypayload from "
+            + table.getName() + " order by mykey");
+        while (rs.next())
+          sb.append(rs.getInt(1)).append('=').append(rs.getString(2)).append(' ');
+        rs.close();
+      }
+      data[t] = sb.toString();
+      helper.releaseConnection(conn);
+      helper.dropAll(tableSet, true);
+    }
+    assertEquals("Same data for any number of load threads", data[0], data[1]);
+  }
+
+  /**
+   * Verify that a run that reuses fingerprinted tables reports the seed 
+   * the tables were populated with rather than its own seed. 
+   */
+  public void testDataSeed() throws Exception
+  {
+    Benchmark benchmark = new Benchmark();
+    Vector<Config> results = captureResults(benchmark);
+
+    // Set properties and run twice with random seeds. 
+    Properties props = new Properties(); 
+    props.setProperty("bound", "iterations");
+    props.setProperty("iterations", "10");
+    props.setProperty("threads", "1|2");
+    props.setProperty("url", url);
+    props.setProperty("user", user);
+    props.setProperty("password", password);
+    props.setProperty("tableprefix", "dataseed_");
+    props.setProperty("datarows", "10");
+    this.runScenario("DataSeed", ReadSimpleScenario.class, props, true, 3, 
+        benchmark);
+
+    long seed1 = Long.parseLong(results.get(0).getProperty("actualSeed"));
+    long seed2 = Long.parseLong(results.get(1).getProperty("actualSeed"));
+    assertTrue("Runs have different seeds", seed1 != seed2);
+    assertEquals("First run populated", Long.toString(seed1), 
+        results.get(0).getProperty("actualDataSeed"));
+    assertEquals("Second run reused", Long.toString(seed1), 
+        results.get(1).getProperty("actualDataSeed"));
+  }
+
+  // Adds a logger to a benchmark that collects results in the order they
+  // are generated and returns the collection. 
+  private Vector<Config> captureResults(Benchmark benchmark)
+  {
+    final Vector<Config> results = new Vector<Config>();
+    benchmark.addLogger(new ResultLogger()
+    {
+      public void init(ConfigMetadata metadata)
+      {
+      }
+
+      public void resultGenerated(Config tuple)
+      {
+        results.add(tuple);
+      }
+
+      public void cleanup()
+      {
+      }
+    });
+    return results;
+  }
+
+  // Adds a logger to a benchmark that collects interval samples and 
+  // returns the collection. 
+  private Vector<IntervalSample> captureSamples(Benchmark benchmark)
+  {
+    final Vector<IntervalSample> samples = new Vector<IntervalSample>();
+    benchmark.addLogger(new ResultLogger()
+    {
+      public void init(ConfigMetadata metadata)
+      {
+      }
+
+      public void resultGenerated(Config tuple)
+      {
+      }
+
+      public void intervalGenerated(Config tuple, IntervalSample sample)
+      {
+        samples.add(sample);
+      }
+
+      public void cleanup()
+      {
+      }
+    });
+    return samples;
+  }
+
+  // Reads the contents of a URL as a string. 
+  private String readUrl(String url) throws Exception
+  {
+    StringBuffer sb = new StringBuffer();
+    BufferedReader br = new BufferedReader(new InputStreamReader(
+        new URL(url).openStream(), "UTF-8"));
+    String line;
+    while ((line = br.readLine()) != null)
+      sb.append(line).append('\n');
+    br.close();
+    return sb.toString();
+  }
+
   /** 
    * Tests off-the-shelf insert scenario with parameters designed to generate
    * 3 lines of csv output. 
@@ -686,6 +1961,17 @@ public class BenchmarkTest extends TestCase
    */ 
   public void runScenario(String name, Class<?> scenarioClass, Properties props,
       boolean consoleOutput, int expectedLines) throws Exception
+  {
+    runScenario(name, scenarioClass, props, consoleOutput, expectedLines, 
+        new Benchmark());
+  }
+
+  /**
+   * Runs a scenario on the given benchmark instance. 
+   */
+  public void runScenario(String name, Class<?> scenarioClass, Properties props,
+      boolean consoleOutput, int expectedLines, Benchmark benchmark) 
+      throws Exception
   {
     // Write properties definition to a file. 
     File benchprops = File.createTempFile(name, ".properties");
@@ -708,7 +1994,6 @@ public class BenchmarkTest extends TestCase
     writeTempFileLocation(html);
 
     // Run the benchmark.  
-    Benchmark benchmark = new Benchmark(); 
     benchmark.setProps(benchprops.getAbsolutePath());
     benchmark.setText(text.getAbsolutePath());
     benchmark.setCsv(csv.getAbsolutePath());
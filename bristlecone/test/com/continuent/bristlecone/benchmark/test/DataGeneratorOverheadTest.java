@@ -0,0 +1,167 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.test;
+
+import java.sql.PreparedStatement;
+import java.sql.Types;
+
+import junit.framework.TestCase;
+
+import org.apache.log4j.Logger;
+
+import com.continuent.bristlecone.benchmark.db.Column;
+import com.continuent.bristlecone.benchmark.db.DataGenerator;
+import com.continuent.bristlecone.benchmark.db.DataGeneratorFactory;
+
+/**
+ * Compares the cost of generating numbers through the Object API with the
+ * primitive API.  Each path runs on the test thread so that its 
+ * allocations can be measured.  Allocation checks are skipped if the JVM 
+ * does not count allocated bytes per thread. 
+ *
+ * @author rhodges
+ */
+public class DataGeneratorOverheadTest extends TestCase
+{
+  private static Logger logger = Logger.getLogger(DataGeneratorOverheadTest.class);
+  private static final int VALUES = 2000000;
+
+  private AllocationMeter meter;
+
+  // Accumulates generated values so that the JIT compiler cannot discard
+  // the work being measured. 
+  private double sum;
+
+  /** Looks up the allocation counters. */
+  protected void setUp() throws Exception
+  {
+    meter = new AllocationMeter();
+    if (!meter.isAvailable())
+      logger.warn("Thread allocation counters unavailable; skipping checks");
+  }
+
+  /** 
+   * Show that primitive long generation does not allocate, unlike 
+   * generate(), which boxes each value. 
+   */
+  public void testLongOverhead() throws Exception
+  {
+    if (!meter.isAvailable())
+      return;
+    DataGenerator dg = DataGeneratorFactory.getInstance().getGenerator(
+        new Column("i", Types.BIGINT));
+
+    meter.measure(VALUES, () -> sum += generateObjects(dg));
+    double objectNanos = meter.getNanosPerOperation();
+    long objectBytes = meter.getAllocatedBytes();
+
+    meter.measure(VALUES, () -> sum += generateLongs(dg));
+    double primitiveNanos = meter.getNanosPerOperation();
+    long primitiveBytes = meter.getAllocatedBytes();
+
+    logger.info("Long generation: object nanos/value=" + objectNanos
+        + " bytes=" + objectBytes + " primitive nanos/value=" 
+        + primitiveNanos + " bytes=" + primitiveBytes + " (sum=" + sum + ")");
+    assertTrue("Primitive path allocates: bytes=" + primitiveBytes, 
+        primitiveBytes < VALUES / 20);
+  }
+
+  /** Show that primitive double generation does not allocate. */
+  public void testDoubleOverhead() throws Exception
+  {
+    if (!meter.isAvailable())
+      return;
+    DataGenerator dg = DataGeneratorFactory.getInstance().getGenerator(
+        new Column("d", Types.DOUBLE));
+
+    meter.measure(VALUES, () -> sum += generateDoubles(dg));
+    double primitiveNanos = meter.getNanosPerOperation();
+    long primitiveBytes = meter.getAllocatedBytes();
+
+    logger.info("Double generation: primitive nanos/value=" 
+        + primitiveNanos + " bytes=" + primitiveBytes + " (sum=" + sum + ")");
+    assertTrue("Primitive path allocates: bytes=" + primitiveBytes, 
+        primitiveBytes < VALUES / 20);
+  }
+
+  /** 
+   * Show that binding numeric values to a statement does not allocate, as
+   * each generator binds with the primitive setter for its type. 
+   */
+  public void testBindOverhead() throws Exception
+  {
+    if (!meter.isAvailable())
+      return;
+    PreparedStatement ps = new NullPreparedStatement();
+    int[] types = {Types.BIGINT, Types.INTEGER, Types.DOUBLE, Types.FLOAT, 
+        Types.BIT};
+    for (int type : types)
+    {
+      DataGenerator dg = DataGeneratorFactory.getInstance().getGenerator(
+          new Column("b", type));
+      meter.measure(VALUES, () -> bindValues(dg, ps));
+      double bindNanos = meter.getNanosPerOperation();
+      long bindBytes = meter.getAllocatedBytes();
+
+      logger.info("Bind: type=" + type + " nanos/value=" + bindNanos 
+          + " bytes=" + bindBytes);
+      assertTrue("Binding allocates: type=" + type + " bytes=" + bindBytes, 
+          bindBytes < VALUES / 20);
+    }
+  }
+
+  // Generates values through the Object API. 
+  private long generateObjects(DataGenerator dg)
+  {
+    long sum = 0;
+    for (int i = 0; i < VALUES; i++)
+      sum += ((Long) dg.generate()).longValue();
+    return sum;
+  }
+
+  // Generates values through the primitive API. 
+  private long generateLongs(DataGenerator dg)
+  {
+    long sum = 0;
+    for (int i = 0; i < VALUES; i++)
+      sum += dg.nextLong();
+    return sum;
+  }
+
+  // Generates doubles through the primitive API. 
+  private double generateDoubles(DataGenerator dg)
+  {
+    double sum = 0;
+    for (int i = 0; i < VALUES; i++)
+      sum += dg.nextDouble();
+    return sum;
+  }
+
+  // Binds values to the first parameter of a statement. 
+  private void bindValues(DataGenerator dg, PreparedStatement ps) 
+      throws Exception
+  {
+    for (int i = 0; i < VALUES; i++)
+      dg.bind(ps, 1);
+  }
+}
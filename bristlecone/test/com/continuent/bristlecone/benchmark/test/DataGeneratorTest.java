@@ -22,12 +22,28 @@
 
 package com.continuent.bristlecone.benchmark.test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.math.BigDecimal;
 import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+import com.continuent.bristlecone.benchmark.ThreadRandom;
 import com.continuent.bristlecone.benchmark.db.Column;
 import com.continuent.bristlecone.benchmark.db.DataGenerator;
 import com.continuent.bristlecone.benchmark.db.DataGeneratorFactory;
+import com.continuent.bristlecone.benchmark.db.DataPoolManager;
 import junit.framework.TestCase;
 
 public class DataGeneratorTest extends TestCase
@@ -125,4 +141,363 @@ public class DataGeneratorTest extends TestCase
       dateFormatter.parse(sDate);
     }
   }
+
+  /**
+   * Test that values generated for a row depend only on the row index and
+   * seed, not on the generator instance or the order in which rows are 
+   * generated. 
+   */
+  public void testRowIndexGeneration() throws Exception
+  {
+    Column[] columns = new Column[] {
+        new Column("i", java.sql.Types.INTEGER),
+        new Column("d", java.sql.Types.DOUBLE),
+        new Column("t", java.sql.Types.DATE),
+        new Column("s", java.sql.Types.VARCHAR, 20),
+        new Column("b", java.sql.Types.BLOB, 20)
+    };
+    long seed = 12345;
+    int rows = 100;
+    for (Column c : columns)
+    {
+      DataGenerator dg1 = DataGeneratorFactory.getInstance().getGenerator(c);
+      DataGenerator dg2 = DataGeneratorFactory.getInstance().getGenerator(c);
+      Object[] forward = new Object[rows];
+      for (int i = 0; i < rows; i++)
+        forward[i] = dg1.generate(i, seed);
+
+      int distinct = 0;
+      for (int i = rows - 1; i >= 0; i--)
+      {
+        Object value = dg2.generate(i, seed);
+        assertTrue("Same value: column=" + c.getName() + " row=" + i, 
+            valueEquals(forward[i], value));
+        if (i > 0 && ! valueEquals(forward[i - 1], value))
+          distinct++;
+      }
+      assertTrue("Rows differ: column=" + c.getName(), distinct > rows / 2);
+      assertFalse("Seeds differ: column=" + c.getName(), 
+          valueEquals(forward[0], dg1.generate(0, seed + 1)) 
+          && valueEquals(forward[1], dg1.generate(1, seed + 1)));
+    }
+  }
+
+  /**
+   * Test that pooled generators draw from a fixed set of values that is 
+   * shared by columns with the same definition. 
+   */
+  public void testPooledGeneration() throws Exception
+  {
+    Column c = new Column("s", java.sql.Types.VARCHAR, 50);
+    try
+    {
+      DataGenerator dg1 = DataPoolManager.getInstance().getPool(c, 10, 0);
+      DataGenerator dg2 = DataPoolManager.getInstance().getPool(c.clone(), 10, 0);
+      assertSame("Pool shared", dg1, dg2);
+
+      Set<Object> values = new HashSet<Object>();
+      for (int i = 0; i < 1000; i++)
+        values.add(dg1.generate());
+      assertTrue("Values come from pool: " + values.size(), 
+          values.size() > 1 && values.size() <= 10);
+    }
+    finally
+    {
+      DataPoolManager.getInstance().release();
+    }
+  }
+
+  /**
+   * Test that columns whose distribution metadata differ do not share a 
+   * pool. 
+   */
+  public void testPoolDistribution() throws Exception
+  {
+    Column c = new Column("s", java.sql.Types.VARCHAR, 50);
+    Column distinct = c.clone();
+    distinct.setDistinctValues(2);
+    Column nulls = c.clone();
+    nulls.setNullFraction(0.5);
+    Column skewed = distinct.clone();
+    skewed.setSkew(0.99);
+    Column random = c.clone();
+    random.setCompressibility(1);
+    try
+    {
+      DataPoolManager manager = DataPoolManager.getInstance();
+      DataGenerator dg = manager.getPool(c, 10, 0);
+      assertNotSame("Distinct values", dg, manager.getPool(distinct, 10, 0));
+      assertNotSame("Null fraction", dg, manager.getPool(nulls, 10, 0));
+      assertNotSame("Skew", manager.getPool(distinct, 10, 0), 
+          manager.getPool(skewed, 10, 0));
+      assertNotSame("Compressibility", dg, manager.getPool(random, 10, 0));
+
+      Set<Object> values = new HashSet<Object>();
+      DataGenerator distinctPool = manager.getPool(distinct, 10, 0);
+      for (int i = 0; i < 1000; i++)
+        values.add(distinctPool.generate());
+      assertTrue("Pool keeps distinct values: " + values.size(), 
+          values.size() <= 2);
+    }
+    finally
+    {
+      DataPoolManager.getInstance().release();
+    }
+  }
+
+  /**
+   * Test that pooled values are bound with the column type and that 
+   * pooled nulls are bound with setNull(). 
+   */
+  public void testPoolBinding() throws Exception
+  {
+    Column c = new Column("s", java.sql.Types.VARCHAR, 50);
+    c.setNullFraction(0.5);
+    final int[] nulls = new int[1];
+    final int[] typed = new int[1];
+    PreparedStatement ps = new NullPreparedStatement()
+    {
+      public void setNull(int index, int type) throws SQLException
+      {
+        assertEquals("Null type", java.sql.Types.VARCHAR, type);
+        nulls[0]++;
+      }
+
+      public void setObject(int index, Object value) throws SQLException
+      {
+        fail("Untyped bind of pooled value: " + value);
+      }
+
+      public void setObject(int index, Object value, int type) 
+          throws SQLException
+      {
+        assertNotNull("Typed bind of null", value);
+        assertEquals("Value type", java.sql.Types.VARCHAR, type);
+        typed[0]++;
+      }
+    };
+    try
+    {
+      DataGenerator dg = DataPoolManager.getInstance().getPool(c, 100, 0);
+      for (int i = 0; i < 1000; i++)
+        dg.bind(ps, 1);
+      assertTrue("Nulls bound: " + nulls[0], nulls[0] > 0);
+      assertTrue("Values bound: " + typed[0], typed[0] > 0);
+    }
+    finally
+    {
+      DataPoolManager.getInstance().release();
+    }
+  }
+
+  /**
+   * Test that pools are not shared across seeds, since distinct values 
+   * derive from the seed, or across pool sizes. 
+   */
+  public void testPoolSeed() throws Exception
+  {
+    Column c = new Column("s", java.sql.Types.VARCHAR, 50);
+    c.setDistinctValues(5);
+    long seed = ThreadRandom.getSeed();
+    try
+    {
+      DataPoolManager manager = DataPoolManager.getInstance();
+      DataGenerator dg = manager.getPool(c, 10, 0);
+      assertNotSame("Pool size", dg, manager.getPool(c, 20, 0));
+      ThreadRandom.setSeed(seed + 1);
+      assertNotSame("Seed", dg, manager.getPool(c, 10, 0));
+      ThreadRandom.setSeed(seed);
+      assertSame("Same definition", dg, manager.getPool(c.clone(), 10, 0));
+    }
+    finally
+    {
+      ThreadRandom.setSeed(seed);
+      DataPoolManager.getInstance().release();
+    }
+  }
+
+  /**
+   * Test that generators bind values with the setter for their type, and 
+   * that bound and primitive values match the object values for the same 
+   * row. 
+   */
+  public void testTypedBinding() throws Exception
+  {
+    Object[][] cases = new Object[][] {
+        {new Column("i", java.sql.Types.INTEGER), "setLong"},
+        {new Column("d", java.sql.Types.DOUBLE), "setDouble"},
+        {new Column("f", java.sql.Types.FLOAT), "setFloat"},
+        {new Column("t", java.sql.Types.DATE), "setDate"},
+        {new Column("s", java.sql.Types.VARCHAR, 20), "setString"},
+        {new Column("b", java.sql.Types.BLOB, 20), "setBytes"}
+    };
+    final Object[] call = new Object[2];
+    PreparedStatement ps = (PreparedStatement) Proxy.newProxyInstance(
+        getClass().getClassLoader(), new Class<?>[] {PreparedStatement.class},
+        new InvocationHandler()
+        {
+          public Object invoke(Object proxy, Method method, Object[] args)
+          {
+            call[0] = method.getName();
+            call[1] = args[1];
+            return null;
+          }
+        });
+
+    long seed = 99;
+    for (Object[] c : cases)
+    {
+      Column column = (Column) c[0];
+      DataGenerator dg = DataGeneratorFactory.getInstance().getGenerator(column);
+      for (int row = 0; row < 10; row++)
+      {
+        dg.bind(ps, 1, row, seed);
+        assertEquals("Setter: column=" + column.getName(), c[1], call[0]);
+        assertTrue("Bound value: column=" + column.getName(), 
+            valueEquals(dg.generate(row, seed), call[1]));
+      }
+    }
+
+    DataGenerator dg = DataGeneratorFactory.getInstance().getGenerator(
+        new Column("i", java.sql.Types.INTEGER));
+    for (int row = 0; row < 10; row++)
+    {
+      assertEquals("Primitive long", 
+          ((Long) dg.generate(row, seed)).longValue(), 
+          dg.nextLong(ThreadRandom.forRow(row, seed)));
+    }
+  }
+
+  /**
+   * Test that streaming LOB generators produce the same values as the 
+   * in-memory generators for the same row, read in odd-sized chunks, and
+   * bind them as streams. 
+   */
+  public void testStreamingGeneration() throws Exception
+  {
+    DataGeneratorFactory factory = DataGeneratorFactory.getInstance();
+    Column blob = new Column("b", java.sql.Types.BLOB, 100003);
+    Column clob = new Column("c", java.sql.Types.CLOB, 100003);
+    long seed = 7;
+    for (int row = 0; row < 5; row++)
+    {
+      InputStream in = (InputStream) factory.getStreamingGenerator(blob)
+          .generate(row, seed);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] buf = new byte[777];
+      int n;
+      while ((n = in.read(buf)) >= 0)
+        bytes.write(buf, 0, n);
+      assertTrue("Streamed blob: row=" + row, Arrays.equals(
+          (byte[]) factory.getGenerator(blob).generate(row, seed), 
+          bytes.toByteArray()));
+
+      Reader reader = (Reader) factory.getStreamingGenerator(clob)
+          .generate(row, seed);
+      StringBuffer chars = new StringBuffer();
+      char[] cbuf = new char[777];
+      while ((n = reader.read(cbuf)) >= 0)
+        chars.append(cbuf, 0, n);
+      assertEquals("Streamed clob: row=" + row, 
+          factory.getGenerator(clob).generate(row, seed), chars.toString());
+    }
+
+    final Object[] call = new Object[1];
+    PreparedStatement ps = (PreparedStatement) Proxy.newProxyInstance(
+        getClass().getClassLoader(), new Class<?>[] {PreparedStatement.class},
+        new InvocationHandler()
+        {
+          public Object invoke(Object proxy, Method method, Object[] args)
+          {
+            call[0] = method.getName();
+            return null;
+          }
+        });
+    factory.getStreamingGenerator(blob).bind(ps, 1);
+    assertEquals("Blob setter", "setBinaryStream", call[0]);
+    factory.getStreamingGenerator(clob).bind(ps, 1);
+    assertEquals("Clob setter", "setCharacterStream", call[0]);
+  }
+
+  /**
+   * Test that generators honor column distribution metadata: distinct 
+   * values, null fraction, skew, and compressibility. 
+   */
+  public void testColumnDistribution() throws Exception
+  {
+    DataGeneratorFactory factory = DataGeneratorFactory.getInstance();
+    Column c = new Column("s", java.sql.Types.VARCHAR, 20);
+    c.setDistinctValues(5);
+    c.setNullFraction(0.3);
+    DataGenerator dg = factory.getGenerator(c);
+    Set<Object> values = new HashSet<Object>();
+    int nulls = 0;
+    for (int i = 0; i < 10000; i++)
+    {
+      Object value = dg.generate();
+      if (value == null)
+        nulls++;
+      else
+        values.add(value);
+    }
+    assertEquals("Distinct values", 5, values.size());
+    assertTrue("Null count: " + nulls, nulls > 2500 && nulls < 3500);
+
+    // A second generator for the column shares its values. 
+    DataGenerator dg2 = factory.getGenerator(c);
+    for (int i = 0; i < 100; i++)
+    {
+      Object value = dg2.generate();
+      assertTrue("Shared value", value == null || values.contains(value));
+    }
+
+    // With skew the most popular of 100 values is far above 1%. 
+    Column skewed = new Column("i", java.sql.Types.INTEGER);
+    skewed.setDistinctValues(100);
+    skewed.setSkew(1.5);
+    dg = factory.getGenerator(skewed);
+    Map<Object, Integer> counts = new HashMap<Object, Integer>();
+    int max = 0;
+    for (int i = 0; i < 10000; i++)
+    {
+      Object value = dg.generate();
+      Integer count = counts.get(value);
+      count = (count == null) ? 1 : count + 1;
+      counts.put(value, count);
+      max = Math.max(max, count);
+    }
+    assertTrue("Distinct skewed values: " + counts.size(), counts.size() <= 100);
+    assertTrue("Most popular value count: " + max, max > 1000);
+
+    // Lower compressibility targets give larger compressed values. 
+    int repeating = compressedSize(factory, 0);
+    int half = compressedSize(factory, 2);
+    int random = compressedSize(factory, 1);
+    assertTrue("Compressed sizes: default=" + repeating + " ratio2=" + half 
+        + " random=" + random, repeating * 10 < half && half * 1.5 < random);
+  }
+
+  // Returns the deflated size of a generated 10000 byte BLOB. 
+  private int compressedSize(DataGeneratorFactory factory, double ratio)
+  {
+    Column c = new Column("b", java.sql.Types.BLOB, 10000);
+    c.setCompressibility(ratio);
+    byte[] value = (byte[]) factory.getGenerator(c).generate(0, 1);
+    Deflater deflater = new Deflater();
+    deflater.setInput(value);
+    deflater.finish();
+    byte[] buf = new byte[20000];
+    int size = deflater.deflate(buf);
+    deflater.end();
+    return size;
+  }
+
+  // Compares generated values, including byte arrays. 
+  private boolean valueEquals(Object a, Object b)
+  {
+    if (a instanceof byte[])
+      return Arrays.equals((byte[]) a, (byte[]) b);
+    else
+      return a.equals(b);
+  }
 }
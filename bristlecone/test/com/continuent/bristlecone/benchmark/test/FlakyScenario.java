@@ -0,0 +1,52 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.test;
+
+import java.sql.SQLException;
+
+/**
+ * Scenario whose first attempt at each iteration fails with a SQLException
+ * carrying the SQLState given by the failState property. 
+ * 
+ * @author rhodges
+ */
+public class FlakyScenario extends SimpleScenario
+{
+  private String failState = "40001";
+  private long lastFailure = 0;
+
+  public void setFailState(String failState)
+  {
+    this.failState = failState;
+  }
+
+  public void iterate(long iterationCount) throws Exception
+  {
+    super.iterate(iterationCount);
+    if (iterationCount != lastFailure)
+    {
+      lastFailure = iterationCount;
+      throw new SQLException("Simulated failure", failState);
+    }
+  }
+}
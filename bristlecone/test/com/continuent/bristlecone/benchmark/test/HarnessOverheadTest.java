@@ -0,0 +1,106 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.test;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+
+import org.apache.log4j.Logger;
+
+import com.continuent.bristlecone.benchmark.impl.BenchmarkThread;
+import com.continuent.bristlecone.benchmark.impl.Config;
+import com.continuent.bristlecone.benchmark.impl.ConfigMetadata;
+import com.continuent.bristlecone.benchmark.impl.ConfigWrapper;
+import com.continuent.bristlecone.benchmark.scenarios.NoopScenario;
+
+/**
+ * Measures the per-iteration cost of the benchmark harness using the no-op
+ * scenario.  The benchmark thread loop runs on the test thread so that its
+ * allocations can be measured. 
+ *
+ * @author rhodges
+ */
+public class HarnessOverheadTest extends TestCase
+{
+  private static Logger logger = Logger.getLogger(HarnessOverheadTest.class);
+  private static final long ITERATIONS = 2000000;
+
+  // Bound on nanoseconds per iteration.  Wall time depends on the host, so
+  // the default is loose enough for slow or busy hosts; the 
+  // harness.maxNanos system property can set a tighter bound. 
+  private static final double MAX_NANOS = 5000;
+
+  /**
+   * Show that the iteration loop does not allocate and that its time per
+   * iteration stays within a bound. 
+   */
+  public void testHarnessOverhead() throws Exception
+  {
+    // Each run needs its own thread, so create both the warm-up and the 
+    // measured thread before measuring. 
+    List<BenchmarkThread> threads = 
+        Arrays.asList(createNoopThread(), createNoopThread());
+    Iterator<BenchmarkThread> runs = threads.iterator();
+    AllocationMeter meter = new AllocationMeter();
+    meter.measure(ITERATIONS, () -> runs.next().run());
+    double nanosPerIteration = meter.getNanosPerOperation();
+    long allocated = meter.getAllocatedBytes();
+
+    logger.info("Harness overhead: nanos/iteration=" + nanosPerIteration 
+        + " allocated bytes=" + allocated);
+    assertEquals("Iterations", ITERATIONS, threads.get(1).getIterationCount());
+    if (!meter.isAvailable())
+      logger.warn("Thread allocation counters unavailable; skipping check");
+    else
+    {
+      assertTrue("Iteration loop allocates: bytes=" + allocated, 
+          allocated < ITERATIONS / 20);
+    }
+    String maxNanosProperty = System.getProperty("harness.maxNanos");
+    double maxNanos = (maxNanosProperty == null) ? MAX_NANOS 
+        : Double.parseDouble(maxNanosProperty);
+    assertTrue("Overhead too high: nanos=" + nanosPerIteration 
+        + " max=" + maxNanos, nanosPerIteration < maxNanos);
+  }
+
+  // Creates a benchmark thread for the no-op scenario.  Tests call run() 
+  // directly so that the loop executes on the current thread. 
+  private BenchmarkThread createNoopThread() throws Exception
+  {
+    Properties props = new Properties();
+    props.setProperty("scenario", NoopScenario.class.getName());
+    props.setProperty("bound", "iterations");
+    props.setProperty("iterations", Long.toString(ITERATIONS));
+    ConfigMetadata metadata = new ConfigMetadata();
+    metadata.initialize(props, NoopScenario.class);
+    ConfigWrapper wrapper = new ConfigWrapper(new Config(props, metadata));
+
+    BenchmarkThread bt = new BenchmarkThread("noop", new NoopScenario(), wrapper);
+    bt.prepare();
+    return bt;
+  }
+}
@@ -0,0 +1,193 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.test;
+
+import junit.framework.TestCase;
+
+import com.continuent.bristlecone.benchmark.ThreadRandom;
+import com.continuent.bristlecone.benchmark.db.KeyChooser;
+import com.continuent.bristlecone.benchmark.db.KeyChooserFactory;
+
+/**
+ * Tests key choosers for each supported key distribution. 
+ *
+ * @author rhodges
+ */
+public class KeyChooserTest extends TestCase
+{
+  private static final int DRAWS = 100000;
+
+  /**
+   * Show that every distribution returns keys within range, including for
+   * a single key.
+   */
+  public void testRange() throws Exception
+  {
+    String[] distributions = {"uniform", "zipfian", "hotspot", "latest", 
+        "sequential"};
+    int[] sizes = {1, 2, 10, 1000};
+    for (String distribution : distributions)
+    {
+      for (int keys : sizes)
+      {
+        KeyChooser chooser = getChooser(distribution, keys);
+        for (int i = 0; i < 10000; i++)
+        {
+          int key = chooser.nextKey();
+          assertTrue(distribution + " key in range: keys=" + keys + " key=" + key, 
+              key >= 0 && key < keys);
+        }
+      }
+    }
+  }
+
+  /**
+   * Show that zipfian keys follow the Zipf probabilities and that latest 
+   * is the same distribution in reverse.
+   */
+  public void testZipfian() throws Exception
+  {
+    int keys = 1000;
+    double skew = 0.99;
+    int[] counts = countKeys(getChooser("zipfian", keys), keys);
+    int[] latestCounts = countKeys(getChooser("latest", keys), keys);
+
+    double sum = 0;
+    for (int k = 1; k <= keys; k++)
+      sum += Math.pow(k, -skew);
+    for (int k = 0; k < 3; k++)
+    {
+      double expected = Math.pow(k + 1, -skew) / sum;
+      assertEquals("Zipfian probability of key " + k, expected, 
+          counts[k] / (double) DRAWS, 0.01);
+      assertEquals("Latest probability of key " + (keys - 1 - k), expected, 
+          latestCounts[keys - 1 - k] / (double) DRAWS, 0.01);
+    }
+  }
+
+  /**
+   * Show that zipfian setup does not depend on the number of keys, so that
+   * choosers for very large tables are created immediately.
+   */
+  public void testZipfianLargeKeys() throws Exception
+  {
+    long start = System.nanoTime();
+    KeyChooser chooser = getChooser("zipfian", Integer.MAX_VALUE);
+    for (int i = 0; i < DRAWS; i++)
+      assertTrue("Key in range", chooser.nextKey() >= 0);
+    long millis = (System.nanoTime() - start) / 1000000;
+    assertTrue("Setup and draws are fast: millis=" + millis, millis < 5000);
+  }
+
+  /**
+   * Show that hot keys receive the hot fraction of operations.
+   */
+  public void testHotspot() throws Exception
+  {
+    int keys = 1000;
+    int[] counts = countKeys(getChooser("hotspot", keys), keys);
+    int hot = 0;
+    for (int k = 0; k < 200; k++)
+      hot += counts[k];
+    assertEquals("Hot operations", 0.8, hot / (double) DRAWS, 0.01);
+  }
+
+  /**
+   * Show that sequential keys ascend and wrap around.
+   */
+  public void testSequential() throws Exception
+  {
+    KeyChooser chooser = getChooser("sequential", 3);
+    int previous = chooser.nextKey();
+    for (int i = 0; i < 6; i++)
+    {
+      int key = chooser.nextKey();
+      assertEquals("Sequential key " + i, (previous + 1) % 3, key);
+      previous = key;
+    }
+  }
+
+  /**
+   * Show that sequential choosers on different thread streams start at 
+   * different keys, and that the start key is reproducible from the seed.
+   */
+  public void testSequentialStart() throws Exception
+  {
+    long seed = ThreadRandom.getSeed();
+    try
+    {
+      ThreadRandom.setSeed(42);
+      int[] starts = new int[4];
+      for (int stream = 0; stream < starts.length; stream++)
+      {
+        ThreadRandom.setStream(stream);
+        starts[stream] = getChooser("sequential", 1000000).nextKey();
+      }
+      for (int i = 1; i < starts.length; i++)
+        assertTrue("Streams start apart: " + starts[0] + " " + starts[i], 
+            starts[i] != starts[0]);
+
+      ThreadRandom.setSeed(42);
+      ThreadRandom.setStream(0);
+      assertEquals("Start key reproducible", starts[0], 
+          getChooser("sequential", 1000000).nextKey());
+    }
+    finally
+    {
+      ThreadRandom.setSeed(seed);
+    }
+  }
+
+  /**
+   * Show that unknown distributions are rejected.
+   */
+  public void testUnsupported() throws Exception
+  {
+    assertFalse("Unknown name", 
+        KeyChooserFactory.getInstance().isSupported("gaussian"));
+    try
+    {
+      getChooser("gaussian", 10);
+      fail("Created chooser for unknown distribution");
+    }
+    catch (IllegalArgumentException e)
+    {
+    }
+  }
+
+  // Returns a chooser with default parameters. 
+  private KeyChooser getChooser(String distribution, int keys)
+  {
+    return KeyChooserFactory.getInstance().getChooser(distribution, keys, 
+        0.99, 0.2, 0.8);
+  }
+
+  // Returns the number of times each key is chosen. 
+  private int[] countKeys(KeyChooser chooser, int keys)
+  {
+    int[] counts = new int[keys];
+    for (int i = 0; i < DRAWS; i++)
+      counts[chooser.nextKey()]++;
+    return counts;
+  }
+}
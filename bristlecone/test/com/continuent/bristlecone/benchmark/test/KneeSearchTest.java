@@ -0,0 +1,135 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.test;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.continuent.bristlecone.benchmark.impl.KneeSearch;
+
+/**
+ * Tests the throughput knee search against synthetic throughput curves. 
+ *
+ * @author rhodges
+ */
+public class KneeSearchTest extends TestCase
+{
+  /**
+   * Show that the search stops growing when throughput flattens out and 
+   * bisects to the point where it flattens, even though the last doubling
+   * still gained on average. 
+   */
+  public void testThroughputKnee() throws Exception
+  {
+    // Throughput grows linearly up to 20 threads and is flat after that. 
+    KneeSearch search = new KneeSearch(1, 1024, 0.05, 0);
+    KneeSearch.Point knee = search.search(new KneeSearch.Runner()
+    {
+      public KneeSearch.Point run(int threads)
+      {
+        return new KneeSearch.Point(threads, 100.0 * Math.min(threads, 20), 
+            1.0);
+      }
+    });
+
+    // 1, 2, 4, 8, 16, and 32 scale; 64 does not, which leaves bisection 
+    // between 16 and 64 that finds the flat part starting at 20. 
+    assertEquals("Knee", 20, knee.getThreads());
+    List<KneeSearch.Point> curve = search.getCurve();
+    assertEquals("First point", 1, curve.get(0).getThreads());
+    assertEquals("Last point", 64, curve.get(curve.size() - 1).getThreads());
+    assertTrue("Search is short: " + curve.size(), curve.size() <= 16);
+  }
+
+  /**
+   * Show that the search finds the peak when throughput falls off after 
+   * the knee. 
+   */
+  public void testThroughputPeak() throws Exception
+  {
+    // Throughput grows linearly up to 20 threads and then declines. 
+    KneeSearch search = new KneeSearch(1, 1024, 0.05, 0);
+    KneeSearch.Point knee = search.search(new KneeSearch.Runner()
+    {
+      public KneeSearch.Point run(int threads)
+      {
+        double opsPerSecond = (threads <= 20) ? 100.0 * threads 
+            : 2000.0 - 20.0 * (threads - 20);
+        return new KneeSearch.Point(threads, opsPerSecond, 1.0);
+      }
+    });
+    assertEquals("Knee", 20, knee.getThreads());
+  }
+
+  /**
+   * Show that the starting point is the knee if throughput does not grow
+   * at all. 
+   */
+  public void testFlatThroughput() throws Exception
+  {
+    KneeSearch search = new KneeSearch(4, 1024, 0.05, 0);
+    KneeSearch.Point knee = search.search(new KneeSearch.Runner()
+    {
+      public KneeSearch.Point run(int threads)
+      {
+        return new KneeSearch.Point(threads, 1000.0, 1.0);
+      }
+    });
+    assertEquals("Knee", 4, knee.getThreads());
+  }
+
+  /**
+   * Show that the latency target limits the knee even while throughput is
+   * still growing. 
+   */
+  public void testLatencyTarget() throws Exception
+  {
+    KneeSearch search = new KneeSearch(2, 1024, 0.05, 25.0);
+    KneeSearch.Point knee = search.search(new KneeSearch.Runner()
+    {
+      public KneeSearch.Point run(int threads)
+      {
+        return new KneeSearch.Point(threads, 100.0 * threads, threads);
+      }
+    });
+    assertEquals("Knee", 25, knee.getThreads());
+  }
+
+  /**
+   * Show that the search stops at the maximum thread count. 
+   */
+  public void testMaximum() throws Exception
+  {
+    KneeSearch search = new KneeSearch(1, 10, 0.05, 0);
+    KneeSearch.Point knee = search.search(new KneeSearch.Runner()
+    {
+      public KneeSearch.Point run(int threads)
+      {
+        return new KneeSearch.Point(threads, 100.0 * threads, 1.0);
+      }
+    });
+    assertEquals("Knee", 10, knee.getThreads());
+    assertEquals("Points", 5, search.getCurve().size());
+  }
+}
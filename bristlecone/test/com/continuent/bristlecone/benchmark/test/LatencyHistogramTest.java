@@ -0,0 +1,184 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+import junit.framework.TestCase;
+
+import com.continuent.bristlecone.benchmark.impl.LatencyHistogram;
+import com.continuent.bristlecone.benchmark.impl.LatencyRecorder;
+
+/**
+ * Tests latency histogram recording, percentile computation, and merging, 
+ * and interval recording.
+ *
+ * @author rhodges
+ */
+public class LatencyHistogramTest extends TestCase
+{
+  /**
+   * Show that an empty histogram returns 0 for all values.
+   */
+  public void testEmpty() throws Exception
+  {
+    LatencyHistogram h = new LatencyHistogram();
+    assertEquals("Empty count", 0, h.getTotalCount());
+    assertEquals("Empty max", 0, h.getMaxValue());
+    assertEquals("Empty min", 0, h.getMinValue());
+    assertEquals("Empty p99", 0, h.getValueAtPercentile(99.0));
+  }
+
+  /**
+   * Show that small values are counted exactly and percentiles fall on
+   * recorded values.
+   */
+  public void testSmallValuesExact() throws Exception
+  {
+    LatencyHistogram h = new LatencyHistogram();
+    for (long v = 1; v <= 100; v++)
+      h.recordValue(v);
+
+    assertEquals("Count", 100, h.getTotalCount());
+    assertEquals("Min", 1, h.getMinValue());
+    assertEquals("Max", 100, h.getMaxValue());
+    assertEquals("p50", 50, h.getValueAtPercentile(50.0));
+    assertEquals("p99", 99, h.getValueAtPercentile(99.0));
+    assertEquals("p100", 100, h.getValueAtPercentile(100.0));
+  }
+
+  /**
+   * Show that large values are reported within the histogram's relative
+   * error bound across the full range of magnitudes.
+   */
+  public void testRelativeError() throws Exception
+  {
+    long[] values = {1000L, 123456L, 5000000L, 987654321L,
+        3600L * 1000000000L, Long.MAX_VALUE / 3};
+    for (long v : values)
+    {
+      LatencyHistogram h = new LatencyHistogram();
+      h.recordValue(v);
+      h.recordValue(v * 2);
+      long p50 = h.getValueAtPercentile(50.0);
+      double error = Math.abs(p50 - v) / (double) v;
+      assertTrue("Relative error too large: value=" + v + " reported=" + p50,
+          error < 0.02);
+      assertEquals("Max is exact", v * 2, h.getMaxValue());
+    }
+  }
+
+  /**
+   * Show that merging histograms produces the same percentiles as
+   * recording all values in a single histogram.
+   */
+  public void testMerge() throws Exception
+  {
+    LatencyHistogram all = new LatencyHistogram();
+    LatencyHistogram a = new LatencyHistogram();
+    LatencyHistogram b = new LatencyHistogram();
+    for (long v = 0; v < 10000; v++)
+    {
+      long value = v * 1013;
+      all.recordValue(value);
+      if (v % 2 == 0)
+        a.recordValue(value);
+      else
+        b.recordValue(value);
+    }
+
+    LatencyHistogram merged = new LatencyHistogram();
+    merged.add(a);
+    merged.add(b);
+    assertEquals("Merged count", all.getTotalCount(), merged.getTotalCount());
+    assertEquals("Merged max", all.getMaxValue(), merged.getMaxValue());
+    assertEquals("Merged min", all.getMinValue(), merged.getMinValue());
+    assertEquals("Merged p99", all.getValueAtPercentile(99.0),
+        merged.getValueAtPercentile(99.0));
+    assertEquals("Merged p99.9", all.getValueAtPercentile(99.9),
+        merged.getValueAtPercentile(99.9));
+
+    merged.reset();
+    assertEquals("Reset count", 0, merged.getTotalCount());
+  }
+
+  /**
+   * Show that a histogram written with writeTo() reads back with the same
+   * counts and percentiles. 
+   */
+  public void testEncoding() throws Exception
+  {
+    LatencyHistogram h = new LatencyHistogram();
+    for (long v = 1; v < 100000; v += 37)
+      h.recordValue(v * v);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    h.writeTo(new DataOutputStream(bytes));
+    LatencyHistogram copy = LatencyHistogram.readFrom(new DataInputStream(
+        new ByteArrayInputStream(bytes.toByteArray())));
+
+    assertEquals("Count", h.getTotalCount(), copy.getTotalCount());
+    assertEquals("Min", h.getMinValue(), copy.getMinValue());
+    assertEquals("Max", h.getMaxValue(), copy.getMaxValue());
+    assertEquals("p99", h.getValueAtPercentile(99.0), 
+        copy.getValueAtPercentile(99.0));
+  }
+
+  /**
+   * Show that intervals taken from a recorder while another thread records
+   * lose no values and count none twice. 
+   */
+  public void testRecorder() throws Exception
+  {
+    final LatencyRecorder recorder = new LatencyRecorder();
+    final long values = 2000000;
+    Thread writer = new Thread("writer")
+    {
+      public void run()
+      {
+        for (long v = 1; v <= values; v++)
+          recorder.recordValue(v % 100000);
+      }
+    };
+    writer.start();
+
+    long total = 0;
+    int intervals = 0;
+    while (writer.isAlive())
+    {
+      LatencyHistogram interval = recorder.getIntervalHistogram();
+      assertTrue("Interval max", interval.getMaxValue() < 100000);
+      total += interval.getTotalCount();
+      intervals++;
+    }
+    writer.join();
+    total += recorder.getIntervalHistogram().getTotalCount();
+    assertEquals("Values recorded across " + intervals + " intervals", 
+        values, total);
+    assertEquals("Next interval is empty", 0, 
+        recorder.getIntervalHistogram().getTotalCount());
+  }
+}
@@ -0,0 +1,487 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.test;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Calendar;
+
+/**
+ * PreparedStatement whose methods do nothing and return default values.  
+ * Unlike a dynamic proxy it does not box arguments, so tests can measure
+ * what binding values allocates. 
+ * 
+ * @author rhodges
+ */
+public class NullPreparedStatement implements PreparedStatement
+{
+  public void addBatch() throws SQLException
+  {
+  }
+
+  public void addBatch(String arg1) throws SQLException
+  {
+  }
+
+  public void cancel() throws SQLException
+  {
+  }
+
+  public void clearBatch() throws SQLException
+  {
+  }
+
+  public void clearParameters() throws SQLException
+  {
+  }
+
+  public void clearWarnings() throws SQLException
+  {
+  }
+
+  public void closeOnCompletion() throws SQLException
+  {
+  }
+
+  public void close() throws SQLException
+  {
+  }
+
+  public int[] executeBatch() throws SQLException
+  {
+    return null;
+  }
+
+  public ResultSet executeQuery() throws SQLException
+  {
+    return null;
+  }
+
+  public ResultSet executeQuery(String arg1) throws SQLException
+  {
+    return null;
+  }
+
+  public int executeUpdate() throws SQLException
+  {
+    return 0;
+  }
+
+  public int executeUpdate(String arg1) throws SQLException
+  {
+    return 0;
+  }
+
+  public int executeUpdate(String arg1, String[] arg2) throws SQLException
+  {
+    return 0;
+  }
+
+  public int executeUpdate(String arg1, int arg2) throws SQLException
+  {
+    return 0;
+  }
+
+  public int executeUpdate(String arg1, int[] arg2) throws SQLException
+  {
+    return 0;
+  }
+
+  public boolean execute() throws SQLException
+  {
+    return false;
+  }
+
+  public boolean execute(String arg1) throws SQLException
+  {
+    return false;
+  }
+
+  public boolean execute(String arg1, String[] arg2) throws SQLException
+  {
+    return false;
+  }
+
+  public boolean execute(String arg1, int arg2) throws SQLException
+  {
+    return false;
+  }
+
+  public boolean execute(String arg1, int[] arg2) throws SQLException
+  {
+    return false;
+  }
+
+  public Connection getConnection() throws SQLException
+  {
+    return null;
+  }
+
+  public int getFetchDirection() throws SQLException
+  {
+    return 0;
+  }
+
+  public int getFetchSize() throws SQLException
+  {
+    return 0;
+  }
+
+  public ResultSet getGeneratedKeys() throws SQLException
+  {
+    return null;
+  }
+
+  public int getMaxFieldSize() throws SQLException
+  {
+    return 0;
+  }
+
+  public int getMaxRows() throws SQLException
+  {
+    return 0;
+  }
+
+  public ResultSetMetaData getMetaData() throws SQLException
+  {
+    return null;
+  }
+
+  public boolean getMoreResults() throws SQLException
+  {
+    return false;
+  }
+
+  public boolean getMoreResults(int arg1) throws SQLException
+  {
+    return false;
+  }
+
+  public ParameterMetaData getParameterMetaData() throws SQLException
+  {
+    return null;
+  }
+
+  public int getQueryTimeout() throws SQLException
+  {
+    return 0;
+  }
+
+  public int getResultSetConcurrency() throws SQLException
+  {
+    return 0;
+  }
+
+  public int getResultSetHoldability() throws SQLException
+  {
+    return 0;
+  }
+
+  public int getResultSetType() throws SQLException
+  {
+    return 0;
+  }
+
+  public ResultSet getResultSet() throws SQLException
+  {
+    return null;
+  }
+
+  public int getUpdateCount() throws SQLException
+  {
+    return 0;
+  }
+
+  public SQLWarning getWarnings() throws SQLException
+  {
+    return null;
+  }
+
+  public boolean isCloseOnCompletion() throws SQLException
+  {
+    return false;
+  }
+
+  public boolean isClosed() throws SQLException
+  {
+    return false;
+  }
+
+  public boolean isPoolable() throws SQLException
+  {
+    return false;
+  }
+
+  public boolean isWrapperFor(Class<?> arg1) throws SQLException
+  {
+    return false;
+  }
+
+  public void setArray(int arg1, Array arg2) throws SQLException
+  {
+  }
+
+  public void setAsciiStream(int arg1, InputStream arg2) throws SQLException
+  {
+  }
+
+  public void setAsciiStream(int arg1, InputStream arg2, int arg3) throws SQLException
+  {
+  }
+
+  public void setAsciiStream(int arg1, InputStream arg2, long arg3) throws SQLException
+  {
+  }
+
+  public void setBigDecimal(int arg1, BigDecimal arg2) throws SQLException
+  {
+  }
+
+  public void setBinaryStream(int arg1, InputStream arg2) throws SQLException
+  {
+  }
+
+  public void setBinaryStream(int arg1, InputStream arg2, int arg3) throws SQLException
+  {
+  }
+
+  public void setBinaryStream(int arg1, InputStream arg2, long arg3) throws SQLException
+  {
+  }
+
+  public void setBlob(int arg1, InputStream arg2) throws SQLException
+  {
+  }
+
+  public void setBlob(int arg1, InputStream arg2, long arg3) throws SQLException
+  {
+  }
+
+  public void setBlob(int arg1, Blob arg2) throws SQLException
+  {
+  }
+
+  public void setBoolean(int arg1, boolean arg2) throws SQLException
+  {
+  }
+
+  public void setBytes(int arg1, byte[] arg2) throws SQLException
+  {
+  }
+
+  public void setByte(int arg1, byte arg2) throws SQLException
+  {
+  }
+
+  public void setCharacterStream(int arg1, Reader arg2) throws SQLException
+  {
+  }
+
+  public void setCharacterStream(int arg1, Reader arg2, int arg3) throws SQLException
+  {
+  }
+
+  public void setCharacterStream(int arg1, Reader arg2, long arg3) throws SQLException
+  {
+  }
+
+  public void setClob(int arg1, Reader arg2) throws SQLException
+  {
+  }
+
+  public void setClob(int arg1, Reader arg2, long arg3) throws SQLException
+  {
+  }
+
+  public void setClob(int arg1, Clob arg2) throws SQLException
+  {
+  }
+
+  public void setCursorName(String arg1) throws SQLException
+  {
+  }
+
+  public void setDate(int arg1, Date arg2) throws SQLException
+  {
+  }
+
+  public void setDate(int arg1, Date arg2, Calendar arg3) throws SQLException
+  {
+  }
+
+  public void setDouble(int arg1, double arg2) throws SQLException
+  {
+  }
+
+  public void setEscapeProcessing(boolean arg1) throws SQLException
+  {
+  }
+
+  public void setFetchDirection(int arg1) throws SQLException
+  {
+  }
+
+  public void setFetchSize(int arg1) throws SQLException
+  {
+  }
+
+  public void setFloat(int arg1, float arg2) throws SQLException
+  {
+  }
+
+  public void setInt(int arg1, int arg2) throws SQLException
+  {
+  }
+
+  public void setLong(int arg1, long arg2) throws SQLException
+  {
+  }
+
+  public void setMaxFieldSize(int arg1) throws SQLException
+  {
+  }
+
+  public void setMaxRows(int arg1) throws SQLException
+  {
+  }
+
+  public void setNCharacterStream(int arg1, Reader arg2) throws SQLException
+  {
+  }
+
+  public void setNCharacterStream(int arg1, Reader arg2, long arg3) throws SQLException
+  {
+  }
+
+  public void setNClob(int arg1, Reader arg2) throws SQLException
+  {
+  }
+
+  public void setNClob(int arg1, Reader arg2, long arg3) throws SQLException
+  {
+  }
+
+  public void setNClob(int arg1, NClob arg2) throws SQLException
+  {
+  }
+
+  public void setNString(int arg1, String arg2) throws SQLException
+  {
+  }
+
+  public void setNull(int arg1, int arg2) throws SQLException
+  {
+  }
+
+  public void setNull(int arg1, int arg2, String arg3) throws SQLException
+  {
+  }
+
+  public void setObject(int arg1, Object arg2) throws SQLException
+  {
+  }
+
+  public void setObject(int arg1, Object arg2, int arg3) throws SQLException
+  {
+  }
+
+  public void setObject(int arg1, Object arg2, int arg3, int arg4) throws SQLException
+  {
+  }
+
+  public void setPoolable(boolean arg1) throws SQLException
+  {
+  }
+
+  public void setQueryTimeout(int arg1) throws SQLException
+  {
+  }
+
+  public void setRef(int arg1, Ref arg2) throws SQLException
+  {
+  }
+
+  public void setRowId(int arg1, RowId arg2) throws SQLException
+  {
+  }
+
+  public void setSQLXML(int arg1, SQLXML arg2) throws SQLException
+  {
+  }
+
+  public void setShort(int arg1, short arg2) throws SQLException
+  {
+  }
+
+  public void setString(int arg1, String arg2) throws SQLException
+  {
+  }
+
+  public void setTimestamp(int arg1, Timestamp arg2) throws SQLException
+  {
+  }
+
+  public void setTimestamp(int arg1, Timestamp arg2, Calendar arg3) throws SQLException
+  {
+  }
+
+  public void setTime(int arg1, Time arg2) throws SQLException
+  {
+  }
+
+  public void setTime(int arg1, Time arg2, Calendar arg3) throws SQLException
+  {
+  }
+
+  public void setURL(int arg1, URL arg2) throws SQLException
+  {
+  }
+
+  public void setUnicodeStream(int arg1, InputStream arg2, int arg3) throws SQLException
+  {
+  }
+
+  public <T> T unwrap(Class<T> arg1) throws SQLException
+  {
+    return null;
+  }
+}
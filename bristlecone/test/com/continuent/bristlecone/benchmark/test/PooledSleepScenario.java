@@ -0,0 +1,68 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.test;
+
+import java.sql.Connection;
+
+import com.continuent.bristlecone.benchmark.ScenarioAdapter;
+import com.continuent.bristlecone.benchmark.db.ConnectionPool;
+
+/**
+ * Scenario that uses a pooled connection and then holds it for 
+ * sleepMillis, so that threads outnumbering the
+ * pooled connections must wait for one. 
+ * 
+ * @author rhodges
+ */
+public class PooledSleepScenario extends ScenarioAdapter
+{
+  private long           sleepMillis = 20;
+  private ConnectionPool pool;
+  private Connection     conn;
+
+  public void setSleepMillis(long sleepMillis)
+  {
+    this.sleepMillis = sleepMillis;
+  }
+
+  public void setConnectionPool(ConnectionPool pool)
+  {
+    this.pool = pool;
+  }
+
+  public void prepare() throws Exception
+  {
+    conn = pool.getConnection();
+  }
+
+  public void iterate(long iterationCount) throws Exception
+  {
+    conn.getAutoCommit();
+    Thread.sleep(sleepMillis);
+  }
+
+  public void cleanup() throws Exception
+  {
+    conn.close();
+  }
+}
@@ -0,0 +1,151 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.test;
+
+import java.io.File;
+import java.util.List;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+
+import com.continuent.bristlecone.benchmark.BenchmarkCompare;
+import com.continuent.bristlecone.benchmark.impl.Config;
+import com.continuent.bristlecone.benchmark.impl.ConfigMetadata;
+import com.continuent.bristlecone.benchmark.impl.ResultArchive;
+import com.continuent.bristlecone.benchmark.impl.ResultComparison;
+
+/**
+ * Tests the result archive and comparison of archived results against a 
+ * baseline. 
+ *
+ * @author rhodges
+ */
+public class ResultArchiveTest extends TestCase
+{
+  /**
+   * Show that archived results are read back with their label and key 
+   * and that values containing separators survive. 
+   */
+  public void testArchiveRoundTrip() throws Exception
+  {
+    File file = File.createTempFile("archive", ".txt");
+    file.delete();
+    ResultArchive archive = new ResultArchive(file);
+    ConfigMetadata metadata = createMetadata();
+    archive.append("base", createResult(metadata, "1", 100.0));
+    archive.append("base", createResult(metadata, "2", 200.0));
+
+    // A second archive on the same file must append, not overwrite. 
+    Config odd = createResult(metadata, "1", 50.0);
+    odd.setProperty("url", "jdbc:x\tone\ntwo");
+    new ResultArchive(file).append("next", odd);
+
+    List<ResultArchive.Entry> entries = archive.read();
+    assertEquals("Entries", 3, entries.size());
+    assertEquals("Label", "base", entries.get(0).getLabel());
+    assertEquals("Key", "threads=2", entries.get(1).getKey());
+    assertEquals("Value", "200.0", entries.get(1).getValue("actualAvgOpsSec"));
+    assertEquals("Escaped value", "jdbc:x\tone\ntwo", 
+        entries.get(2).getValue("url"));
+    file.delete();
+  }
+
+  /**
+   * Show that keys escape separators in values, so runs whose values 
+   * differ only in where a separator falls get different keys, and that 
+   * plain values keep their readable form. 
+   */
+  public void testKeyEscaping() throws Exception
+  {
+    ConfigMetadata metadata = createMetadata();
+    metadata.getPropertyMetadataAsserted("url").setVariable(true);
+    Config plain = createResult(metadata, "1", 100.0);
+    assertEquals("Plain key", "threads=1 url=jdbc:test", 
+        ResultArchive.keyFor(plain));
+
+    Config first = createResult(metadata, "1", 100.0);
+    first.setProperty("url", "a url=b");
+    Config second = createResult(metadata, "1 url=a", 100.0);
+    second.setProperty("url", "b");
+    assertEquals("Escaped key", "threads=1 url=a\\ url\\=b", 
+        ResultArchive.keyFor(first));
+    assertFalse("Distinct keys", 
+        ResultArchive.keyFor(first).equals(ResultArchive.keyFor(second)));
+  }
+
+  /**
+   * Show that a consistent drop in throughput is a regression, while a 
+   * change within run-to-run noise is not reported. 
+   */
+  public void testCompare() throws Exception
+  {
+    File file = File.createTempFile("archive", ".txt");
+    file.delete();
+    ResultArchive archive = new ResultArchive(file);
+    ConfigMetadata metadata = createMetadata();
+    double[] base1 = {100, 102, 98, 101};
+    double[] current1 = {80, 82, 79, 81};
+    double[] base2 = {100, 140, 60, 120};
+    double[] current2 = {90, 150, 70, 110};
+    for (int i = 0; i < base1.length; i++)
+    {
+      archive.append("base", createResult(metadata, "1", base1[i]));
+      archive.append("base", createResult(metadata, "2", base2[i]));
+      archive.append("current", createResult(metadata, "1", current1[i]));
+      archive.append("current", createResult(metadata, "2", current2[i]));
+    }
+
+    List<ResultComparison> comparisons = BenchmarkCompare.compare(
+        archive.read(), "base", "current", new String[]{"actualAvgOpsSec"}, 
+        0.05);
+    assertEquals("Comparisons", 2, comparisons.size());
+    assertEquals("Key 1", "threads=1", comparisons.get(0).getKey());
+    assertTrue("Key 1 regressed", comparisons.get(0).isRegression());
+    assertFalse("Key 2 within noise", comparisons.get(1).isSignificant());
+    file.delete();
+  }
+
+  // Creates metadata with threads as the variable property. 
+  private ConfigMetadata createMetadata()
+  {
+    Properties props = new Properties();
+    props.setProperty("threads", "1");
+    props.setProperty("url", "jdbc:test");
+    ConfigMetadata metadata = new ConfigMetadata();
+    metadata.initialize(props, SimpleScenario.class);
+    metadata.getPropertyMetadataAsserted("threads").setVariable(true);
+    return metadata;
+  }
+
+  // Creates a result with the given thread count and throughput. 
+  private Config createResult(ConfigMetadata metadata, String threads, 
+      double opsSec)
+  {
+    Properties props = new Properties();
+    props.setProperty("threads", threads);
+    props.setProperty("url", "jdbc:test");
+    Config config = new Config(props, metadata);
+    config.setProperty("actualAvgOpsSec", opsSec);
+    return config;
+  }
+}
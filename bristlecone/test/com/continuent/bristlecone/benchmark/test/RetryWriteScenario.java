@@ -0,0 +1,109 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import com.continuent.bristlecone.benchmark.ScenarioAdapter;
+import com.continuent.bristlecone.benchmark.db.TableHelper;
+
+/**
+ * Scenario that inserts a row for each iteration in a transaction.  The 
+ * first attempt at each iteration fails with a deadlock after its insert, 
+ * so the row is committed exactly once only if the failed attempt is 
+ * rolled back before the retry. 
+ * 
+ * @author rhodges
+ */
+public class RetryWriteScenario extends ScenarioAdapter
+{
+  public static final String TABLE = "retry_write";
+
+  private String url;
+  private String user;
+  private String password;
+  private Connection conn;
+  private PreparedStatement insert;
+  private long lastFailure = 0;
+
+  public void setUrl(String url)
+  {
+    this.url = url;
+  }
+
+  public void setUser(String user)
+  {
+    this.user = user;
+  }
+
+  public void setPassword(String password)
+  {
+    this.password = password;
+  }
+
+  public void globalPrepare() throws Exception
+  {
+    TableHelper helper = new TableHelper(url, user, password);
+    try
+    {
+      helper.execute("drop table " + TABLE);
+    }
+    catch (SQLException e)
+    {
+      // Table did not exist. 
+    }
+    helper.execute("create table " + TABLE + " (mykey integer)");
+  }
+
+  public void prepare() throws Exception
+  {
+    conn = new TableHelper(url, user, password).getConnection();
+    conn.setAutoCommit(false);
+    insert = conn.prepareStatement("insert into " + TABLE + " values (?)");
+  }
+
+  public void iterate(long iterationCount) throws Exception
+  {
+    insert.setLong(1, iterationCount);
+    insert.executeUpdate();
+    if (iterationCount != lastFailure)
+    {
+      lastFailure = iterationCount;
+      throw new SQLException("Simulated deadlock", "40001");
+    }
+    conn.commit();
+  }
+
+  public void rollback() throws Exception
+  {
+    conn.rollback();
+  }
+
+  public void cleanup() throws Exception
+  {
+    insert.close();
+    conn.close();
+  }
+}
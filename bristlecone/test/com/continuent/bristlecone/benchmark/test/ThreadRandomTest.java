@@ -0,0 +1,125 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.test;
+
+import junit.framework.TestCase;
+
+import com.continuent.bristlecone.benchmark.ThreadRandom;
+
+/**
+ * Tests that per-thread random number streams are reproducible from a seed
+ * and independent of each other. 
+ *
+ * @author rhodges
+ */
+public class ThreadRandomTest extends TestCase
+{
+  /**
+   * Show that the same seed and stream index give the same values and that
+   * setting the seed restarts the calling thread's stream.
+   */
+  public void testReproducible() throws Exception
+  {
+    ThreadRandom.setSeed(42);
+    long[] first = draw(100);
+    ThreadRandom.setSeed(42);
+    long[] second = draw(100);
+    assertSequence("Main stream repeats", first, second);
+
+    ThreadRandom.setStream(3);
+    first = draw(100);
+    ThreadRandom.setStream(3);
+    second = draw(100);
+    assertSequence("Indexed stream repeats", first, second);
+    assertEquals("Seed", 42, ThreadRandom.getSeed());
+  }
+
+  /**
+   * Show that different streams and different seeds give different values,
+   * including for adjacent stream indexes.
+   */
+  public void testIndependent() throws Exception
+  {
+    ThreadRandom.setSeed(42);
+    ThreadRandom.setStream(0);
+    long[] stream0 = draw(100);
+    ThreadRandom.setStream(1);
+    long[] stream1 = draw(100);
+    assertNoOverlap("Adjacent streams", stream0, stream1);
+
+    ThreadRandom.setSeed(43);
+    ThreadRandom.setStream(0);
+    long[] otherSeed = draw(100);
+    assertNoOverlap("Different seeds", stream0, otherSeed);
+  }
+
+  /**
+   * Show that a stream gives the same values on a separate thread, which is 
+   * how benchmark threads select streams.
+   */
+  public void testOtherThread() throws Exception
+  {
+    ThreadRandom.setSeed(7);
+    ThreadRandom.setStream(5);
+    long[] expected = draw(100);
+
+    final long[][] actual = new long[1][];
+    Thread t = new Thread()
+    {
+      public void run()
+      {
+        ThreadRandom.setStream(5);
+        actual[0] = draw(100);
+      }
+    };
+    t.start();
+    t.join();
+    assertSequence("Stream on other thread", expected, actual[0]);
+  }
+
+  // Draws values from the calling thread's stream. 
+  private static long[] draw(int count)
+  {
+    long[] values = new long[count];
+    for (int i = 0; i < count; i++)
+      values[i] = ThreadRandom.current().nextLong();
+    return values;
+  }
+
+  private void assertSequence(String message, long[] expected, long[] actual)
+  {
+    for (int i = 0; i < expected.length; i++)
+      assertEquals(message + ": value " + i, expected[i], actual[i]);
+  }
+
+  // Checks that no value of one sequence appears in the other, which would
+  // show that one stream is a shifted copy of the other. 
+  private void assertNoOverlap(String message, long[] a, long[] b)
+  {
+    for (int i = 0; i < a.length; i++)
+    {
+      for (int j = 0; j < b.length; j++)
+        assertTrue(message + ": i=" + i + " j=" + j, a[i] != b[j]);
+    }
+  }
+}
@@ -0,0 +1,57 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.test;
+
+import com.continuent.bristlecone.benchmark.TimingContext;
+
+/**
+ * Scenario that times a nested pair of operations on each iteration. 
+ * 
+ * @author rhodges
+ */
+public class TimedScenario extends SimpleScenario
+{
+  private static final String[] TIMED_OPERATIONS = {"outer", "inner"};
+
+  private TimingContext timingContext;
+
+  public String[] getTimedOperations()
+  {
+    return TIMED_OPERATIONS;
+  }
+
+  public void setTimingContext(TimingContext timingContext)
+  {
+    this.timingContext = timingContext;
+  }
+
+  public void iterate(long iterationCount) throws Exception
+  {
+    timingContext.start("outer");
+    super.iterate(iterationCount);
+    timingContext.start("inner");
+    Thread.sleep(1);
+    timingContext.stop();
+    timingContext.stop();
+  }
+}
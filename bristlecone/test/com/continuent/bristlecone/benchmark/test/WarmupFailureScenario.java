@@ -0,0 +1,49 @@
+/**
+ * Bristlecone Test Tools for Databases
+ * Copyright (C) 2006-2007 Continuent Inc.
+ * Contact: bristlecone@lists.forge.continuent.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Initial developer(s): Robert Hodges and Ralph Hannus.
+ * Contributor(s):
+ */
+
+package com.continuent.bristlecone.benchmark.test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Scenario in which the first thread to iterate fails at once and the 
+ * others sleep for 10ms per iteration.  This shows how a thread lost during
+ * warmup affects the measured run. 
+ * 
+ * @author rhodges
+ */
+public class WarmupFailureScenario extends SimpleScenario
+{
+  private static final AtomicBoolean failed = new AtomicBoolean();
+
+  public void globalPrepare() throws Exception
+  {
+    failed.set(false);
+  }
+
+  public void iterate(long iterationCount) throws Exception
+  {
+    if (failed.compareAndSet(false, true))
+      throw new Exception("Simulated warmup failure");
+    Thread.sleep(10);
+  }
+}